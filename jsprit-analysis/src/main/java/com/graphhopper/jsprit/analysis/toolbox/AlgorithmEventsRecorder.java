@@ -280,7 +280,7 @@ public class AlgorithmEventsRecorder implements RuinListener, IterationStartsLis
         finish();
     }
 
-    private void finish() {
+    void finish() {
         try {
             fileSink.end();
             fos.close();
@@ -0,0 +1,215 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.graphhopper.jsprit.analysis.toolbox;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionData;
+import com.graphhopper.jsprit.core.problem.AbstractActivity;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Converts a log written by {@link BinaryAlgorithmEventsRecorder} to a dgs-file that can be shown with
+ * {@link AlgorithmEventsViewer}.
+ * <p>
+ * <p>The routes are rebuilt from the logged events and replayed to an {@link AlgorithmEventsRecorder}, thus the
+ * dgs-file is the same as if it had been recorded directly. A truncated log, e.g. of a run that has been killed,
+ * is converted up to its last complete event.
+ */
+public class BinaryAlgorithmEventsConverter {
+
+    private final VehicleRoutingProblem vrp;
+
+    private final Job[] jobs;
+
+    private final Vehicle[] vehicles;
+
+    private final List<VehicleRoute> routes = new ArrayList<>();
+
+    public BinaryAlgorithmEventsConverter(VehicleRoutingProblem vrp) {
+        this.vrp = vrp;
+        Collection<Job> allJobs = vrp.getJobsInclusiveInitialJobsInRoutes().values();
+        jobs = new Job[allJobs.size() + 1];
+        for (Job job : allJobs) jobs[job.getIndex()] = job;
+        vehicles = new Vehicle[vrp.getVehicles().size() + 1];
+        for (Vehicle vehicle : vrp.getVehicles()) vehicles[vehicle.getIndex()] = vehicle;
+    }
+
+    /**
+     * @param logFile log written by {@link BinaryAlgorithmEventsRecorder}, gzip-compressed if it ends with "gz"
+     * @param dgsFile dgs-file to be written, gzip-compressed if it ends with "gz"
+     */
+    public void convert(String logFile, String dgsFile) throws IOException {
+        File file = new File(logFile);
+        InputStream fis = new FileInputStream(file);
+        if (file.getName().endsWith("gz")) fis = new GZIPInputStream(fis, 1 << 16);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(fis, 1 << 16))) {
+            readHeader(in);
+            AlgorithmEventsRecorder dgsRecorder = new AlgorithmEventsRecorder(vrp, dgsFile);
+            routes.clear();
+            try {
+                while (replay(in, dgsRecorder)) {
+                }
+            } catch (EOFException e) {
+                //truncated log
+                dgsRecorder.finish();
+            }
+        }
+    }
+
+    private void readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != BinaryAlgorithmEventsRecorder.MAGIC)
+            throw new IllegalStateException("not an algorithm events log");
+        int version = readVarInt(in);
+        if (version != BinaryAlgorithmEventsRecorder.VERSION)
+            throw new IllegalStateException("unsupported version " + version);
+        int nuJobs = readVarInt(in);
+        int nuVehicles = readVarInt(in);
+        if (nuJobs != jobs.length - 1 || nuVehicles != vehicles.length - 1)
+            throw new IllegalArgumentException("log has been recorded for a problem with " + nuJobs + " jobs and " + nuVehicles
+                + " vehicles, but problem has " + (jobs.length - 1) + " jobs and " + (vehicles.length - 1) + " vehicles");
+    }
+
+    /**
+     * @return false if the algorithm ends
+     */
+    private boolean replay(DataInputStream in, AlgorithmEventsRecorder dgsRecorder) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case BinaryAlgorithmEventsRecorder.ITERATION_STARTS:
+                dgsRecorder.informIterationStarts(readVarInt(in), vrp, null);
+                return true;
+            case BinaryAlgorithmEventsRecorder.RUIN_STARTS:
+                routes.clear();
+                readRoutes(in);
+                dgsRecorder.ruinStarts(new ArrayList<>(routes));
+                return true;
+            case BinaryAlgorithmEventsRecorder.REMOVED: {
+                Job job = jobs[readVarInt(in)];
+                VehicleRoute route = routes.get(readVarInt(in));
+                route.getTourActivities().removeJob(job);
+                dgsRecorder.removed(job, route);
+                return true;
+            }
+            case BinaryAlgorithmEventsRecorder.INSERTION_STARTS:
+                dgsRecorder.informInsertionStarts(new ArrayList<>(routes), Collections.<Job>emptyList());
+                return true;
+            case BinaryAlgorithmEventsRecorder.ROUTE:
+                readRoute(in);
+                return true;
+            case BinaryAlgorithmEventsRecorder.BEFORE_JOB_INSERTION: {
+                Job job = jobs[readVarInt(in)];
+                VehicleRoute route = routes.get(readVarInt(in));
+                Vehicle vehicle = vehicle(readVarInt(in));
+                double departureTime = in.readDouble();
+                int pickupInsertionIndex = readVarInt(in) - 1;
+                int deliveryInsertionIndex = readVarInt(in) - 1;
+                InsertionData data = new InsertionData(0, pickupInsertionIndex, deliveryInsertionIndex, vehicle, null);
+                data.setVehicleDepartureTime(departureTime);
+                dgsRecorder.informBeforeJobInsertion(job, data, route);
+                insert(job, route, vehicle, departureTime, pickupInsertionIndex, deliveryInsertionIndex);
+                return true;
+            }
+            case BinaryAlgorithmEventsRecorder.INSERTION_ENDS: {
+                int nuRoutes = readVarInt(in);
+                List<VehicleRoute> insertedRoutes = new ArrayList<>(nuRoutes);
+                for (int i = 0; i < nuRoutes; i++) insertedRoutes.add(routes.get(readVarInt(in)));
+                dgsRecorder.informInsertionEnds(insertedRoutes, Collections.<Job>emptyList());
+                return true;
+            }
+            case BinaryAlgorithmEventsRecorder.ALGORITHM_ENDS: {
+                double cost = in.readDouble();
+                routes.clear();
+                readRoutes(in);
+                VehicleRoutingProblemSolution solution = new VehicleRoutingProblemSolution(new ArrayList<>(routes), cost);
+                dgsRecorder.informAlgorithmEnds(vrp, Collections.singletonList(solution));
+                return false;
+            }
+            default:
+                throw new IllegalStateException("unknown event type " + type);
+        }
+    }
+
+    private void insert(Job job, VehicleRoute route, Vehicle vehicle, double departureTime, int pickupInsertionIndex, int deliveryInsertionIndex) {
+        if (route.getVehicle() != vehicle) route.setVehicleAndDepartureTime(vehicle, departureTime);
+        List<AbstractActivity> acts = vrp.copyAndGetActivities(job);
+        if (job instanceof Shipment) {
+            route.getTourActivities().addActivity(deliveryInsertionIndex, acts.get(1));
+            route.getTourActivities().addActivity(pickupInsertionIndex, acts.get(0));
+        } else {
+            route.getTourActivities().addActivity(deliveryInsertionIndex, acts.get(0));
+        }
+    }
+
+    private void readRoutes(DataInputStream in) throws IOException {
+        int nuRoutes = readVarInt(in);
+        for (int i = 0; i < nuRoutes; i++) readRoute(in);
+    }
+
+    private void readRoute(DataInputStream in) throws IOException {
+        int id = readVarInt(in);
+        Vehicle vehicle = vehicle(readVarInt(in));
+        double departureTime = in.readDouble();
+        VehicleRoute route = VehicleRoute.emptyRoute();
+        if (!(vehicle instanceof VehicleImpl.NoVehicle)) route.setVehicleAndDepartureTime(vehicle, departureTime);
+        int nuActivities = readVarInt(in);
+        for (int i = 0; i < nuActivities; i++) {
+            int activity = readVarInt(in);
+            Job job = jobs[activity >>> 1];
+            List<AbstractActivity> acts = vrp.copyAndGetActivities(job);
+            route.getTourActivities().addActivity(acts.get(activity & 1));
+        }
+        while (routes.size() <= id) routes.add(null);
+        routes.set(id, route);
+    }
+
+    private Vehicle vehicle(int index) {
+        if (index <= 0 || index >= vehicles.length || vehicles[index] == null) return VehicleImpl.createNoVehicle();
+        return vehicles[index];
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+
+}
@@ -0,0 +1,367 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.graphhopper.jsprit.analysis.toolbox;
+
+import com.graphhopper.jsprit.core.algorithm.listener.AlgorithmEndsListener;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionData;
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.BeforeJobInsertionListener;
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionEndsListener;
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionStartsListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListener;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.DeliverShipment;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.util.Solutions;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records what happens when the algorithm searches in a compact binary log, e.g. for post-mortem analysis of
+ * production runs. Use {@link BinaryAlgorithmEventsConverter} to convert the log to a dgs-file that can be shown
+ * with {@link AlgorithmEventsViewer}.
+ * <p>
+ * <p>Events are encoded on the solver thread into a {@link ByteRingBuffer} (jobs, vehicles and routes by index,
+ * integers as var-ints) and written by a background thread, thus recording does not wait for the file system.
+ * If the file name ends with "gz", the log is gzip-compressed by the background thread. Events must be reported
+ * by one thread at a time, as the algorithm does. Call {@link #close()} if the algorithm does not end regularly,
+ * otherwise the log is closed when the algorithm ends.
+ */
+public class BinaryAlgorithmEventsRecorder implements RuinListener, IterationStartsListener, InsertionStartsListener, BeforeJobInsertionListener, InsertionEndsListener, AlgorithmEndsListener {
+
+    static final int MAGIC = 0x4a534556;
+
+    static final int VERSION = 1;
+
+    static final byte ITERATION_STARTS = 1;
+
+    static final byte RUIN_STARTS = 2;
+
+    static final byte REMOVED = 3;
+
+    static final byte INSERTION_STARTS = 4;
+
+    static final byte ROUTE = 5;
+
+    static final byte BEFORE_JOB_INSERTION = 6;
+
+    static final byte INSERTION_ENDS = 7;
+
+    static final byte ALGORITHM_ENDS = 8;
+
+    private static final int DEFAULT_BUFFER_CAPACITY = 1 << 20;
+
+    private final ByteRingBuffer ringBuffer;
+
+    private final Thread writer;
+
+    private final OutputStream out;
+
+    private volatile boolean closed = false;
+
+    private IOException writeException;
+
+    private byte[] event = new byte[256];
+
+    private int eventLength;
+
+    private final Map<VehicleRoute, Integer> routeIds = new IdentityHashMap<>();
+
+    private int start_recording_at = 0;
+
+    private int end_recording_at = Integer.MAX_VALUE;
+
+    private int currentIteration = 0;
+
+    public BinaryAlgorithmEventsRecorder(VehicleRoutingProblem vrp, String fileLocation) {
+        this(vrp, fileLocation, DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * @param vrp            the problem recorded
+     * @param fileLocation   location of the log, gzip-compressed if it ends with "gz"
+     * @param bufferCapacity capacity of the ring buffer in bytes
+     */
+    public BinaryAlgorithmEventsRecorder(VehicleRoutingProblem vrp, String fileLocation, int bufferCapacity) {
+        this(vrp, open(fileLocation), bufferCapacity);
+    }
+
+    /**
+     * @param vrp            the problem recorded
+     * @param out            stream the log is written to by the background thread, closed when the log is closed
+     * @param bufferCapacity capacity of the ring buffer in bytes
+     */
+    BinaryAlgorithmEventsRecorder(VehicleRoutingProblem vrp, OutputStream out, int bufferCapacity) {
+        ringBuffer = new ByteRingBuffer(bufferCapacity);
+        this.out = out;
+        writer = new Thread(this::drain, "algorithm-events-writer");
+        writer.setDaemon(true);
+        writer.start();
+        writeInt(MAGIC);
+        writeVarInt(VERSION);
+        writeVarInt(vrp.getJobsInclusiveInitialJobsInRoutes().size());
+        writeVarInt(vrp.getVehicles().size());
+        publish();
+    }
+
+    private static OutputStream open(String fileLocation) {
+        try {
+            File file = new File(fileLocation);
+            OutputStream fos = new FileOutputStream(file);
+            if (file.getName().endsWith("gz")) return new GZIPOutputStream(fos, 1 << 16);
+            return new BufferedOutputStream(fos, 1 << 16);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot open " + fileLocation, e);
+        }
+    }
+
+    public void setRecordingRange(int startIteration, int endIteration) {
+        this.start_recording_at = startIteration;
+        this.end_recording_at = endIteration;
+    }
+
+    private boolean record() {
+        return !closed && currentIteration >= start_recording_at && currentIteration <= end_recording_at;
+    }
+
+    @Override
+    public void informIterationStarts(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+        currentIteration = i;
+        if (!record()) return;
+        begin(ITERATION_STARTS);
+        writeVarInt(i);
+        publish();
+    }
+
+    @Override
+    public void ruinStarts(Collection<VehicleRoute> routes) {
+        if (!record()) return;
+        routeIds.clear();
+        begin(RUIN_STARTS);
+        writeRoutes(routes);
+        publish();
+    }
+
+    @Override
+    public void ruinEnds(Collection<VehicleRoute> routes, Collection<Job> unassignedJobs) {
+
+    }
+
+    @Override
+    public void removed(Job job, VehicleRoute fromRoute) {
+        if (!record()) return;
+        int routeId = routeId(fromRoute);
+        begin(REMOVED);
+        writeVarInt(job.getIndex());
+        writeVarInt(routeId);
+        publish();
+    }
+
+    @Override
+    public void informInsertionStarts(Collection<VehicleRoute> vehicleRoutes, Collection<Job> unassignedJobs) {
+        if (!record()) return;
+        begin(INSERTION_STARTS);
+        publish();
+    }
+
+    @Override
+    public void informBeforeJobInsertion(Job job, InsertionData data, VehicleRoute route) {
+        if (!record()) return;
+        int routeId = routeId(route);
+        begin(BEFORE_JOB_INSERTION);
+        writeVarInt(job.getIndex());
+        writeVarInt(routeId);
+        writeVarInt(data.getSelectedVehicle().getIndex());
+        writeDouble(data.getVehicleDepartureTime());
+        writeVarInt(data.getPickupInsertionIndex() + 1);
+        writeVarInt(data.getDeliveryInsertionIndex() + 1);
+        publish();
+    }
+
+    @Override
+    public void informInsertionEnds(Collection<VehicleRoute> vehicleRoutes, Collection<Job> badJobs) {
+        if (!record()) return;
+        int[] ids = new int[vehicleRoutes.size()];
+        int i = 0;
+        for (VehicleRoute route : vehicleRoutes) ids[i++] = routeId(route);
+        begin(INSERTION_ENDS);
+        writeVarInt(ids.length);
+        for (int id : ids) writeVarInt(id);
+        publish();
+    }
+
+    @Override
+    public void informAlgorithmEnds(VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+        if (closed) return;
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(solutions);
+        routeIds.clear();
+        begin(ALGORITHM_ENDS);
+        writeDouble(solution.getCost());
+        writeRoutes(solution.getRoutes());
+        publish();
+        close();
+    }
+
+    /**
+     * Writes all events recorded so far and closes the log. Subsequent events are ignored.
+     *
+     * @throws IllegalStateException if the log could not be written
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writeException != null) throw new IllegalStateException("cannot write algorithm events", writeException);
+    }
+
+    private void drain() {
+        OutputStream target = out;
+        boolean last = false;
+        while (!last) {
+            last = closed;
+            try {
+                if (ringBuffer.drainTo(target) == 0 && !last) LockSupport.parkNanos(1_000_000);
+            } catch (IOException e) {
+                writeException = e;
+                //let the producer continue, i.e. discard events
+                target = DISCARD;
+            }
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (writeException == null) writeException = e;
+        }
+    }
+
+    private static final OutputStream DISCARD = new OutputStream() {
+
+        @Override
+        public void write(int b) {
+
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+
+        }
+
+    };
+
+    /**
+     * Routes are identified by the order they are seen in since the last ruin. A route not seen before is written
+     * completely.
+     */
+    private int routeId(VehicleRoute route) {
+        Integer id = routeIds.get(route);
+        if (id != null) return id;
+        int newId = routeIds.size();
+        routeIds.put(route, newId);
+        begin(ROUTE);
+        writeRoute(newId, route);
+        publish();
+        return newId;
+    }
+
+    private void writeRoutes(Collection<VehicleRoute> routes) {
+        writeVarInt(routes.size());
+        for (VehicleRoute route : routes) {
+            int id = routeIds.size();
+            routeIds.put(route, id);
+            writeRoute(id, route);
+        }
+    }
+
+    /**
+     * Route is written as id, vehicle index, departure time and its job activities, encoded as job index and
+     * whether the activity is the delivery of a shipment.
+     */
+    private void writeRoute(int id, VehicleRoute route) {
+        writeVarInt(id);
+        writeVarInt(route.getVehicle().getIndex());
+        writeDouble(route.getDepartureTime());
+        int nuJobActivities = 0;
+        for (TourActivity act : route.getActivities()) {
+            if (act instanceof TourActivity.JobActivity) nuJobActivities++;
+        }
+        writeVarInt(nuJobActivities);
+        for (TourActivity act : route.getActivities()) {
+            if (!(act instanceof TourActivity.JobActivity)) continue;
+            int jobIndex = ((TourActivity.JobActivity) act).getJob().getIndex();
+            writeVarInt((jobIndex << 1) | (act instanceof DeliverShipment ? 1 : 0));
+        }
+    }
+
+    private void begin(byte type) {
+        eventLength = 0;
+        ensureCapacity(1);
+        event[eventLength++] = type;
+    }
+
+    private void publish() {
+        ringBuffer.put(event, 0, eventLength);
+        eventLength = 0;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (eventLength + bytes > event.length) event = Arrays.copyOf(event, Math.max(eventLength + bytes, 2 * event.length));
+    }
+
+    private void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            event[eventLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        event[eventLength++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(4);
+        event[eventLength++] = (byte) (value >>> 24);
+        event[eventLength++] = (byte) (value >>> 16);
+        event[eventLength++] = (byte) (value >>> 8);
+        event[eventLength++] = (byte) value;
+    }
+
+    private void writeDouble(double value) {
+        long bits = Double.doubleToLongBits(value);
+        writeInt((int) (bits >>> 32));
+        writeInt((int) bits);
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.graphhopper.jsprit.analysis.toolbox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free byte ring buffer with exactly one producer and one consumer thread. The producer blocks (by parking)
+ * while the buffer is full, thus no bytes are lost; the consumer drains whatever has been published to a stream.
+ */
+final class ByteRingBuffer {
+
+    private static final long PARK_NANOS = 50_000;
+
+    private final byte[] buffer;
+
+    private final int mask;
+
+    /**
+     * number of bytes written by the producer, published to the consumer
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * number of bytes read by the consumer, published to the producer
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity capacity in bytes, rounded up to the next power of two
+     */
+    ByteRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30))
+            throw new IllegalArgumentException("capacity must be in [1," + (1 << 30) + "], but is " + capacity);
+        int powerOfTwo = Integer.highestOneBit(capacity);
+        if (powerOfTwo < capacity) powerOfTwo <<= 1;
+        buffer = new byte[powerOfTwo];
+        mask = powerOfTwo - 1;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Writes len bytes of src, waiting for the consumer if the buffer is full. Must only be called by the producer.
+     */
+    void put(byte[] src, int offset, int len) {
+        long h = head.get();
+        while (len > 0) {
+            int free = (int) (buffer.length - (h - tail.get()));
+            if (free == 0) {
+                LockSupport.parkNanos(PARK_NANOS);
+                continue;
+            }
+            int chunk = Math.min(Math.min(len, free), buffer.length - (int) (h & mask));
+            System.arraycopy(src, offset, buffer, (int) (h & mask), chunk);
+            offset += chunk;
+            len -= chunk;
+            h += chunk;
+            head.lazySet(h);
+        }
+    }
+
+    /**
+     * Writes all bytes available to the specified stream. Must only be called by the consumer.
+     *
+     * @return number of bytes written
+     */
+    int drainTo(OutputStream out) throws IOException {
+        long t = tail.get();
+        int available = (int) (head.get() - t);
+        int drained = 0;
+        while (drained < available) {
+            int chunk = Math.min(available - drained, buffer.length - (int) (t & mask));
+            out.write(buffer, (int) (t & mask), chunk);
+            t += chunk;
+            drained += chunk;
+            tail.lazySet(t);
+        }
+        return drained;
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+}
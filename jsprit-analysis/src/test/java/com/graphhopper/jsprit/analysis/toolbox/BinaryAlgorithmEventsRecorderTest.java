@@ -0,0 +1,155 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.analysis.toolbox;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryAlgorithmEventsRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private VehicleRoutingProblem createProblem() {
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 4).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v1").setType(type).setStartLocation(Location.newInstance(0, 0)).build());
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v2").setType(type).setStartLocation(Location.newInstance(20, 20)).build());
+        for (int i = 0; i < 8; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance(i * 3, 20 - i * 2)).build());
+        }
+        vrpBuilder.addJob(Shipment.Builder.newInstance("sh").addSizeDimension(0, 1)
+            .setPickupLocation(Location.newInstance(5, 5)).setDeliveryLocation(Location.newInstance(15, 10)).build());
+        vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        return vrpBuilder.build();
+    }
+
+    /**
+     * Runs the algorithm once with both recorders attached and returns the lines of the dgs-file recorded directly.
+     */
+    private List<String> record(VehicleRoutingProblem vrp, File log) throws IOException {
+        File dgs = folder.newFile("direct.dgs");
+        AlgorithmEventsRecorder dgsRecorder = new AlgorithmEventsRecorder(vrp, dgs.getAbsolutePath());
+        BinaryAlgorithmEventsRecorder binaryRecorder = new BinaryAlgorithmEventsRecorder(vrp, log.getAbsolutePath(), 64);
+        VehicleRoutingAlgorithm vra = Jsprit.createAlgorithm(vrp);
+        vra.setMaxIterations(20);
+        vra.addListener(dgsRecorder);
+        vra.addListener(binaryRecorder);
+        vra.searchSolutions();
+        return Files.readAllLines(dgs.toPath(), StandardCharsets.UTF_8);
+    }
+
+    private List<String> convert(VehicleRoutingProblem vrp, File log, String dgsFileName) throws IOException {
+        File dgs = new File(folder.getRoot(), dgsFileName);
+        new BinaryAlgorithmEventsConverter(vrp).convert(log.getAbsolutePath(), dgs.getAbsolutePath());
+        return Files.readAllLines(dgs.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void whenConvertingLog_itShouldEqualDirectlyRecordedDgs() throws IOException {
+        VehicleRoutingProblem vrp = createProblem();
+        File log = new File(folder.getRoot(), "events.bin");
+        List<String> direct = record(vrp, log);
+        assertEquals(direct, convert(vrp, log, "converted.dgs"));
+    }
+
+    @Test
+    public void whenConvertingGzippedLog_itShouldEqualDirectlyRecordedDgs() throws IOException {
+        VehicleRoutingProblem vrp = createProblem();
+        File log = new File(folder.getRoot(), "events.bin.gz");
+        List<String> direct = record(vrp, log);
+        assertEquals(direct, convert(vrp, log, "converted.dgs"));
+    }
+
+    @Test
+    public void whenConvertingTruncatedLog_itShouldConvertCompleteEventsOnly() throws IOException {
+        VehicleRoutingProblem vrp = createProblem();
+        File log = new File(folder.getRoot(), "events.bin");
+        record(vrp, log);
+        List<String> complete = convert(vrp, log, "complete.dgs");
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(file.length() / 2 + 1);
+        }
+        List<String> truncated = convert(vrp, log, "truncated.dgs");
+        assertTrue(truncated.size() > 0);
+        assertTrue(truncated.size() < complete.size());
+        assertEquals(complete.subList(0, truncated.size()), truncated);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenConvertingLogOfOtherProblem_itShouldThrowException() throws IOException {
+        VehicleRoutingProblem vrp = createProblem();
+        File log = new File(folder.getRoot(), "events.bin");
+        record(vrp, log);
+        VehicleRoutingProblem other = VehicleRoutingProblem.Builder.newInstance()
+            .addVehicle(VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build())
+            .addJob(Service.Builder.newInstance("s").setLocation(Location.newInstance(1, 1)).build()).build();
+        new BinaryAlgorithmEventsConverter(other).convert(log.getAbsolutePath(), new File(folder.getRoot(), "other.dgs").getAbsolutePath());
+    }
+
+    @Test
+    public void whenWriterFails_closeShouldThrowException() {
+        final IOException writeError = new IOException("disk full");
+        OutputStream failing = new OutputStream() {
+
+            @Override
+            public void write(int b) throws IOException {
+                throw writeError;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw writeError;
+            }
+
+        };
+        VehicleRoutingProblem vrp = createProblem();
+        BinaryAlgorithmEventsRecorder recorder = new BinaryAlgorithmEventsRecorder(vrp, failing, 16);
+        for (int i = 0; i < 100; i++) {
+            recorder.informIterationStarts(i, vrp, null);
+        }
+        try {
+            recorder.close();
+            fail("close should throw an exception");
+        } catch (IllegalStateException e) {
+            assertSame(writeError, e.getCause());
+        }
+    }
+
+}
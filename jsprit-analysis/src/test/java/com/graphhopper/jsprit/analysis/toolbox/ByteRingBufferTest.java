@@ -0,0 +1,109 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.analysis.toolbox;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ByteRingBufferTest {
+
+    private static byte[] bytes(int from, int len) {
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) bytes[i] = (byte) (from + i);
+        return bytes;
+    }
+
+    @Test
+    public void whenCapacityIsNoPowerOfTwo_itShouldBeRoundedUp() {
+        assertEquals(8, new ByteRingBuffer(5).capacity());
+        assertEquals(8, new ByteRingBuffer(8).capacity());
+        assertEquals(1, new ByteRingBuffer(1).capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenCapacityIsZero_itShouldThrowException() {
+        new ByteRingBuffer(0);
+    }
+
+    @Test
+    public void whenBytesWrapAround_itShouldDrainThemInOrder() throws IOException {
+        ByteRingBuffer ringBuffer = new ByteRingBuffer(8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ringBuffer.put(bytes(0, 6), 0, 6);
+        assertEquals(6, ringBuffer.drainTo(out));
+        assertTrue(ringBuffer.isEmpty());
+
+        ringBuffer.put(bytes(6, 7), 0, 7);
+        assertFalse(ringBuffer.isEmpty());
+        assertEquals(7, ringBuffer.drainTo(out));
+        assertTrue(ringBuffer.isEmpty());
+        assertEquals(0, ringBuffer.drainTo(out));
+        assertArrayEquals(bytes(0, 13), out.toByteArray());
+    }
+
+    @Test
+    public void whenPuttingOffsetRange_itShouldOnlyWriteThisRange() throws IOException {
+        ByteRingBuffer ringBuffer = new ByteRingBuffer(8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ringBuffer.put(bytes(0, 10), 3, 4);
+        ringBuffer.drainTo(out);
+        assertArrayEquals(bytes(3, 4), out.toByteArray());
+    }
+
+    @Test(timeout = 10000)
+    public void whenBufferIsFull_producerShouldWaitForConcurrentConsumerAndNoByteShouldBeLost() throws Exception {
+        final ByteRingBuffer ringBuffer = new ByteRingBuffer(16);
+        final int noBytes = 100000;
+        final byte[] expected = bytes(0, noBytes);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AtomicReference<Throwable> consumerError = new AtomicReference<>();
+        Thread consumer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    while (out.size() < noBytes) {
+                        if (ringBuffer.drainTo(out) == 0) Thread.yield();
+                    }
+                } catch (Throwable e) {
+                    consumerError.set(e);
+                }
+            }
+
+        });
+        consumer.start();
+        int offset = 0;
+        int chunk = 1;
+        while (offset < noBytes) {
+            int len = Math.min(chunk, noBytes - offset);
+            ringBuffer.put(expected, offset, len);
+            offset += len;
+            chunk = chunk % 40 + 1;
+        }
+        consumer.join();
+        assertNull(consumerError.get());
+        assertTrue(ringBuffer.isEmpty());
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+}
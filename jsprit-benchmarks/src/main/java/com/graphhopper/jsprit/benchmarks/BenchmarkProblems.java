@@ -0,0 +1,208 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Coordinate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible vehicle routing problems for the benchmarks, i.e. no external instance files are needed.
+ * <p>
+ * <p>Jobs are spread uniformly over a square of {@link #EDGE_LENGTH} x {@link #EDGE_LENGTH} with a central depot. Each job
+ * has a size of one and every vehicle a capacity of <code>routeLength</code> (two times <code>routeLength</code> for
+ * shipments), thus <code>routeLength</code> determines the number of jobs per route. Every other job gets a time window
+ * that opens at the beginning of the planning horizon and closes somewhere in its second half. This way time window
+ * states and constraints are evaluated, but pre-built routes stay feasible no matter in which order jobs are visited.
+ */
+public final class BenchmarkProblems {
+
+    public static final double EDGE_LENGTH = 100.;
+
+    private static final double HORIZON = 100000.;
+
+    private BenchmarkProblems() {
+    }
+
+    /**
+     * Creates a problem with <code>noJobs</code> services and a finite fleet big enough to serve all of them in routes of
+     * <code>routeLength</code> services.
+     *
+     * @param noJobs      number of services
+     * @param routeLength number of services per route
+     * @param seed        seed of the random number generator, same seed gives same problem
+     * @return vehicle routing problem
+     */
+    public static VehicleRoutingProblem createServiceProblem(int noJobs, int routeLength, long seed) {
+        Random random = new Random(seed);
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        addVehicles(vrpBuilder, noJobs, routeLength, routeLength);
+        for (int i = 0; i < noJobs; i++) {
+            Service.Builder<Service> serviceBuilder = Service.Builder.newInstance("s_" + i)
+                .setLocation(randomLocation(random))
+                .setServiceTime(5.)
+                .addSizeDimension(0, 1);
+            if (i % 2 == 0) serviceBuilder.setTimeWindow(randomTimeWindow(random));
+            vrpBuilder.addJob(serviceBuilder.build());
+        }
+        return vrpBuilder.build();
+    }
+
+    /**
+     * Creates a problem with <code>noShipments</code> shipments and a finite fleet big enough to serve all of them in
+     * routes of <code>routeLength</code> shipments (i.e. 2 x <code>routeLength</code> activities).
+     *
+     * @param noShipments number of shipments
+     * @param routeLength number of shipments per route
+     * @param seed        seed of the random number generator, same seed gives same problem
+     * @return vehicle routing problem
+     */
+    public static VehicleRoutingProblem createShipmentProblem(int noShipments, int routeLength, long seed) {
+        Random random = new Random(seed);
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        addVehicles(vrpBuilder, noShipments, routeLength, 2 * routeLength);
+        for (int i = 0; i < noShipments; i++) {
+            Shipment.Builder shipmentBuilder = Shipment.Builder.newInstance("sh_" + i)
+                .setPickupLocation(randomLocation(random))
+                .setDeliveryLocation(randomLocation(random))
+                .setPickupServiceTime(5.)
+                .setDeliveryServiceTime(5.)
+                .addSizeDimension(0, 1);
+            if (i % 2 == 0) shipmentBuilder.setDeliveryTimeWindow(randomTimeWindow(random));
+            vrpBuilder.addJob(shipmentBuilder.build());
+        }
+        return vrpBuilder.build();
+    }
+
+    /**
+     * Builds a route for the specified vehicle with the specified jobs in their nearest neighbour order, starting at the
+     * depot. The route's activities are the ones of the problem, i.e. they are indexed and can be used with the
+     * StateManager.
+     *
+     * @param vrp     the problem the jobs belong to
+     * @param vehicle the vehicle of the route
+     * @param jobs    services or shipments to be served by the route
+     * @return route
+     */
+    public static VehicleRoute createRoute(VehicleRoutingProblem vrp, Vehicle vehicle, List<Job> jobs) {
+        VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory());
+        List<Job> toVisit = new ArrayList<>(jobs);
+        Coordinate current = vehicle.getStartLocation().getCoordinate();
+        while (!toVisit.isEmpty()) {
+            Job nearest = null;
+            double minDistance = Double.MAX_VALUE;
+            for (Job job : toVisit) {
+                double distance = distance(current, job.getActivities().get(0).getLocation().getCoordinate());
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    nearest = job;
+                }
+            }
+            toVisit.remove(nearest);
+            if (nearest instanceof Shipment) {
+                routeBuilder.addPickup((Shipment) nearest);
+                routeBuilder.addDelivery((Shipment) nearest);
+                current = ((Shipment) nearest).getDeliveryLocation().getCoordinate();
+            } else {
+                routeBuilder.addService((Service) nearest);
+                current = ((Service) nearest).getLocation().getCoordinate();
+            }
+        }
+        return routeBuilder.build();
+    }
+
+    /**
+     * Distributes all jobs of the problem to routes of <code>routeLength</code> jobs using the problem's vehicles in
+     * their insertion order. Jobs are assigned to routes in the order of their angle around the depot, i.e. routes
+     * form sectors.
+     *
+     * @param vrp         the problem
+     * @param routeLength jobs per route
+     * @param noJobs      number of jobs to be assigned (the remaining ones stay unassigned)
+     * @return routes
+     */
+    public static List<VehicleRoute> createRoutes(VehicleRoutingProblem vrp, int routeLength, int noJobs) {
+        List<Job> jobs = new ArrayList<>(vrp.getJobs().values());
+        final Coordinate depot = vrp.getVehicles().iterator().next().getStartLocation().getCoordinate();
+        jobs.sort((j1, j2) -> Double.compare(angle(depot, j1), angle(depot, j2)));
+        List<VehicleRoute> routes = new ArrayList<>();
+        Iterator<Vehicle> vehicles = vrp.getVehicles().iterator();
+        int assigned = Math.min(noJobs, jobs.size());
+        for (int from = 0; from < assigned && vehicles.hasNext(); from += routeLength) {
+            int to = Math.min(assigned, from + routeLength);
+            routes.add(createRoute(vrp, vehicles.next(), jobs.subList(from, to)));
+        }
+        return routes;
+    }
+
+    private static void addVehicles(VehicleRoutingProblem.Builder vrpBuilder, int noJobs, int routeLength, int capacity) {
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("type")
+            .addCapacityDimension(0, capacity)
+            .setCostPerDistance(1.)
+            .setCostPerTransportTime(0.)
+            .setFixedCost(100.)
+            .build();
+        Location depot = Location.Builder.newInstance().setId("depot")
+            .setCoordinate(Coordinate.newInstance(EDGE_LENGTH / 2., EDGE_LENGTH / 2.)).build();
+        int noVehicles = (int) Math.ceil(noJobs / (double) routeLength) + 1;
+        for (int i = 0; i < noVehicles; i++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v_" + i)
+                .setStartLocation(depot)
+                .setType(type)
+                .setLatestArrival(HORIZON)
+                .build());
+        }
+    }
+
+    private static Location randomLocation(Random random) {
+        Coordinate coordinate = Coordinate.newInstance(random.nextDouble() * EDGE_LENGTH, random.nextDouble() * EDGE_LENGTH);
+        return Location.Builder.newInstance().setId(coordinate.getX() + "," + coordinate.getY()).setCoordinate(coordinate).build();
+    }
+
+    private static TimeWindow randomTimeWindow(Random random) {
+        return TimeWindow.newInstance(0., HORIZON / 2. + random.nextDouble() * HORIZON / 2.);
+    }
+
+    private static double angle(Coordinate depot, Job job) {
+        Coordinate c = job.getActivities().get(0).getLocation().getCoordinate();
+        return Math.atan2(c.getY() - depot.getY(), c.getX() - depot.getX());
+    }
+
+    private static double distance(Coordinate c1, Coordinate c2) {
+        double dx = c1.getX() - c2.getX();
+        double dy = c1.getY() - c2.getY();
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+}
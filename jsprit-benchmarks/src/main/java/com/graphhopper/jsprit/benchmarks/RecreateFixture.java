@@ -0,0 +1,84 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.AlgorithmUtil;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.FiniteFleetManagerFactory;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * State of a partially destroyed solution as it is seen by a recreate strategy, i.e. routes with indexed activities,
+ * a fleet manager that knows which vehicles are in use and a state manager with the core states and constraints.
+ */
+final class RecreateFixture {
+
+    final VehicleRoutingProblem vrp;
+
+    final StateManager stateManager;
+
+    final ConstraintManager constraintManager;
+
+    final VehicleFleetManager fleetManager;
+
+    List<VehicleRoute> routes;
+
+    List<Job> unassignedJobs;
+
+    RecreateFixture(VehicleRoutingProblem vrp) {
+        this.vrp = vrp;
+        this.stateManager = new StateManager(vrp);
+        this.constraintManager = new ConstraintManager(vrp, stateManager);
+        AlgorithmUtil.addCoreConstraints(constraintManager, stateManager, vrp);
+        this.fleetManager = new FiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+    }
+
+    /**
+     * (Re)builds routes of <code>routeLength</code> jobs containing all but <code>noUnassigned</code> jobs, locks
+     * their vehicles and calculates all states.
+     *
+     * @param routeLength  jobs per route
+     * @param noUnassigned number of jobs that are not assigned to any route
+     */
+    void reset(int routeLength, int noUnassigned) {
+        int noJobs = vrp.getJobs().size();
+        routes = BenchmarkProblems.createRoutes(vrp, routeLength, noJobs - noUnassigned);
+        Set<Job> assigned = new HashSet<>();
+        fleetManager.unlockAll();
+        for (VehicleRoute route : routes) {
+            assigned.addAll(route.getTourActivities().getJobs());
+            fleetManager.lock(route.getVehicle());
+        }
+        unassignedJobs = new ArrayList<>();
+        for (Job job : vrp.getJobs().values()) {
+            if (!assigned.contains(job)) unassignedJobs.add(job);
+        }
+        stateManager.clear();
+        stateManager.informInsertionStarts(routes, unassignedJobs);
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionStrategy;
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionStrategyBuilder;
+import com.graphhopper.jsprit.core.algorithm.recreate.RegretInsertionFast;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a complete recreate run of <code>RegretInsertionFast</code>, i.e. the re-insertion of 10 percent of the jobs
+ * into otherwise complete routes, including the state updates triggered by each insertion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegretInsertionFastBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int noJobs;
+
+    @Param({"10", "50", "100"})
+    public int routeLength;
+
+    private RecreateFixture fixture;
+
+    private InsertionStrategy insertion;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new RecreateFixture(BenchmarkProblems.createServiceProblem(noJobs, routeLength, 4711));
+        insertion = new InsertionStrategyBuilder(fixture.vrp, fixture.fleetManager, fixture.stateManager, fixture.constraintManager)
+            .setInsertionStrategy(InsertionStrategyBuilder.Strategy.REGRET)
+            .setFastRegret(true)
+            .build();
+        ((RegretInsertionFast) insertion).setDependencyTypes(fixture.constraintManager.getDependencyTypes());
+        insertion.addListener(fixture.stateManager);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetFixture() {
+        fixture.reset(routeLength, Math.max(1, noJobs / 10));
+    }
+
+    @Benchmark
+    public Collection<Job> insertJobs() {
+        return insertion.insertJobs(fixture.routes, new ArrayList<>(fixture.unassignedJobs));
+    }
+
+}
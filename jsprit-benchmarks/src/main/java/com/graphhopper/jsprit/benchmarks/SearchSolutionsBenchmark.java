@@ -0,0 +1,79 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures <code>VehicleRoutingAlgorithm.searchSolutions()</code> of the default algorithm with a fixed number of
+ * iterations, i.e. end-to-end time including construction of the initial solution.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchSolutionsBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int noJobs;
+
+    @Param({"50"})
+    public int routeLength;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"100"})
+    public int iterations;
+
+    @Param({"false", "true"})
+    public boolean copyOnWrite;
+
+    private VehicleRoutingProblem vrp;
+
+    private VehicleRoutingAlgorithm algorithm;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        vrp = BenchmarkProblems.createServiceProblem(noJobs, routeLength, 4711);
+    }
+
+    @Setup(Level.Invocation)
+    public void createAlgorithm() {
+        algorithm = Jsprit.Builder.newInstance(vrp)
+            .setProperty(Jsprit.Parameter.THREADS, String.valueOf(threads))
+            .setProperty(Jsprit.Parameter.COPY_ON_WRITE, String.valueOf(copyOnWrite))
+            .buildAlgorithm();
+        algorithm.setMaxIterations(iterations);
+    }
+
+    @Benchmark
+    public Collection<VehicleRoutingProblemSolution> searchSolutions() {
+        return algorithm.searchSolutions();
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionData;
+import com.graphhopper.jsprit.core.algorithm.recreate.JobInsertionCostsCalculator;
+import com.graphhopper.jsprit.core.algorithm.recreate.LocalActivityInsertionCostsCalculator;
+import com.graphhopper.jsprit.core.algorithm.recreate.ServiceInsertionCalculatorFactory;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single <code>ServiceInsertionCalculator.getInsertionData(...)</code> call, i.e. the evaluation of all
+ * insertion positions of one service in one route of <code>routeLength</code> activities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceInsertionCalculatorBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int noJobs;
+
+    @Param({"10", "50", "100"})
+    public int routeLength;
+
+    private RecreateFixture fixture;
+
+    private JobInsertionCostsCalculator calculator;
+
+    private VehicleRoute route;
+
+    private int nextJob = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new RecreateFixture(BenchmarkProblems.createServiceProblem(noJobs, routeLength, 4711));
+        fixture.reset(routeLength, Math.max(1, noJobs / 10));
+        route = fixture.routes.get(0);
+        LocalActivityInsertionCostsCalculator activityInsertionCostsCalculator = new LocalActivityInsertionCostsCalculator(fixture.vrp.getTransportCosts(), fixture.vrp.getActivityCosts(), fixture.stateManager);
+        calculator = new ServiceInsertionCalculatorFactory().create(fixture.vrp, activityInsertionCostsCalculator, fixture.vrp::copyAndGetActivities, fixture.constraintManager);
+    }
+
+    @Benchmark
+    public InsertionData getInsertionData() {
+        Job job = fixture.unassignedJobs.get(nextJob);
+        nextJob = (nextJob + 1) % fixture.unassignedJobs.size();
+        return calculator.getInsertionData(route, job, route.getVehicle(), route.getDepartureTime(), route.getDriver(), Double.MAX_VALUE);
+    }
+
+}
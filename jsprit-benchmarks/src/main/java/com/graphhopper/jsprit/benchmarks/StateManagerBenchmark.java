@@ -0,0 +1,69 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.benchmarks;
+
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the state updates of the <code>StateManager</code> with the core states, i.e. a complete update of all
+ * routes (as done at the beginning of each recreate run) and the update of one route after an insertion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateManagerBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int noJobs;
+
+    @Param({"10", "50", "100"})
+    public int routeLength;
+
+    private RecreateFixture fixture;
+
+    private VehicleRoute route;
+
+    private Job job;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new RecreateFixture(BenchmarkProblems.createServiceProblem(noJobs, routeLength, 4711));
+        fixture.reset(routeLength, 0);
+        route = fixture.routes.get(0);
+        job = route.getTourActivities().getJobs().iterator().next();
+    }
+
+    @Benchmark
+    public void informInsertionStarts() {
+        fixture.stateManager.informInsertionStarts(fixture.routes, Collections.<Job>emptyList());
+    }
+
+    @Benchmark
+    public void informJobInserted() {
+        fixture.stateManager.informJobInserted(job, route, null);
+    }
+
+}
@@ -19,6 +19,8 @@ package com.graphhopper.jsprit.core.algorithm;
 
 import com.graphhopper.jsprit.core.algorithm.acceptor.SolutionAcceptor;
 import com.graphhopper.jsprit.core.algorithm.listener.SearchStrategyModuleListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.AlgorithmMetrics;
+import com.graphhopper.jsprit.core.algorithm.module.RuinAndRecreateModule;
 import com.graphhopper.jsprit.core.algorithm.selector.SolutionSelector;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.solution.SolutionCostCalculator;
@@ -80,6 +82,10 @@ public class SearchStrategy {
 
     private String name;
 
+    private SolutionWorkingCopy solutionWorkingCopy;
+
+    private AlgorithmMetrics metrics;
+
     public SearchStrategy(String id, SolutionSelector solutionSelector, SolutionAcceptor solutionAcceptor, SolutionCostCalculator solutionCostCalculator) {
         if (id == null) throw new IllegalStateException("strategy id cannot be null");
         this.solutionSelector = solutionSelector;
@@ -101,6 +107,29 @@ public class SearchStrategy {
         this.name = name;
     }
 
+    /**
+     * Sets a working copy that replaces the deep copy of the selected solution in each iteration, i.e. rejected
+     * solutions are rolled back and reused. If it is null (default), the selected solution is copied.
+     *
+     * @param solutionWorkingCopy the working copy, can be shared by all strategies of one algorithm
+     */
+    public void setSolutionWorkingCopy(SolutionWorkingCopy solutionWorkingCopy) {
+        this.solutionWorkingCopy = solutionWorkingCopy;
+    }
+
+    /**
+     * Sets the metrics that record the time of this strategy and its modules, and passes them to its
+     * {@link RuinAndRecreateModule}s. If it is null (default), nothing is recorded.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(AlgorithmMetrics metrics) {
+        this.metrics = metrics;
+        for (SearchStrategyModule module : searchStrategyModules) {
+            if (module instanceof RuinAndRecreateModule) ((RuinAndRecreateModule) module).setMetrics(metrics);
+        }
+    }
+
     public Collection<SearchStrategyModule> getSearchStrategyModules() {
         return Collections.unmodifiableCollection(searchStrategyModules);
     }
@@ -125,7 +154,8 @@ public class SearchStrategy {
      * <p>
      * <p>This involves three basic steps: 1) Selecting a solution from solutions (input parameter) according to {@link com.graphhopper.jsprit.core.algorithm.selector.SolutionSelector}, 2) running the modules
      * ({@link SearchStrategyModule}) on the selectedSolution and 3) accepting the new solution according to {@link com.graphhopper.jsprit.core.algorithm.acceptor.SolutionAcceptor}.
-     * <p> Note that after 1) the selected solution is copied, thus the original solution is not modified.
+     * <p> Note that after 1) the selected solution is copied, thus the original solution is not modified. If a
+     * {@link SolutionWorkingCopy} is set, the copy of a rejected solution is reused in the next iteration.
      * <p> Note also that 3) modifies the input parameter solutions by adding, removing, replacing the existing solutions or whatever is defined in the solutionAcceptor.
      *
      * @param vrp       the underlying vehicle routing problem
@@ -135,15 +165,30 @@ public class SearchStrategy {
      */
     @SuppressWarnings("UnusedParameters")
     public DiscoveredSolution run(VehicleRoutingProblem vrp, Collection<VehicleRoutingProblemSolution> solutions) {
+        AlgorithmMetrics metrics = this.metrics;
+        long start = metrics == null ? 0L : System.nanoTime();
         VehicleRoutingProblemSolution solution = solutionSelector.selectSolution(solutions);
         if (solution == null) throw new IllegalStateException(getErrMsg());
-        VehicleRoutingProblemSolution lastSolution = VehicleRoutingProblemSolution.copyOf(solution);
+        VehicleRoutingProblemSolution lastSolution;
+        if (solutionWorkingCopy == null) lastSolution = VehicleRoutingProblemSolution.copyOf(solution);
+        else lastSolution = solutionWorkingCopy.checkout(solution);
         for (SearchStrategyModule module : searchStrategyModules) {
-            lastSolution = module.runAndGetSolution(lastSolution);
+            if (metrics == null) {
+                lastSolution = module.runAndGetSolution(lastSolution);
+            } else {
+                long moduleStart = System.nanoTime();
+                lastSolution = module.runAndGetSolution(lastSolution);
+                metrics.getTimer(AlgorithmMetrics.Category.MODULE, module.getName()).recordSince(moduleStart);
+            }
         }
         double costs = solutionCostCalculator.getCosts(lastSolution);
         lastSolution.setCost(costs);
         boolean solutionAccepted = solutionAcceptor.acceptSolution(solutions, lastSolution);
+        if (solutionWorkingCopy != null) {
+            //a rejected solution that is not better than the selected one cannot be the best ever found
+            solutionWorkingCopy.release(lastSolution, !solutionAccepted && costs >= solution.getCost());
+        }
+        if (metrics != null) metrics.getTimer(AlgorithmMetrics.Category.STRATEGY, id).recordSince(start);
         return new DiscoveredSolution(lastSolution, solutionAccepted, getId());
     }
 
@@ -157,6 +202,7 @@ public class SearchStrategy {
     public void addModule(SearchStrategyModule module) {
         if (module == null) throw new IllegalStateException("module to be added is null.");
         searchStrategyModules.add(module);
+        if (metrics != null && module instanceof RuinAndRecreateModule) ((RuinAndRecreateModule) module).setMetrics(metrics);
         logger.debug("module added [module={}][#modules={}]", module, searchStrategyModules.size());
     }
 
@@ -0,0 +1,143 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copy-on-write replacement of {@link VehicleRoutingProblemSolution#copyOf(VehicleRoutingProblemSolution)} for
+ * {@link SearchStrategy}.
+ * <p>
+ * <p>Instead of deep-copying every route of the selected solution in each iteration, the working copy of the last
+ * iteration is reused if it has been rejected: routes that the modules did not touch are kept, and only routes whose
+ * activities, vehicle or departure time have changed are rolled back by copying them again from the selected solution.
+ * Changes are detected with {@link com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivities#getModificationCount()},
+ * thus it works with all ruin and insertion strategies.
+ * <p>
+ * <p>A rejected solution is only reused if it cannot be the best solution ever found, i.e. if it is not better than
+ * the selected one. Note that listeners must not keep references to rejected solutions. One instance can be shared by
+ * all strategies of an algorithm, but not by algorithms running in parallel.
+ */
+public class SolutionWorkingCopy {
+
+    private static class RouteCopy {
+
+        private final VehicleRoute route;
+
+        private final int modificationCount;
+
+        private final Vehicle vehicle;
+
+        private final double departureTime;
+
+        private RouteCopy(VehicleRoute route) {
+            this.route = route;
+            this.modificationCount = route.getTourActivities().getModificationCount();
+            this.vehicle = route.getVehicle();
+            this.departureTime = route.getDepartureTime();
+        }
+
+        private boolean isModified() {
+            return route.getTourActivities().getModificationCount() != modificationCount
+                || route.getVehicle() != vehicle
+                || route.getDepartureTime() != departureTime;
+        }
+    }
+
+    private VehicleRoutingProblemSolution source;
+
+    private VehicleRoutingProblemSolution workingCopy;
+
+    private Map<VehicleRoute, RouteCopy> routeCopies = new IdentityHashMap<>();
+
+    private long noRouteCopies = 0;
+
+    private long noReusedRoutes = 0;
+
+    /**
+     * Returns a copy of the specified solution that can be modified without changing the solution itself.
+     * <p>
+     * <p>Must be followed by {@link #release(VehicleRoutingProblemSolution, boolean)} before it is called again.
+     *
+     * @param solution the solution to be copied
+     * @return copy of solution
+     */
+    public VehicleRoutingProblemSolution checkout(VehicleRoutingProblemSolution solution) {
+        if (solution != source) {
+            routeCopies.clear();
+            source = solution;
+        }
+        Map<VehicleRoute, RouteCopy> copies = new IdentityHashMap<>();
+        List<VehicleRoute> routes = new ArrayList<>(solution.getRoutes().size());
+        for (VehicleRoute route : solution.getRoutes()) {
+            RouteCopy routeCopy = routeCopies.get(route);
+            if (routeCopy == null || routeCopy.isModified()) {
+                routeCopy = new RouteCopy(VehicleRoute.copyOf(route));
+                noRouteCopies++;
+            } else {
+                noReusedRoutes++;
+            }
+            copies.put(route, routeCopy);
+            routes.add(routeCopy.route);
+        }
+        routeCopies = copies;
+        workingCopy = new VehicleRoutingProblemSolution(routes, new ArrayList<>(solution.getUnassignedJobs()), solution.getCost());
+        return workingCopy;
+    }
+
+    /**
+     * Hands back the solution that has been derived from the last checkout.
+     *
+     * @param solution the solution that the modules returned
+     * @param reusable true if no one else refers to the solution anymore, i.e. it has been neither accepted nor
+     *                 memorized as best solution
+     */
+    public void release(VehicleRoutingProblemSolution solution, boolean reusable) {
+        if (!reusable || solution != workingCopy) {
+            routeCopies.clear();
+            source = null;
+        }
+        workingCopy = null;
+    }
+
+    /**
+     * Returns the number of routes that have been deep-copied so far.
+     *
+     * @return no. of route copies
+     */
+    public long getNoRouteCopies() {
+        return noRouteCopies;
+    }
+
+    /**
+     * Returns the number of routes that have been reused instead of being copied.
+     *
+     * @return no. of reused routes
+     */
+    public long getNoReusedRoutes() {
+        return noReusedRoutes;
+    }
+
+}
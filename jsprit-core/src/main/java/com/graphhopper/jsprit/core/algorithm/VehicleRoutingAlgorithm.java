@@ -22,6 +22,7 @@ import com.graphhopper.jsprit.core.algorithm.listener.SearchStrategyListener;
 import com.graphhopper.jsprit.core.algorithm.listener.SearchStrategyModuleListener;
 import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListener;
 import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListeners;
+import com.graphhopper.jsprit.core.algorithm.metrics.AlgorithmMetrics;
 import com.graphhopper.jsprit.core.algorithm.termination.PrematureAlgorithmTermination;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.job.Job;
@@ -109,6 +110,8 @@ public class VehicleRoutingAlgorithm {
 
     private final SolutionCostCalculator objectiveFunction;
 
+    private AlgorithmMetrics metrics;
+
     public VehicleRoutingAlgorithm(VehicleRoutingProblem problem, SearchStrategyManager searchStrategyManager) {
         super();
         this.problem = problem;
@@ -294,6 +297,31 @@ public class VehicleRoutingAlgorithm {
         algoListeners.algorithmEnds(problem, solutions);
     }
 
+    /**
+     * Enables metrics, i.e. records the time of the search strategies (added so far) and their modules, and counts
+     * iterations to publish metrics to sinks. To record insertion evaluations, constraint rejections and state
+     * updates, the metrics also need to be set to {@link com.graphhopper.jsprit.core.problem.constraint.ConstraintManager}
+     * and {@link com.graphhopper.jsprit.core.algorithm.state.StateManager}.
+     *
+     * @param metrics the metrics
+     * @throws java.lang.IllegalArgumentException if metrics is null
+     * @throws java.lang.IllegalStateException if other metrics have already been set
+     */
+    public void setMetrics(AlgorithmMetrics metrics) {
+        if (metrics == null) throw new IllegalArgumentException("metrics must not be null");
+        if (this.metrics == metrics) return;
+        if (this.metrics != null) throw new IllegalStateException("metrics have already been set");
+        this.metrics = metrics;
+        for (SearchStrategy strategy : searchStrategyManager.getStrategies()) {
+            strategy.setMetrics(metrics);
+        }
+        addListener(metrics);
+    }
+
+    public AlgorithmMetrics getMetrics() {
+        return metrics;
+    }
+
     public VehicleRoutingAlgorithmListeners getAlgorithmListeners() {
         return algoListeners;
     }
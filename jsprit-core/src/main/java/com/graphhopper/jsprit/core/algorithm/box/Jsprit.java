@@ -21,11 +21,13 @@ package com.graphhopper.jsprit.core.algorithm.box;
 import com.graphhopper.jsprit.core.algorithm.PrettyAlgorithmBuilder;
 import com.graphhopper.jsprit.core.algorithm.SearchStrategy;
 import com.graphhopper.jsprit.core.algorithm.SearchStrategyModule;
+import com.graphhopper.jsprit.core.algorithm.SolutionWorkingCopy;
 import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
 import com.graphhopper.jsprit.core.algorithm.acceptor.SchrimpfAcceptance;
 import com.graphhopper.jsprit.core.algorithm.acceptor.SolutionAcceptor;
 import com.graphhopper.jsprit.core.algorithm.listener.AlgorithmEndsListener;
 import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.AlgorithmMetrics;
 import com.graphhopper.jsprit.core.algorithm.module.RuinAndRecreateModule;
 import com.graphhopper.jsprit.core.algorithm.recreate.*;
 import com.graphhopper.jsprit.core.algorithm.ruin.*;
@@ -43,12 +45,14 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.vehicle.FiniteFleetManagerFactory;
 import com.graphhopper.jsprit.core.problem.vehicle.InfiniteFleetManagerFactory;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+import com.graphhopper.jsprit.core.util.BoundedExecutorService;
 import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
 import com.graphhopper.jsprit.core.util.Solutions;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class Jsprit {
@@ -129,7 +133,10 @@ public class Jsprit {
         STRING_L_MIN("string_lmin"),
         STRING_L_MAX("string_lmax"),
         MIN_UNASSIGNED("min_unassigned"),
-        PROPORTION_UNASSIGNED("proportion_unassigned");
+        PROPORTION_UNASSIGNED("proportion_unassigned"),
+        COPY_ON_WRITE("copy_on_write"),
+        INSERTION_CACHE("insertion_cache"),
+        GRANULAR_INSERTION("granular_insertion");
 
 
 
@@ -157,6 +164,8 @@ public class Jsprit {
 
         private Integer noThreads;
 
+        private Executor sharedExecutor;
+
         private StateManager stateManager = null;
 
         private ConstraintManager constraintManager = null;
@@ -181,6 +190,8 @@ public class Jsprit {
 
         private VehicleFleetManager fleetManager = null;
 
+        private AlgorithmMetrics metrics = null;
+
         public static Builder newInstance(VehicleRoutingProblem vrp) {
             return new Builder(vrp);
         }
@@ -249,6 +260,9 @@ public class Jsprit {
 
             defaults.put(Parameter.MIN_UNASSIGNED.toString(), String.valueOf(Integer.MAX_VALUE));
             defaults.put(Parameter.PROPORTION_UNASSIGNED.toString(), String.valueOf(1.0));
+            defaults.put(Parameter.COPY_ON_WRITE.toString(), String.valueOf(false));
+            defaults.put(Parameter.INSERTION_CACHE.toString(), String.valueOf(0));
+            defaults.put(Parameter.GRANULAR_INSERTION.toString(), String.valueOf(0));
             return defaults;
         }
 
@@ -269,6 +283,23 @@ public class Jsprit {
             return this;
         }
 
+        /**
+         * Runs the concurrent parts of the algorithm on an executor shared by many algorithms, e.g. a global
+         * {@link ForkJoinPool} or a virtual-thread executor. At most maxConcurrency tasks of this algorithm run at
+         * the same time (see {@link BoundedExecutorService}). The algorithm neither creates threads nor shuts down
+         * the shared executor.
+         *
+         * @param sharedExecutor the shared executor
+         * @param maxConcurrency max. number of tasks of this algorithm running at the same time
+         * @return builder
+         */
+        public Builder setSharedExecutor(Executor sharedExecutor, int maxConcurrency) {
+            this.sharedExecutor = sharedExecutor;
+            this.es = null;
+            this.noThreads = maxConcurrency;
+            return this;
+        }
+
         public Builder setCustomAcceptor(SolutionAcceptor acceptor){
             this.solutionAcceptor = acceptor;
             return this;
@@ -325,6 +356,18 @@ public class Jsprit {
             return this;
         }
 
+        /**
+         * Enables metrics, i.e. the time of search strategies, modules, ruin and insertion strategies and state
+         * updates as well as insertion evaluations and constraint rejections are recorded.
+         *
+         * @param metrics the metrics
+         * @return builder
+         */
+        public Builder setMetrics(AlgorithmMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
         public VehicleRoutingAlgorithm buildAlgorithm() {
             return new Jsprit(this).create(vrp);
         }
@@ -377,6 +420,8 @@ public class Jsprit {
 
     private boolean setupExecutorInternally = false;
 
+    private Executor sharedExecutor;
+
     private boolean addCoreConstraints;
 
     private SolutionCostCalculator objectiveFunction;
@@ -395,11 +440,14 @@ public class Jsprit {
 
     private VehicleFleetManager vehicleFleetManager;
 
+    private final AlgorithmMetrics metrics;
+
     private Jsprit(Builder builder) {
         this.stateManager = builder.stateManager;
         this.constraintManager = builder.constraintManager;
         this.es = builder.es;
         this.noThreads = builder.noThreads;
+        this.sharedExecutor = builder.sharedExecutor;
         this.addCoreConstraints = builder.addConstraints;
         this.properties = builder.properties;
         this.objectiveFunction = builder.objectiveFunction;
@@ -410,6 +458,7 @@ public class Jsprit {
         regretScoringFunction = builder.regretScoringFunction;
         customStrategies.putAll(builder.customStrategies);
         vehicleFleetManager = builder.fleetManager;
+        metrics = builder.metrics;
     }
 
     private void ini(VehicleRoutingProblem vrp) {
@@ -439,14 +488,20 @@ public class Jsprit {
         if (constraintManager == null) {
             constraintManager = new ConstraintManager(vrp, stateManager);
         }
+        if (metrics != null) {
+            stateManager.setMetrics(metrics);
+            constraintManager.setMetrics(metrics);
+        }
 
         if (noThreads == null) {
             noThreads = toInteger(getProperty(Parameter.THREADS.toString()));
         }
         if (noThreads > 1) {
-            if (es == null) {
+            if (sharedExecutor != null) {
+                es = new BoundedExecutorService(sharedExecutor, noThreads);
+            } else if (es == null) {
                 setupExecutorInternally = true;
-                es = Executors.newFixedThreadPool(noThreads);
+                es = new ForkJoinPool(noThreads);
             }
         }
 
@@ -461,8 +516,25 @@ public class Jsprit {
         double noiseLevel = toDouble(getProperty(Parameter.INSERTION_NOISE_LEVEL.toString()));
         double noiseProbability = toDouble(getProperty(Parameter.INSERTION_NOISE_PROB.toString()));
 
-        JobNeighborhoods jobNeighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(vrp, new AvgServiceAndShipmentDistance(vrp.getTransportCosts()), (int) (vrp.getJobs().values().size() * 0.5));
-        jobNeighborhoods.initialise();
+        JobNeighborhoods jobNeighborhoods;
+        ForkJoinPool forkJoinPool = null;
+        boolean shutdownForkJoinPool = false;
+        //a shared executor must not run more than noThreads tasks of this algorithm, thus neighborhoods are computed sequentially
+        if (noThreads > 1 && sharedExecutor == null) {
+            if (es instanceof ForkJoinPool) forkJoinPool = (ForkJoinPool) es;
+            else {
+                forkJoinPool = new ForkJoinPool(noThreads);
+                shutdownForkJoinPool = true;
+            }
+        }
+        if (forkJoinPool != null) {
+            jobNeighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(vrp, new AvgServiceAndShipmentDistance(vrp.getTransportCosts()), (int) (vrp.getJobs().values().size() * 0.5), forkJoinPool);
+            jobNeighborhoods.initialise();
+            if (shutdownForkJoinPool) forkJoinPool.shutdown();
+        } else {
+            jobNeighborhoods = new JobNeighborhoodsFactory().createNeighborhoods(vrp, new AvgServiceAndShipmentDistance(vrp.getTransportCosts()), (int) (vrp.getJobs().values().size() * 0.5));
+            jobNeighborhoods.initialise();
+        }
 
         final double maxCosts;
         if (properties.containsKey(Parameter.MAX_TRANSPORT_COSTS.toString())) {
@@ -547,6 +619,14 @@ public class Jsprit {
         ruinTimeRelated.setRuinShareFactory(radialRuinFactory);
         ruinTimeRelated.setRandom(random);
 
+        int insertionCacheSize = toInteger(getProperty(Parameter.INSERTION_CACHE.toString()));
+        if (insertionCacheSize > 0 && noiseProbability > 0) {
+            throw new IllegalArgumentException("insertion cache cannot be used with insertion noise, set "
+                + Parameter.INSERTION_NOISE_PROB + " to 0 or disable " + Parameter.INSERTION_CACHE);
+        }
+        int granularNoNeighbors = toInteger(getProperty(Parameter.GRANULAR_INSERTION.toString()));
+        JobNeighborhoods granularNeighborhoods = granularNoNeighbors > 0 ? jobNeighborhoods : null;
+
         AbstractInsertionStrategy regret;
 
         boolean fastRegret = Boolean.parseBoolean(getProperty(Parameter.FAST_REGRET.toString()));
@@ -559,6 +639,8 @@ public class Jsprit {
                     .considerFixedCosts(toDouble(getProperty(Parameter.FIXED_COST_PARAM.toString())))
                     .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                     .setActivityInsertionCostCalculator(activityInsertion)
+                    .setInsertionCache(insertionCacheSize)
+                    .setGranularInsertion(granularNeighborhoods, granularNoNeighbors)
                     .build();
                 regretInsertion.setRegretScoringFunction(regretScoringFunction);
                 regretInsertion.setDependencyTypes(constraintManager.getDependencyTypes());
@@ -571,6 +653,8 @@ public class Jsprit {
                     .considerFixedCosts(toDouble(getProperty(Parameter.FIXED_COST_PARAM.toString())))
                     .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                     .setActivityInsertionCostCalculator(activityInsertion)
+                    .setInsertionCache(insertionCacheSize)
+                    .setGranularInsertion(granularNeighborhoods, granularNoNeighbors)
                     .build();
                 regretInsertion.setRegretScoringFunction(regretScoringFunction);
                 regret = regretInsertion;
@@ -583,6 +667,8 @@ public class Jsprit {
                     .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                     .considerFixedCosts(toDouble(getProperty(Parameter.FIXED_COST_PARAM.toString())))
                     .setActivityInsertionCostCalculator(activityInsertion)
+                    .setInsertionCache(insertionCacheSize)
+                    .setGranularInsertion(granularNeighborhoods, granularNoNeighbors)
                     .build();
                 regretInsertion.setRegretScoringFunction(regretScoringFunction);
                 regretInsertion.setDependencyTypes(constraintManager.getDependencyTypes());
@@ -594,6 +680,8 @@ public class Jsprit {
                     .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                     .considerFixedCosts(toDouble(getProperty(Parameter.FIXED_COST_PARAM.toString())))
                     .setActivityInsertionCostCalculator(activityInsertion)
+                    .setInsertionCache(insertionCacheSize)
+                    .setGranularInsertion(granularNeighborhoods, granularNoNeighbors)
                     .build();
                 regretInsertion.setRegretScoringFunction(regretScoringFunction);
                 regret = regretInsertion;
@@ -608,15 +696,19 @@ public class Jsprit {
                 .considerFixedCosts(Double.valueOf(properties.getProperty(Parameter.FIXED_COST_PARAM.toString())))
                 .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                 .setActivityInsertionCostCalculator(activityInsertion)
+                .setInsertionCache(insertionCacheSize)
+                .setGranularInsertion(granularNeighborhoods, granularNoNeighbors)
                 .build();
             best = bestInsertion;
         } else {
-            BestInsertionConcurrent bestInsertion = (BestInsertionConcurrent) new InsertionStrategyBuilder(vrp, vehicleFleetManager, stateManager, constraintManager)
+            AbstractInsertionStrategy bestInsertion = (AbstractInsertionStrategy) new InsertionStrategyBuilder(vrp, vehicleFleetManager, stateManager, constraintManager)
                 .setInsertionStrategy(InsertionStrategyBuilder.Strategy.BEST)
                 .considerFixedCosts(Double.valueOf(properties.getProperty(Parameter.FIXED_COST_PARAM.toString())))
                 .setAllowVehicleSwitch(toBoolean(getProperty(Parameter.VEHICLE_SWITCH.toString())))
                 .setConcurrentMode(es, noThreads)
                 .setActivityInsertionCostCalculator(activityInsertion)
+                .setInsertionCache(insertionCacheSize)
+                .setGranularInsertion(granularNeighborhoods, granularNoNeighbors)
                 .build();
             best = bestInsertion;
         }
@@ -675,6 +767,14 @@ public class Jsprit {
         SearchStrategy stringBest = new SearchStrategy(Strategy.STRING_BEST.toString(), new SelectBest(), acceptor, objectiveFunction);
         stringBest.addModule(configureModule(new RuinAndRecreateModule(Strategy.STRING_BEST.toString(), best, stringRuin)));
 
+        if (toBoolean(getProperty(Parameter.COPY_ON_WRITE.toString()))) {
+            SolutionWorkingCopy solutionWorkingCopy = new SolutionWorkingCopy();
+            for (SearchStrategy strategy : Arrays.asList(radialRegret, radialBest, timeRelatedRegret, timeRelatedBest, randomBest, randomRegret,
+                worstRegret, worstBest, clustersRegret, clustersBest, stringRegret, stringBest)) {
+                strategy.setSolutionWorkingCopy(solutionWorkingCopy);
+            }
+        }
+
         PrettyAlgorithmBuilder prettyBuilder = PrettyAlgorithmBuilder.newInstance(vrp, vehicleFleetManager, stateManager, constraintManager);
         prettyBuilder.setRandom(random);
         if (addCoreConstraints) {
@@ -719,6 +819,7 @@ public class Jsprit {
         if(toBoolean(getProperty(Parameter.BREAK_SCHEDULING.toString()))) {
             vra.addListener(new BreakScheduling(vrp, stateManager, constraintManager));
         }
+        if (metrics != null) vra.setMetrics(metrics);
         handleExecutorShutdown(vra);
         vra.setMaxIterations(Integer.valueOf(properties.getProperty(Parameter.ITERATIONS.toString())));
 
@@ -0,0 +1,337 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.box;
+
+import com.graphhopper.jsprit.core.algorithm.SearchStrategy;
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.termination.PrematureAlgorithmTermination;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Island model: runs a number of independent searches in parallel and periodically exchanges their best solutions.
+ * <p>
+ * <p>Each island is a {@link VehicleRoutingAlgorithm} of its own, i.e. it has its own state manager, fleet manager,
+ * acceptor and random number stream. Only the (read-only) {@link VehicleRoutingProblem} is shared. Every
+ * <code>migrationInterval</code> iterations, all islands meet, each island publishes a copy of its best solution,
+ * and each island replaces its worst solution by the best solution of its neighbour (ring topology) if that is better.
+ * Since islands meet at fixed iterations and islands are seeded from one random number generator, results are
+ * reproducible.
+ * <p>
+ * <p>Note that the transport and activity costs of the problem are used by all islands concurrently, thus they need
+ * to be thread-safe.
+ */
+public class ParallelIslandSearch {
+
+    /**
+     * Creates the algorithm of one island.
+     */
+    public interface IslandAlgorithmFactory {
+
+        /**
+         * Creates the algorithm of an island. It must not share mutable components with other islands.
+         *
+         * @param vrp    the problem
+         * @param random the random number generator of this island
+         * @return algorithm
+         */
+        VehicleRoutingAlgorithm createAlgorithm(VehicleRoutingProblem vrp, Random random);
+
+    }
+
+    public static class Builder {
+
+        public static Builder newInstance(VehicleRoutingProblem vrp) {
+            return new Builder(vrp);
+        }
+
+        private final VehicleRoutingProblem vrp;
+
+        private int noIslands = Runtime.getRuntime().availableProcessors();
+
+        private int migrationInterval = 100;
+
+        private int maxIterations = 2000;
+
+        private Random random = RandomNumberGeneration.newInstance();
+
+        private ExecutorService executorService;
+
+        private IslandAlgorithmFactory algorithmFactory = new IslandAlgorithmFactory() {
+
+            @Override
+            public VehicleRoutingAlgorithm createAlgorithm(VehicleRoutingProblem vrp, Random random) {
+                return Jsprit.Builder.newInstance(vrp).setRandom(random).buildAlgorithm();
+            }
+
+        };
+
+        private Builder(VehicleRoutingProblem vrp) {
+            this.vrp = vrp;
+        }
+
+        /**
+         * Sets the number of islands, i.e. of searches running in parallel. Default is the number of available processors.
+         *
+         * @param noIslands no. of islands
+         * @return builder
+         */
+        public Builder setNoIslands(int noIslands) {
+            if (noIslands < 1) throw new IllegalArgumentException("number of islands must be at least 1");
+            this.noIslands = noIslands;
+            return this;
+        }
+
+        /**
+         * Sets the number of iterations between two exchanges of solutions. Default is 100.
+         *
+         * @param migrationInterval no. of iterations
+         * @return builder
+         */
+        public Builder setMigrationInterval(int migrationInterval) {
+            if (migrationInterval < 1) throw new IllegalArgumentException("migration interval must be at least 1");
+            this.migrationInterval = migrationInterval;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of iterations of each island. Default is 2000.
+         *
+         * @param maxIterations no. of iterations per island
+         * @return builder
+         */
+        public Builder setMaxIterations(int maxIterations) {
+            this.maxIterations = maxIterations;
+            return this;
+        }
+
+        /**
+         * Sets the random number generator the islands are seeded from.
+         *
+         * @param random random number generator
+         * @return builder
+         */
+        public Builder setRandom(Random random) {
+            this.random = random;
+            return this;
+        }
+
+        /**
+         * Sets the executor running the islands. It needs at least as many threads as there are islands, since islands
+         * wait for each other. If it is not set, a fixed thread pool is created and shut down after the search.
+         *
+         * @param executorService executor
+         * @return builder
+         */
+        public Builder setExecutorService(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        /**
+         * Sets the factory creating the algorithm of each island. By default, the algorithm is created with
+         * <code>Jsprit.Builder.newInstance(vrp).setRandom(random).buildAlgorithm()</code>.
+         *
+         * @param algorithmFactory factory
+         * @return builder
+         */
+        public Builder setAlgorithmFactory(IslandAlgorithmFactory algorithmFactory) {
+            this.algorithmFactory = algorithmFactory;
+            return this;
+        }
+
+        public ParallelIslandSearch build() {
+            return new ParallelIslandSearch(this);
+        }
+
+    }
+
+    /**
+     * Migration slots. Islands publish to slot (epoch % 2), thus a slot is only overwritten after every island has
+     * passed the next meeting, i.e. has read it.
+     */
+    static class Migration {
+
+        private final VehicleRoutingProblemSolution[][] published;
+
+        private final Phaser phaser;
+
+        private volatile boolean aborted = false;
+
+        Migration(int noIslands) {
+            published = new VehicleRoutingProblemSolution[2][noIslands];
+            phaser = new Phaser(noIslands);
+        }
+
+        void migrate(int island, int epoch, Collection<VehicleRoutingProblemSolution> solutions) {
+            VehicleRoutingProblemSolution[] slots = published[epoch % 2];
+            VehicleRoutingProblemSolution best = Solutions.bestOf(solutions);
+            slots[island] = best == null ? null : VehicleRoutingProblemSolution.copyOf(best);
+            if (phaser.arriveAndAwaitAdvance() < 0) return;
+            VehicleRoutingProblemSolution immigrant = slots[(island + slots.length - 1) % slots.length];
+            if (immigrant == null) return;
+            VehicleRoutingProblemSolution worst = null;
+            for (VehicleRoutingProblemSolution solution : solutions) {
+                if (worst == null || solution.getCost() > worst.getCost()) worst = solution;
+            }
+            if (worst == null || immigrant.getCost() < worst.getCost()) {
+                if (worst != null) solutions.remove(worst);
+                solutions.add(VehicleRoutingProblemSolution.copyOf(immigrant));
+            }
+        }
+
+        void leave() {
+            phaser.arriveAndDeregister();
+        }
+
+        /**
+         * Releases islands waiting for each other and makes all islands stop at their next iteration.
+         */
+        void abort() {
+            aborted = true;
+            phaser.forceTermination();
+        }
+
+        boolean isAborted() {
+            return aborted;
+        }
+
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelIslandSearch.class);
+
+    private final VehicleRoutingProblem vrp;
+
+    private final int noIslands;
+
+    private final int migrationInterval;
+
+    private final int maxIterations;
+
+    private final Random random;
+
+    private final ExecutorService executorService;
+
+    private final IslandAlgorithmFactory algorithmFactory;
+
+    private ParallelIslandSearch(Builder builder) {
+        this.vrp = builder.vrp;
+        this.noIslands = builder.noIslands;
+        this.migrationInterval = builder.migrationInterval;
+        this.maxIterations = builder.maxIterations;
+        this.random = builder.random;
+        this.executorService = builder.executorService;
+        this.algorithmFactory = builder.algorithmFactory;
+    }
+
+    /**
+     * Runs all islands and returns the solutions of all of them. The best one can be obtained with
+     * {@link Solutions#bestOf(Collection)}.
+     *
+     * @return solutions of all islands
+     */
+    public Collection<VehicleRoutingProblemSolution> searchSolutions() {
+        logger.info("island search starts: [noIslands={}][migrationInterval={}][maxIterations={}]", noIslands, migrationInterval, maxIterations);
+        final Migration migration = new Migration(noIslands);
+        List<Callable<Collection<VehicleRoutingProblemSolution>>> islands = new ArrayList<>(noIslands);
+        for (int i = 0; i < noIslands; i++) {
+            VehicleRoutingAlgorithm algorithm = algorithmFactory.createAlgorithm(vrp, new Random(random.nextLong()));
+            algorithm.setMaxIterations(maxIterations);
+            islands.add(createIsland(i, algorithm, migration));
+        }
+        ExecutorService es = executorService;
+        if (es == null) es = Executors.newFixedThreadPool(noIslands);
+        List<Future<Collection<VehicleRoutingProblemSolution>>> futures = new ArrayList<>(noIslands);
+        try {
+            for (Callable<Collection<VehicleRoutingProblemSolution>> island : islands) {
+                futures.add(es.submit(island));
+            }
+            Collection<VehicleRoutingProblemSolution> solutions = new ArrayList<>();
+            for (Future<Collection<VehicleRoutingProblemSolution>> future : futures) {
+                solutions.addAll(future.get());
+            }
+            VehicleRoutingProblemSolution best = Solutions.bestOf(solutions);
+            logger.info("island search ends: [bestCosts={}]", best == null ? null : best.getCost());
+            return solutions;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(migration, futures);
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            abort(migration, futures);
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (executorService == null) es.shutdown();
+        }
+    }
+
+    private static void abort(Migration migration, List<Future<Collection<VehicleRoutingProblemSolution>>> futures) {
+        migration.abort();
+        for (Future<Collection<VehicleRoutingProblemSolution>> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private Callable<Collection<VehicleRoutingProblemSolution>> createIsland(final int island, final VehicleRoutingAlgorithm algorithm, final Migration migration) {
+        algorithm.addListener(new IterationStartsListener() {
+
+            @Override
+            public void informIterationStarts(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+                if (i > 1 && (i - 1) % migrationInterval == 0) {
+                    migration.migrate(island, (i - 1) / migrationInterval, solutions);
+                }
+            }
+
+        });
+        algorithm.addTerminationCriterion(new PrematureAlgorithmTermination() {
+
+            @Override
+            public boolean isPrematureBreak(SearchStrategy.DiscoveredSolution discoveredSolution) {
+                return migration.isAborted();
+            }
+
+        });
+        return new Callable<Collection<VehicleRoutingProblemSolution>>() {
+
+            @Override
+            public Collection<VehicleRoutingProblemSolution> call() {
+                try {
+                    return algorithm.searchSolutions();
+                } catch (RuntimeException | Error e) {
+                    migration.abort();
+                    throw e;
+                } finally {
+                    migration.leave();
+                }
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.metrics;
+
+import com.graphhopper.jsprit.core.algorithm.listener.AlgorithmEndsListener;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationEndsListener;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.HardConstraint;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects timings and counters of a running algorithm, i.e. wall time per search strategy, search strategy module,
+ * ruin strategy, insertion strategy and state update, the number of insertion evaluations and the number of
+ * rejections per hard constraint.
+ * <p>
+ * <p>Metrics are disabled by default. They are enabled by passing an instance to
+ * {@link com.graphhopper.jsprit.core.algorithm.box.Jsprit.Builder#setMetrics(AlgorithmMetrics)} or, for algorithms
+ * built otherwise, to {@link com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm#setMetrics(AlgorithmMetrics)},
+ * {@link com.graphhopper.jsprit.core.algorithm.state.StateManager#setMetrics(AlgorithmMetrics)} and
+ * {@link com.graphhopper.jsprit.core.problem.constraint.ConstraintManager#setMetrics(AlgorithmMetrics)}. Without
+ * metrics, each measuring point costs a null check only.
+ * <p>
+ * <p>Metrics can be read with {@link #snapshot()} or pushed to {@link MetricsSink}s every n iterations and when the
+ * algorithm ends. Note that timings are nested, i.e. ruin and insertion time include the state updates triggered by
+ * them, and module time includes ruin and insertion time.
+ */
+public class AlgorithmMetrics implements IterationEndsListener, AlgorithmEndsListener {
+
+    public enum Category {
+        STRATEGY, MODULE, RUIN, INSERTION, STATE_UPDATE
+    }
+
+    private final Map<Category, ConcurrentMap<String, NanoTimer>> timers = new EnumMap<>(Category.class);
+
+    private final LongAdder insertionEvaluations = new LongAdder();
+
+    private final LongAdder activityInsertionEvaluations = new LongAdder();
+
+    private final ConcurrentMap<Class<?>, LongAdder> constraintRejections = new ConcurrentHashMap<>();
+
+    private final List<MetricsSink> sinks = new CopyOnWriteArrayList<>();
+
+    private int publishInterval = 0;
+
+    private long iterations = 0;
+
+    public AlgorithmMetrics() {
+        for (Category category : Category.values()) {
+            timers.put(category, new ConcurrentHashMap<String, NanoTimer>());
+        }
+    }
+
+    /**
+     * Returns the timer with the specified name and creates it if it does not exist yet.
+     *
+     * @param category the category of the timer
+     * @param name     the name of the timer, e.g. the strategy id
+     * @return timer
+     */
+    public NanoTimer getTimer(Category category, String name) {
+        ConcurrentMap<String, NanoTimer> timersOfCategory = timers.get(category);
+        String key = String.valueOf(name);
+        NanoTimer timer = timersOfCategory.get(key);
+        if (timer == null) {
+            timer = timersOfCategory.computeIfAbsent(key, NanoTimer::new);
+        }
+        return timer;
+    }
+
+    public void countInsertionEvaluation() {
+        insertionEvaluations.increment();
+    }
+
+    public void countActivityInsertionEvaluation() {
+        activityInsertionEvaluations.increment();
+    }
+
+    public void countRejection(HardConstraint constraint) {
+        Class<?> constraintClass = constraint.getClass();
+        LongAdder rejections = constraintRejections.get(constraintClass);
+        if (rejections == null) {
+            rejections = constraintRejections.computeIfAbsent(constraintClass, c -> new LongAdder());
+        }
+        rejections.increment();
+    }
+
+    public void addSink(MetricsSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Sets the number of iterations after which a snapshot is published to the sinks. If it is 0 (default), a snapshot
+     * is published only when the algorithm ends.
+     *
+     * @param iterations number of iterations
+     * @throws IllegalArgumentException if iterations is negative
+     */
+    public void setPublishInterval(int iterations) {
+        if (iterations < 0) throw new IllegalArgumentException("publish interval must not be negative");
+        this.publishInterval = iterations;
+    }
+
+    /**
+     * Takes a snapshot of all timers and counters.
+     *
+     * @return snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Category, Map<String, TimerSnapshot>> timerSnapshots = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            Map<String, TimerSnapshot> snapshotsOfCategory = new TreeMap<>();
+            for (NanoTimer timer : timers.get(category).values()) {
+                snapshotsOfCategory.put(timer.getName(), timer.snapshot());
+            }
+            timerSnapshots.put(category, Collections.unmodifiableMap(snapshotsOfCategory));
+        }
+        Map<String, Long> rejections = new TreeMap<>();
+        for (Map.Entry<Class<?>, LongAdder> e : constraintRejections.entrySet()) {
+            rejections.merge(nameOf(e.getKey()), e.getValue().sum(), Long::sum);
+        }
+        return new MetricsSnapshot(iterations, Collections.unmodifiableMap(timerSnapshots), insertionEvaluations.sum(),
+            activityInsertionEvaluations.sum(), Collections.unmodifiableMap(rejections));
+    }
+
+    /**
+     * Returns the name metrics use for a class, i.e. its simple name or, if it is anonymous, its full name.
+     *
+     * @param clazz the class
+     * @return name
+     */
+    public static String nameOf(Class<?> clazz) {
+        String name = clazz.getSimpleName();
+        if (name.isEmpty()) return clazz.getName();
+        return name;
+    }
+
+    /**
+     * Publishes a snapshot to all sinks.
+     */
+    public void publish() {
+        if (sinks.isEmpty()) return;
+        MetricsSnapshot snapshot = snapshot();
+        for (MetricsSink sink : sinks) {
+            sink.publish(snapshot);
+        }
+    }
+
+    /**
+     * Resets all timers and counters.
+     */
+    public void reset() {
+        for (ConcurrentMap<String, NanoTimer> timersOfCategory : timers.values()) {
+            for (NanoTimer timer : timersOfCategory.values()) {
+                timer.reset();
+            }
+        }
+        insertionEvaluations.reset();
+        activityInsertionEvaluations.reset();
+        constraintRejections.clear();
+        iterations = 0;
+    }
+
+    @Override
+    public void informIterationEnds(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+        iterations++;
+        if (publishInterval > 0 && iterations % publishInterval == 0) publish();
+    }
+
+    @Override
+    public void informAlgorithmEnds(VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+        publish();
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.metrics;
+
+import com.graphhopper.jsprit.core.algorithm.metrics.AlgorithmMetrics.Category;
+
+import java.util.*;
+
+/**
+ * Immutable state of {@link AlgorithmMetrics} at the time the snapshot has been taken.
+ */
+public final class MetricsSnapshot {
+
+    private final long iterations;
+
+    private final Map<Category, Map<String, TimerSnapshot>> timers;
+
+    private final long insertionEvaluations;
+
+    private final long activityInsertionEvaluations;
+
+    private final Map<String, Long> constraintRejections;
+
+    MetricsSnapshot(long iterations, Map<Category, Map<String, TimerSnapshot>> timers, long insertionEvaluations,
+                    long activityInsertionEvaluations, Map<String, Long> constraintRejections) {
+        this.iterations = iterations;
+        this.timers = timers;
+        this.insertionEvaluations = insertionEvaluations;
+        this.activityInsertionEvaluations = activityInsertionEvaluations;
+        this.constraintRejections = constraintRejections;
+    }
+
+    /**
+     * Returns the number of iterations that have ended.
+     *
+     * @return number of iterations
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the timers of a category sorted by name.
+     *
+     * @param category the category
+     * @return unmodifiable map of timer names to timers
+     */
+    public Map<String, TimerSnapshot> getTimers(Category category) {
+        return timers.get(category);
+    }
+
+    /**
+     * Returns a timer or null if nothing has been recorded for it.
+     *
+     * @param category the category
+     * @param name     the name of the timer, e.g. the strategy id
+     * @return timer or null
+     */
+    public TimerSnapshot getTimer(Category category, String name) {
+        return timers.get(category).get(name);
+    }
+
+    /**
+     * Returns the number of route-level insertion evaluations, i.e. how often a job has been evaluated for a route
+     * (and vehicle).
+     *
+     * @return number of insertion evaluations
+     */
+    public long getInsertionEvaluations() {
+        return insertionEvaluations;
+    }
+
+    /**
+     * Returns the number of activity-level insertion evaluations, i.e. how often hard activity constraints have been
+     * checked for an insertion position.
+     *
+     * @return number of activity insertion evaluations
+     */
+    public long getActivityInsertionEvaluations() {
+        return activityInsertionEvaluations;
+    }
+
+    /**
+     * Returns the number of rejections per hard constraint, sorted by constraint name.
+     *
+     * @return unmodifiable map of constraint names to number of rejections
+     */
+    public Map<String, Long> getConstraintRejections() {
+        return constraintRejections;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append("[iterations=").append(iterations).append("][insertionEvaluations=").append(insertionEvaluations)
+            .append("][activityInsertionEvaluations=").append(activityInsertionEvaluations).append("]");
+        for (Category category : Category.values()) {
+            for (TimerSnapshot timer : timers.get(category).values()) {
+                b.append("\n").append(category).append(" ").append(timer);
+            }
+        }
+        for (Map.Entry<String, Long> rejections : constraintRejections.entrySet()) {
+            b.append("\nREJECTION [constraint=").append(rejections.getKey()).append("][count=").append(rejections.getValue()).append("]");
+        }
+        return b.toString();
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records durations in nanoseconds, i.e. their count, sum, maximum and a histogram with power-of-two buckets.
+ * <p>
+ * <p>Bucket b holds the durations d with 2^(b-1) <= d < 2^b (bucket 0 holds 0ns). Thus recording is a few atomic
+ * increments and the histogram needs no configuration. Timers are thread-safe.
+ */
+public final class NanoTimer {
+
+    static final int NU_BUCKETS = 64;
+
+    private final String name;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NU_BUCKETS);
+
+    NanoTimer(String name) {
+        this.name = name;
+    }
+
+    static int bucketOf(long nanos) {
+        return 64 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records the time elapsed since startNanos, i.e. since <code>System.nanoTime()</code> returned startNanos.
+     *
+     * @param startNanos start in nanoseconds
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a duration. Negative durations are recorded as 0.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        count.increment();
+        totalNanos.add(nanos);
+        buckets.incrementAndGet(bucketOf(nanos));
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    TimerSnapshot snapshot() {
+        long[] bucketCounts = new long[NU_BUCKETS];
+        for (int b = 0; b < NU_BUCKETS; b++) {
+            bucketCounts[b] = buckets.get(b);
+        }
+        return new TimerSnapshot(name, count.sum(), totalNanos.sum(), maxNanos.get(), bucketCounts);
+    }
+
+    void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+        for (int b = 0; b < NU_BUCKETS; b++) {
+            buckets.set(b, 0);
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.metrics;
+
+/**
+ * Immutable state of a {@link NanoTimer} at the time the snapshot has been taken.
+ */
+public final class TimerSnapshot {
+
+    /**
+     * Returns the largest duration bucket b can hold.
+     *
+     * @param bucket the bucket index
+     * @return upper bound in nanoseconds
+     */
+    public static long getBucketUpperBoundNanos(int bucket) {
+        if (bucket <= 0) return 0;
+        if (bucket >= NanoTimer.NU_BUCKETS - 1) return Long.MAX_VALUE;
+        return (1L << bucket) - 1;
+    }
+
+    private final String name;
+
+    private final long count;
+
+    private final long totalNanos;
+
+    private final long maxNanos;
+
+    private final long[] bucketCounts;
+
+    TimerSnapshot(String name, long count, long totalNanos, long maxNanos, long[] bucketCounts) {
+        this.name = name;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.bucketCounts = bucketCounts;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        if (count == 0) return 0;
+        return (double) totalNanos / count;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile, i.e. the upper bound of the bucket that contains it (but not
+     * more than the max duration). Thus the estimate is at most twice the exact percentile.
+     *
+     * @param percentile the percentile between 0 and 1, e.g. 0.99
+     * @return upper bound of the percentile in nanoseconds
+     * @throws IllegalArgumentException if percentile is not between 0 and 1
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 1)
+            throw new IllegalArgumentException("percentile must be between 0 and 1, but is " + percentile);
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long cumulated = 0;
+        for (int b = 0; b < bucketCounts.length; b++) {
+            cumulated += bucketCounts[b];
+            if (cumulated >= rank) return Math.min(getBucketUpperBoundNanos(b), maxNanos);
+        }
+        return maxNanos;
+    }
+
+    /**
+     * Returns the number of durations per bucket. See {@link #getBucketUpperBoundNanos(int)}.
+     *
+     * @return copy of the bucket counts
+     */
+    public long[] getBucketCounts() {
+        return bucketCounts.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "[name=" + name + "][count=" + count + "][totalMs=" + totalNanos / 1e6 + "][meanUs=" + getMeanNanos() / 1e3
+            + "][p99Us=" + getPercentileNanos(0.99) / 1e3 + "][maxUs=" + maxNanos / 1e3 + "]";
+    }
+
+}
@@ -19,6 +19,8 @@ package com.graphhopper.jsprit.core.algorithm.module;
 
 import com.graphhopper.jsprit.core.algorithm.SearchStrategyModule;
 import com.graphhopper.jsprit.core.algorithm.listener.SearchStrategyModuleListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.AlgorithmMetrics;
+import com.graphhopper.jsprit.core.algorithm.metrics.NanoTimer;
 import com.graphhopper.jsprit.core.algorithm.recreate.InsertionStrategy;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionListener;
 import com.graphhopper.jsprit.core.algorithm.ruin.RuinStrategy;
@@ -44,6 +46,10 @@ public class RuinAndRecreateModule implements SearchStrategyModule {
 
     private double proportionOfUnassignedJobsToBeReinserted = 1d;
 
+    private NanoTimer ruinTimer;
+
+    private NanoTimer insertionTimer;
+
     public RuinAndRecreateModule(String moduleName, InsertionStrategy insertion, RuinStrategy ruin) {
         super();
         this.insertion = insertion;
@@ -78,9 +84,29 @@ public class RuinAndRecreateModule implements SearchStrategyModule {
         this.proportionOfUnassignedJobsToBeReinserted = proportionOfUnassignedJobsToBeReinserted;
     }
 
+    /**
+     * Sets the metrics that record the time of the ruin and the insertion strategy, named by their class names. If it
+     * is null (default), nothing is recorded.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(AlgorithmMetrics metrics) {
+        if (metrics == null) {
+            ruinTimer = null;
+            insertionTimer = null;
+        } else {
+            ruinTimer = metrics.getTimer(AlgorithmMetrics.Category.RUIN, AlgorithmMetrics.nameOf(ruin.getClass()));
+            insertionTimer = metrics.getTimer(AlgorithmMetrics.Category.INSERTION, AlgorithmMetrics.nameOf(insertion.getClass()));
+        }
+    }
+
     @Override
     public VehicleRoutingProblemSolution runAndGetSolution(VehicleRoutingProblemSolution previousVrpSolution) {
+        NanoTimer ruinTimer = this.ruinTimer;
+        NanoTimer insertionTimer = this.insertionTimer;
+        long start = ruinTimer == null ? 0L : System.nanoTime();
         Collection<Job> ruinedJobs = ruin.ruin(previousVrpSolution.getRoutes());
+        if (ruinTimer != null) ruinTimer.recordSince(start);
         Set<Job> ruinedJobSet = new HashSet<>(ruinedJobs);
         List<Job> stillUnassignedInThisIteration = new ArrayList<>();
         if (previousVrpSolution.getUnassignedJobs().size() < minUnassignedJobsToBeReinserted) {
@@ -102,7 +128,9 @@ public class RuinAndRecreateModule implements SearchStrategyModule {
         // Additionally, ArrayList is faster for iteration than iterating over a HashSet
         List<Job> orderedRuinedJobs = new ArrayList<>(ruinedJobSet);
         orderedRuinedJobs.sort(Comparator.comparing(Job::getId));
+        if (insertionTimer != null) start = System.nanoTime();
         Collection<Job> unassignedJobs = insertion.insertJobs(previousVrpSolution.getRoutes(), orderedRuinedJobs);
+        if (insertionTimer != null) insertionTimer.recordSince(start);
         previousVrpSolution.getUnassignedJobs().clear();
         previousVrpSolution.getUnassignedJobs().addAll(unassignedJobs);
         previousVrpSolution.getUnassignedJobs().addAll(stillUnassignedInThisIteration);
@@ -18,6 +18,7 @@
 
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
+import com.graphhopper.jsprit.core.algorithm.metrics.AlgorithmMetrics;
 import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
 import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint;
 import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint.ConstraintsStatus;
@@ -35,8 +36,11 @@ import java.util.List;
  */
 abstract class AbstractInsertionCalculator implements JobInsertionCostsCalculator {
     InsertionData checkRouteConstraints(JobInsertionContext insertionContext, ConstraintManager constraintManager) {
+        AlgorithmMetrics metrics = constraintManager.getMetrics();
+        if (metrics != null) metrics.countInsertionEvaluation();
         for (HardRouteConstraint hardRouteConstraint : constraintManager.getHardRouteConstraints()) {
             if (!hardRouteConstraint.fulfilled(insertionContext)) {
+                if (metrics != null) metrics.countRejection(hardRouteConstraint);
                 InsertionData emptyInsertionData = new InsertionData.NoInsertionFound();
                 emptyInsertionData.addFailedConstrainName(hardRouteConstraint.getClass().getSimpleName());
                 return emptyInsertionData;
@@ -46,6 +50,21 @@ abstract class AbstractInsertionCalculator implements JobInsertionCostsCalculato
     }
 
     ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime, Collection<HardConstraint> failedActivityConstraints, ConstraintManager constraintManager) {
+        AlgorithmMetrics metrics = constraintManager.getMetrics();
+        if (metrics == null) return checkActivityConstraints(iFacts, prevAct, newAct, nextAct, prevActDepTime, failedActivityConstraints, constraintManager);
+        metrics.countActivityInsertionEvaluation();
+        int noFailedBefore = failedActivityConstraints.size();
+        ConstraintsStatus status = checkActivityConstraints(iFacts, prevAct, newAct, nextAct, prevActDepTime, failedActivityConstraints, constraintManager);
+        if (status != ConstraintsStatus.FULFILLED) {
+            int i = 0;
+            for (HardConstraint failed : failedActivityConstraints) {
+                if (i++ >= noFailedBefore) metrics.countRejection(failed);
+            }
+        }
+        return status;
+    }
+
+    private ConstraintsStatus checkActivityConstraints(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime, Collection<HardConstraint> failedActivityConstraints, ConstraintManager constraintManager) {
         if (!constraintManager.hasHardActivityConstraints()) return ConstraintsStatus.FULFILLED;
         ConstraintsStatus notFulfilled = null;
         List<HardConstraint> failed = new ArrayList<>();
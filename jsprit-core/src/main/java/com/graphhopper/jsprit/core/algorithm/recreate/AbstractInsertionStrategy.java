@@ -75,6 +75,8 @@ public abstract class AbstractInsertionStrategy implements InsertionStrategy {
 
     protected VehicleRoutingProblem vrp;
 
+    private GranularNeighborhood granularNeighborhood;
+
     public AbstractInsertionStrategy(VehicleRoutingProblem vrp) {
         this.insertionsListeners = new InsertionListeners();
         this.vrp = vrp;
@@ -85,6 +87,41 @@ public abstract class AbstractInsertionStrategy implements InsertionStrategy {
         this.random = random;
     }
 
+    /**
+     * Evaluates jobs in the routes serving one of their nearest neighbors first. Only if no insertion into these
+     * routes is feasible, the other routes are evaluated, see {@link GranularNeighborhood#isCandidate(Job, VehicleRoute)}.
+     *
+     * @param granularNeighborhood neighbors restricting the evaluation, null to evaluate all routes (default)
+     */
+    void setGranularNeighborhood(GranularNeighborhood granularNeighborhood) {
+        this.granularNeighborhood = granularNeighborhood;
+    }
+
+    GranularNeighborhood getGranularNeighborhood() {
+        return granularNeighborhood;
+    }
+
+    /**
+     * @return number of passes over the routes when evaluating a job, 2 with granular insertion, 1 otherwise
+     */
+    protected int getNoRoutePasses() {
+        return granularNeighborhood == null ? 1 : 2;
+    }
+
+    /**
+     * With granular insertion, the candidate routes of a job are evaluated in the first pass and all other routes in
+     * the second pass, that is only run if the first one did not find a feasible insertion.
+     *
+     * @param job   the job
+     * @param route the route
+     * @param pass  the pass, 0 or 1
+     * @return true if the job is evaluated in the route in the specified pass
+     */
+    protected boolean isEvaluatedInPass(Job job, VehicleRoute route, int pass) {
+        if (granularNeighborhood == null) return pass == 0;
+        return granularNeighborhood.isCandidate(job, route) == (pass == 0);
+    }
+
     @Override
     public Collection<Job> insertJobs(Collection<VehicleRoute> vehicleRoutes, Collection<Job> unassignedJobs) {
         insertionsListeners.informInsertionStarts(vehicleRoutes, unassignedJobs);
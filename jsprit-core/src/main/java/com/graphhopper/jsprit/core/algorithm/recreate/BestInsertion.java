@@ -64,15 +64,18 @@ public final class BestInsertion extends AbstractInsertionStrategy {
             Insertion bestInsertion = null;
             InsertionData empty = new InsertionData.NoInsertionFound();
             double bestInsertionCost = Double.MAX_VALUE;
-            for (VehicleRoute vehicleRoute : vehicleRoutes) {
-                InsertionData iData = bestInsertionCostCalculator.getInsertionData(vehicleRoute, unassignedJob, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, bestInsertionCost);
-                if (iData instanceof InsertionData.NoInsertionFound) {
-                    empty.getFailedConstraintNames().addAll(iData.getFailedConstraintNames());
-                    continue;
-                }
-                if (iData.getInsertionCost() < bestInsertionCost + noiseMaker.makeNoise()) {
-                    bestInsertion = new Insertion(vehicleRoute, iData);
-                    bestInsertionCost = iData.getInsertionCost();
+            for (int pass = 0; pass < getNoRoutePasses() && bestInsertion == null; pass++) {
+                for (VehicleRoute vehicleRoute : vehicleRoutes) {
+                    if (!isEvaluatedInPass(unassignedJob, vehicleRoute, pass)) continue;
+                    InsertionData iData = bestInsertionCostCalculator.getInsertionData(vehicleRoute, unassignedJob, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, bestInsertionCost);
+                    if (iData instanceof InsertionData.NoInsertionFound) {
+                        empty.getFailedConstraintNames().addAll(iData.getFailedConstraintNames());
+                        continue;
+                    }
+                    if (iData.getInsertionCost() < bestInsertionCost + noiseMaker.makeNoise()) {
+                        bestInsertion = new Insertion(vehicleRoute, iData);
+                        bestInsertionCost = iData.getInsertionCost();
+                    }
                 }
             }
             VehicleRoute newRoute = VehicleRoute.emptyRoute();
@@ -98,27 +98,30 @@ public final class BestInsertionConcurrent extends AbstractInsertionStrategy {
         for (final Job unassignedJob : unassignedJobList) {
             Insertion bestInsertion = null;
             double bestInsertionCost = Double.MAX_VALUE;
-            List<Callable<Insertion>> tasks = new ArrayList<>(vehicleRoutes.size());
-            for (VehicleRoute route : vehicleRoutes) {
-                tasks.add(() -> getBestInsertion(route, unassignedJob));
-            }
-            try {
-                List<Future<Insertion>> futureResponses = executorService.invokeAll(tasks);
-                for (int i = 0; i < vehicleRoutes.size(); i++) {
-                    Insertion insertion = futureResponses.get(i).get();
-                    if (insertion.insertionData instanceof NoInsertionFound) {
-                        failedConstraintNames.addAll(insertion.getInsertionData().getFailedConstraintNames());
-                        continue;
-                    }
-                    if (insertion.getInsertionData().getInsertionCost() < bestInsertionCost) {
-                        bestInsertion = insertion;
-                        bestInsertionCost = insertion.getInsertionData().getInsertionCost();
+            for (int pass = 0; pass < getNoRoutePasses() && bestInsertion == null; pass++) {
+                List<Callable<Insertion>> tasks = new ArrayList<>(vehicleRoutes.size());
+                for (VehicleRoute route : vehicleRoutes) {
+                    if (!isEvaluatedInPass(unassignedJob, route, pass)) continue;
+                    tasks.add(() -> getBestInsertion(route, unassignedJob));
+                }
+                try {
+                    List<Future<Insertion>> futureResponses = executorService.invokeAll(tasks);
+                    for (int i = 0; i < tasks.size(); i++) {
+                        Insertion insertion = futureResponses.get(i).get();
+                        if (insertion.insertionData instanceof NoInsertionFound) {
+                            failedConstraintNames.addAll(insertion.getInsertionData().getFailedConstraintNames());
+                            continue;
+                        }
+                        if (insertion.getInsertionData().getInsertionCost() < bestInsertionCost) {
+                            bestInsertion = insertion;
+                            bestInsertionCost = insertion.getInsertionData().getInsertionCost();
+                        }
                     }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    throw new RuntimeException(e);
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } catch (ExecutionException e) {
-                throw new RuntimeException(e);
             }
 
             VehicleRoute newRoute = VehicleRoute.emptyRoute();
@@ -0,0 +1,209 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.InsertionData.NoInsertionFound;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Best insertion that evaluates batches of unassigned jobs in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * <p>The insertion data of all jobs of a batch in all routes is calculated by fork/join tasks that split the
+ * (job, route) pairs into chunks, so idle threads steal work instead of waiting for a barrier per job. Then jobs are
+ * inserted one after another in the same order as {@link BestInsertion} would do. Since an insertion only changes one
+ * route, the remaining jobs of the batch are only re-evaluated in the routes changed since the batch was evaluated.
+ * If an insertion changes the fleet, i.e. a new route is opened or a vehicle is switched, the remaining jobs are
+ * evaluated again with the next batch.
+ * <p>
+ * <p>Thus, the result is the same as the one of {@link BestInsertion} without noise, as long as insertion costs only
+ * depend on the route and the fleet. With granular insertion, batches are only evaluated in the candidate routes of
+ * their jobs, other routes are evaluated on demand.
+ */
+public final class BestInsertionParallel extends AbstractInsertionStrategy {
+
+    private final static Logger logger = LoggerFactory.getLogger(BestInsertionParallel.class);
+
+    private final static double NO_NEW_DEPARTURE_TIME_YET = -12345.12345;
+
+    private final static Vehicle NO_NEW_VEHICLE_YET = null;
+
+    private final static Driver NO_NEW_DRIVER_YET = null;
+
+    /**
+     * Calculates the insertion data of the (job, route) pairs from..to-1 of a batch, pair i being job i / noRoutes
+     * and route i % noRoutes.
+     */
+    private final class EvaluationTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Job> jobs;
+
+        private final List<VehicleRoute> routes;
+
+        private final InsertionData[][] insertionData;
+
+        private final int from;
+
+        private final int to;
+
+        private final int threshold;
+
+        EvaluationTask(List<Job> jobs, List<VehicleRoute> routes, InsertionData[][] insertionData, int from, int to, int threshold) {
+            this.jobs = jobs;
+            this.routes = routes;
+            this.insertionData = insertionData;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                int noRoutes = routes.size();
+                for (int i = from; i < to; i++) {
+                    int jobIndex = i / noRoutes;
+                    int routeIndex = i % noRoutes;
+                    // with granular insertion, other routes are only evaluated on demand
+                    if (!isEvaluatedInPass(jobs.get(jobIndex), routes.get(routeIndex), 0)) continue;
+                    insertionData[jobIndex][routeIndex] = getInsertionData(routes.get(routeIndex), jobs.get(jobIndex));
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluationTask(jobs, routes, insertionData, from, mid, threshold),
+                    new EvaluationTask(jobs, routes, insertionData, mid, to, threshold));
+            }
+        }
+
+    }
+
+    private final JobInsertionCostsCalculator bestInsertionCostCalculator;
+
+    private final ForkJoinPool forkJoinPool;
+
+    private final int batchSize;
+
+    /**
+     * @param jobInsertionCalculator the calculator of insertion data
+     * @param forkJoinPool           the pool evaluating the batches
+     * @param batchSize              max. number of jobs that are evaluated together
+     * @param vehicleRoutingProblem  the problem
+     */
+    public BestInsertionParallel(JobInsertionCostsCalculator jobInsertionCalculator, ForkJoinPool forkJoinPool, int batchSize, VehicleRoutingProblem vehicleRoutingProblem) {
+        super(vehicleRoutingProblem);
+        if (batchSize < 1) throw new IllegalArgumentException("batch size must be at least 1");
+        this.bestInsertionCostCalculator = jobInsertionCalculator;
+        this.forkJoinPool = forkJoinPool;
+        this.batchSize = batchSize;
+        logger.debug("initialise {}", this);
+    }
+
+    @Override
+    public String toString() {
+        return "[name=bestInsertion]";
+    }
+
+    @Override
+    public Collection<Job> insertUnassignedJobs(Collection<VehicleRoute> vehicleRoutes, Collection<Job> unassignedJobs) {
+        List<Job> badJobs = new ArrayList<>(unassignedJobs.size());
+        List<Job> unassignedJobList = new ArrayList<>(unassignedJobs);
+        Collections.shuffle(unassignedJobList, random);
+        unassignedJobList.sort(new AccordingToPriorities());
+        List<VehicleRoute> routes = new ArrayList<>(vehicleRoutes);
+        Set<VehicleRoute> changedRoutes = Collections.newSetFromMap(new IdentityHashMap<VehicleRoute, Boolean>());
+        int next = 0;
+        while (next < unassignedJobList.size()) {
+            List<Job> batch = unassignedJobList.subList(next, Math.min(next + batchSize, unassignedJobList.size()));
+            InsertionData[][] batchData = evaluate(batch, routes);
+            changedRoutes.clear();
+            for (int j = 0; j < batch.size(); j++) {
+                Job unassignedJob = batch.get(j);
+                next++;
+                List<String> failedConstraintNames = new ArrayList<>();
+                VehicleRoute bestRoute = null;
+                InsertionData bestData = null;
+                double bestInsertionCost = Double.MAX_VALUE;
+                for (int pass = 0; pass < getNoRoutePasses() && bestRoute == null; pass++) {
+                    for (int r = 0; r < routes.size(); r++) {
+                        VehicleRoute route = routes.get(r);
+                        if (!isEvaluatedInPass(unassignedJob, route, pass)) continue;
+                        InsertionData iData = batchData[j][r];
+                        if (iData == null || changedRoutes.contains(route)) iData = getInsertionData(route, unassignedJob);
+                        if (iData instanceof NoInsertionFound) {
+                            failedConstraintNames.addAll(iData.getFailedConstraintNames());
+                            continue;
+                        }
+                        if (iData.getInsertionCost() < bestInsertionCost) {
+                            bestRoute = route;
+                            bestData = iData;
+                            bestInsertionCost = iData.getInsertionCost();
+                        }
+                    }
+                }
+                VehicleRoute newRoute = VehicleRoute.emptyRoute();
+                InsertionData newIData = bestInsertionCostCalculator.getInsertionData(newRoute, unassignedJob, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, bestInsertionCost);
+                if (!(newIData instanceof NoInsertionFound)) {
+                    if (newIData.getInsertionCost() < bestInsertionCost) {
+                        bestRoute = newRoute;
+                        bestData = newIData;
+                        vehicleRoutes.add(newRoute);
+                        routes.add(newRoute);
+                    }
+                } else {
+                    failedConstraintNames.addAll(newIData.getFailedConstraintNames());
+                }
+                if (bestRoute == null) {
+                    badJobs.add(unassignedJob);
+                    markUnassigned(unassignedJob, failedConstraintNames);
+                    continue;
+                }
+                Vehicle vehicleBefore = bestRoute.getVehicle();
+                insertJob(unassignedJob, bestData, bestRoute);
+                // the fleet changed, evaluate the remaining jobs of the batch with the next batch
+                if (bestRoute == newRoute || bestRoute.getVehicle() != vehicleBefore) break;
+                changedRoutes.add(bestRoute);
+            }
+        }
+        return badJobs;
+    }
+
+    private InsertionData[][] evaluate(List<Job> batch, List<VehicleRoute> routes) {
+        InsertionData[][] insertionData = new InsertionData[batch.size()][routes.size()];
+        int noPairs = batch.size() * routes.size();
+        if (noPairs == 0) return insertionData;
+        int threshold = Math.max(1, noPairs / (4 * forkJoinPool.getParallelism()));
+        forkJoinPool.invoke(new EvaluationTask(batch, routes, insertionData, 0, noPairs, threshold));
+        return insertionData;
+    }
+
+    private InsertionData getInsertionData(VehicleRoute route, Job job) {
+        return bestInsertionCostCalculator.getInsertionData(route, job, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, Double.MAX_VALUE);
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionStartsListener;
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.JobInsertedListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Break;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The k nearest neighbors of each job that restrict granular insertion, see
+ * {@link JobInsertionCostsCalculatorBuilder#setGranularInsertion(JobNeighborhoods, int)}.
+ * <p>
+ * <p>It also keeps track of which jobs are assigned to a route during insertion. If none of the neighbors of a job is
+ * assigned, insertion of this job cannot be restricted to the routes of its neighbors.
+ * <p>
+ * <p>Insertion strategies evaluate a job in its {@link #isCandidate(Job, VehicleRoute) candidate routes} first and only
+ * evaluate the other routes if no insertion into a candidate route is feasible.
+ */
+class GranularNeighborhood implements InsertionStartsListener, JobInsertedListener {
+
+    private static final Job[] NO_NEIGHBORS = new Job[0];
+
+    private final Job[][] neighbors;
+
+    private final boolean[] assigned;
+
+    GranularNeighborhood(VehicleRoutingProblem vrp, JobNeighborhoods jobNeighborhoods, int noNeighbors) {
+        if (noNeighbors < 1) throw new IllegalArgumentException("number of neighbors must be at least 1");
+        int maxIndex = 0;
+        for (Job job : vrp.getJobsInclusiveInitialJobsInRoutes().values()) {
+            maxIndex = Math.max(maxIndex, job.getIndex());
+        }
+        neighbors = new Job[maxIndex + 1][];
+        assigned = new boolean[maxIndex + 1];
+        List<Job> jobNeighbors = new ArrayList<>(noNeighbors);
+        for (Job job : vrp.getJobsInclusiveInitialJobsInRoutes().values()) {
+            if (job.getIndex() <= 0) continue;
+            jobNeighbors.clear();
+            Iterator<Job> neighborIterator = jobNeighborhoods.getNearestNeighborsIterator(noNeighbors, job);
+            while (neighborIterator.hasNext()) {
+                Job neighbor = neighborIterator.next();
+                if (neighbor != null && neighbor != job) jobNeighbors.add(neighbor);
+            }
+            neighbors[job.getIndex()] = jobNeighbors.toArray(new Job[jobNeighbors.size()]);
+        }
+    }
+
+    /**
+     * @param job the job
+     * @return the neighbors of the job, an empty array if it has none or is unknown
+     */
+    Job[] getNeighbors(Job job) {
+        int index = job.getIndex();
+        if (index <= 0 || index >= neighbors.length || neighbors[index] == null) return NO_NEIGHBORS;
+        return neighbors[index];
+    }
+
+    /**
+     * @param job the job
+     * @return the neighbors of the job if insertion of the job is restricted, i.e. if it is a service and one of its
+     * neighbors is assigned, null otherwise
+     */
+    Job[] getAssignedNeighbors(Job job) {
+        if (!(job instanceof Service) || job instanceof Break) return null;
+        Job[] jobNeighbors = getNeighbors(job);
+        for (Job neighbor : jobNeighbors) {
+            if (isAssigned(neighbor)) return jobNeighbors;
+        }
+        return null;
+    }
+
+    /**
+     * @param job   the job
+     * @param route the route
+     * @return true if the route is empty, serves one of the neighbors of the job or if insertion of the job is not
+     * restricted at all
+     */
+    boolean isCandidate(Job job, VehicleRoute route) {
+        if (route.isEmpty()) return true;
+        Job[] assignedNeighbors = getAssignedNeighbors(job);
+        return assignedNeighbors == null || servesAny(route, assignedNeighbors);
+    }
+
+    static boolean servesAny(VehicleRoute route, Job[] jobs) {
+        for (Job job : jobs) {
+            if (route.getTourActivities().servesJob(job)) return true;
+        }
+        return false;
+    }
+
+    boolean isAssigned(Job job) {
+        int index = job.getIndex();
+        return index > 0 && index < assigned.length && assigned[index];
+    }
+
+    @Override
+    public void informInsertionStarts(Collection<VehicleRoute> vehicleRoutes, Collection<Job> unassignedJobs) {
+        Arrays.fill(assigned, false);
+        for (VehicleRoute route : vehicleRoutes) {
+            for (Job job : route.getTourActivities().getJobs()) {
+                setAssigned(job);
+            }
+        }
+    }
+
+    @Override
+    public void informJobInserted(Job job2insert, VehicleRoute inRoute, InsertionData insertionData) {
+        setAssigned(job2insert);
+    }
+
+    private void setAssigned(Job job) {
+        int index = job.getIndex();
+        if (index > 0 && index < assigned.length) assigned[index] = true;
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionStartsListener;
+import com.graphhopper.jsprit.core.algorithm.recreate.listener.JobInsertedListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListener;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the insertion data of a {@link JobInsertionCostsCalculator} per job, route, new vehicle, new driver and
+ * departure time.
+ * <p>
+ * <p>Data of a route is only reused as long as the route is not modified, i.e. as long as neither its activities
+ * (see {@link com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivities#getModificationCount()}) nor
+ * its vehicle nor its departure time changed. Data of a route is dropped as soon as a job is inserted into or removed
+ * from it, if the cache is registered as {@link JobInsertedListener} and {@link RuinListener}. If the cache exceeds
+ * its max. number of entries, it is cleared.
+ * <p>
+ * <p>Since routes are identified by identity, data is reused across iterations only if unmodified routes are not
+ * copied, e.g. with a {@link com.graphhopper.jsprit.core.algorithm.SolutionWorkingCopy}.
+ * <p>
+ * <p>Costs weighted by the solution completeness ratio, e.g. activity costs of
+ * {@link LocalActivityInsertionCostsCalculator} or {@link DecreasingRelativeFixedCosts}, are configured per insertion
+ * with the number of jobs to recreate. If the cache is registered as {@link InsertionStartsListener}, it is cleared
+ * whenever this number changes. Apart from that, the cache assumes that insertion data only depends on the route. It
+ * must not be used with soft constraints or costs that depend on anything else, e.g. on random insertion noise.
+ * <p>
+ * <p>The cache can be used concurrently. Its number of entries is only approximate then.
+ */
+public class InsertionCostsCache implements JobInsertionCostsCalculator, InsertionStartsListener, JobInsertedListener, RuinListener {
+
+    private static class Key {
+
+        private final int jobIndex;
+
+        private final Vehicle newVehicle;
+
+        private final Driver newDriver;
+
+        private final double newVehicleDepartureTime;
+
+        Key(int jobIndex, Vehicle newVehicle, Driver newDriver, double newVehicleDepartureTime) {
+            this.jobIndex = jobIndex;
+            this.newVehicle = newVehicle;
+            this.newDriver = newDriver;
+            this.newVehicleDepartureTime = newVehicleDepartureTime;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return jobIndex == key.jobIndex && newVehicle == key.newVehicle && newDriver == key.newDriver
+                && Double.compare(newVehicleDepartureTime, key.newVehicleDepartureTime) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = jobIndex;
+            result = 31 * result + System.identityHashCode(newVehicle);
+            result = 31 * result + System.identityHashCode(newDriver);
+            long bits = Double.doubleToLongBits(newVehicleDepartureTime);
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+            return result;
+        }
+
+    }
+
+    /**
+     * Insertion data and the best known costs it has been calculated with. If no insertion has been found, it is
+     * only known that there is no insertion cheaper than bestKnownCosts.
+     */
+    private static class Entry {
+
+        private final InsertionData insertionData;
+
+        private final double bestKnownCosts;
+
+        Entry(InsertionData insertionData, double bestKnownCosts) {
+            this.insertionData = insertionData;
+            this.bestKnownCosts = bestKnownCosts;
+        }
+
+    }
+
+    private static class RouteEntries {
+
+        private final int modificationCount;
+
+        private final Vehicle vehicle;
+
+        private final double departureTime;
+
+        private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+        RouteEntries(VehicleRoute route) {
+            modificationCount = route.getTourActivities().getModificationCount();
+            vehicle = route.getVehicle();
+            departureTime = route.getDepartureTime();
+        }
+
+        boolean isValidFor(VehicleRoute route) {
+            return modificationCount == route.getTourActivities().getModificationCount() && vehicle == route.getVehicle()
+                && Double.compare(departureTime, route.getDepartureTime()) == 0;
+        }
+
+    }
+
+    private final JobInsertionCostsCalculator calculator;
+
+    private final int maxEntries;
+
+    // routes do not override equals, thus they are identified by identity
+    private final ConcurrentMap<VehicleRoute, RouteEntries> routeEntries = new ConcurrentHashMap<>();
+
+    private final AtomicInteger noEntries = new AtomicInteger();
+
+    private final LongAdder noHits = new LongAdder();
+
+    private final LongAdder noMisses = new LongAdder();
+
+    private int noJobsToRecreate = -1;
+
+    /**
+     * @param calculator the calculator whose insertion data is cached
+     * @param maxEntries max. number of entries, if exceeded the cache is cleared
+     */
+    public InsertionCostsCache(JobInsertionCostsCalculator calculator, int maxEntries) {
+        if (maxEntries < 1) throw new IllegalArgumentException("max. number of entries must be at least 1");
+        this.calculator = calculator;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public InsertionData getInsertionData(VehicleRoute currentRoute, Job newJob, Vehicle newVehicle, double newVehicleDepartureTime, Driver newDriver, double bestKnownCosts) {
+        // new empty routes are created for each evaluation, there is nothing to reuse
+        if (currentRoute.isEmpty()) return calculator.getInsertionData(currentRoute, newJob, newVehicle, newVehicleDepartureTime, newDriver, bestKnownCosts);
+        Key key = new Key(newJob.getIndex(), newVehicle, newDriver, newVehicleDepartureTime);
+        InsertionData cached = get(currentRoute, key, bestKnownCosts);
+        if (cached != null) return cached;
+        InsertionData insertionData = calculator.getInsertionData(currentRoute, newJob, newVehicle, newVehicleDepartureTime, newDriver, bestKnownCosts);
+        put(currentRoute, key, new Entry(insertionData, bestKnownCosts));
+        return insertionData;
+    }
+
+    private InsertionData get(VehicleRoute route, Key key, double bestKnownCosts) {
+        RouteEntries entries = routeEntries.get(route);
+        Entry entry = null;
+        if (entries != null) {
+            if (entries.isValidFor(route)) entry = entries.entries.get(key);
+            else remove(route, entries);
+        }
+        if (entry != null) {
+            if (!(entry.insertionData instanceof InsertionData.NoInsertionFound)) {
+                noHits.increment();
+                if (entry.insertionData.getInsertionCost() < bestKnownCosts) return entry.insertionData;
+                return new InsertionData.NoInsertionFound();
+            }
+            if (bestKnownCosts <= entry.bestKnownCosts) {
+                noHits.increment();
+                return entry.insertionData;
+            }
+        }
+        noMisses.increment();
+        return null;
+    }
+
+    private void put(VehicleRoute route, Key key, Entry entry) {
+        if (noEntries.get() >= maxEntries) clear();
+        RouteEntries entries = routeEntries.get(route);
+        while (entries == null || !entries.isValidFor(route)) {
+            RouteEntries newEntries = new RouteEntries(route);
+            if (entries == null) {
+                entries = routeEntries.putIfAbsent(route, newEntries);
+                if (entries == null) entries = newEntries;
+            } else if (routeEntries.replace(route, entries, newEntries)) {
+                noEntries.addAndGet(-entries.entries.size());
+                entries = newEntries;
+            } else entries = routeEntries.get(route);
+        }
+        if (entries.entries.put(key, entry) == null) noEntries.incrementAndGet();
+    }
+
+    private void remove(VehicleRoute route) {
+        RouteEntries removed = routeEntries.remove(route);
+        if (removed != null) noEntries.addAndGet(-removed.entries.size());
+    }
+
+    private void remove(VehicleRoute route, RouteEntries entries) {
+        if (routeEntries.remove(route, entries)) noEntries.addAndGet(-entries.entries.size());
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        routeEntries.clear();
+        noEntries.set(0);
+    }
+
+    public int getNoEntries() {
+        return noEntries.get();
+    }
+
+    public long getNoHits() {
+        return noHits.sum();
+    }
+
+    public long getNoMisses() {
+        return noMisses.sum();
+    }
+
+    @Override
+    public void informInsertionStarts(Collection<VehicleRoute> vehicleRoutes, Collection<Job> unassignedJobs) {
+        // the solution completeness ratio changed
+        if (unassignedJobs.size() != noJobsToRecreate) clear();
+        noJobsToRecreate = unassignedJobs.size();
+    }
+
+    @Override
+    public void informJobInserted(Job job2insert, VehicleRoute inRoute, InsertionData insertionData) {
+        remove(inRoute);
+    }
+
+    @Override
+    public void ruinStarts(Collection<VehicleRoute> routes) {
+
+    }
+
+    @Override
+    public void ruinEnds(Collection<VehicleRoute> routes, Collection<Job> unassignedJobs) {
+
+    }
+
+    @Override
+    public void removed(Job job, VehicleRoute fromRoute) {
+        remove(fromRoute);
+    }
+
+}
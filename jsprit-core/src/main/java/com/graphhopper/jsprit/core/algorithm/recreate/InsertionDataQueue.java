@@ -0,0 +1,142 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+
+import java.util.*;
+
+/**
+ * Insertion data of one job, ordered by insertion costs and, for equal costs, by the order they were added.
+ * <p>
+ * <p>Data of a route is outdated once the route is updated again. Thus, adding data of a route replaces the data
+ * previously added for this route, and outdated data found while iterating can be removed by the iterator. The queue
+ * therefore only holds data of the latest update of each route instead of growing with each insertion.
+ */
+class InsertionDataQueue implements Iterable<VersionedInsertionData> {
+
+    private static class Entry {
+
+        private final VersionedInsertionData data;
+
+        private final long sequence;
+
+        Entry(VersionedInsertionData data, long sequence) {
+            this.data = data;
+            this.sequence = sequence;
+        }
+
+    }
+
+    private final TreeSet<Entry> entries = new TreeSet<>(new Comparator<Entry>() {
+
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            int result = Double.compare(o1.data.getiData().getInsertionCost(), o2.data.getiData().getInsertionCost());
+            if (result != 0) return result;
+            return Long.compare(o1.sequence, o2.sequence);
+        }
+
+    });
+
+    private final Map<VehicleRoute, List<Entry>> entriesByRoute = new IdentityHashMap<>();
+
+    private long sequence = 0;
+
+    private boolean allRoutesEvaluated = false;
+
+    /**
+     * Removes all data of the specified route, i.e. data that is outdated once the route is updated.
+     *
+     * @param route the route
+     */
+    void removeRoute(VehicleRoute route) {
+        List<Entry> routeEntries = entriesByRoute.remove(route);
+        if (routeEntries == null) return;
+        for (Entry entry : routeEntries) entries.remove(entry);
+    }
+
+    void add(VersionedInsertionData data) {
+        Entry entry = new Entry(data, sequence++);
+        entries.add(entry);
+        List<Entry> routeEntries = entriesByRoute.get(data.getRoute());
+        if (routeEntries == null) {
+            routeEntries = new ArrayList<>(2);
+            entriesByRoute.put(data.getRoute(), routeEntries);
+        }
+        routeEntries.add(entry);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the routes the queue holds data of
+     */
+    Set<VehicleRoute> getRoutes() {
+        return Collections.unmodifiableSet(entriesByRoute.keySet());
+    }
+
+    /**
+     * @return true if the job has been evaluated in all routes although granular insertion restricts it to its
+     * candidate routes, i.e. if none of its candidate routes was feasible
+     */
+    boolean isAllRoutesEvaluated() {
+        return allRoutesEvaluated;
+    }
+
+    void setAllRoutesEvaluated() {
+        this.allRoutesEvaluated = true;
+    }
+
+    /**
+     * Returns an iterator over the data, cheapest first. Its remove() removes the data from the queue.
+     *
+     * @return iterator
+     */
+    @Override
+    public Iterator<VersionedInsertionData> iterator() {
+        final Iterator<Entry> iterator = entries.iterator();
+        return new Iterator<VersionedInsertionData>() {
+
+            private Entry current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public VersionedInsertionData next() {
+                current = iterator.next();
+                return current.data;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                List<Entry> routeEntries = entriesByRoute.get(current.data.getRoute());
+                routeEntries.remove(current);
+                if (routeEntries.isEmpty()) entriesByRoute.remove(current.data.getRoute());
+            }
+
+        };
+    }
+
+}
@@ -31,27 +31,63 @@ import java.util.*;
  */
 class InsertionDataUpdater {
 
-    static boolean update(boolean addAllAvailable, Set<String> initialVehicleIds, VehicleFleetManager fleetManager, JobInsertionCostsCalculator insertionCostsCalculator, TreeSet<VersionedInsertionData> insertionDataSet, int updateRound, Job unassignedJob, Collection<VehicleRoute> routes) {
+    static boolean update(boolean addAllAvailable, Set<String> initialVehicleIds, VehicleFleetManager fleetManager, JobInsertionCostsCalculator insertionCostsCalculator, InsertionDataQueue insertionDataSet, int updateRound, Job unassignedJob, Collection<VehicleRoute> routes) {
         for(VehicleRoute route : routes) {
-            Collection<Vehicle> relevantVehicles = new ArrayList<>();
-            if (!(route.getVehicle() instanceof VehicleImpl.NoVehicle)) {
-                relevantVehicles.add(route.getVehicle());
-                if(addAllAvailable && !initialVehicleIds.contains(route.getVehicle().getId())){
-                    relevantVehicles.addAll(fleetManager.getAvailableVehicles(route.getVehicle()));
-                }
-            } else relevantVehicles.addAll(fleetManager.getAvailableVehicles());
-            for (Vehicle v : relevantVehicles) {
-                double depTime = v.getEarliestDeparture();
-                InsertionData iData = insertionCostsCalculator.getInsertionData(route, unassignedJob, v, depTime, route.getDriver(), Double.MAX_VALUE);
-                if (iData instanceof InsertionData.NoInsertionFound) {
-                    continue;
-                }
-                insertionDataSet.add(new VersionedInsertionData(iData, updateRound, route));
-            }
+            updateRoute(addAllAvailable, initialVehicleIds, fleetManager, insertionCostsCalculator, insertionDataSet, updateRound, unassignedJob, route);
         }
         return true;
     }
 
+    /**
+     * Updates the insertion data of the job in the updated routes that are candidate routes of the job. If afterwards
+     * the queue holds no data of a candidate route, the job is evaluated in all other routes as well and from then on
+     * in all updated routes. Data of routes that are not updated gets the route's current version, i.e. updates must
+     * already contain the version of the updated routes.
+     *
+     * @param routes    the updated routes
+     * @param allRoutes all routes
+     * @param updates   the current version of each route
+     */
+    static boolean update(boolean addAllAvailable, Set<String> initialVehicleIds, VehicleFleetManager fleetManager, JobInsertionCostsCalculator insertionCostsCalculator, InsertionDataQueue insertionDataSet, int updateRound, Job unassignedJob, Collection<VehicleRoute> routes, GranularNeighborhood granularNeighborhood, Collection<VehicleRoute> allRoutes, Map<VehicleRoute, Integer> updates) {
+        if (granularNeighborhood == null || insertionDataSet.isAllRoutesEvaluated()) {
+            return update(addAllAvailable, initialVehicleIds, fleetManager, insertionCostsCalculator, insertionDataSet, updateRound, unassignedJob, routes);
+        }
+        for (VehicleRoute route : routes) {
+            if (granularNeighborhood.isCandidate(unassignedJob, route)) {
+                updateRoute(addAllAvailable, initialVehicleIds, fleetManager, insertionCostsCalculator, insertionDataSet, updateRound, unassignedJob, route);
+            } else insertionDataSet.removeRoute(route);
+        }
+        for (VehicleRoute route : insertionDataSet.getRoutes()) {
+            if (granularNeighborhood.isCandidate(unassignedJob, route)) return true;
+        }
+        //no candidate route is feasible, unchanged candidate routes are still infeasible
+        insertionDataSet.setAllRoutesEvaluated();
+        for (VehicleRoute route : allRoutes) {
+            if (granularNeighborhood.isCandidate(unassignedJob, route)) continue;
+            updateRoute(addAllAvailable, initialVehicleIds, fleetManager, insertionCostsCalculator, insertionDataSet, updates.get(route), unassignedJob, route);
+        }
+        return true;
+    }
+
+    private static void updateRoute(boolean addAllAvailable, Set<String> initialVehicleIds, VehicleFleetManager fleetManager, JobInsertionCostsCalculator insertionCostsCalculator, InsertionDataQueue insertionDataSet, int version, Job unassignedJob, VehicleRoute route) {
+        insertionDataSet.removeRoute(route);
+        Collection<Vehicle> relevantVehicles = new ArrayList<>();
+        if (!(route.getVehicle() instanceof VehicleImpl.NoVehicle)) {
+            relevantVehicles.add(route.getVehicle());
+            if(addAllAvailable && !initialVehicleIds.contains(route.getVehicle().getId())){
+                relevantVehicles.addAll(fleetManager.getAvailableVehicles(route.getVehicle()));
+            }
+        } else relevantVehicles.addAll(fleetManager.getAvailableVehicles());
+        for (Vehicle v : relevantVehicles) {
+            double depTime = v.getEarliestDeparture();
+            InsertionData iData = insertionCostsCalculator.getInsertionData(route, unassignedJob, v, depTime, route.getDriver(), Double.MAX_VALUE);
+            if (iData instanceof InsertionData.NoInsertionFound) {
+                continue;
+            }
+            insertionDataSet.add(new VersionedInsertionData(iData, version, route));
+        }
+    }
+
 
 
     static VehicleRoute findRoute(Collection<VehicleRoute> routes, Job job) {
@@ -61,24 +97,23 @@ class InsertionDataUpdater {
         return null;
     }
 
-    static Comparator<VersionedInsertionData> getComparator(){
-        return (o1, o2) -> {
-            if (o1.getiData().getInsertionCost() < o2.getiData().getInsertionCost()) return -1;
-            return 1;
-        };
-    }
-
-    static ScoredJob getBest(boolean switchAllowed, Set<String> initialVehicleIds, VehicleFleetManager fleetManager, JobInsertionCostsCalculator insertionCostsCalculator, RegretScoringFunction scoringFunction, TreeSet<VersionedInsertionData>[] priorityQueues, Map<VehicleRoute, Integer> updates, List<Job> unassignedJobList, List<ScoredJob> badJobs) {
+    static ScoredJob getBest(boolean switchAllowed, Set<String> initialVehicleIds, VehicleFleetManager fleetManager, JobInsertionCostsCalculator insertionCostsCalculator, RegretScoringFunction scoringFunction, InsertionDataQueue[] priorityQueues, Map<VehicleRoute, Integer> updates, List<Job> unassignedJobList, List<ScoredJob> badJobs) {
         ScoredJob bestScoredJob = null;
         for (Job j : unassignedJobList) {
             VehicleRoute bestRoute = null;
             InsertionData best = null;
             InsertionData secondBest = null;
-            TreeSet<VersionedInsertionData> priorityQueue = priorityQueues[j.getIndex()];
+            InsertionDataQueue priorityQueue = priorityQueues[j.getIndex()];
             Iterator<VersionedInsertionData> iterator = priorityQueue.iterator();
             List<String> failedConstraintNames = new ArrayList<>();
             while (iterator.hasNext()) {
                 VersionedInsertionData versionedIData = iterator.next();
+                int currentDataVersion = updates.get(versionedIData.getRoute());
+                if(versionedIData.getVersion() != currentDataVersion){
+                    //outdated, since its route has been updated afterwards
+                    iterator.remove();
+                    continue;
+                }
                 if(bestRoute != null){
                     if(versionedIData.getRoute() == bestRoute){
                         continue;
@@ -112,16 +147,13 @@ class InsertionDataUpdater {
                         } else continue;
                     }
                 }
-                int currentDataVersion = updates.get(versionedIData.getRoute());
-                if(versionedIData.getVersion() == currentDataVersion){
-                    if(best == null) {
-                        best = versionedIData.getiData();
-                        bestRoute = versionedIData.getRoute();
-                    }
-                    else {
-                        secondBest = versionedIData.getiData();
-                        break;
-                    }
+                if(best == null) {
+                    best = versionedIData.getiData();
+                    bestRoute = versionedIData.getRoute();
+                }
+                else {
+                    secondBest = versionedIData.getiData();
+                    break;
                 }
             }
             VehicleRoute emptyRoute = VehicleRoute.emptyRoute();
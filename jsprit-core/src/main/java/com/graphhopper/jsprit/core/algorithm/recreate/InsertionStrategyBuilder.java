@@ -19,6 +19,7 @@ package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListeners;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
 import com.graphhopper.jsprit.core.algorithm.state.StateManager;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
@@ -29,6 +30,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class InsertionStrategyBuilder {
@@ -77,6 +79,12 @@ public class InsertionStrategyBuilder {
 
     private Random random = RandomNumberGeneration.getRandom();
 
+    private int insertionCacheSize = 0;
+
+    private JobNeighborhoods granularNeighborhoods;
+
+    private int granularNoNeighbors;
+
     public InsertionStrategyBuilder(VehicleRoutingProblem vrp, VehicleFleetManager vehicleFleetManager, StateManager stateManager, ConstraintManager constraintManager) {
         super();
         this.vrp = vrp;
@@ -148,11 +156,44 @@ public class InsertionStrategyBuilder {
         return this;
     }
 
+    /**
+     * Caches insertion data of unmodified routes, see {@link JobInsertionCostsCalculatorBuilder#setInsertionCache(int)}.
+     *
+     * @param maxEntries max. number of cached entries, 0 disables the cache
+     * @return builder
+     */
+    public InsertionStrategyBuilder setInsertionCache(int maxEntries) {
+        this.insertionCacheSize = maxEntries;
+        return this;
+    }
+
+    /**
+     * Restricts insertion to positions near the nearest neighbors of a job, see
+     * {@link JobInsertionCostsCalculatorBuilder#setGranularInsertion(JobNeighborhoods, int)}.
+     *
+     * @param jobNeighborhoods neighborhoods of jobs, must be initialised
+     * @param noNeighbors      number of nearest neighbors
+     * @return builder
+     */
+    public InsertionStrategyBuilder setGranularInsertion(JobNeighborhoods jobNeighborhoods, int noNeighbors) {
+        this.granularNeighborhoods = jobNeighborhoods;
+        this.granularNoNeighbors = noNeighbors;
+        return this;
+    }
+
     public InsertionStrategyBuilder setActivityInsertionCostCalculator(ActivityInsertionCostsCalculator activityInsertionCostsCalculator) {
         this.actInsertionCostsCalculator = activityInsertionCostsCalculator;
         return this;
     }
 
+    /**
+     * Calculates insertion data concurrently. If the executor is a {@link ForkJoinPool}, best insertion evaluates
+     * batches of nuOfThreads jobs at once (see {@link BestInsertionParallel}).
+     *
+     * @param executor    the executor calculating insertion data
+     * @param nuOfThreads number of threads of the executor
+     * @return builder
+     */
     public InsertionStrategyBuilder setConcurrentMode(ExecutorService executor, int nuOfThreads) {
         this.executor = executor;
         this.nuOfThreads = nuOfThreads;
@@ -184,6 +225,8 @@ public class InsertionStrategyBuilder {
             calcBuilder.considerFixedCosts(weightOfFixedCosts);
         }
         calcBuilder.setAllowVehicleSwitch(allowVehicleSwitch);
+        calcBuilder.setInsertionCache(insertionCacheSize);
+        if (granularNeighborhoods != null) calcBuilder.setGranularInsertion(granularNeighborhoods, granularNoNeighbors);
         JobInsertionCostsCalculator costCalculator = calcBuilder.build();
 
         InsertionStrategy insertion;
@@ -192,6 +235,10 @@ public class InsertionStrategyBuilder {
                 BestInsertion bestInsertion = new BestInsertion(costCalculator, vrp);
                 bestInsertion.setRandom(random);
                 insertion = bestInsertion;
+            } else if (executor instanceof ForkJoinPool) {
+                BestInsertionParallel bestInsertion = new BestInsertionParallel(costCalculator, (ForkJoinPool) executor, Math.max(1, nuOfThreads), vrp);
+                bestInsertion.setRandom(random);
+                insertion = bestInsertion;
             } else {
                 BestInsertionConcurrent bestInsertion = new BestInsertionConcurrent(costCalculator, executor, nuOfThreads, vrp);
                 bestInsertion.setRandom(random);
@@ -224,6 +271,9 @@ public class InsertionStrategyBuilder {
 
             }
         } else throw new IllegalStateException("you should never get here");
+        if (calcBuilder.getGranularNeighborhood() != null) {
+            ((AbstractInsertionStrategy) insertion).setGranularNeighborhood(calcBuilder.getGranularNeighborhood());
+        }
         for (InsertionListener l : iListeners) insertion.addListener(l);
         return insertion;
     }
@@ -19,6 +19,7 @@ package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import com.graphhopper.jsprit.core.algorithm.listener.VehicleRoutingAlgorithmListeners.PrioritizedVRAListener;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.InsertionListener;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
 import com.graphhopper.jsprit.core.problem.AbstractActivity;
 import com.graphhopper.jsprit.core.problem.JobActivityFactory;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
@@ -94,6 +95,14 @@ public class JobInsertionCostsCalculatorBuilder {
 
     private boolean addDefaultCostCalc = true;
 
+    private int insertionCacheSize = 0;
+
+    private JobNeighborhoods granularNeighborhoods;
+
+    private int granularNoNeighbors;
+
+    private GranularNeighborhood granularNeighborhood;
+
     private JobInsertionCostsCalculatorFactory shipmentCalculatorFactory = new ShipmentInsertionCalculatorFactory();
 
     private JobInsertionCostsCalculatorFactory serviceCalculatorFactory = new ServiceInsertionCalculatorFactory();
@@ -210,6 +219,41 @@ public class JobInsertionCostsCalculatorBuilder {
         return this;
     }
 
+    /**
+     * Caches insertion data of unmodified routes with an {@link InsertionCostsCache} of the specified max. number of
+     * entries. 0 disables the cache (default).
+     * <p>
+     * <p>Only use it if insertion costs depend on the route and the solution completeness ratio only, i.e. not with
+     * insertion noise.
+     *
+     * @param maxEntries max. number of cached entries
+     * @return builder
+     */
+    public JobInsertionCostsCalculatorBuilder setInsertionCache(int maxEntries) {
+        this.insertionCacheSize = maxEntries;
+        return this;
+    }
+
+    /**
+     * Restricts the insertion of services within routes that contain one of the specified number of nearest neighbors
+     * of the service to positions adjacent to a neighbor. If no such position is feasible, all positions of the route
+     * are evaluated.
+     * <p>
+     * <p>This only applies to local-level insertion with the default service calculator factory. Insertion strategies
+     * built by {@link InsertionStrategyBuilder} additionally evaluate a service in the routes of its neighbors first
+     * and only in the other routes if no insertion into the routes of its neighbors is feasible. If none of the
+     * neighbors is assigned, all routes are evaluated.
+     *
+     * @param jobNeighborhoods neighborhoods of jobs, must be initialised
+     * @param noNeighbors      number of nearest neighbors
+     * @return builder
+     */
+    public JobInsertionCostsCalculatorBuilder setGranularInsertion(JobNeighborhoods jobNeighborhoods, int noNeighbors) {
+        this.granularNeighborhoods = jobNeighborhoods;
+        this.granularNoNeighbors = noNeighbors;
+        return this;
+    }
+
     public JobInsertionCostsCalculatorBuilder experimentalTimeScheduler(double timeSlice, int neighbors) {
         timeScheduling = true;
         this.timeSlice = timeSlice;
@@ -255,9 +299,24 @@ public class JobInsertionCostsCalculatorBuilder {
             addInsertionListeners(calcPlusListeners.getInsertionListener());
             baseCalculator = calcPlusListeners.getCalculator();
         }
+        if (insertionCacheSize > 0) {
+            InsertionCostsCache cache = new InsertionCostsCache(baseCalculator, insertionCacheSize);
+            CalculatorPlusListeners calcPlusListeners = new CalculatorPlusListeners(cache);
+            calcPlusListeners.getInsertionListener().add(cache);
+            addInsertionListeners(calcPlusListeners.getInsertionListener());
+            baseCalculator = calcPlusListeners.getCalculator();
+        }
         return createFinalInsertion(fleetManager, baseCalculator, states);
     }
 
+    /**
+     * @return the neighbors restricting granular insertion once the calculator is built, null if granular insertion
+     * does not apply
+     */
+    GranularNeighborhood getGranularNeighborhood() {
+        return granularNeighborhood;
+    }
+
     private void checkServicesOnly() {
         for (Job j : vrp.getJobs().values()) {
             if (j instanceof Shipment) {
@@ -327,6 +386,11 @@ public class JobInsertionCostsCalculatorBuilder {
         if (configLocal != null) {
             calculatorPlusListeners.insertionListener.add(configLocal);
         }
+        if (granularNeighborhoods != null && serviceInsertion instanceof ServiceInsertionCalculator) {
+            granularNeighborhood = new GranularNeighborhood(vrp, granularNeighborhoods, granularNoNeighbors);
+            ((ServiceInsertionCalculator) serviceInsertion).setGranularNeighborhood(granularNeighborhood);
+            calculatorPlusListeners.insertionListener.add(granularNeighborhood);
+        }
         return calculatorPlusListeners;
     }
 
@@ -141,8 +141,9 @@ public class RegretInsertionConcurrent extends AbstractInsertionStrategy {
     private ScoredJob calculateBestJob(final Collection<VehicleRoute> routes, List<Job> unassignedJobList, List<ScoredJob> badJobList) {
         ScoredJob bestScoredJob = null;
         List<Callable<ScoredJob>> tasks = new ArrayList<>(unassignedJobList.size());
+        final GranularNeighborhood granularNeighborhood = getGranularNeighborhood();
         for (final Job unassignedJob : unassignedJobList) {
-            tasks.add(() -> Scorer.scoreUnassignedJob(routes, unassignedJob, insertionCostsCalculator, regretScoringFunction));
+            tasks.add(() -> Scorer.scoreUnassignedJob(routes, unassignedJob, insertionCostsCalculator, regretScoringFunction, granularNeighborhood));
         }
 
         try {
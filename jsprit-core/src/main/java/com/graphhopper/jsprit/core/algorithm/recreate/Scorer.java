@@ -40,29 +40,43 @@ class Scorer {
 
 
     static ScoredJob scoreUnassignedJob(Collection<VehicleRoute> routes, Job unassignedJob, JobInsertionCostsCalculator insertionCostsCalculator, RegretScoringFunction scoringFunction) {
+        return scoreUnassignedJob(routes, unassignedJob, insertionCostsCalculator, scoringFunction, null);
+    }
+
+    /**
+     * Scores the job. With granular insertion, the job is evaluated in its candidate routes first and only in the other
+     * routes if no insertion into a candidate route is feasible.
+     */
+    static ScoredJob scoreUnassignedJob(Collection<VehicleRoute> routes, Job unassignedJob, JobInsertionCostsCalculator insertionCostsCalculator, RegretScoringFunction scoringFunction, GranularNeighborhood granularNeighborhood) {
         InsertionData best = null;
         InsertionData secondBest = null;
         VehicleRoute bestRoute = null;
         List<String> failedConstraintNames = new ArrayList<>();
         double benchmark = Double.MAX_VALUE;
-        for (VehicleRoute route : routes) {
-            if (secondBest != null) {
-                benchmark = secondBest.getInsertionCost();
-            }
-            InsertionData iData = insertionCostsCalculator.getInsertionData(route, unassignedJob, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, benchmark);
-            if (iData instanceof InsertionData.NoInsertionFound) {
-                failedConstraintNames.addAll(iData.getFailedConstraintNames());
-                continue;
-            }
-            if (best == null) {
-                best = iData;
-                bestRoute = route;
-            } else if (iData.getInsertionCost() < best.getInsertionCost()) {
-                secondBest = best;
-                best = iData;
-                bestRoute = route;
-            } else if (secondBest == null || (iData.getInsertionCost() < secondBest.getInsertionCost())) {
-                secondBest = iData;
+        int noPasses = granularNeighborhood == null ? 1 : 2;
+        for (int pass = 0; pass < noPasses && best == null; pass++) {
+            for (VehicleRoute route : routes) {
+                if (granularNeighborhood != null && granularNeighborhood.isCandidate(unassignedJob, route) != (pass == 0)) {
+                    continue;
+                }
+                if (secondBest != null) {
+                    benchmark = secondBest.getInsertionCost();
+                }
+                InsertionData iData = insertionCostsCalculator.getInsertionData(route, unassignedJob, NO_NEW_VEHICLE_YET, NO_NEW_DEPARTURE_TIME_YET, NO_NEW_DRIVER_YET, benchmark);
+                if (iData instanceof InsertionData.NoInsertionFound) {
+                    failedConstraintNames.addAll(iData.getFailedConstraintNames());
+                    continue;
+                }
+                if (best == null) {
+                    best = iData;
+                    bestRoute = route;
+                } else if (iData.getInsertionCost() < best.getInsertionCost()) {
+                    secondBest = best;
+                    best = iData;
+                    bestRoute = route;
+                } else if (secondBest == null || (iData.getInsertionCost() < secondBest.getInsertionCost())) {
+                    secondBest = iData;
+                }
             }
         }
 
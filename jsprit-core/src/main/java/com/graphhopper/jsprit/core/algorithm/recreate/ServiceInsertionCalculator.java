@@ -18,6 +18,7 @@
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import com.graphhopper.jsprit.core.problem.JobActivityFactory;
+import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
 import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint.ConstraintsStatus;
 import com.graphhopper.jsprit.core.problem.constraint.HardConstraint;
@@ -35,13 +36,15 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.Start;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivityArrays;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Calculator that calculates the best insertion position for a {@link Service}.
@@ -68,6 +71,122 @@ final class ServiceInsertionCalculator extends AbstractInsertionCalculator {
 
     private final ConstraintManager constraintManager;
 
+    private GranularNeighborhood granularNeighborhood;
+
+    /**
+     * Objects that do not escape an evaluation and can thus be reused by the next evaluation:
+     * start and end of the new vehicle, the activity context and, per job, the activity evaluated at each position.
+     * Only if an insertion is found, a new activity is created for the {@link InsertActivity} event.
+     */
+    private static class Scratch {
+
+        private Start start;
+
+        private End end;
+
+        private final ActivityContext activityContext = new ActivityContext();
+
+        private TourActivity[] activities = new TourActivity[16];
+
+        Start getStart(Vehicle newVehicle, double newVehicleDepartureTime) {
+            if (start == null) start = new Start(newVehicle.getStartLocation(), newVehicle.getEarliestDeparture(), Double.MAX_VALUE);
+            else {
+                start.setLocation(newVehicle.getStartLocation());
+                start.setTheoreticalEarliestOperationStartTime(newVehicle.getEarliestDeparture());
+                start.setTheoreticalLatestOperationStartTime(Double.MAX_VALUE);
+                start.setArrTime(0.);
+            }
+            start.setEndTime(newVehicleDepartureTime);
+            return start;
+        }
+
+        End getEnd(Vehicle newVehicle) {
+            if (end == null) end = new End(newVehicle.getEndLocation(), 0.0, newVehicle.getLatestArrival());
+            else {
+                end.setLocation(newVehicle.getEndLocation());
+                end.setTheoreticalEarliestOperationStartTime(0.0);
+                end.setTheoreticalLatestOperationStartTime(newVehicle.getLatestArrival());
+                end.setEndTime(newVehicle.getLatestArrival());
+                end.setArrTime(0.);
+            }
+            return end;
+        }
+
+        private double[] earliestStarts = new double[16];
+
+        private double[] latestStarts = new double[16];
+
+        TourActivity getActivity(Service service, JobActivityFactory activityFactory) {
+            int index = service.getIndex();
+            if (index <= 0) return activityFactory.createActivities(service).get(0);
+            if (index >= activities.length) {
+                int length = Math.max(index + 1, 2 * activities.length);
+                activities = Arrays.copyOf(activities, length);
+                earliestStarts = Arrays.copyOf(earliestStarts, length);
+                latestStarts = Arrays.copyOf(latestStarts, length);
+            }
+            TourActivity activity = activities[index];
+            if (activity == null) {
+                activity = activityFactory.createActivities(service).get(0);
+                activities[index] = activity;
+                earliestStarts[index] = activity.getTheoreticalEarliestOperationStartTime();
+                latestStarts[index] = activity.getTheoreticalLatestOperationStartTime();
+            } else {
+                activity.setTheoreticalEarliestOperationStartTime(earliestStarts[index]);
+                activity.setTheoreticalLatestOperationStartTime(latestStarts[index]);
+            }
+            return activity;
+        }
+
+        private boolean[] neighborMarks = new boolean[16];
+
+        /**
+         * Marks the neighbors of the job to be inserted, so that {@link #isNeighbor(TourActivity)} can be answered in
+         * constant time.
+         */
+        void markNeighbors(Job[] neighbors, boolean mark) {
+            for (Job neighbor : neighbors) {
+                int index = neighbor.getIndex();
+                if (index >= neighborMarks.length) {
+                    neighborMarks = Arrays.copyOf(neighborMarks, Math.max(index + 1, 2 * neighborMarks.length));
+                }
+                neighborMarks[index] = mark;
+            }
+        }
+
+        boolean isNeighbor(TourActivity activity) {
+            if (!(activity instanceof TourActivity.JobActivity)) return false;
+            int index = ((TourActivity.JobActivity) activity).getJob().getIndex();
+            return index > 0 && index < neighborMarks.length && neighborMarks[index];
+        }
+
+    }
+
+    private static final int MAX_IDLE_SCRATCHES = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Scratches not in use. An evaluation takes one (or creates one if none is idle) and returns it afterwards. Thus
+     * there are not more scratches than concurrent evaluations, and they belong to this calculator rather than being
+     * pinned to (pool) threads.
+     */
+    private final AtomicReferenceArray<Scratch> idleScratches = new AtomicReferenceArray<>(MAX_IDLE_SCRATCHES);
+
+    private Scratch acquireScratch() {
+        for (int i = 0; i < MAX_IDLE_SCRATCHES; i++) {
+            if (idleScratches.get(i) != null) {
+                Scratch scratch = idleScratches.getAndSet(i, null);
+                if (scratch != null) return scratch;
+            }
+        }
+        return new Scratch();
+    }
+
+    private void releaseScratch(Scratch scratch) {
+        for (int i = 0; i < MAX_IDLE_SCRATCHES; i++) {
+            if (idleScratches.get(i) == null && idleScratches.compareAndSet(i, null, scratch)) return;
+        }
+    }
+
     public ServiceInsertionCalculator(VehicleRoutingTransportCosts routingCosts, VehicleRoutingActivityCosts activityCosts, ActivityInsertionCostsCalculator activityInsertionCostsCalculator, ConstraintManager constraintManager, JobActivityFactory activityFactory) {
         super();
         this.transportCosts = routingCosts;
@@ -81,6 +200,18 @@ final class ServiceInsertionCalculator extends AbstractInsertionCalculator {
         logger.debug("initialise {}", this);
     }
 
+    /**
+     * Restricts the evaluation of routes that contain one of the nearest neighbors of the job to be inserted to
+     * insertion positions adjacent to them. If no feasible position is adjacent to a neighbor, all positions of the
+     * route are evaluated. Whether other routes are evaluated at all is up to the insertion strategy, see
+     * {@link GranularNeighborhood#isCandidate(Job, VehicleRoute)}.
+     *
+     * @param granularNeighborhood neighbors restricting the evaluation, null to evaluate all positions (default)
+     */
+    void setGranularNeighborhood(GranularNeighborhood granularNeighborhood) {
+        this.granularNeighborhood = granularNeighborhood;
+    }
+
     @Override
     public String toString() {
         return "[name=calculatesServiceInsertion]";
@@ -92,11 +223,19 @@ final class ServiceInsertionCalculator extends AbstractInsertionCalculator {
      */
     @Override
     public InsertionData getInsertionData(final VehicleRoute currentRoute, final Job jobToInsert, final Vehicle newVehicle, double newVehicleDepartureTime, final Driver newDriver, final double bestKnownCosts) {
+        Scratch scratch = acquireScratch();
+        InsertionData insertionData = getInsertionData(currentRoute, jobToInsert, newVehicle, newVehicleDepartureTime, newDriver, bestKnownCosts, scratch);
+        //a scratch is only reused if the evaluation completed, i.e. if its neighbor marks are reset
+        releaseScratch(scratch);
+        return insertionData;
+    }
+
+    private InsertionData getInsertionData(final VehicleRoute currentRoute, final Job jobToInsert, final Vehicle newVehicle, double newVehicleDepartureTime, final Driver newDriver, final double bestKnownCosts, Scratch scratch) {
         JobInsertionContext insertionContext = new JobInsertionContext(currentRoute, jobToInsert, newVehicle, newDriver, newVehicleDepartureTime);
         Service service = (Service) jobToInsert;
         int insertionIndex = InsertionData.NO_INDEX;
 
-        TourActivity deliveryAct2Insert = activityFactory.createActivities(service).get(0);
+        TourActivity deliveryAct2Insert = scratch.getActivity(service, activityFactory);
         insertionContext.getAssociatedActivities().add(deliveryAct2Insert);
 
         /*
@@ -105,6 +244,15 @@ final class ServiceInsertionCalculator extends AbstractInsertionCalculator {
         InsertionData noInsertion = checkRouteConstraints(insertionContext, constraintManager);
         if (noInsertion != null) return noInsertion;
 
+        /*
+        granular insertion: only positions adjacent to neighbors of routes serving neighbors
+         */
+        Job[] neighbors = null;
+        if (granularNeighborhood != null && !currentRoute.isEmpty()) {
+            neighbors = granularNeighborhood.getAssignedNeighbors(service);
+            if (neighbors != null && !GranularNeighborhood.servesAny(currentRoute, neighbors)) neighbors = null;
+        }
+
         Collection<HardConstraint> failedActivityConstraints = new ArrayList<>();
 
         /*
@@ -119,51 +267,81 @@ final class ServiceInsertionCalculator extends AbstractInsertionCalculator {
         /*
         generate new start and end for new vehicle
          */
-        Start start = new Start(newVehicle.getStartLocation(), newVehicle.getEarliestDeparture(), Double.MAX_VALUE);
-        start.setEndTime(newVehicleDepartureTime);
-        End end = new End(newVehicle.getEndLocation(), 0.0, newVehicle.getLatestArrival());
-
-        TourActivity prevAct = start;
-        double prevActStartTime = newVehicleDepartureTime;
-        int actIndex = 0;
-        Iterator<TourActivity> activityIterator = currentRoute.getActivities().iterator();
-        boolean tourEnd = false;
-        while(!tourEnd){
-            TourActivity nextAct;
-            if(activityIterator.hasNext()) nextAct = activityIterator.next();
-            else{
-                nextAct = end;
-                tourEnd = true;
-            }
+        Start start = scratch.getStart(newVehicle, newVehicleDepartureTime);
+        End end = scratch.getEnd(newVehicle);
+        ActivityContext activityContext = scratch.activityContext;
+        insertionContext.setActivityContext(activityContext);
 
-            ActivityContext activityContext = new ActivityContext();
-            activityContext.setInsertionIndex(actIndex);
-            insertionContext.setActivityContext(activityContext);
-            boolean not_fulfilled_break = true;
-			for(TimeWindow timeWindow : service.getTimeWindows(insertionContext)) {
-                deliveryAct2Insert.setTheoreticalEarliestOperationStartTime(timeWindow.getStart());
-                deliveryAct2Insert.setTheoreticalLatestOperationStartTime(timeWindow.getEnd());
-
-                ConstraintsStatus status = fulfilled(insertionContext, prevAct, deliveryAct2Insert, nextAct, prevActStartTime, failedActivityConstraints, constraintManager);
-                if (status.equals(ConstraintsStatus.FULFILLED)) {
-                    double additionalICostsAtActLevel = softActivityConstraint.getCosts(insertionContext, prevAct, deliveryAct2Insert, nextAct, prevActStartTime);
-                    double additionalTransportationCosts = activityInsertionCostsCalculator.getCosts(insertionContext, prevAct, nextAct, deliveryAct2Insert, prevActStartTime);
-                    if (additionalICostsAtRouteLevel + additionalICostsAtActLevel + additionalTransportationCosts < bestCost) {
-                        bestCost = additionalICostsAtRouteLevel + additionalICostsAtActLevel + additionalTransportationCosts;
-                        insertionIndex = actIndex;
-                        bestTimeWindow = timeWindow;
-                    }
-                    not_fulfilled_break = false;
-                } else if (status.equals(ConstraintsStatus.NOT_FULFILLED)) {
+        boolean granular = neighbors != null;
+        if (granular) scratch.markNeighbors(neighbors, true);
+        boolean feasiblePositionFound = false;
+        TourActivityArrays activityArrays = currentRoute.getTourActivities().getActivityArrays();
+        int noActivities = activityArrays.size();
+        while (true) {
+            TourActivity prevAct = start;
+            Location prevActLocation = start.getLocation();
+            double prevActStartTime = newVehicleDepartureTime;
+            int actIndex = 0;
+            boolean tourEnd = false;
+            while(!tourEnd){
+                TourActivity nextAct;
+                Location nextActLocation;
+                double nextActEarliestStartTime;
+                if(actIndex < noActivities) {
+                    nextAct = activityArrays.getActivity(actIndex);
+                    nextActLocation = activityArrays.getLocation(actIndex);
+                    nextActEarliestStartTime = activityArrays.getEarliestOperationStartTime(actIndex);
+                } else{
+                    nextAct = end;
+                    nextActLocation = end.getLocation();
+                    nextActEarliestStartTime = end.getTheoreticalEarliestOperationStartTime();
+                    tourEnd = true;
+                }
+
+                activityContext.setInsertionIndex(actIndex);
+                boolean not_fulfilled_break = true;
+                if (granular && !scratch.isNeighbor(prevAct) && !scratch.isNeighbor(nextAct)) {
+                    // not adjacent to a neighbor, only schedule the next activity
                     not_fulfilled_break = false;
+                } else {
+                    for(TimeWindow timeWindow : service.getTimeWindows(insertionContext)) {
+                        deliveryAct2Insert.setTheoreticalEarliestOperationStartTime(timeWindow.getStart());
+                        deliveryAct2Insert.setTheoreticalLatestOperationStartTime(timeWindow.getEnd());
+
+                        ConstraintsStatus status = fulfilled(insertionContext, prevAct, deliveryAct2Insert, nextAct, prevActStartTime, failedActivityConstraints, constraintManager);
+                        if (status.equals(ConstraintsStatus.FULFILLED)) {
+                            double additionalICostsAtActLevel = softActivityConstraint.getCosts(insertionContext, prevAct, deliveryAct2Insert, nextAct, prevActStartTime);
+                            double additionalTransportationCosts = activityInsertionCostsCalculator.getCosts(insertionContext, prevAct, nextAct, deliveryAct2Insert, prevActStartTime);
+                            if (additionalICostsAtRouteLevel + additionalICostsAtActLevel + additionalTransportationCosts < bestCost) {
+                                bestCost = additionalICostsAtRouteLevel + additionalICostsAtActLevel + additionalTransportationCosts;
+                                insertionIndex = actIndex;
+                                bestTimeWindow = timeWindow;
+                            }
+                            not_fulfilled_break = false;
+                            feasiblePositionFound = true;
+                        } else if (status.equals(ConstraintsStatus.NOT_FULFILLED)) {
+                            not_fulfilled_break = false;
+                        }
+                    }
                 }
-			}
-            if(not_fulfilled_break) break;
-            double nextActArrTime = prevActStartTime + transportCosts.getTransportTime(prevAct.getLocation(), nextAct.getLocation(), prevActStartTime, newDriver, newVehicle);
-            prevActStartTime = Math.max(nextActArrTime, nextAct.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(nextAct,nextActArrTime,newDriver,newVehicle);
-            prevAct = nextAct;
-            actIndex++;
+                if(not_fulfilled_break) break;
+                double nextActArrTime = prevActStartTime + transportCosts.getTransportTime(prevActLocation, nextActLocation, prevActStartTime, newDriver, newVehicle);
+                prevActStartTime = Math.max(nextActArrTime, nextActEarliestStartTime) + activityCosts.getActivityDuration(nextAct,nextActArrTime,newDriver,newVehicle);
+                prevAct = nextAct;
+                prevActLocation = nextActLocation;
+                actIndex++;
+            }
+            /*
+            granular insertion: fall back to all positions if no position adjacent to a neighbor is feasible
+             */
+            if (granular && !feasiblePositionFound) {
+                granular = false;
+                failedActivityConstraints.clear();
+                continue;
+            }
+            break;
         }
+        if (neighbors != null) scratch.markNeighbors(neighbors, false);
         if(insertionIndex == InsertionData.NO_INDEX) {
             InsertionData emptyInsertionData = new InsertionData.NoInsertionFound();
             for (HardConstraint c : failedActivityConstraints) {
@@ -172,6 +350,7 @@ final class ServiceInsertionCalculator extends AbstractInsertionCalculator {
             return emptyInsertionData;
         }
         InsertionData insertionData = new InsertionData(bestCost, InsertionData.NO_INDEX, insertionIndex, newVehicle, newDriver);
+        deliveryAct2Insert = activityFactory.createActivities(service).get(0);
         deliveryAct2Insert.setTheoreticalEarliestOperationStartTime(bestTimeWindow.getStart());
         deliveryAct2Insert.setTheoreticalLatestOperationStartTime(bestTimeWindow.getEnd());
         insertionData.getEvents().add(new InsertActivity(currentRoute, newVehicle, deliveryAct2Insert, insertionIndex));
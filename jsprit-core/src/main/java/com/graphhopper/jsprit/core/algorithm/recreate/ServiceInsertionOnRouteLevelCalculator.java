@@ -307,12 +307,12 @@ final class ServiceInsertionOnRouteLevelCalculator implements JobInsertionCostsC
     }
 
     private double sumOf_prevCosts_oldVehicle(VehicleRoute vehicleRoute, TourActivity act) {
-        Double prevCost;
         if (act instanceof End) {
-            prevCost = stateManager.getRouteState(vehicleRoute, InternalStates.COSTS, Double.class);
-        } else prevCost = stateManager.getActivityState(act, InternalStates.COSTS, Double.class);
-        if (prevCost == null) prevCost = 0.;
-        return prevCost;
+            Double prevCost = stateManager.getRouteState(vehicleRoute, InternalStates.COSTS, Double.class);
+            if (prevCost == null) prevCost = 0.;
+            return prevCost;
+        }
+        return stateManager.getActivityDoubleState(act, InternalStates.COSTS, 0.);
     }
 
     private Comparator<InsertionData> getComparator() {
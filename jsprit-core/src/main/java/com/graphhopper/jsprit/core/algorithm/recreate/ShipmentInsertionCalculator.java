@@ -18,6 +18,7 @@
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
 import com.graphhopper.jsprit.core.problem.JobActivityFactory;
+import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
 import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint.ConstraintsStatus;
 import com.graphhopper.jsprit.core.problem.constraint.HardConstraint;
@@ -35,6 +36,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.Start;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivityArrays;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -121,21 +123,28 @@ final class ShipmentInsertionCalculator extends AbstractInsertionCalculator {
         ActivityContext pickupContext = new ActivityContext();
 
         TourActivity prevAct = start;
+        Location prevLocation = start.getLocation();
         double prevActEndTime = newVehicleDepartureTime;
 
         //loops
         int i = 0;
         boolean tourEnd = false;
         //pickupShipmentLoop
-        List<TourActivity> activities = currentRoute.getTourActivities().getActivities();
+        TourActivityArrays activities = currentRoute.getTourActivities().getActivityArrays();
 
         List<HardConstraint> failedActivityConstraints = new ArrayList<>();
         while (!tourEnd) {
             TourActivity nextAct;
+            Location nextLocation;
+            double nextActEarliestStartTime;
             if (i < activities.size()) {
-                nextAct = activities.get(i);
+                nextAct = activities.getActivity(i);
+                nextLocation = activities.getLocation(i);
+                nextActEarliestStartTime = activities.getEarliestOperationStartTime(i);
             } else {
                 nextAct = end;
+                nextLocation = end.getLocation();
+                nextActEarliestStartTime = end.getTheoreticalEarliestOperationStartTime();
                 tourEnd = true;
             }
 
@@ -161,7 +170,8 @@ final class ShipmentInsertionCalculator extends AbstractInsertionCalculator {
                 double pickupAIC = calculate(insertionContext, prevAct, pickupShipment, nextAct, prevActEndTime);
 
                 TourActivity prevAct_deliveryLoop = pickupShipment;
-                double shipmentPickupArrTime = prevActEndTime + transportCosts.getTransportTime(prevAct.getLocation(), pickupShipment.getLocation(), prevActEndTime, newDriver, newVehicle);
+                Location prevLocation_deliveryLoop = pickupShipment.getLocation();
+                double shipmentPickupArrTime = prevActEndTime + transportCosts.getTransportTime(prevLocation, pickupShipment.getLocation(), prevActEndTime, newDriver, newVehicle);
                 double shipmentPickupEndTime = Math.max(shipmentPickupArrTime, pickupShipment.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(pickupShipment, shipmentPickupArrTime, newDriver, newVehicle);
 
                 pickupContext.setArrivalTime(shipmentPickupArrTime);
@@ -183,10 +193,16 @@ final class ShipmentInsertionCalculator extends AbstractInsertionCalculator {
                 boolean tourEnd_deliveryLoop = false;
                 while (!tourEnd_deliveryLoop) {
                     TourActivity nextAct_deliveryLoop;
+                    Location nextLocation_deliveryLoop;
+                    double nextActEarliestStartTime_deliveryLoop;
                     if (j < activities.size()) {
-                        nextAct_deliveryLoop = activities.get(j);
+                        nextAct_deliveryLoop = activities.getActivity(j);
+                        nextLocation_deliveryLoop = activities.getLocation(j);
+                        nextActEarliestStartTime_deliveryLoop = activities.getEarliestOperationStartTime(j);
                     } else {
                         nextAct_deliveryLoop = end;
+                        nextLocation_deliveryLoop = end.getLocation();
+                        nextActEarliestStartTime_deliveryLoop = end.getTheoreticalEarliestOperationStartTime();
                         tourEnd_deliveryLoop = true;
                     }
 
@@ -218,9 +234,10 @@ final class ShipmentInsertionCalculator extends AbstractInsertionCalculator {
                     }
                     if (deliveryInsertionNotFulfilledBreak) break;
                     //update prevAct and endTime
-                    double nextActArrTime = prevActEndTime_deliveryLoop + transportCosts.getTransportTime(prevAct_deliveryLoop.getLocation(), nextAct_deliveryLoop.getLocation(), prevActEndTime_deliveryLoop, newDriver, newVehicle);
-                    prevActEndTime_deliveryLoop = Math.max(nextActArrTime, nextAct_deliveryLoop.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(nextAct_deliveryLoop,nextActArrTime,newDriver,newVehicle);
+                    double nextActArrTime = prevActEndTime_deliveryLoop + transportCosts.getTransportTime(prevLocation_deliveryLoop, nextLocation_deliveryLoop, prevActEndTime_deliveryLoop, newDriver, newVehicle);
+                    prevActEndTime_deliveryLoop = Math.max(nextActArrTime, nextActEarliestStartTime_deliveryLoop) + activityCosts.getActivityDuration(nextAct_deliveryLoop,nextActArrTime,newDriver,newVehicle);
                     prevAct_deliveryLoop = nextAct_deliveryLoop;
+                    prevLocation_deliveryLoop = nextLocation_deliveryLoop;
                     j++;
                 }
             }
@@ -228,9 +245,10 @@ final class ShipmentInsertionCalculator extends AbstractInsertionCalculator {
                 break;
             }
             //update prevAct and endTime
-            double nextActArrTime = prevActEndTime + transportCosts.getTransportTime(prevAct.getLocation(), nextAct.getLocation(), prevActEndTime, newDriver, newVehicle);
-            prevActEndTime = Math.max(nextActArrTime, nextAct.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(nextAct,nextActArrTime,newDriver,newVehicle);
+            double nextActArrTime = prevActEndTime + transportCosts.getTransportTime(prevLocation, nextLocation, prevActEndTime, newDriver, newVehicle);
+            prevActEndTime = Math.max(nextActArrTime, nextActEarliestStartTime) + activityCosts.getActivityDuration(nextAct,nextActArrTime,newDriver,newVehicle);
             prevAct = nextAct;
+            prevLocation = nextLocation;
             i++;
         }
         if (pickupInsertionIndex == InsertionData.NO_INDEX) {
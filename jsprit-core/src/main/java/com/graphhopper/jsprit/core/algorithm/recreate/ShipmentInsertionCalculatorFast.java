@@ -0,0 +1,365 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.problem.JobActivityFactory;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint.ConstraintsStatus;
+import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint;
+import com.graphhopper.jsprit.core.problem.constraint.HardConstraint;
+import com.graphhopper.jsprit.core.problem.constraint.MaxDistanceConstraint;
+import com.graphhopper.jsprit.core.problem.constraint.MaxTimeInVehicleConstraint;
+import com.graphhopper.jsprit.core.problem.constraint.SoftActivityConstraint;
+import com.graphhopper.jsprit.core.problem.constraint.SoftRouteConstraint;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.misc.ActivityContext;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.Start;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivityArrays;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Shipment insertion calculator that yields the same insertion as {@link ShipmentInsertionCalculator}, but avoids most
+ * of its pickup x delivery evaluations.
+ * <p>
+ * <p>The departure times of the route served by the new vehicle are computed once per call (forward schedule). While
+ * scanning the delivery positions behind a pickup, the shifted schedule is compared to this forward schedule. As soon
+ * as the pickup delay is absorbed (e.g. by waiting for a time window to open), the rest of the route is exactly the
+ * original one, and evaluating the delivery at position j does not depend on where the pickup went anymore. From
+ * there on, constraint status and insertion costs of the delivery are taken from a memo that is shared by all pickup
+ * positions, i.e. every remaining pair is checked in O(1), and every delivery position is evaluated at most once per
+ * call in that part of the route. For routes with time windows, this makes total work approach O(n).
+ * <p>
+ * <p>This assumes that hard activity constraints, soft activity constraints and the activity insertion costs of the
+ * delivery do not depend on the related pickup context ({@link JobInsertionContext#getRelatedActivityContext()})
+ * once the pickup delay has been absorbed. Of the built-in constraints, only {@link MaxDistanceConstraint} and
+ * {@link MaxTimeInVehicleConstraint} do; if one of them is registered, every pair is evaluated as in
+ * {@link ShipmentInsertionCalculator}. If your own constraints or cost calculators do, use {@link ShipmentInsertionCalculator}.
+ */
+final class ShipmentInsertionCalculatorFast extends AbstractInsertionCalculator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShipmentInsertionCalculatorFast.class);
+
+    /**
+     * Memoized evaluation of the delivery at one insertion position, on the original forward schedule.
+     */
+    private static class DeliveryEvaluation {
+
+        private final boolean notFulfilledBreak;
+
+        private final TimeWindow[] timeWindows;
+
+        private final double[] activityInsertionCosts;
+
+        private final double[] additionalCosts;
+
+        private DeliveryEvaluation(boolean notFulfilledBreak, TimeWindow[] timeWindows, double[] activityInsertionCosts, double[] additionalCosts) {
+            this.notFulfilledBreak = notFulfilledBreak;
+            this.timeWindows = timeWindows;
+            this.activityInsertionCosts = activityInsertionCosts;
+            this.additionalCosts = additionalCosts;
+        }
+    }
+
+    private final ConstraintManager constraintManager;
+
+    private final SoftRouteConstraint softRouteConstraint;
+
+    private final SoftActivityConstraint softActivityConstraint;
+
+    private final ActivityInsertionCostsCalculator activityInsertionCostsCalculator;
+
+    private final VehicleRoutingTransportCosts transportCosts;
+
+    private final VehicleRoutingActivityCosts activityCosts;
+
+    private final JobActivityFactory activityFactory;
+
+    private final AdditionalAccessEgressCalculator additionalAccessEgressCalculator;
+
+    public ShipmentInsertionCalculatorFast(VehicleRoutingTransportCosts routingCosts, VehicleRoutingActivityCosts activityCosts, ActivityInsertionCostsCalculator activityInsertionCostsCalculator, ConstraintManager constraintManager, JobActivityFactory jobActivityFactory) {
+        super();
+        this.activityInsertionCostsCalculator = activityInsertionCostsCalculator;
+        this.constraintManager = constraintManager;
+        this.softActivityConstraint = constraintManager;
+        this.softRouteConstraint = constraintManager;
+        this.transportCosts = routingCosts;
+        this.activityCosts = activityCosts;
+        additionalAccessEgressCalculator = new AdditionalAccessEgressCalculator(routingCosts);
+        this.activityFactory = jobActivityFactory;
+        logger.debug("initialise {}", this);
+    }
+
+    @Override
+    public String toString() {
+        return "[name=calculatesShipmentInsertionFast]";
+    }
+
+    @Override
+    public InsertionData getInsertionData(final VehicleRoute currentRoute, final Job jobToInsert, final Vehicle newVehicle, double newVehicleDepartureTime, final Driver newDriver, final double bestKnownCosts) {
+        JobInsertionContext insertionContext = new JobInsertionContext(currentRoute, jobToInsert, newVehicle, newDriver, newVehicleDepartureTime);
+        Shipment shipment = (Shipment) jobToInsert;
+        TourActivity pickupShipment = activityFactory.createActivities(shipment).get(0);
+        TourActivity deliverShipment = activityFactory.createActivities(shipment).get(1);
+        insertionContext.getAssociatedActivities().add(pickupShipment);
+        insertionContext.getAssociatedActivities().add(deliverShipment);
+
+        InsertionData noInsertion = checkRouteConstraints(insertionContext, constraintManager);
+        if (noInsertion != null) return noInsertion;
+
+        double additionalICostsAtRouteLevel = softRouteConstraint.getCosts(insertionContext);
+
+        double bestCost = bestKnownCosts;
+        additionalICostsAtRouteLevel += additionalAccessEgressCalculator.getCosts(insertionContext);
+
+        int pickupInsertionIndex = InsertionData.NO_INDEX;
+        int deliveryInsertionIndex = InsertionData.NO_INDEX;
+
+        TimeWindow bestPickupTimeWindow = null;
+        TimeWindow bestDeliveryTimeWindow = null;
+
+        Start start = new Start(newVehicle.getStartLocation(), newVehicle.getEarliestDeparture(), newVehicle.getLatestArrival());
+        start.setEndTime(newVehicleDepartureTime);
+
+        End end = new End(newVehicle.getEndLocation(), 0.0, newVehicle.getLatestArrival());
+
+        TourActivityArrays activities = currentRoute.getTourActivities().getActivityArrays();
+        int noActivities = activities.size();
+
+        /*
+        forward schedule: departures[k] is the departure time at the activity preceding insertion position k
+         */
+        double[] departures = new double[noActivities + 1];
+        departures[0] = newVehicleDepartureTime;
+        Location prevLocation = start.getLocation();
+        for (int k = 0; k < noActivities; k++) {
+            Location location = activities.getLocation(k);
+            double arrTime = departures[k] + transportCosts.getTransportTime(prevLocation, location, departures[k], newDriver, newVehicle);
+            departures[k + 1] = Math.max(arrTime, activities.getEarliestOperationStartTime(k)) + activityCosts.getActivityDuration(activities.getActivity(k), arrTime, newDriver, newVehicle);
+            prevLocation = location;
+        }
+        DeliveryEvaluation[] deliveryEvaluations = new DeliveryEvaluation[noActivities + 1];
+        boolean memoizeDeliveries = !hasPickupDependentConstraints();
+
+        ActivityContext pickupContext = new ActivityContext();
+        List<HardConstraint> failedActivityConstraints = new ArrayList<>();
+
+        TourActivity prevAct = start;
+        for (int i = 0; i <= noActivities; i++) {
+            TourActivity nextAct = i < noActivities ? activities.getActivity(i) : end;
+            double prevActEndTime = departures[i];
+
+            boolean pickupInsertionNotFulfilledBreak = true;
+            ActivityContext activityContext = new ActivityContext();
+            activityContext.setInsertionIndex(i);
+            insertionContext.setActivityContext(activityContext);
+            for (TimeWindow pickupTimeWindow : shipment.getPickupTimeWindows(insertionContext)) {
+                pickupShipment.setTheoreticalLatestOperationStartTime(pickupTimeWindow.getEnd());
+                pickupShipment.setTheoreticalEarliestOperationStartTime(pickupTimeWindow.getStart());
+
+                ConstraintsStatus pickupShipmentConstraintStatus = fulfilled(insertionContext, prevAct, pickupShipment, nextAct, prevActEndTime, failedActivityConstraints, constraintManager);
+                if (pickupShipmentConstraintStatus.equals(ConstraintsStatus.NOT_FULFILLED)) {
+                    pickupInsertionNotFulfilledBreak = false;
+                    continue;
+                } else if (pickupShipmentConstraintStatus.equals(ConstraintsStatus.NOT_FULFILLED_BREAK)) {
+                    continue;
+                } else if (pickupShipmentConstraintStatus.equals(ConstraintsStatus.FULFILLED)) {
+                    pickupInsertionNotFulfilledBreak = false;
+                }
+                double additionalPickupICosts = softActivityConstraint.getCosts(insertionContext, prevAct, pickupShipment, nextAct, prevActEndTime);
+                double pickupAIC = calculate(insertionContext, prevAct, pickupShipment, nextAct, prevActEndTime);
+
+                TourActivity prevAct_deliveryLoop = pickupShipment;
+                Location prevLocation_deliveryLoop = pickupShipment.getLocation();
+                double shipmentPickupArrTime = prevActEndTime + transportCosts.getTransportTime(prevAct.getLocation(), pickupShipment.getLocation(), prevActEndTime, newDriver, newVehicle);
+                double shipmentPickupEndTime = Math.max(shipmentPickupArrTime, pickupShipment.getTheoreticalEarliestOperationStartTime()) + activityCosts.getActivityDuration(pickupShipment, shipmentPickupArrTime, newDriver, newVehicle);
+
+                pickupContext.setArrivalTime(shipmentPickupArrTime);
+                pickupContext.setEndTime(shipmentPickupEndTime);
+                pickupContext.setInsertionIndex(i);
+                insertionContext.setRelatedActivityContext(pickupContext);
+
+                double prevActEndTime_deliveryLoop = shipmentPickupEndTime;
+
+                double pickupCosts = pickupAIC + additionalPickupICosts + additionalICostsAtRouteLevel;
+                if (bestCost <= pickupCosts) {
+                    continue;
+                }
+
+                for (int j = i; j <= noActivities; j++) {
+                    if (memoizeDeliveries && j > i && prevActEndTime_deliveryLoop == departures[j]) {
+                        /*
+                        pickup delay absorbed, i.e. the remaining route is the original one
+                         */
+                        for (int k = j; k <= noActivities; k++) {
+                            DeliveryEvaluation evaluation = deliveryEvaluations[k];
+                            if (evaluation == null) {
+                                evaluation = evaluateDelivery(insertionContext, shipment, deliverShipment, activities, end, k, departures[k], failedActivityConstraints);
+                                deliveryEvaluations[k] = evaluation;
+                            }
+                            if (evaluation.notFulfilledBreak) break;
+                            for (int tw = 0; tw < evaluation.timeWindows.length; tw++) {
+                                if (Double.isNaN(evaluation.activityInsertionCosts[tw])) continue;
+                                double totalActivityInsertionCosts = pickupAIC + evaluation.activityInsertionCosts[tw]
+                                    + additionalICostsAtRouteLevel + additionalPickupICosts + evaluation.additionalCosts[tw];
+                                if (totalActivityInsertionCosts < bestCost) {
+                                    bestCost = totalActivityInsertionCosts;
+                                    pickupInsertionIndex = i;
+                                    deliveryInsertionIndex = k;
+                                    bestPickupTimeWindow = pickupTimeWindow;
+                                    bestDeliveryTimeWindow = evaluation.timeWindows[tw];
+                                }
+                            }
+                        }
+                        break;
+                    }
+                    TourActivity nextAct_deliveryLoop;
+                    Location nextLocation_deliveryLoop;
+                    double nextActEarliestStartTime_deliveryLoop;
+                    if (j < noActivities) {
+                        nextAct_deliveryLoop = activities.getActivity(j);
+                        nextLocation_deliveryLoop = activities.getLocation(j);
+                        nextActEarliestStartTime_deliveryLoop = activities.getEarliestOperationStartTime(j);
+                    } else {
+                        nextAct_deliveryLoop = end;
+                        nextLocation_deliveryLoop = end.getLocation();
+                        nextActEarliestStartTime_deliveryLoop = end.getTheoreticalEarliestOperationStartTime();
+                    }
+
+                    boolean deliveryInsertionNotFulfilledBreak = true;
+                    ActivityContext activityContext_ = new ActivityContext();
+                    activityContext_.setInsertionIndex(j);
+                    insertionContext.setActivityContext(activityContext_);
+                    for (TimeWindow deliveryTimeWindow : shipment.getDeliveryTimeWindows(insertionContext)) {
+                        deliverShipment.setTheoreticalEarliestOperationStartTime(deliveryTimeWindow.getStart());
+                        deliverShipment.setTheoreticalLatestOperationStartTime(deliveryTimeWindow.getEnd());
+
+                        ConstraintsStatus deliverShipmentConstraintStatus = fulfilled(insertionContext, prevAct_deliveryLoop, deliverShipment, nextAct_deliveryLoop, prevActEndTime_deliveryLoop, failedActivityConstraints, constraintManager);
+                        if (deliverShipmentConstraintStatus.equals(ConstraintsStatus.FULFILLED)) {
+                            double additionalDeliveryICosts = softActivityConstraint.getCosts(insertionContext, prevAct_deliveryLoop, deliverShipment, nextAct_deliveryLoop, prevActEndTime_deliveryLoop);
+                            double deliveryAIC = calculate(insertionContext, prevAct_deliveryLoop, deliverShipment, nextAct_deliveryLoop, prevActEndTime_deliveryLoop);
+                            double totalActivityInsertionCosts = pickupAIC + deliveryAIC
+                                + additionalICostsAtRouteLevel + additionalPickupICosts + additionalDeliveryICosts;
+                            if (totalActivityInsertionCosts < bestCost) {
+                                bestCost = totalActivityInsertionCosts;
+                                pickupInsertionIndex = i;
+                                deliveryInsertionIndex = j;
+                                bestPickupTimeWindow = pickupTimeWindow;
+                                bestDeliveryTimeWindow = deliveryTimeWindow;
+                            }
+                            deliveryInsertionNotFulfilledBreak = false;
+                        } else if (deliverShipmentConstraintStatus.equals(ConstraintsStatus.NOT_FULFILLED)) {
+                            deliveryInsertionNotFulfilledBreak = false;
+                        }
+                    }
+                    if (deliveryInsertionNotFulfilledBreak) break;
+                    //update prevAct and endTime
+                    double nextActArrTime = prevActEndTime_deliveryLoop + transportCosts.getTransportTime(prevLocation_deliveryLoop, nextLocation_deliveryLoop, prevActEndTime_deliveryLoop, newDriver, newVehicle);
+                    prevActEndTime_deliveryLoop = Math.max(nextActArrTime, nextActEarliestStartTime_deliveryLoop) + activityCosts.getActivityDuration(nextAct_deliveryLoop, nextActArrTime, newDriver, newVehicle);
+                    prevAct_deliveryLoop = nextAct_deliveryLoop;
+                    prevLocation_deliveryLoop = nextLocation_deliveryLoop;
+                }
+            }
+            if (pickupInsertionNotFulfilledBreak) {
+                break;
+            }
+            prevAct = nextAct;
+        }
+        if (pickupInsertionIndex == InsertionData.NO_INDEX) {
+            InsertionData emptyInsertionData = new InsertionData.NoInsertionFound();
+            for (HardConstraint failed : failedActivityConstraints) {
+                emptyInsertionData.addFailedConstrainName(failed.getClass().getSimpleName());
+            }
+            return emptyInsertionData;
+        }
+        InsertionData insertionData = new InsertionData(bestCost, pickupInsertionIndex, deliveryInsertionIndex, newVehicle, newDriver);
+        pickupShipment.setTheoreticalEarliestOperationStartTime(bestPickupTimeWindow.getStart());
+        pickupShipment.setTheoreticalLatestOperationStartTime(bestPickupTimeWindow.getEnd());
+        deliverShipment.setTheoreticalEarliestOperationStartTime(bestDeliveryTimeWindow.getStart());
+        deliverShipment.setTheoreticalLatestOperationStartTime(bestDeliveryTimeWindow.getEnd());
+        insertionData.setVehicleDepartureTime(newVehicleDepartureTime);
+        insertionData.getEvents().add(new InsertActivity(currentRoute, newVehicle, deliverShipment, deliveryInsertionIndex));
+        insertionData.getEvents().add(new InsertActivity(currentRoute, newVehicle, pickupShipment, pickupInsertionIndex));
+        insertionData.getEvents().add(new SwitchVehicle(currentRoute, newVehicle, newVehicleDepartureTime));
+        return insertionData;
+    }
+
+    private boolean hasPickupDependentConstraints() {
+        return isPickupDependent(constraintManager.getCriticalHardActivityConstraints())
+            || isPickupDependent(constraintManager.getHighPrioHardActivityConstraints())
+            || isPickupDependent(constraintManager.getLowPrioHardActivityConstraints());
+    }
+
+    private static boolean isPickupDependent(Collection<HardActivityConstraint> constraints) {
+        for (HardActivityConstraint c : constraints) {
+            if (c instanceof MaxDistanceConstraint || c instanceof MaxTimeInVehicleConstraint) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates the delivery between activity k-1 and k (or end) of the original route. Costs of time windows
+     * that are not fulfilled are NaN.
+     */
+    private DeliveryEvaluation evaluateDelivery(JobInsertionContext insertionContext, Shipment shipment, TourActivity deliverShipment, TourActivityArrays activities,
+                                                End end, int k, double prevActEndTime, List<HardConstraint> failedActivityConstraints) {
+        TourActivity prevAct = activities.getActivity(k - 1);
+        TourActivity nextAct = k < activities.size() ? activities.getActivity(k) : end;
+        ActivityContext activityContext = new ActivityContext();
+        activityContext.setInsertionIndex(k);
+        insertionContext.setActivityContext(activityContext);
+        Collection<TimeWindow> deliveryTimeWindows = shipment.getDeliveryTimeWindows(insertionContext);
+        TimeWindow[] timeWindows = deliveryTimeWindows.toArray(new TimeWindow[deliveryTimeWindows.size()]);
+        double[] activityInsertionCosts = new double[timeWindows.length];
+        double[] additionalCosts = new double[timeWindows.length];
+        boolean notFulfilledBreak = true;
+        for (int tw = 0; tw < timeWindows.length; tw++) {
+            deliverShipment.setTheoreticalEarliestOperationStartTime(timeWindows[tw].getStart());
+            deliverShipment.setTheoreticalLatestOperationStartTime(timeWindows[tw].getEnd());
+            activityInsertionCosts[tw] = Double.NaN;
+            ConstraintsStatus status = fulfilled(insertionContext, prevAct, deliverShipment, nextAct, prevActEndTime, failedActivityConstraints, constraintManager);
+            if (status.equals(ConstraintsStatus.FULFILLED)) {
+                additionalCosts[tw] = softActivityConstraint.getCosts(insertionContext, prevAct, deliverShipment, nextAct, prevActEndTime);
+                activityInsertionCosts[tw] = calculate(insertionContext, prevAct, deliverShipment, nextAct, prevActEndTime);
+                notFulfilledBreak = false;
+            } else if (status.equals(ConstraintsStatus.NOT_FULFILLED)) {
+                notFulfilledBreak = false;
+            }
+        }
+        return new DeliveryEvaluation(notFulfilledBreak, timeWindows, activityInsertionCosts, additionalCosts);
+    }
+
+    private double calculate(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double departureTimeAtPrevAct) {
+        return activityInsertionCostsCalculator.getCosts(iFacts, prevAct, nextAct, newAct, departureTimeAtPrevAct);
+    }
+}
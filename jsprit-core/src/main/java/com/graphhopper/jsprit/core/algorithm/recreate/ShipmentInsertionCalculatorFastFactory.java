@@ -0,0 +1,35 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.problem.JobActivityFactory;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+
+/**
+ * Creates a shipment insertion calculator that memoizes delivery evaluations on the unchanged part of the route,
+ * see {@link ShipmentInsertionCalculatorFast}. Use it with
+ * {@link JobInsertionCostsCalculatorBuilder#setShipmentCalculatorFactory(JobInsertionCostsCalculatorFactory)} or
+ * {@link InsertionStrategyBuilder#setShipmentInsertionCalculatorFactory(JobInsertionCostsCalculatorFactory)}.
+ */
+public class ShipmentInsertionCalculatorFastFactory implements JobInsertionCostsCalculatorFactory {
+    @Override
+    public JobInsertionCostsCalculator create(VehicleRoutingProblem vrp, ActivityInsertionCostsCalculator activityInsertionCostsCalculator, JobActivityFactory jobActivityFactory, ConstraintManager constraintManager) {
+        return new ShipmentInsertionCalculatorFast(vrp.getTransportCosts(), vrp.getActivityCosts(), activityInsertionCostsCalculator, constraintManager, jobActivityFactory);
+    }
+}
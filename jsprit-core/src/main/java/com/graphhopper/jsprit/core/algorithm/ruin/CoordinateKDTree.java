@@ -0,0 +1,141 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.ruin;
+
+import java.util.Arrays;
+
+/**
+ * Static 2-d tree over points given by their position in coordinate arrays. It finds the nearest neighbors of a
+ * point with the same euclidean distances and the same tie-breaking as a scan over all points, but without
+ * visiting most of them.
+ */
+final class CoordinateKDTree {
+
+    private final double[] x;
+
+    private final double[] y;
+
+    /**
+     * Implicit tree: the node of range [lo,hi) is at its middle, the left subtree is [lo,middle), the right one
+     * (middle,hi).
+     */
+    private final int[] tree;
+
+    CoordinateKDTree(double[] x, double[] y) {
+        this.x = x;
+        this.y = y;
+        tree = new int[x.length];
+        for (int i = 0; i < tree.length; i++) tree[i] = i;
+        build(0, tree.length, 0);
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo < 2) return;
+        int middle = (lo + hi) >>> 1;
+        select(lo, hi - 1, middle, depth % 2 == 0 ? x : y);
+        build(lo, middle, depth + 1);
+        build(middle + 1, hi, depth + 1);
+    }
+
+    private void select(int lo, int hi, int k, double[] key) {
+        while (hi > lo) {
+            double pivot = key[tree[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[tree[i]] < pivot) i++;
+                while (key[tree[j]] > pivot) j--;
+                if (i <= j) {
+                    int tmp = tree[i];
+                    tree[i] = tree[j];
+                    tree[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    double getDistance(int from, int to) {
+        double xDiff = x[from] - x[to];
+        double yDiff = y[from] - y[to];
+        return Math.sqrt((xDiff * xDiff) + (yDiff * yDiff));
+    }
+
+    /**
+     * Offers the nearest neighbors of point <code>from</code> (excluding itself) to the specified heap.
+     *
+     * @param from  position of point
+     * @param heap  heap collecting the neighbors
+     */
+    void findNearest(int from, NeighborHeap heap) {
+        findNearest(from, heap, 0, tree.length, 0);
+    }
+
+    private void findNearest(int from, NeighborHeap heap, int lo, int hi, int depth) {
+        if (lo >= hi) return;
+        int middle = (lo + hi) >>> 1;
+        int point = tree[middle];
+        if (point != from) heap.offer(getDistance(from, point), point);
+        double diff = depth % 2 == 0 ? x[from] - x[point] : y[from] - y[point];
+        if (diff < 0) {
+            findNearest(from, heap, lo, middle, depth + 1);
+            if (!heap.isFull() || -diff <= heap.getWorstDistance()) findNearest(from, heap, middle + 1, hi, depth + 1);
+        } else {
+            findNearest(from, heap, middle + 1, hi, depth + 1);
+            if (!heap.isFull() || diff <= heap.getWorstDistance()) findNearest(from, heap, lo, middle, depth + 1);
+        }
+    }
+
+    /**
+     * Returns the largest distance between two points. Since the farthest points lie on the convex hull, only
+     * pairs of hull points are compared.
+     *
+     * @return max distance
+     */
+    double getMaxDistance() {
+        Integer[] sorted = new Integer[x.length];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = i;
+        Arrays.sort(sorted, (a, b) -> x[a] != x[b] ? Double.compare(x[a], x[b]) : Double.compare(y[a], y[b]));
+        int[] hull = new int[2 * sorted.length];
+        int k = 0;
+        for (Integer p : sorted) {
+            while (k >= 2 && cross(hull[k - 2], hull[k - 1], p) <= 0) k--;
+            hull[k++] = p;
+        }
+        for (int i = sorted.length - 2, lower = k + 1; i >= 0; i--) {
+            while (k >= lower && cross(hull[k - 2], hull[k - 1], sorted[i]) <= 0) k--;
+            hull[k++] = sorted[i];
+        }
+        double maxDistance = 0.;
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < k; j++) {
+                maxDistance = Math.max(maxDistance, getDistance(hull[i], hull[j]));
+            }
+        }
+        return maxDistance;
+    }
+
+    private double cross(int o, int a, int b) {
+        return (x[a] - x[o]) * (y[b] - y[o]) - (y[a] - y[o]) * (x[b] - x[o]);
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.graphhopper.jsprit.core.algorithm.ruin;
+
+import java.util.Arrays;
+
+/**
+ * Indexed max-heap of keys in [0,capacity) ordered by their savings and, for equal savings, by key. Since the heap
+ * position of every key is known, savings can be updated and keys removed in O(log n).
+ */
+final class IndexedSavingsHeap {
+
+    private final double[] savings;
+
+    private final int[] heap;
+
+    private final int[] positions;
+
+    private int size = 0;
+
+    IndexedSavingsHeap(int capacity) {
+        savings = new double[capacity];
+        heap = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) positions[heap[i]] = -1;
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int key) {
+        return positions[key] != -1;
+    }
+
+    double getSavings(int key) {
+        return savings[key];
+    }
+
+    /**
+     * @return key with the highest savings
+     */
+    int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Adds the key or, if it is already contained, updates its savings.
+     */
+    void offer(int key, double value) {
+        int position = positions[key];
+        if (position == -1) {
+            savings[key] = value;
+            heap[size] = key;
+            positions[key] = size;
+            siftUp(size++);
+        } else {
+            double oldValue = savings[key];
+            savings[key] = value;
+            if (value > oldValue) siftUp(position);
+            else siftDown(position);
+        }
+    }
+
+    void remove(int key) {
+        int position = positions[key];
+        if (position == -1) return;
+        positions[key] = -1;
+        size--;
+        if (position == size) return;
+        int last = heap[size];
+        heap[position] = last;
+        positions[last] = position;
+        siftUp(position);
+        siftDown(positions[last]);
+    }
+
+    private void siftUp(int position) {
+        int key = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isBefore(key, heap[parent])) break;
+            move(heap[parent], position);
+            position = parent;
+        }
+        move(key, position);
+    }
+
+    private void siftDown(int position) {
+        int key = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && isBefore(heap[right], heap[child])) child = right;
+            if (!isBefore(heap[child], key)) break;
+            move(heap[child], position);
+            position = child;
+        }
+        move(key, position);
+    }
+
+    private void move(int key, int position) {
+        heap[position] = key;
+        positions[key] = position;
+    }
+
+    private boolean isBefore(int key, int otherKey) {
+        return savings[key] > savings[otherKey] || (savings[key] == savings[otherKey] && key < otherKey);
+    }
+
+}
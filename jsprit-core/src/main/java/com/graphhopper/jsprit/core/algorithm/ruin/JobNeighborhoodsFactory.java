@@ -21,6 +21,8 @@ package com.graphhopper.jsprit.core.algorithm.ruin;
 import com.graphhopper.jsprit.core.algorithm.ruin.distance.JobDistance;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Created by schroeder on 05/03/15.
  */
@@ -34,4 +36,12 @@ public class JobNeighborhoodsFactory {
         return new JobNeighborhoodsOptimized(vrp, jobDistance, capacity);
     }
 
+    /**
+     * Creates neighborhoods that memorize <code>capacity</code> neighbors per job and are initialised in parallel by
+     * the specified pool. jobDistance must be thread-safe.
+     */
+    public JobNeighborhoods createNeighborhoods(VehicleRoutingProblem vrp, JobDistance jobDistance, int capacity, ForkJoinPool forkJoinPool) {
+        return new JobNeighborhoodsOptimized(vrp, jobDistance, capacity, forkJoinPool);
+    }
+
 }
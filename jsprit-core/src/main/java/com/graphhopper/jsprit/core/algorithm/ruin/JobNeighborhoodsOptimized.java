@@ -18,16 +18,26 @@
 
 package com.graphhopper.jsprit.core.algorithm.ruin;
 
+import com.graphhopper.jsprit.core.algorithm.ruin.distance.EuclideanServiceDistance;
 import com.graphhopper.jsprit.core.algorithm.ruin.distance.JobDistance;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.util.Coordinate;
 import com.graphhopper.jsprit.core.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
+ * Memorizes the <code>capacity</code> nearest neighbors of each job.
+ * <p>
+ * <p>Neighbors are selected with a bounded heap instead of sorting all jobs, rows can be calculated in parallel, and
+ * for euclidean service distances a k-d tree avoids calculating all n^2 distances.
+ * <p>
  * Created by schroeder on 07/01/15.
  */
 class JobNeighborhoodsOptimized implements JobNeighborhoods {
@@ -78,13 +88,35 @@ class JobNeighborhoodsOptimized implements JobNeighborhoods {
 
     private final int capacity;
 
+    private final ForkJoinPool forkJoinPool;
+
     private double maxDistance = 0.;
 
+    private Job[] candidates;
+
+    private double[] maxDistances;
+
+    private CoordinateKDTree kdTree;
+
     public JobNeighborhoodsOptimized(VehicleRoutingProblem vrp, JobDistance jobDistance, int capacity) {
+        this(vrp, jobDistance, capacity, null);
+    }
+
+    /**
+     * Creates neighborhoods whose rows are calculated in parallel by the specified pool. jobDistance must then be
+     * thread-safe.
+     *
+     * @param vrp          the problem
+     * @param jobDistance  distance between jobs
+     * @param capacity     no. of neighbors memorized per job
+     * @param forkJoinPool pool calculating the neighbors, or null to calculate them in the calling thread
+     */
+    public JobNeighborhoodsOptimized(VehicleRoutingProblem vrp, JobDistance jobDistance, int capacity, ForkJoinPool forkJoinPool) {
         super();
         this.vrp = vrp;
         this.jobDistance = jobDistance;
         this.capacity = capacity;
+        this.forkJoinPool = forkJoinPool;
         neighbors = new int[vrp.getJobsInclusiveInitialJobsInRoutes().size()+1][capacity];
         jobs = new Job[vrp.getJobsInclusiveInitialJobsInRoutes().size()+1];
         logger.debug("initialize {}", this);
@@ -116,32 +148,99 @@ class JobNeighborhoodsOptimized implements JobNeighborhoods {
         logger.debug("pre-process distances between locations ...");
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
-        for (Job job_i : vrp.getJobsInclusiveInitialJobsInRoutes().values()) {
-            if (job_i.getActivities().get(0).getLocation() == null) continue;
-            jobs[job_i.getIndex()] = job_i;
-            List<ReferencedJob> jobList = new ArrayList<>(vrp.getJobsInclusiveInitialJobsInRoutes().values().size());
-            for (Job job_j : vrp.getJobsInclusiveInitialJobsInRoutes().values()) {
-                if (job_j.getActivities().get(0).getLocation() == null) continue;
-                if (job_i == job_j) continue;
-                double distance = jobDistance.getDistance(job_i, job_j);
+        List<Job> jobsWithLocation = new ArrayList<>(vrp.getJobsInclusiveInitialJobsInRoutes().size());
+        for (Job job : vrp.getJobsInclusiveInitialJobsInRoutes().values()) {
+            if (job.getActivities().get(0).getLocation() == null) continue;
+            jobs[job.getIndex()] = job;
+            jobsWithLocation.add(job);
+        }
+        candidates = jobsWithLocation.toArray(new Job[0]);
+        kdTree = createKDTree();
+        maxDistances = new double[candidates.length];
+        if (forkJoinPool == null) calculateNeighbors(0, candidates.length);
+        else forkJoinPool.invoke(new NeighborsTask(0, candidates.length));
+        if (kdTree != null) maxDistance = kdTree.getMaxDistance();
+        else {
+            for (double distance : maxDistances) {
                 if (distance > maxDistance) maxDistance = distance;
-                ReferencedJob referencedJob = new ReferencedJob(job_j, distance);
-                jobList.add(referencedJob);
             }
-            jobList.sort(getComparator());
-            int neiborhoodSize = Math.min(capacity, jobList.size());
-            int[] jobIndices = new int[neiborhoodSize];
-            for (int index = 0; index < neiborhoodSize; index++) {
-                jobIndices[index] = jobList.get(index).getJob().getIndex();
-            }
-            neighbors[job_i.getIndex()-1] = jobIndices;
         }
+        candidates = null;
+        maxDistances = null;
+        kdTree = null;
         stopWatch.stop();
         logger.debug("pre-processing comp-time: {}", stopWatch);
     }
 
-    private Comparator<ReferencedJob> getComparator(){
-        return Comparator.comparingDouble(ReferencedJob::getDistance);
+    /**
+     * A spatial index only yields the same neighbors as jobDistance if jobDistance is the euclidean distance of
+     * service coordinates.
+     */
+    private CoordinateKDTree createKDTree() {
+        if (jobDistance.getClass() != EuclideanServiceDistance.class) return null;
+        double[] x = new double[candidates.length];
+        double[] y = new double[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            if (!(candidates[i] instanceof Service)) return null;
+            Coordinate coordinate = ((Service) candidates[i]).getLocation().getCoordinate();
+            if (coordinate == null) return null;
+            x[i] = coordinate.getX();
+            y[i] = coordinate.getY();
+        }
+        return new CoordinateKDTree(x, y);
+    }
+
+    private void calculateNeighbors(int fromPosition, int toPosition) {
+        NeighborHeap heap = new NeighborHeap(capacity);
+        int[] positions = new int[capacity];
+        for (int i = fromPosition; i < toPosition; i++) {
+            Job job_i = candidates[i];
+            if (kdTree != null) kdTree.findNearest(i, heap);
+            else {
+                double max = 0.;
+                for (int j = 0; j < candidates.length; j++) {
+                    if (i == j) continue;
+                    double distance = jobDistance.getDistance(job_i, candidates[j]);
+                    if (distance > max) max = distance;
+                    heap.offer(distance, j);
+                }
+                maxDistances[i] = max;
+            }
+            int neighborhoodSize = heap.size();
+            heap.drainAscending(positions);
+            int[] jobIndices = new int[neighborhoodSize];
+            for (int index = 0; index < neighborhoodSize; index++) {
+                jobIndices[index] = candidates[positions[index]].getIndex();
+            }
+            neighbors[job_i.getIndex() - 1] = jobIndices;
+        }
+    }
+
+    private class NeighborsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int THRESHOLD = 8;
+
+        private final int fromPosition;
+
+        private final int toPosition;
+
+        NeighborsTask(int fromPosition, int toPosition) {
+            this.fromPosition = fromPosition;
+            this.toPosition = toPosition;
+        }
+
+        @Override
+        protected void compute() {
+            if (toPosition - fromPosition <= THRESHOLD) {
+                calculateNeighbors(fromPosition, toPosition);
+            } else {
+                int middle = (fromPosition + toPosition) >>> 1;
+                invokeAll(new NeighborsTask(fromPosition, middle), new NeighborsTask(middle, toPosition));
+            }
+        }
+
     }
 
     @Override
@@ -0,0 +1,108 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.ruin;
+
+/**
+ * Bounded max-heap that keeps the <code>capacity</code> nearest neighbors offered, ordered by distance and, for equal
+ * distances, by position. It works on primitive arrays, thus offering a neighbor does not allocate.
+ */
+final class NeighborHeap {
+
+    private final double[] distances;
+
+    private final int[] positions;
+
+    private int size = 0;
+
+    NeighborHeap(int capacity) {
+        distances = new double[capacity];
+        positions = new int[capacity];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == distances.length;
+    }
+
+    /**
+     * @return the largest distance kept, i.e. the distance a neighbor must not exceed to be kept once the heap is full
+     */
+    double getWorstDistance() {
+        return distances[0];
+    }
+
+    void offer(double distance, int position) {
+        if (size < distances.length) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!isAfter(distance, position, distances[parent], positions[parent])) break;
+                distances[i] = distances[parent];
+                positions[i] = positions[parent];
+                i = parent;
+            }
+            distances[i] = distance;
+            positions[i] = position;
+        } else if (size > 0 && isAfter(distances[0], positions[0], distance, position)) {
+            siftDown(distance, position);
+        }
+    }
+
+    /**
+     * Removes all neighbors and writes their positions, nearest first, to the specified array.
+     *
+     * @param target array of at least size() elements
+     */
+    void drainAscending(int[] target) {
+        while (size > 0) {
+            target[size - 1] = positions[0];
+            size--;
+            if (size > 0) siftDown(distances[size], positions[size]);
+        }
+    }
+
+    private void siftDown(double distance, int position) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && isAfter(distances[right], positions[right], distances[child], positions[child])) {
+                child = right;
+            }
+            if (!isAfter(distances[child], positions[child], distance, position)) break;
+            distances[i] = distances[child];
+            positions[i] = positions[child];
+            i = child;
+        }
+        distances[i] = distance;
+        positions[i] = position;
+    }
+
+    private static boolean isAfter(double distance, int position, double otherDistance, int otherPosition) {
+        return distance > otherDistance || (distance == otherDistance && position > otherPosition);
+    }
+
+}
@@ -26,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -36,29 +37,25 @@ import java.util.List;
 
 public final class RuinTimeRelated extends AbstractRuinStrategy {
 
-    static class RelatednessToTourActivity {
+    private static final double TIME_INFLUENCE = 10;
 
-        final double time;
+    private static final double DISTANCE_INFLUENCE = 1;
 
-        final TourActivity tourActivity;
+    private static final Logger logger = LoggerFactory.getLogger(RuinTimeRelated.class);
 
-        final VehicleRoute route;
+    private final VehicleRoutingProblem vrp;
 
-        final double distance;
+    private NoiseMaker noiseMaker = () -> 0;
 
-        public RelatednessToTourActivity(double relatednessToTarget, double distance, TourActivity tourActivity, VehicleRoute route) {
-            this.time = relatednessToTarget;
-            this.distance = distance;
-            this.tourActivity = tourActivity;
-            this.route = route;
-        }
-    }
+    private TourActivity[] activities = new TourActivity[0];
 
-    private static final Logger logger = LoggerFactory.getLogger(RuinTimeRelated.class);
+    private VehicleRoute[] routes = new VehicleRoute[0];
 
-    private final VehicleRoutingProblem vrp;
+    private double[] times = new double[0];
 
-    private NoiseMaker noiseMaker = () -> 0;
+    private double[] distances = new double[0];
+
+    private int[] positions = new int[0];
 
     public void setNoiseMaker(NoiseMaker noiseMaker) {
         this.noiseMaker = noiseMaker;
@@ -106,7 +103,12 @@ public final class RuinTimeRelated extends AbstractRuinStrategy {
         if (targetActivity == null) {
             return unassignedJobs;
         }
-        List<RelatednessToTourActivity> neighborActivities = new ArrayList<>();
+        ensureCapacity(totalActivities);
+        double distanceInfluence;
+        if (random.nextDouble() < 0.5) {
+            distanceInfluence = 0;
+        } else distanceInfluence = DISTANCE_INFLUENCE;
+        int nuNeighbors = 0;
         long maxTime = 0;
         double maxDistance = 0;
         for (VehicleRoute route : vehicleRoutes) {
@@ -114,48 +116,68 @@ public final class RuinTimeRelated extends AbstractRuinStrategy {
                 if (activity == targetActivity) continue;
                 long absTime = Math.abs((long) targetActivity.getArrTime() - (long) activity.getArrTime());
                 maxTime = Math.max(maxTime, absTime);
-                double distance = Math.abs(vrp.getTransportCosts().getDistance(targetActivity.getLocation(), activity.getLocation(), 0, route.getVehicle()));
-                maxDistance = Math.max(maxDistance, distance);
-                neighborActivities.add(new RelatednessToTourActivity(absTime, distance, activity, route));
+                double distance = 0;
+                if (distanceInfluence != 0) {
+                    distance = Math.abs(vrp.getTransportCosts().getDistance(targetActivity.getLocation(), activity.getLocation(), 0, route.getVehicle()));
+                    maxDistance = Math.max(maxDistance, distance);
+                }
+                activities[nuNeighbors] = activity;
+                routes[nuNeighbors] = route;
+                times[nuNeighbors] = absTime;
+                distances[nuNeighbors] = distance;
+                nuNeighbors++;
             }
         }
-        final double maxT = maxTime;
-        final double maxD = maxDistance;
-        final double timeInfluence = 10;
-        final double distanceI;
-        double distanceInfluence = 1;
-        if (random.nextDouble() < 0.5) {
-            distanceI = 0;
-        } else distanceI = distanceInfluence;
-        neighborActivities.sort((o1, o2) -> {
-            double rO1 = relatedness(o1, maxD, maxT, timeInfluence, distanceI);
-            double rO2 = relatedness(o2, maxD, maxT, timeInfluence, distanceI);
-            return Double.compare(rO1, rO2);
-        });
         int toRemove = getRuinShareFactory().createNumberToBeRemoved();
-        for (RelatednessToTourActivity neighborActivity : neighborActivities) {
-            if (toRemove == 0) break;
-            Job j = ((TourActivity.JobActivity) neighborActivity.tourActivity).getJob();
-            if (removeJob(j, neighborActivity.route)) {
-                unassignedJobs.add(j);
-                toRemove--;
+        /*
+        only the most related activities are ordered; if removing them does not yield enough jobs (e.g. both
+        activities of a shipment or initial jobs), the next ones are ordered
+         */
+        int tried = 0;
+        int capacity = Math.min(nuNeighbors, 2 * toRemove);
+        while (toRemove > 0 && tried < nuNeighbors) {
+            NeighborHeap mostRelated = new NeighborHeap(capacity);
+            for (int i = 0; i < nuNeighbors; i++) {
+                mostRelated.offer(relatedness(times[i], distances[i], maxDistance, maxTime, TIME_INFLUENCE, distanceInfluence), i);
             }
+            mostRelated.drainAscending(positions);
+            for (int p = tried; p < capacity && toRemove > 0; p++) {
+                int i = positions[p];
+                Job j = ((TourActivity.JobActivity) activities[i]).getJob();
+                if (removeJob(j, routes[i])) {
+                    unassignedJobs.add(j);
+                    toRemove--;
+                }
+            }
+            tried = capacity;
+            capacity = Math.min(nuNeighbors, 2 * capacity);
         }
+        Arrays.fill(activities, 0, nuNeighbors, null);
+        Arrays.fill(routes, 0, nuNeighbors, null);
         return unassignedJobs;
     }
 
-    private double relatedness(RelatednessToTourActivity o1, double maxDistance, double maxTime, double timeInfluence, double distanceInfluence) {
+    private void ensureCapacity(int capacity) {
+        if (activities.length >= capacity) return;
+        activities = new TourActivity[capacity];
+        routes = new VehicleRoute[capacity];
+        times = new double[capacity];
+        distances = new double[capacity];
+        positions = new int[capacity];
+    }
+
+    private double relatedness(double absTime, double absDistance, double maxDistance, double maxTime, double timeInfluence, double distanceInfluence) {
         double time;
         if (maxTime == 0) {
             time = 0;
         } else {
-            time = o1.time / maxTime;
+            time = absTime / maxTime;
         }
         double distance;
         if (maxDistance == 0) {
             distance = 0;
         } else {
-            distance = o1.distance / maxDistance;
+            distance = absDistance / maxDistance;
         }
         return timeInfluence * time + distanceInfluence * distance;
     }
@@ -45,6 +45,34 @@ public final class RuinWorst extends AbstractRuinStrategy {
 
     private NoiseMaker noiseMaker = () -> 0;
 
+    private static final int NO_ACTIVITY = -1;
+
+    /*
+    activities of the routes to be ruined as doubly linked lists, start and end of route are NO_ACTIVITY
+     */
+    private TourActivity[] activities = new TourActivity[0];
+
+    private VehicleRoute[] routeOfActivity = new VehicleRoute[0];
+
+    private int[] prevActivity = new int[0];
+
+    private int[] nextActivity = new int[0];
+
+    private boolean[] removed = new boolean[0];
+
+    private double[] activitySavings = new double[0];
+
+    /*
+    activities of a job linked by nextActivityOfJob, starting with firstActivityOfJob[job index]
+     */
+    private int[] nextActivityOfJob = new int[0];
+
+    private final int[] firstActivityOfJob;
+
+    private final Job[] jobs;
+
+    private final IndexedSavingsHeap jobSavings;
+
     public void setNoiseMaker(NoiseMaker noiseMaker) {
         this.noiseMaker = noiseMaker;
     }
@@ -53,6 +81,10 @@ public final class RuinWorst extends AbstractRuinStrategy {
         super(vrp);
         this.vrp = vrp;
         setRuinShareFactory(() -> initialNumberJobsToRemove);
+        int nuJobIndices = vrp.getJobsInclusiveInitialJobsInRoutes().size() + 1;
+        firstActivityOfJob = new int[nuJobIndices];
+        jobs = new Job[nuJobIndices];
+        jobSavings = new IndexedSavingsHeap(nuJobIndices);
         logger.debug("initialise {}", this);
     }
 
@@ -69,67 +101,131 @@ public final class RuinWorst extends AbstractRuinStrategy {
         return unassignedJobs;
     }
 
+    /**
+     * Removes the job with the highest savings one after another. Savings are determined once per ruin; after a
+     * removal only the savings of the activities that became neighbors are recalculated.
+     */
     private void ruin(Collection<VehicleRoute> vehicleRoutes, int nOfJobs2BeRemoved, List<Job> unassignedJobs) {
+        int nuActivities = initActivities(vehicleRoutes);
         int toRemove = nOfJobs2BeRemoved;
-        while (toRemove > 0) {
-            Job worst = getWorst(vehicleRoutes);
-            if (worst == null) break;
-            if (removeJob(worst, vehicleRoutes)) {
-                unassignedJobs.add(worst);
+        while (toRemove > 0 && !jobSavings.isEmpty()) {
+            int worst = jobSavings.peek();
+            if (!(jobSavings.getSavings(worst) > Double.MIN_VALUE)) break;
+            jobSavings.remove(worst);
+            Job job = jobs[worst];
+            if (removeJob(job, routeOfActivity[firstActivityOfJob[worst]])) {
+                unassignedJobs.add(job);
+                for (int act = firstActivityOfJob[worst]; act != NO_ACTIVITY; act = nextActivityOfJob[act]) {
+                    unlink(act);
+                }
+                for (int act = firstActivityOfJob[worst]; act != NO_ACTIVITY; act = nextActivityOfJob[act]) {
+                    int prev = prevActivity[act];
+                    while (prev != NO_ACTIVITY && removed[prev]) prev = prevActivity[prev];
+                    updateSavings(prev);
+                    int next = nextActivity[act];
+                    while (next != NO_ACTIVITY && removed[next]) next = nextActivity[next];
+                    updateSavings(next);
+                }
             }
             toRemove--;
         }
+        Arrays.fill(activities, 0, nuActivities, null);
+        Arrays.fill(routeOfActivity, 0, nuActivities, null);
     }
 
-    private Job getWorst(Collection<VehicleRoute> copied) {
-        Job worst = null;
-        double bestSavings = Double.MIN_VALUE;
-
-        for (VehicleRoute route : copied) {
-            if (route.isEmpty()) continue;
-            Map<Job, Double> savingsMap = new HashMap<>();
-            TourActivity actBefore = route.getStart();
-            TourActivity actToEval = null;
-            for (TourActivity act : route.getActivities()) {
-                if (!(act instanceof TourActivity.JobActivity)) {
-                    continue;
-                }
-
-                if (actToEval == null) {
-                    actToEval = act;
+    private int initActivities(Collection<VehicleRoute> vehicleRoutes) {
+        int nuActivities = 0;
+        for (VehicleRoute route : vehicleRoutes) {
+            nuActivities += route.getActivities().size();
+        }
+        ensureCapacity(nuActivities);
+        jobSavings.clear();
+        Arrays.fill(firstActivityOfJob, NO_ACTIVITY);
+        int act = 0;
+        for (VehicleRoute route : vehicleRoutes) {
+            int prev = NO_ACTIVITY;
+            for (TourActivity activity : route.getActivities()) {
+                if (!(activity instanceof TourActivity.JobActivity)) {
                     continue;
                 }
-                double savings = savings(route, actBefore, actToEval, act);
-                Job job = ((TourActivity.JobActivity) actToEval).getJob();
-                if (!savingsMap.containsKey(job)) {
-                    savingsMap.put(job, savings);
-                } else {
-                    double s = savingsMap.get(job);
-                    savingsMap.put(job, s + savings);
+                activities[act] = activity;
+                routeOfActivity[act] = route;
+                removed[act] = false;
+                prevActivity[act] = prev;
+                nextActivity[act] = NO_ACTIVITY;
+                if (prev != NO_ACTIVITY) nextActivity[prev] = act;
+                nextActivityOfJob[act] = NO_ACTIVITY;
+                Job job = ((TourActivity.JobActivity) activity).getJob();
+                if (isRemovable(job)) {
+                    nextActivityOfJob[act] = firstActivityOfJob[job.getIndex()];
+                    firstActivityOfJob[job.getIndex()] = act;
+                    jobs[job.getIndex()] = job;
                 }
-                actBefore = actToEval;
-                actToEval = act;
+                prev = act;
+                act++;
             }
-            if (actToEval == null) {
-                continue;
-            }
-            double savings = savings(route, actBefore, actToEval, route.getEnd());
-            Job job = ((TourActivity.JobActivity) actToEval).getJob();
-            if (!savingsMap.containsKey(job)) {
-                savingsMap.put(job, savings);
-            } else {
-                double s = savingsMap.get(job);
-                savingsMap.put(job, s + savings);
-            }
-            //getCounts best
-            for (Job j : savingsMap.keySet()) {
-                if (savingsMap.get(j) > bestSavings) {
-                    bestSavings = savingsMap.get(j);
-                    worst = j;
-                }
+        }
+        for (int i = 0; i < act; i++) {
+            activitySavings[i] = savings(i);
+        }
+        for (int i = 0; i < act; i++) {
+            Job job = ((TourActivity.JobActivity) activities[i]).getJob();
+            if (isRemovable(job) && firstActivityOfJob[job.getIndex()] == i) {
+                jobSavings.offer(job.getIndex(), jobSavings(job.getIndex()));
             }
         }
-        return worst;
+        return act;
+    }
+
+    private boolean isRemovable(Job job) {
+        return job.getIndex() > 0 && job.getIndex() < jobs.length && vrp.getJobs().containsKey(job.getId());
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (activities.length >= capacity) return;
+        activities = new TourActivity[capacity];
+        routeOfActivity = new VehicleRoute[capacity];
+        prevActivity = new int[capacity];
+        nextActivity = new int[capacity];
+        removed = new boolean[capacity];
+        activitySavings = new double[capacity];
+        nextActivityOfJob = new int[capacity];
+    }
+
+    /**
+     * Removes the activity from its route but keeps its own links, such that the neighbors at the time of removal
+     * can still be found.
+     */
+    private void unlink(int act) {
+        removed[act] = true;
+        int prev = prevActivity[act];
+        int next = nextActivity[act];
+        if (prev != NO_ACTIVITY) nextActivity[prev] = next;
+        if (next != NO_ACTIVITY) prevActivity[next] = prev;
+    }
+
+    private void updateSavings(int act) {
+        if (act == NO_ACTIVITY) return;
+        activitySavings[act] = savings(act);
+        Job job = ((TourActivity.JobActivity) activities[act]).getJob();
+        if (isRemovable(job) && jobSavings.contains(job.getIndex())) {
+            jobSavings.offer(job.getIndex(), jobSavings(job.getIndex()));
+        }
+    }
+
+    private double jobSavings(int jobIndex) {
+        double savings = 0;
+        for (int act = firstActivityOfJob[jobIndex]; act != NO_ACTIVITY; act = nextActivityOfJob[act]) {
+            savings += activitySavings[act];
+        }
+        return savings;
+    }
+
+    private double savings(int act) {
+        VehicleRoute route = routeOfActivity[act];
+        TourActivity actBefore = prevActivity[act] == NO_ACTIVITY ? route.getStart() : activities[prevActivity[act]];
+        TourActivity actAfter = nextActivity[act] == NO_ACTIVITY ? route.getEnd() : activities[nextActivity[act]];
+        return savings(route, actBefore, activities[act], actAfter);
     }
 
     private double savings(VehicleRoute route, TourActivity actBefore, TourActivity actToEval, TourActivity act) {
@@ -0,0 +1,106 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.graphhopper.jsprit.core.algorithm.state;
+
+import com.graphhopper.jsprit.core.problem.job.Job;
+
+/**
+ * Open deliveries of a route as determined by {@link UpdateMaxTimeInVehicle}.
+ * <p>
+ * <p>Every entry is a job that is loaded but not yet delivered over a contiguous range of activity positions,
+ * i.e. from the activity after its pickup up to and including its delivery. Position
+ * <code>route.getActivities().size()</code> denotes the route end. Instead of a map per activity, the open jobs
+ * at a position are the entries whose range contains the position, and the minimum slack of each position is
+ * kept in a single array.
+ * <p>
+ * <p>Instances are immutable and shared by the states of a route.
+ */
+public final class OpenDeliveries {
+
+    private final int nuActivities;
+
+    private final Job[] jobs;
+
+    private final int[] from;
+
+    private final int[] to;
+
+    private final double[] slacks;
+
+    private final double[] minSlacks;
+
+    OpenDeliveries(int nuActivities, Job[] jobs, int[] from, int[] to, double[] slacks, double[] minSlacks) {
+        this.nuActivities = nuActivities;
+        this.jobs = jobs;
+        this.from = from;
+        this.to = to;
+        this.slacks = slacks;
+        this.minSlacks = minSlacks;
+    }
+
+    /**
+     * @return number of activities of the route these open deliveries have been determined for
+     */
+    public int getNuActivities() {
+        return nuActivities;
+    }
+
+    /**
+     * @return number of entries, i.e. jobs that are open at one or more positions
+     */
+    public int size() {
+        return jobs.length;
+    }
+
+    public Job getJob(int entry) {
+        return jobs[entry];
+    }
+
+    /**
+     * @return slack time, i.e. the time the delivery of the entry can be delayed without violating its max time in vehicle
+     */
+    public double getSlack(int entry) {
+        return slacks[entry];
+    }
+
+    /**
+     * @return true if the job of the entry is open at the specified activity position
+     */
+    public boolean isOpen(int entry, int position) {
+        return from[entry] <= position && position <= to[entry];
+    }
+
+    /**
+     * @return true if the specified job is open at the specified activity position
+     */
+    public boolean isOpen(Job job, int position) {
+        for (int entry = 0; entry < jobs.length; entry++) {
+            if (jobs[entry] == job) return isOpen(entry, position);
+        }
+        return false;
+    }
+
+    /**
+     * @return minimum slack of all jobs open at the specified activity position, or Double.MAX_VALUE if there is none
+     */
+    public double getMinSlack(int position) {
+        return minSlacks[position];
+    }
+
+}
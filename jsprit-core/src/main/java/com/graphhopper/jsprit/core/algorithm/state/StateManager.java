@@ -18,6 +18,8 @@
 package com.graphhopper.jsprit.core.algorithm.state;
 
 import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.algorithm.metrics.AlgorithmMetrics;
+import com.graphhopper.jsprit.core.algorithm.metrics.NanoTimer;
 import com.graphhopper.jsprit.core.algorithm.recreate.InsertionData;
 import com.graphhopper.jsprit.core.algorithm.recreate.listener.*;
 import com.graphhopper.jsprit.core.algorithm.ruin.listener.RuinListener;
@@ -32,6 +34,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity.JobActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.state.RouteAndActivityStateGetter;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 
@@ -45,7 +48,7 @@ import java.util.*;
  *
  * @author schroeder
  */
-public class StateManager implements RouteAndActivityStateGetter, IterationStartsListener, RuinListener, InsertionStartsListener, JobInsertedListener, InsertionEndsListener {
+public class StateManager implements RouteAndActivityStateGetter, IterationStartsListener, RuinListener, InsertionStartsListener, JobInsertedListener, InsertionEndsListener, VehicleSwitchedListener {
 
     private RouteActivityVisitor routeActivityVisitor = new RouteActivityVisitor();
 
@@ -53,6 +56,33 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     private Collection<RouteVisitor> routeVisitors = new ArrayList<>();
 
+    /**
+     * Memorizes what routes looked like when their states were updated the last time, i.e. whether the states of an
+     * unchanged part of a route can be relied on.
+     */
+    private Map<VehicleRoute, RouteStamp> routeStamps = new WeakHashMap<>();
+
+    private static class RouteStamp {
+
+        private final int modificationCount;
+
+        private final Vehicle vehicle;
+
+        private final double departureTime;
+
+        RouteStamp(VehicleRoute route) {
+            modificationCount = route.getTourActivities().getModificationCount();
+            vehicle = route.getVehicle();
+            departureTime = route.getDepartureTime();
+        }
+
+        boolean isOutdatedBy(VehicleRoute route, int noAddedActivities) {
+            return modificationCount + noAddedActivities != route.getTourActivities().getModificationCount()
+                || vehicle != route.getVehicle() || departureTime != route.getDepartureTime();
+        }
+
+    }
+
     private RuinListeners ruinListeners = new RuinListeners();
 
     private InsertionListeners insertionListeners = new InsertionListeners();
@@ -65,6 +95,16 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     private final int initialNoStates = 21;
 
+    /**
+     * Marks activity slots of a double state that have no value.
+     */
+    private static final double NO_DOUBLE_STATE = Double.NaN;
+
+    /**
+     * Marks activity slots of an int state that have no value. Thus it cannot be stored as int state.
+     */
+    public static final int NO_INT_STATE = Integer.MIN_VALUE;
+
     private int stateIndexCounter;
 
     private Map<String, StateId> createdStateIds = new HashMap<>();
@@ -79,6 +119,14 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     private Object[][][] vehicleDependentActivityStates;
 
+    private double[][] activityDoubleStates;
+
+    private double[][] vehicleDependentActivityDoubleStates;
+
+    private int[][] activityIntStates;
+
+    private int[][] vehicleDependentActivityIntStates;
+
     private Map<VehicleRoute, Object[]> routeStateMap;
 
     private Map<VehicleRoute, Object[][]> vehicleDependentRouteStateMap;
@@ -91,6 +139,14 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     private final boolean isIndexedBased;
 
+    private int nuVehicles;
+
+    private NanoTimer insertionStartsTimer;
+
+    private NanoTimer jobInsertedTimer;
+
+    private NanoTimer removedTimer;
+
     int getMaxIndexOfVehicleTypeIdentifiers() {
         return nuVehicleTypeKeys;
     }
@@ -110,9 +166,15 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         if (stateIndexCounter >= activityStates[0].length) {
             activityStates = new Object[nuActivities][stateIndexCounter + 1];
             vehicleDependentActivityStates = new Object[nuActivities][nuVehicleTypeKeys][stateIndexCounter + 1];
-            routeStatesArr = new Object[vrp.getVehicles().size() + 2][stateIndexCounter+1];
-            vehicleDependentRouteStatesArr = new Object[vrp.getVehicles().size() + 2][nuVehicleTypeKeys][stateIndexCounter+1];
+            if (isIndexedBased) {
+                routeStatesArr = new Object[nuVehicles][stateIndexCounter + 1];
+                vehicleDependentRouteStatesArr = new Object[nuVehicles][nuVehicleTypeKeys][stateIndexCounter + 1];
+            }
             problemStates = new Object[stateIndexCounter+1];
+            activityDoubleStates = Arrays.copyOf(activityDoubleStates, stateIndexCounter + 1);
+            vehicleDependentActivityDoubleStates = Arrays.copyOf(vehicleDependentActivityDoubleStates, stateIndexCounter + 1);
+            activityIntStates = Arrays.copyOf(activityIntStates, stateIndexCounter + 1);
+            vehicleDependentActivityIntStates = Arrays.copyOf(vehicleDependentActivityIntStates, stateIndexCounter + 1);
         }
         StateId id = StateFactory.createId(name, stateIndexCounter);
         incStateIndexCounter();
@@ -127,10 +189,29 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     /**
      * Constructs the stateManager with the specified VehicleRoutingProblem.
+     * <p>
+     * <p>If the fleet is finite, route states are memorized in arrays indexed by the vehicle of the route, otherwise in
+     * maps with the route as key (see {@link #StateManager(VehicleRoutingProblem, boolean)}).
      *
      * @param vehicleRoutingProblem the corresponding VehicleRoutingProblem
      */
     public StateManager(VehicleRoutingProblem vehicleRoutingProblem) {
+        this(vehicleRoutingProblem, true);
+    }
+
+    /**
+     * Constructs the stateManager with the specified VehicleRoutingProblem.
+     * <p>
+     * <p>Index-based route states are looked up with an array access instead of a hash lookup. They are memorized per
+     * vehicle, thus they can only be used if the fleet is finite, i.e. if a vehicle serves at most one route at a time.
+     * Copies of a route share the states of the original route (as they already share activity states). Routes whose
+     * vehicle has no index, e.g. empty routes with <code>VehicleImpl.NoVehicle</code>, are always memorized in maps.
+     *
+     * @param vehicleRoutingProblem the corresponding VehicleRoutingProblem
+     * @param indexedRouteStates    true if route states should be index-based (only applied to finite fleets),
+     *                              false if they should be memorized in maps with the route as key
+     */
+    public StateManager(VehicleRoutingProblem vehicleRoutingProblem, boolean indexedRouteStates) {
         stateIndexCounter = initialNoStates;
         int initialStateArrayLength = 30;
         this.vrp = vehicleRoutingProblem;
@@ -138,12 +219,45 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         nuVehicleTypeKeys = Math.max(3, getNuVehicleTypes(vrp) + 2);
         activityStates = new Object[nuActivities][initialStateArrayLength];
         vehicleDependentActivityStates = new Object[nuActivities][nuVehicleTypeKeys][initialStateArrayLength];
-        isIndexedBased = false;
+        activityDoubleStates = new double[initialStateArrayLength][];
+        vehicleDependentActivityDoubleStates = new double[initialStateArrayLength][];
+        activityIntStates = new int[initialStateArrayLength][];
+        vehicleDependentActivityIntStates = new int[initialStateArrayLength][];
+        isIndexedBased = indexedRouteStates && vrp.getFleetSize() == VehicleRoutingProblem.FleetSize.FINITE;
+        if (isIndexedBased) {
+            nuVehicles = getMaxVehicleIndex(vrp) + 1;
+            routeStatesArr = new Object[nuVehicles][initialStateArrayLength];
+            vehicleDependentRouteStatesArr = new Object[nuVehicles][nuVehicleTypeKeys][initialStateArrayLength];
+        }
         routeStateMap = new HashMap<>();
         vehicleDependentRouteStateMap = new HashMap<>();
         problemStates = new Object[initialStateArrayLength];
     }
 
+    private int getMaxVehicleIndex(VehicleRoutingProblem vrp) {
+        int maxIndex = 0;
+        for (Vehicle v : vrp.getVehicles()) {
+            maxIndex = Math.max(maxIndex, v.getIndex());
+        }
+        return maxIndex;
+    }
+
+    /**
+     * Returns true if the states of the specified route are memorized in the index-based arrays.
+     *
+     * @param route the route
+     * @return true if route states are index-based
+     */
+    boolean isIndexed(VehicleRoute route) {
+        return isIndexed(route.getVehicle());
+    }
+
+    private boolean isIndexed(Vehicle vehicle) {
+        if (!isIndexedBased) return false;
+        int index = vehicle.getIndex();
+        return index > 0 && index < nuVehicles;
+    }
+
     private int getNuVehicleTypes(VehicleRoutingProblem vrp) {
         int maxIndex = 0;
         for (Vehicle v : vrp.getVehicles()) {
@@ -184,14 +298,17 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
     public void clear() {
         fill_twoDimArr(activityStates, null);
         fill_threeDimArr(vehicleDependentActivityStates, null);
+        fill_slabs(activityDoubleStates);
+        fill_slabs(vehicleDependentActivityDoubleStates);
+        fill_slabs(activityIntStates);
+        fill_slabs(vehicleDependentActivityIntStates);
         if(isIndexedBased) {
             fill_twoDimArr(routeStatesArr, null);
             fill_threeDimArr(vehicleDependentRouteStatesArr, null);
         }
-        else{
-            routeStateMap.clear();
-            vehicleDependentRouteStateMap.clear();
-        }
+        routeStateMap.clear();
+        vehicleDependentRouteStateMap.clear();
+        routeStamps.clear();
         Arrays.fill(problemStates,null);
     }
 
@@ -209,6 +326,18 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         }
     }
 
+    private void fill_slabs(double[][] slabs) {
+        for (double[] slab : slabs) {
+            if (slab != null) Arrays.fill(slab, NO_DOUBLE_STATE);
+        }
+    }
+
+    private void fill_slabs(int[][] slabs) {
+        for (int[] slab : slabs) {
+            if (slab != null) Arrays.fill(slab, NO_INT_STATE);
+        }
+    }
+
     /**
      * Returns associated state for the specified activity and stateId, or it returns null if no value is associated.
      * <p>If type class is not equal to the associated type class of the requested state value, it throws a ClassCastException.</p>
@@ -226,10 +355,12 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
         if (act.getIndex() < 0) return null;
         T state;
+        Object value = activityStates[act.getIndex()][stateId.getIndex()];
+        if (value == null) value = getPrimitiveActivityState(act.getIndex(), stateId.getIndex());
         try {
-            state = type.cast(activityStates[act.getIndex()][stateId.getIndex()]);
+            state = type.cast(value);
         } catch (ClassCastException e) {
-            throw getClassCastException(e, stateId, type.toString(), activityStates[act.getIndex()][stateId.getIndex()].getClass().toString());
+            throw getClassCastException(e, stateId, type.toString(), value.getClass().toString());
         }
         return state;
     }
@@ -245,7 +376,9 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     public boolean hasActivityState(TourActivity act, Vehicle vehicle, StateId stateId) {
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
-        return vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
+        if (vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null)
+            return true;
+        return getPrimitiveActivityState(act.getIndex(), vehicle, stateId.getIndex()) != null;
     }
 
     /**
@@ -267,15 +400,37 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
         if (act.getIndex() < 0) return null; //act.getIndex() < 0 indicates that act is either Start (-1) or End (-2)
         T state;
+        Object value = vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()];
+        if (value == null) value = getPrimitiveActivityState(act.getIndex(), vehicle, stateId.getIndex());
         try {
-            state = type.cast(vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()]);
+            state = type.cast(value);
         } catch (ClassCastException e) {
-            Object state_class = vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()];
-            throw getClassCastException(e, stateId, type.toString(), state_class.getClass().toString());
+            throw getClassCastException(e, stateId, type.toString(), value.getClass().toString());
         }
         return state;
     }
 
+    private Object getPrimitiveActivityState(int actIndex, int stateIndex) {
+        double[] doubles = activityDoubleStates[stateIndex];
+        if (doubles != null && !Double.isNaN(doubles[actIndex])) return doubles[actIndex];
+        int[] ints = activityIntStates[stateIndex];
+        if (ints != null && ints[actIndex] != NO_INT_STATE) return ints[actIndex];
+        return null;
+    }
+
+    private Object getPrimitiveActivityState(int actIndex, Vehicle vehicle, int stateIndex) {
+        int slot = getVehicleDependentSlot(actIndex, vehicle);
+        double[] doubles = vehicleDependentActivityDoubleStates[stateIndex];
+        if (doubles != null && !Double.isNaN(doubles[slot])) return doubles[slot];
+        int[] ints = vehicleDependentActivityIntStates[stateIndex];
+        if (ints != null && ints[slot] != NO_INT_STATE) return ints[slot];
+        return null;
+    }
+
+    private int getVehicleDependentSlot(int actIndex, Vehicle vehicle) {
+        return actIndex * nuVehicleTypeKeys + vehicle.getVehicleTypeIdentifier().getIndex();
+    }
+
     private ClassCastException getClassCastException(ClassCastException e, StateId stateId, String requestedTypeClass, String memorizedTypeClass) {
         return new ClassCastException(e + "\n" + "state with stateId '" + stateId.toString() + "' is of " + memorizedTypeClass + ". cannot cast it to " + requestedTypeClass + ".");
     }
@@ -296,7 +451,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
     public <T> T getRouteState(VehicleRoute route, StateId stateId, Class<T> type) {
         if (route == null) return null;
         T state = null;
-        if(isIndexedBased){
+        if(isIndexed(route)){
             try {
                 state = type.cast(routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()]);
             } catch (ClassCastException e) {
@@ -325,6 +480,9 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
      */
     @SuppressWarnings("UnusedDeclaration")
     public boolean hasRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId) {
+        if (isIndexed(route)) {
+            return vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
+        }
         if (!vehicleDependentRouteStateMap.containsKey(route)) return false;
         return vehicleDependentRouteStateMap.get(route)[vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
 //        return vehicle_dependent_route_states[route.getActivities().get(0).getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] != null;
@@ -346,7 +504,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
     public <T> T getRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId, Class<T> type) {
 //        if (route.isEmpty()) return null;
         T state = null;
-        if(isIndexedBased){
+        if(isIndexed(route)){
             try {
                 state = type.cast(vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()]);
             } catch (ClassCastException e) {
@@ -418,6 +576,229 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
     }
 
+    /**
+     * Returns the double state associated to the specified activity and stateId, or the specified default value if no
+     * value is associated.
+     * <p>
+     * <p>Contrary to {@link #getActivityState(TourActivity, StateId, Class)}, this neither boxes nor casts if the state
+     * has been memorized with {@link #putActivityDoubleState(TourActivity, StateId, double)}. A state memorized with the
+     * generic put method is returned as well, but it must be of type Double then.</p>
+     *
+     * @param act          the activity for which a state value is associated to
+     * @param stateId      the stateId for which a state value is associated to
+     * @param defaultValue the value to be returned if no state is associated
+     * @return the state value or the default value
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     */
+    @Override
+    public double getActivityDoubleState(TourActivity act, StateId stateId, double defaultValue) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (act.getIndex() < 0) return defaultValue;
+        double[] slab = activityDoubleStates[stateId.getIndex()];
+        if (slab != null) {
+            double state = slab[act.getIndex()];
+            if (!Double.isNaN(state)) return state;
+        }
+        Double state = (Double) activityStates[act.getIndex()][stateId.getIndex()];
+        if (state == null) return defaultValue;
+        return state;
+    }
+
+    /**
+     * Returns the double state associated to the specified activity, vehicle and stateId, or the specified default value
+     * if no value is associated.
+     *
+     * @param act          the activity for which a state value is associated to
+     * @param vehicle      the vehicle for which a state value is associated to
+     * @param stateId      the stateId for which a state value is associated to
+     * @param defaultValue the value to be returned if no state is associated
+     * @return the state value or the default value
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     * @see #getActivityDoubleState(TourActivity, StateId, double)
+     */
+    @Override
+    public double getActivityDoubleState(TourActivity act, Vehicle vehicle, StateId stateId, double defaultValue) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (act.getIndex() < 0) return defaultValue;
+        double[] slab = vehicleDependentActivityDoubleStates[stateId.getIndex()];
+        if (slab != null) {
+            double state = slab[getVehicleDependentSlot(act.getIndex(), vehicle)];
+            if (!Double.isNaN(state)) return state;
+        }
+        Double state = (Double) vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()];
+        if (state == null) return defaultValue;
+        return state;
+    }
+
+    /**
+     * Returns the int state associated to the specified activity and stateId, or the specified default value if no
+     * value is associated.
+     *
+     * @param act          the activity for which a state value is associated to
+     * @param stateId      the stateId for which a state value is associated to
+     * @param defaultValue the value to be returned if no state is associated
+     * @return the state value or the default value
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     * @see #getActivityDoubleState(TourActivity, StateId, double)
+     */
+    @Override
+    public int getActivityIntState(TourActivity act, StateId stateId, int defaultValue) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (act.getIndex() < 0) return defaultValue;
+        int[] slab = activityIntStates[stateId.getIndex()];
+        if (slab != null && slab[act.getIndex()] != NO_INT_STATE) return slab[act.getIndex()];
+        Integer state = (Integer) activityStates[act.getIndex()][stateId.getIndex()];
+        if (state == null) return defaultValue;
+        return state;
+    }
+
+    /**
+     * Returns the int state associated to the specified activity, vehicle and stateId, or the specified default value
+     * if no value is associated.
+     *
+     * @param act          the activity for which a state value is associated to
+     * @param vehicle      the vehicle for which a state value is associated to
+     * @param stateId      the stateId for which a state value is associated to
+     * @param defaultValue the value to be returned if no state is associated
+     * @return the state value or the default value
+     * @throws java.lang.IllegalStateException if <code>act.getIndex()==0</code> since this suggests that act has no index at all
+     * @see #getActivityDoubleState(TourActivity, StateId, double)
+     */
+    @Override
+    public int getActivityIntState(TourActivity act, Vehicle vehicle, StateId stateId, int defaultValue) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (act.getIndex() < 0) return defaultValue;
+        int[] slab = vehicleDependentActivityIntStates[stateId.getIndex()];
+        if (slab != null) {
+            int state = slab[getVehicleDependentSlot(act.getIndex(), vehicle)];
+            if (state != NO_INT_STATE) return state;
+        }
+        Integer state = (Integer) vehicleDependentActivityStates[act.getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()];
+        if (state == null) return defaultValue;
+        return state;
+    }
+
+    /**
+     * Associates the specified activity and stateId to the double state value without boxing it. If a state value is
+     * already associated to the specified activity and stateId, it is replaced by the new state value.
+     * <p>
+     * <p>A state should either be memorized with this or with the generic method
+     * {@link #putActivityState(TourActivity, StateId, Object)}, but not with both.</p>
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code>
+     *                                         || stateId.getIndex < noInternalStates
+     */
+    public void putActivityDoubleState(TourActivity act, StateId stateId, double state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (stateId.getIndex() < initialNoStates) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalActivityDoubleState(act, stateId, state);
+    }
+
+    /**
+     * Associates the specified activity, vehicle and stateId to the double state value without boxing it.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity, vehicle and stateId
+     * @throws java.lang.IllegalStateException if <code>act.getIndex() == 0</code>
+     *                                         || stateId.getIndex < noInternalStates
+     * @see #putActivityDoubleState(TourActivity, StateId, double)
+     */
+    public void putActivityDoubleState(TourActivity act, Vehicle vehicle, StateId stateId, double state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (stateId.getIndex() < initialNoStates) StateFactory.throwReservedIdException(stateId.toString());
+        putInternalActivityDoubleState(act, vehicle, stateId, state);
+    }
+
+    /**
+     * Associates the specified activity and stateId to the int state value without boxing it.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity and stateId
+     * @throws java.lang.IllegalStateException    if <code>act.getIndex() == 0</code>
+     *                                            || stateId.getIndex < noInternalStates
+     * @throws java.lang.IllegalArgumentException if <code>state == NO_INT_STATE</code>
+     * @see #putActivityDoubleState(TourActivity, StateId, double)
+     */
+    public void putActivityIntState(TourActivity act, StateId stateId, int state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (stateId.getIndex() < initialNoStates) StateFactory.throwReservedIdException(stateId.toString());
+        if (state == NO_INT_STATE) throw new IllegalArgumentException("Integer.MIN_VALUE is reserved and cannot be stored as int state");
+        putInternalActivityIntState(act, stateId, state);
+    }
+
+    /**
+     * Associates the specified activity, vehicle and stateId to the int state value without boxing it.
+     *
+     * @param act     the activity for which a state value is associated to
+     * @param vehicle the vehicle for which a state value is associated to
+     * @param stateId the stateId which is the associated key to the activity state
+     * @param state   the state that is associated to the activity, vehicle and stateId
+     * @throws java.lang.IllegalStateException    if <code>act.getIndex() == 0</code>
+     *                                            || stateId.getIndex < noInternalStates
+     * @throws java.lang.IllegalArgumentException if <code>state == NO_INT_STATE</code>
+     * @see #putActivityDoubleState(TourActivity, StateId, double)
+     */
+    public void putActivityIntState(TourActivity act, Vehicle vehicle, StateId stateId, int state) {
+        if (act.getIndex() == 0) throw new IllegalStateException("activity index is 0. this should not be.");
+        if (stateId.getIndex() < initialNoStates) StateFactory.throwReservedIdException(stateId.toString());
+        if (state == NO_INT_STATE) throw new IllegalArgumentException("Integer.MIN_VALUE is reserved and cannot be stored as int state");
+        putInternalActivityIntState(act, vehicle, stateId, state);
+    }
+
+    void putInternalActivityDoubleState(TourActivity act, StateId stateId, double state) {
+        double[] slab = activityDoubleStates[stateId.getIndex()];
+        if (slab == null) {
+            slab = newDoubleSlab(nuActivities);
+            activityDoubleStates[stateId.getIndex()] = slab;
+        }
+        slab[act.getIndex()] = state;
+    }
+
+    void putInternalActivityDoubleState(TourActivity act, Vehicle vehicle, StateId stateId, double state) {
+        double[] slab = vehicleDependentActivityDoubleStates[stateId.getIndex()];
+        if (slab == null) {
+            slab = newDoubleSlab(nuActivities * nuVehicleTypeKeys);
+            vehicleDependentActivityDoubleStates[stateId.getIndex()] = slab;
+        }
+        slab[getVehicleDependentSlot(act.getIndex(), vehicle)] = state;
+    }
+
+    void putInternalActivityIntState(TourActivity act, StateId stateId, int state) {
+        int[] slab = activityIntStates[stateId.getIndex()];
+        if (slab == null) {
+            slab = newIntSlab(nuActivities);
+            activityIntStates[stateId.getIndex()] = slab;
+        }
+        slab[act.getIndex()] = state;
+    }
+
+    void putInternalActivityIntState(TourActivity act, Vehicle vehicle, StateId stateId, int state) {
+        int[] slab = vehicleDependentActivityIntStates[stateId.getIndex()];
+        if (slab == null) {
+            slab = newIntSlab(nuActivities * nuVehicleTypeKeys);
+            vehicleDependentActivityIntStates[stateId.getIndex()] = slab;
+        }
+        slab[getVehicleDependentSlot(act.getIndex(), vehicle)] = state;
+    }
+
+    private static double[] newDoubleSlab(int length) {
+        double[] slab = new double[length];
+        Arrays.fill(slab, NO_DOUBLE_STATE);
+        return slab;
+    }
+
+    private static int[] newIntSlab(int length) {
+        int[] slab = new int[length];
+        Arrays.fill(slab, NO_INT_STATE);
+        return slab;
+    }
+
     /**
      * Associates the specified route, vehicle and stateId to the state value. If a state value is already associated to the
      * specified activity and stateId, it is replaced by the new state value.
@@ -452,7 +833,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     <T> void putTypedInternalRouteState(VehicleRoute route, StateId stateId, T state) {
 //        if (route.isEmpty()) return;
-        if(isIndexedBased){
+        if(isIndexed(route)){
             routeStatesArr[route.getVehicle().getIndex()][stateId.getIndex()] = state;
         }
         else {
@@ -465,7 +846,7 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     <T> void putTypedInternalRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId, T state) {
 //        if (route.isEmpty()) return;
-        if(isIndexedBased){
+        if(isIndexed(route)){
             vehicleDependentRouteStatesArr[route.getVehicle().getIndex()][vehicle.getVehicleTypeIdentifier().getIndex()][stateId.getIndex()] = state;
         }
         else {
@@ -477,6 +858,24 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     }
 
+    /**
+     * Sets the metrics that record the time of state updates, i.e. when insertion starts, when a job has been inserted
+     * and when a job has been removed. If it is null (default), nothing is recorded.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(AlgorithmMetrics metrics) {
+        if (metrics == null) {
+            insertionStartsTimer = null;
+            jobInsertedTimer = null;
+            removedTimer = null;
+        } else {
+            insertionStartsTimer = metrics.getTimer(AlgorithmMetrics.Category.STATE_UPDATE, "insertionStarts");
+            jobInsertedTimer = metrics.getTimer(AlgorithmMetrics.Category.STATE_UPDATE, "jobInserted");
+            removedTimer = metrics.getTimer(AlgorithmMetrics.Category.STATE_UPDATE, "jobRemoved");
+        }
+    }
+
     /**
      * Adds state updater.
      * <p>
@@ -546,18 +945,51 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
         insertionListeners.addListener(insertionListener);
     }
 
+    /**
+     * Updates the states of the route the job has been inserted in.
+     * <p>
+     * <p>If the route has not been changed otherwise since its states were updated the last time, activity visitors
+     * that can resume (see {@link com.graphhopper.jsprit.core.problem.solution.route.activity.ResumableActivityVisitor}
+     * and {@link com.graphhopper.jsprit.core.problem.solution.route.activity.ResumableReverseActivityVisitor}) only
+     * update the segment between the first and the last activity of the inserted job plus the activities whose states
+     * change due to this segment. All other visitors update the entire route.
+     */
     @Override
     public void informJobInserted(Job job2insert, VehicleRoute inRoute, InsertionData insertionData) {
+        NanoTimer timer = jobInsertedTimer;
+        long start = timer == null ? 0L : System.nanoTime();
         insertionListeners.informJobInserted(job2insert, inRoute, insertionData);
         for (RouteVisitor v : routeVisitors) {
             v.visit(inRoute);
         }
-        routeActivityVisitor.visit(inRoute);
-        revRouteActivityVisitor.visit(inRoute);
+        int fromIndex = -1;
+        int toIndex = -1;
+        int noInsertedActivities = 0;
+        int actIndex = 0;
+        for (TourActivity act : inRoute.getActivities()) {
+            if (act instanceof JobActivity && ((JobActivity) act).getJob().equals(job2insert)) {
+                if (fromIndex < 0) fromIndex = actIndex;
+                toIndex = actIndex;
+                noInsertedActivities++;
+            }
+            actIndex++;
+        }
+        RouteStamp stamp = routeStamps.get(inRoute);
+        if (fromIndex < 0 || stamp == null || stamp.isOutdatedBy(inRoute, noInsertedActivities)) {
+            routeActivityVisitor.visit(inRoute);
+            revRouteActivityVisitor.visit(inRoute);
+        } else {
+            routeActivityVisitor.visit(inRoute, fromIndex, toIndex);
+            revRouteActivityVisitor.visit(inRoute, fromIndex, toIndex);
+        }
+        routeStamps.put(inRoute, new RouteStamp(inRoute));
+        if (timer != null) timer.recordSince(start);
     }
 
     @Override
     public void informInsertionStarts(Collection<VehicleRoute> vehicleRoutes, Collection<Job> unassignedJobs) {
+        NanoTimer timer = insertionStartsTimer;
+        long start = timer == null ? 0L : System.nanoTime();
         insertionListeners.informInsertionStarts(vehicleRoutes, unassignedJobs);
         for (VehicleRoute route : vehicleRoutes) {
             for (RouteVisitor v : routeVisitors) {
@@ -565,7 +997,9 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
             }
             routeActivityVisitor.visit(route);
             revRouteActivityVisitor.visit(route);
+            routeStamps.put(route, new RouteStamp(route));
         }
+        if (timer != null) timer.recordSince(start);
     }
 
     public void reCalculateStates(VehicleRoute route){
@@ -590,7 +1024,55 @@ public class StateManager implements RouteAndActivityStateGetter, IterationStart
 
     @Override
     public void removed(Job job, VehicleRoute fromRoute) {
-        ruinListeners.removed(job, fromRoute);
+        NanoTimer timer = removedTimer;
+        if (timer == null) {
+            ruinListeners.removed(job, fromRoute);
+        } else {
+            long start = System.nanoTime();
+            ruinListeners.removed(job, fromRoute);
+            timer.recordSince(start);
+        }
+    }
+
+    /**
+     * Moves the route states of index-based routes from the slot of the old vehicle to the slot of the new vehicle.
+     * Thus the route keeps its states (as it does if states are memorized in maps) and the old vehicle can be used by
+     * another route without inheriting them.
+     */
+    @Override
+    public void vehicleSwitched(VehicleRoute vehicleRoute, Vehicle oldVehicle, Vehicle newVehicle) {
+        insertionListeners.informVehicleSwitched(vehicleRoute, oldVehicle, newVehicle);
+        if (!isIndexedBased) return;
+        Object[] states;
+        Object[][] vehicleDependentStates;
+        if (isIndexed(oldVehicle)) {
+            states = routeStatesArr[oldVehicle.getIndex()].clone();
+            vehicleDependentStates = new Object[nuVehicleTypeKeys][];
+            for (int i = 0; i < nuVehicleTypeKeys; i++) {
+                vehicleDependentStates[i] = vehicleDependentRouteStatesArr[oldVehicle.getIndex()][i].clone();
+                Arrays.fill(vehicleDependentRouteStatesArr[oldVehicle.getIndex()][i], null);
+            }
+            Arrays.fill(routeStatesArr[oldVehicle.getIndex()], null);
+        } else {
+            states = routeStateMap.remove(vehicleRoute);
+            vehicleDependentStates = vehicleDependentRouteStateMap.remove(vehicleRoute);
+        }
+        if (isIndexed(newVehicle)) {
+            Arrays.fill(routeStatesArr[newVehicle.getIndex()], null);
+            if (states != null) {
+                System.arraycopy(states, 0, routeStatesArr[newVehicle.getIndex()], 0, Math.min(states.length, routeStatesArr[newVehicle.getIndex()].length));
+            }
+            for (int i = 0; i < nuVehicleTypeKeys; i++) {
+                Object[] slot = vehicleDependentRouteStatesArr[newVehicle.getIndex()][i];
+                Arrays.fill(slot, null);
+                if (vehicleDependentStates != null) {
+                    System.arraycopy(vehicleDependentStates[i], 0, slot, 0, Math.min(vehicleDependentStates[i].length, slot.length));
+                }
+            }
+        } else {
+            if (states != null) routeStateMap.put(vehicleRoute, states);
+            if (vehicleDependentStates != null) vehicleDependentRouteStateMap.put(vehicleRoute, vehicleDependentStates);
+        }
     }
 
     @Override
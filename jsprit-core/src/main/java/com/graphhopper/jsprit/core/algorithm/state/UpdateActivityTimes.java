@@ -20,8 +20,9 @@ package com.graphhopper.jsprit.core.algorithm.state;
 import com.graphhopper.jsprit.core.problem.cost.ForwardTransportTime;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ResumableActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivityArrays;
 import com.graphhopper.jsprit.core.util.ActivityTimeTracker;
 
 
@@ -32,12 +33,18 @@ import com.graphhopper.jsprit.core.util.ActivityTimeTracker;
  *
  * @author stefan
  */
-public class UpdateActivityTimes implements ActivityVisitor, StateUpdater {
+public class UpdateActivityTimes implements ResumableActivityVisitor, StateUpdater {
 
     private ActivityTimeTracker timeTracker;
 
     private VehicleRoute route;
 
+    private boolean converged;
+
+    private TourActivityArrays activityArrays;
+
+    private int actIndex;
+
     /**
      * Updates arrival and end times of activities.
      * <p>
@@ -45,7 +52,7 @@ public class UpdateActivityTimes implements ActivityVisitor, StateUpdater {
      * <p>
      * <p>ArrTimes and EndTimes can be retrieved by <br>
      * <code>activity.getArrTime()</code> and
-     * <code>activity.getEndTime()</code>
+     * <code>activity.getEndTime()</code>, or by index from the activity arrays of the route's activities.
      */
     public UpdateActivityTimes(ForwardTransportTime transportTime, VehicleRoutingActivityCosts activityCosts) {
         super();
@@ -60,14 +67,38 @@ public class UpdateActivityTimes implements ActivityVisitor, StateUpdater {
     public void begin(VehicleRoute route) {
         timeTracker.begin(route);
         this.route = route;
+        activityArrays = route.getTourActivities().getActivityArrays();
+        actIndex = 0;
         route.getStart().setEndTime(timeTracker.getActEndTime());
     }
 
+    /**
+     * Resumes updating times after prevAct, whose end time is assumed to be up to date.
+     */
+    @Override
+    public void begin(VehicleRoute route, TourActivity prevAct) {
+        timeTracker.begin(route, prevAct);
+        this.route = route;
+        activityArrays = route.getTourActivities().getActivityArrays();
+        actIndex = prevAct == route.getStart() ? 0 : activityArrays.indexOf(prevAct) + 1;
+    }
+
     @Override
     public void visit(TourActivity activity) {
         timeTracker.visit(activity);
-        activity.setArrTime(timeTracker.getActArrTime());
-        activity.setEndTime(timeTracker.getActEndTime());
+        converged = activity.getArrTime() == timeTracker.getActArrTime() && activity.getEndTime() == timeTracker.getActEndTime();
+        if (activityArrays.isAt(actIndex, activity)) {
+            route.getTourActivities().setActivityTimes(actIndex, timeTracker.getActArrTime(), timeTracker.getActEndTime());
+        } else {
+            activity.setArrTime(timeTracker.getActArrTime());
+            activity.setEndTime(timeTracker.getActEndTime());
+        }
+        actIndex++;
+    }
+
+    @Override
+    public boolean isConverged() {
+        return converged;
     }
 
     @Override
@@ -22,6 +22,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.BreakActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivityArrays;
 
 /**
  * Updates and memorizes latest operation start times at activities.
@@ -38,6 +39,10 @@ public class UpdateFutureWaitingTimes implements ReverseActivityVisitor, StateUp
 
     private double futureWaiting;
 
+    private TourActivityArrays activityArrays;
+
+    private int actIndex;
+
     public UpdateFutureWaitingTimes(StateManager states, VehicleRoutingTransportCosts tpCosts) {
         super();
         this.states = states;
@@ -48,14 +53,21 @@ public class UpdateFutureWaitingTimes implements ReverseActivityVisitor, StateUp
     public void begin(VehicleRoute route) {
         this.route = route;
         this.futureWaiting = 0.;
+        activityArrays = route.getTourActivities().getActivityArrays();
+        actIndex = activityArrays.size() - 1;
     }
 
     @Override
     public void visit(TourActivity activity) {
-        states.putInternalTypedActivityState(activity, route.getVehicle(), InternalStates.FUTURE_WAITING, futureWaiting);
+        states.putInternalActivityDoubleState(activity, route.getVehicle(), InternalStates.FUTURE_WAITING, futureWaiting);
 		if(!(activity instanceof BreakActivity)) {
-            futureWaiting += Math.max(activity.getTheoreticalEarliestOperationStartTime() - activity.getArrTime(), 0);
+            if (activityArrays.isAt(actIndex, activity)) {
+                futureWaiting += Math.max(activityArrays.getEarliestOperationStartTime(actIndex) - activityArrays.getArrTime(actIndex), 0);
+            } else {
+                futureWaiting += Math.max(activity.getTheoreticalEarliestOperationStartTime() - activity.getArrTime(), 0);
+            }
 		}
+        actIndex--;
     }
 
     @Override
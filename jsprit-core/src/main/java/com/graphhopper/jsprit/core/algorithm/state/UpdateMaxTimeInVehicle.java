@@ -26,18 +26,23 @@ import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.*;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
 /**
+ * Determines the slack times of jobs with max time in vehicle.
+ * <p>
+ * <p>Activity start and end times are recorded in primitive arrays indexed by activity position, pickups are
+ * matched to their deliveries by job index. The open deliveries are memorized once per route and vehicle as
+ * {@link OpenDeliveries} (route state <code>openJobsId</code>); the minimum slack is memorized per activity and
+ * at route level (<code>slackTimeId</code>).
+ * <p>
  * Created by schroeder on 15/09/16.
  */
 public class UpdateMaxTimeInVehicle implements StateUpdater, ActivityVisitor{
 
-    private Map<Integer, Map<Job, Double>> openPickupEndTimesPerVehicle = new HashMap<>();
-
-    private Map<Integer, Map<TourActivity, Double>> slackTimesPerVehicle = new HashMap<>();
-
-    private Map<Integer, Map<TourActivity, Double>> actStartTimesPerVehicle = new HashMap<>();
+    private static final int NO_POSITION = -1;
 
     private VehicleRoute route;
 
@@ -47,11 +52,35 @@ public class UpdateMaxTimeInVehicle implements StateUpdater, ActivityVisitor{
 
     private final StateId openJobsId;
 
-    private double[] prevActEndTimes;
+    private Vehicle[] vehicles = new Vehicle[1];
+
+    private int nuVehicles;
+
+    private double[] prevActEndTimes = new double[1];
+
+    private Location[] prevActLocations = new Location[1];
+
+    private TourActivity[] activities = new TourActivity[16];
+
+    private int nuActivities;
+
+    private double[][] actStartTimes = new double[1][16];
+
+    private double[][] actEndTimes = new double[1][16];
+
+    private int[] pickupPositions = new int[16];
+
+    private int[] pickupPositionStamps = new int[16];
+
+    private int stamp;
 
-    private Location[] prevActLocations;
+    private boolean[] delivered = new boolean[16];
 
-    private Collection<Vehicle> vehicles;
+    private Job[] openJobs = new Job[16];
+
+    private int[] openFrom = new int[16];
+
+    private int[] openTo = new int[16];
 
     private final TransportTime transportTime;
 
@@ -64,8 +93,6 @@ public class UpdateMaxTimeInVehicle implements StateUpdater, ActivityVisitor{
         this.minSlackId = slackTimeId;
         this.openJobsId = openJobsId;
         this.transportTime = transportTime;
-        prevActEndTimes = new double[stateManager.getMaxIndexOfVehicleTypeIdentifiers() + 1];
-        prevActLocations = new Location[stateManager.getMaxIndexOfVehicleTypeIdentifiers() + 1];
         this.activityCosts = activityCosts;
     }
 
@@ -77,160 +104,200 @@ public class UpdateMaxTimeInVehicle implements StateUpdater, ActivityVisitor{
 
     @Override
     public void begin(VehicleRoute route) {
-        openPickupEndTimesPerVehicle.clear();
-        slackTimesPerVehicle.clear();
-        actStartTimesPerVehicle.clear();
-        vehicles = vehiclesToUpdate.get(route);
         this.route = route;
-        for(Vehicle v : vehicles) {
-            int vehicleIndex = v.getVehicleTypeIdentifier().getIndex();
-            openPickupEndTimesPerVehicle.put(vehicleIndex, new HashMap<>());
-            slackTimesPerVehicle.put(vehicleIndex, new HashMap<>());
-            actStartTimesPerVehicle.put(vehicleIndex, new HashMap<>());
-            prevActEndTimes[vehicleIndex] = v.getEarliestDeparture();
-            prevActLocations[vehicleIndex] = v.getStartLocation();
+        Collection<Vehicle> vehiclesOfRoute = vehiclesToUpdate.get(route);
+        if (vehicles.length < vehiclesOfRoute.size()) {
+            int capacity = vehiclesOfRoute.size();
+            vehicles = new Vehicle[capacity];
+            prevActEndTimes = new double[capacity];
+            prevActLocations = new Location[capacity];
+            actStartTimes = new double[capacity][activities.length];
+            actEndTimes = new double[capacity][activities.length];
+        }
+        nuVehicles = 0;
+        for (Vehicle v : vehiclesOfRoute) {
+            vehicles[nuVehicles] = v;
+            prevActEndTimes[nuVehicles] = v.getEarliestDeparture();
+            prevActLocations[nuVehicles] = v.getStartLocation();
+            nuVehicles++;
         }
+        nuActivities = 0;
+        ensureActivityCapacity(route.getActivities().size());
     }
 
     @Override
     public void visit(TourActivity activity) {
-        double maxTime = getMaxTimeInVehicle(activity);
-
-        for(Vehicle v : vehicles) {
-            int vehicleIndex = v.getVehicleTypeIdentifier().getIndex();
-            Location prevActLocation = prevActLocations[vehicleIndex];
-            double prevActEndTime = prevActEndTimes[v.getVehicleTypeIdentifier().getIndex()];
-            double activityArrival = prevActEndTimes[v.getVehicleTypeIdentifier().getIndex()] + transportTime.getTransportTime(prevActLocation,activity.getLocation(),prevActEndTime,route.getDriver(),v);
-            double activityStart = Math.max(activityArrival,activity.getTheoreticalEarliestOperationStartTime());
-            memorizeActStart(activity,v,activityStart);
+        ensureActivityCapacity(nuActivities + 1);
+        activities[nuActivities] = activity;
+        for (int vehicle = 0; vehicle < nuVehicles; vehicle++) {
+            Vehicle v = vehicles[vehicle];
+            double prevActEndTime = prevActEndTimes[vehicle];
+            double activityArrival = prevActEndTime + transportTime.getTransportTime(prevActLocations[vehicle], activity.getLocation(), prevActEndTime, route.getDriver(), v);
+            double activityStart = Math.max(activityArrival, activity.getTheoreticalEarliestOperationStartTime());
             double activityEnd = activityStart + activityCosts.getActivityDuration(activity, activityArrival, route.getDriver(), v);
-            Map<Job, Double> openPickups = openPickupEndTimesPerVehicle.get(vehicleIndex);
-            if (activity instanceof ServiceActivity || activity instanceof PickupActivity) {
-                openPickups.put(((TourActivity.JobActivity) activity).getJob(), activityEnd);
-            } else if (activity instanceof DeliveryActivity) {
-                Job job = ((TourActivity.JobActivity) activity).getJob();
-                double pickupEnd;
-                if (openPickups.containsKey(job)) {
-                    pickupEnd = openPickups.get(job);
-                    openPickups.remove(job);
-                } else pickupEnd = v.getEarliestDeparture();
-                double slackTime = maxTime - (activityStart - pickupEnd);
-                slackTimesPerVehicle.get(vehicleIndex).put(activity, slackTime);
-            }
-            prevActLocations[vehicleIndex] = activity.getLocation();
-            prevActEndTimes[vehicleIndex] = activityEnd;
+            actStartTimes[vehicle][nuActivities] = activityStart;
+            actEndTimes[vehicle][nuActivities] = activityEnd;
+            prevActLocations[vehicle] = activity.getLocation();
+            prevActEndTimes[vehicle] = activityEnd;
         }
-
+        nuActivities++;
     }
 
-    private double getMaxTimeInVehicle(TourActivity activity) {
-        double maxTime = Double.MAX_VALUE;
-        if(activity instanceof TourActivity.JobActivity){
-            maxTime = ((TourActivity.JobActivity) activity).getJob().getMaxTimeInVehicle();
+    private void ensureActivityCapacity(int capacity) {
+        if (activities.length >= capacity) return;
+        int newCapacity = Math.max(capacity, activities.length * 2);
+        activities = Arrays.copyOf(activities, newCapacity);
+        for (int vehicle = 0; vehicle < actStartTimes.length; vehicle++) {
+            actStartTimes[vehicle] = Arrays.copyOf(actStartTimes[vehicle], newCapacity);
+            actEndTimes[vehicle] = Arrays.copyOf(actEndTimes[vehicle], newCapacity);
         }
-        return maxTime;
+        delivered = new boolean[newCapacity];
+        openJobs = new Job[newCapacity];
+        openFrom = new int[newCapacity];
+        openTo = new int[newCapacity];
     }
 
-    private void memorizeActStart(TourActivity activity, Vehicle v, double activityStart) {
-        actStartTimesPerVehicle.get(v.getVehicleTypeIdentifier().getIndex()).put(activity, activityStart);
+    private static boolean isPickup(TourActivity activity) {
+        return activity instanceof ServiceActivity || activity instanceof PickupActivity;
     }
 
-    @Override
-    public void finish() {
-        for(Vehicle v : vehicles) {
-            int vehicleIndex = v.getVehicleTypeIdentifier().getIndex();
-
-            //!!! open routes !!!
-            double routeEnd;
-            if(!v.isReturnToDepot()) routeEnd = prevActEndTimes[vehicleIndex];
-            else routeEnd = prevActEndTimes[vehicleIndex] + transportTime.getTransportTime(prevActLocations[vehicleIndex],v.getEndLocation(),prevActEndTimes[vehicleIndex],route.getDriver(),v);
-
-            Map<Job, Double> openDeliveries = new HashMap<>();
-            for (Job job : openPickupEndTimesPerVehicle.get(vehicleIndex).keySet()) {
-                double actEndTime = openPickupEndTimesPerVehicle.get(vehicleIndex).get(job);
-                double slackTime = job.getMaxTimeInVehicle() - (routeEnd - actEndTime);
-                openDeliveries.put(job, slackTime);
-            }
+    private static Job jobOf(TourActivity activity) {
+        return ((TourActivity.JobActivity) activity).getJob();
+    }
 
-            double minSlackTimeAtEnd = minSlackTime(openDeliveries);
-            stateManager.putRouteState(route, v, minSlackId, minSlackTimeAtEnd);
-            stateManager.putRouteState(route, v, openJobsId, new HashMap<>(openDeliveries));
-            List<TourActivity> acts = new ArrayList<>(this.route.getActivities());
-            Collections.reverse(acts);
-            for (TourActivity act : acts) {
-                Job job = ((TourActivity.JobActivity) act).getJob();
-                if (act instanceof ServiceActivity || act instanceof PickupActivity) {
-                    openDeliveries.remove(job);
-                    double minSlackTime = minSlackTime(openDeliveries);
-//                    double latestStart = actStart(act, v) + minSlackTime;
-                    stateManager.putActivityState(act, v, openJobsId, new HashMap<>(openDeliveries));
-                    stateManager.putActivityState(act, v, minSlackId, minSlackTime);
-                } else {
-                    if (slackTimesPerVehicle.get(vehicleIndex).containsKey(act)) {
-                        double slackTime = slackTimesPerVehicle.get(vehicleIndex).get(act);
-                        openDeliveries.put(job, slackTime);
-                    }
-                    double minSlackTime = minSlackTime(openDeliveries);
-//                    double latestStart = actStart(act, v) + minSlackTime;
-                    stateManager.putActivityState(act, v, openJobsId, new HashMap<>(openDeliveries));
-                    stateManager.putActivityState(act, v, minSlackId, minSlackTime);
+    /**
+     * Determines the open range of every job of the route, i.e. [position of pickup + 1, position of delivery].
+     * Jobs without pickup are open from the route start, jobs without delivery until the route end.
+     *
+     * @return number of open jobs
+     */
+    private int determineOpenJobs(Job ignore) {
+        if (++stamp == 0) {
+            Arrays.fill(pickupPositionStamps, 0);
+            stamp = 1;
+        }
+        int nuOpenJobs = 0;
+        for (int position = 0; position < nuActivities; position++) {
+            TourActivity activity = activities[position];
+            delivered[position] = false;
+            if (isPickup(activity)) {
+                int jobIndex = jobOf(activity).getIndex();
+                if (jobIndex >= 0) {
+                    ensureJobCapacity(jobIndex);
+                    pickupPositions[jobIndex] = position;
+                    pickupPositionStamps[jobIndex] = stamp;
                 }
+            } else if (activity instanceof DeliveryActivity) {
+                Job job = jobOf(activity);
+                int pickupPosition = pickupPosition(job, position);
+                if (pickupPosition != NO_POSITION) delivered[pickupPosition] = true;
+                if (job == ignore) continue;
+                openJobs[nuOpenJobs] = job;
+                openFrom[nuOpenJobs] = pickupPosition + 1;
+                openTo[nuOpenJobs] = position;
+                nuOpenJobs++;
+            }
+        }
+        for (int position = 0; position < nuActivities; position++) {
+            TourActivity activity = activities[position];
+            if (isPickup(activity) && !delivered[position] && jobOf(activity) != ignore) {
+                openJobs[nuOpenJobs] = jobOf(activity);
+                openFrom[nuOpenJobs] = position + 1;
+                openTo[nuOpenJobs] = nuActivities;
+                nuOpenJobs++;
             }
         }
+        return nuOpenJobs;
     }
 
-    public void finish(List<TourActivity> activities, Job ignore) {
-        for (Vehicle v : vehicles) {
-            int vehicleIndex = v.getVehicleTypeIdentifier().getIndex();
+    private void ensureJobCapacity(int jobIndex) {
+        if (jobIndex < pickupPositions.length) return;
+        int newCapacity = Math.max(jobIndex + 1, pickupPositions.length * 2);
+        pickupPositions = Arrays.copyOf(pickupPositions, newCapacity);
+        pickupPositionStamps = Arrays.copyOf(pickupPositionStamps, newCapacity);
+    }
+
+    private int pickupPosition(Job job, int deliveryPosition) {
+        int jobIndex = job.getIndex();
+        if (jobIndex >= 0 && jobIndex < pickupPositions.length && pickupPositionStamps[jobIndex] == stamp) {
+            int position = pickupPositions[jobIndex];
+            if (position < deliveryPosition && jobOf(activities[position]) == job) return position;
+        }
+        //job indices are not unique, e.g. jobs that are not part of the problem
+        for (int position = deliveryPosition - 1; position >= 0; position--) {
+            if (isPickup(activities[position]) && jobOf(activities[position]) == job) return position;
+        }
+        return NO_POSITION;
+    }
 
-            //!!! open routes !!!
-            double routeEnd;
-            if (!v.isReturnToDepot()) routeEnd = prevActEndTimes[vehicleIndex];
-            else
-                routeEnd = prevActEndTimes[vehicleIndex] + transportTime.getTransportTime(prevActLocations[vehicleIndex], v.getEndLocation(), prevActEndTimes[vehicleIndex], route.getDriver(), v);
+    private double routeEnd(int vehicle) {
+        Vehicle v = vehicles[vehicle];
+        //!!! open routes !!!
+        if (!v.isReturnToDepot()) return prevActEndTimes[vehicle];
+        return prevActEndTimes[vehicle] + transportTime.getTransportTime(prevActLocations[vehicle], v.getEndLocation(), prevActEndTimes[vehicle], route.getDriver(), v);
+    }
 
-            Map<Job, Double> openDeliveries = new HashMap<>();
-            for (Job job : openPickupEndTimesPerVehicle.get(vehicleIndex).keySet()) {
-                if (job == ignore) continue;
-                double actEndTime = openPickupEndTimesPerVehicle.get(vehicleIndex).get(job);
-                double slackTime = job.getMaxTimeInVehicle() - (routeEnd - actEndTime);
-                openDeliveries.put(job, slackTime);
+    private double[] slackTimes(int vehicle, int nuOpenJobs) {
+        double[] slacks = new double[nuOpenJobs];
+        double routeEnd = routeEnd(vehicle);
+        for (int j = 0; j < nuOpenJobs; j++) {
+            int pickupPosition = openFrom[j] - 1;
+            double pickupEnd = pickupPosition == NO_POSITION ? vehicles[vehicle].getEarliestDeparture() : actEndTimes[vehicle][pickupPosition];
+            double deliveryStart = openTo[j] == nuActivities ? routeEnd : actStartTimes[vehicle][openTo[j]];
+            slacks[j] = openJobs[j].getMaxTimeInVehicle() - (deliveryStart - pickupEnd);
+        }
+        return slacks;
+    }
+
+    private double[] minSlackTimes(double[] slacks) {
+        double[] minSlacks = new double[nuActivities + 1];
+        Arrays.fill(minSlacks, Double.MAX_VALUE);
+        for (int j = 0; j < slacks.length; j++) {
+            for (int position = openFrom[j]; position <= openTo[j]; position++) {
+                if (slacks[j] < minSlacks[position]) minSlacks[position] = slacks[j];
             }
+        }
+        return minSlacks;
+    }
 
-            double minSlackTimeAtEnd = minSlackTime(openDeliveries);
-            stateManager.putRouteState(route, v, minSlackId, routeEnd + minSlackTimeAtEnd);
-            List<TourActivity> acts = new ArrayList<>(activities);
-            Collections.reverse(acts);
-            for (TourActivity act : acts) {
-                Job job = ((TourActivity.JobActivity) act).getJob();
-                if (act instanceof ServiceActivity || act instanceof PickupActivity) {
-                    String jobId = job.getId();
-                    openDeliveries.remove(jobId);
-                    double minSlackTime = minSlackTime(openDeliveries);
-                    double latestStart = actStart(act, v) + minSlackTime;
-                    stateManager.putActivityState(act, v, minSlackId, latestStart);
-                } else {
-                    if (slackTimesPerVehicle.get(vehicleIndex).containsKey(act)) {
-                        double slackTime = slackTimesPerVehicle.get(vehicleIndex).get(act);
-                        openDeliveries.put(job, slackTime);
-                    }
-                    double minSlackTime = minSlackTime(openDeliveries);
-                    double latestStart = actStart(act, v) + minSlackTime;
-                    stateManager.putActivityState(act, v, minSlackId, latestStart);
-                }
+    @Override
+    public void finish() {
+        int nuOpenJobs = determineOpenJobs(null);
+        Job[] jobs = Arrays.copyOf(openJobs, nuOpenJobs);
+        int[] from = Arrays.copyOf(openFrom, nuOpenJobs);
+        int[] to = Arrays.copyOf(openTo, nuOpenJobs);
+        for (int vehicle = 0; vehicle < nuVehicles; vehicle++) {
+            Vehicle v = vehicles[vehicle];
+            double[] slacks = slackTimes(vehicle, nuOpenJobs);
+            double[] minSlacks = minSlackTimes(slacks);
+            stateManager.putRouteState(route, v, minSlackId, minSlacks[nuActivities]);
+            stateManager.putRouteState(route, v, openJobsId, new OpenDeliveries(nuActivities, jobs, from, to, slacks, minSlacks));
+            for (int position = 0; position < nuActivities; position++) {
+                stateManager.putInternalActivityDoubleState(activities[position], v, minSlackId, minSlacks[position]);
             }
         }
     }
 
-    private double actStart(TourActivity act, Vehicle v) {
-        return actStartTimesPerVehicle.get(v.getVehicleTypeIdentifier().getIndex()).get(act);
+    public void finish(List<TourActivity> activities, Job ignore) {
+        int nuOpenJobs = determineOpenJobs(ignore);
+        for (int vehicle = 0; vehicle < nuVehicles; vehicle++) {
+            Vehicle v = vehicles[vehicle];
+            double[] minSlacks = minSlackTimes(slackTimes(vehicle, nuOpenJobs));
+            stateManager.putRouteState(route, v, minSlackId, routeEnd(vehicle) + minSlacks[nuActivities]);
+            for (TourActivity act : activities) {
+                int position = positionOf(act);
+                if (position == NO_POSITION) continue;
+                double latestStart = actStartTimes[vehicle][position] + minSlacks[position];
+                stateManager.putInternalActivityDoubleState(act, v, minSlackId, latestStart);
+            }
+        }
     }
 
-    private double minSlackTime(Map<Job, Double> openDeliveries) {
-        double min = Double.MAX_VALUE;
-        for(Double value : openDeliveries.values()){
-           if(value < min) min = value;
+    private int positionOf(TourActivity act) {
+        for (int position = 0; position < nuActivities; position++) {
+            if (activities[position] == act) return position;
         }
-        return min;
+        return NO_POSITION;
     }
+
 }
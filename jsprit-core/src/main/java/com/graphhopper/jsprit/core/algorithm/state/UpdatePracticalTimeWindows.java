@@ -17,18 +17,22 @@
  */
 package com.graphhopper.jsprit.core.algorithm.state;
 
+import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ResumableReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivityArrays;
+
+import java.util.Iterator;
 
 /**
  * Updates and memorizes latest operation start times at activities.
  *
  * @author schroeder
  */
-class UpdatePracticalTimeWindows implements ReverseActivityVisitor, StateUpdater {
+class UpdatePracticalTimeWindows implements ResumableReverseActivityVisitor, StateUpdater {
 
     private StateManager states;
 
@@ -40,7 +44,13 @@ class UpdatePracticalTimeWindows implements ReverseActivityVisitor, StateUpdater
 
     private double latestArrTimeAtPrevAct;
 
-    private TourActivity prevAct;
+    private Location prevLocation;
+
+    private TourActivityArrays activityArrays;
+
+    private int actIndex;
+
+    private boolean converged;
 
     public UpdatePracticalTimeWindows(StateManager states, VehicleRoutingTransportCosts tpCosts, VehicleRoutingActivityCosts activityCosts) {
         super();
@@ -53,18 +63,60 @@ class UpdatePracticalTimeWindows implements ReverseActivityVisitor, StateUpdater
     public void begin(VehicleRoute route) {
         this.route = route;
         latestArrTimeAtPrevAct = route.getEnd().getTheoreticalLatestOperationStartTime();
-        prevAct = route.getEnd();
+        prevLocation = route.getEnd().getLocation();
+        activityArrays = route.getTourActivities().getActivityArrays();
+        actIndex = activityArrays.size() - 1;
+    }
+
+    @Override
+    public void begin(VehicleRoute route, TourActivity nextAct) {
+        if (nextAct == route.getEnd()) {
+            begin(route);
+            return;
+        }
+        double latestArrTimeAtNextAct = states.getActivityDoubleState(nextAct, InternalStates.LATEST_OPERATION_START_TIME, Double.NaN);
+        if (Double.isNaN(latestArrTimeAtNextAct)) {
+            begin(route);
+            Iterator<TourActivity> revIterator = route.getTourActivities().reverseActivityIterator();
+            while (revIterator.hasNext()) {
+                TourActivity act = revIterator.next();
+                visit(act);
+                if (act == nextAct) break;
+            }
+            return;
+        }
+        this.route = route;
+        latestArrTimeAtPrevAct = latestArrTimeAtNextAct;
+        prevLocation = nextAct.getLocation();
+        activityArrays = route.getTourActivities().getActivityArrays();
+        actIndex = activityArrays.indexOf(nextAct) - 1;
+    }
+
+    @Override
+    public boolean isConverged() {
+        return converged;
     }
 
     @Override
     public void visit(TourActivity activity) {
-        double potentialLatestArrivalTimeAtCurrAct = latestArrTimeAtPrevAct - transportCosts.getBackwardTransportTime(activity.getLocation(), prevAct.getLocation(), latestArrTimeAtPrevAct, route.getDriver(), route.getVehicle()) - activityCosts.getActivityDuration(activity,latestArrTimeAtPrevAct,route.getDriver(),route.getVehicle());
-        double latestArrivalTime = Math.min(activity.getTheoreticalLatestOperationStartTime(), potentialLatestArrivalTimeAtCurrAct);
+        Location location;
+        double theoreticalLatestStart;
+        if (activityArrays.isAt(actIndex, activity)) {
+            location = activityArrays.getLocation(actIndex);
+            theoreticalLatestStart = activityArrays.getLatestOperationStartTime(actIndex);
+        } else {
+            location = activity.getLocation();
+            theoreticalLatestStart = activity.getTheoreticalLatestOperationStartTime();
+        }
+        actIndex--;
+        double potentialLatestArrivalTimeAtCurrAct = latestArrTimeAtPrevAct - transportCosts.getBackwardTransportTime(location, prevLocation, latestArrTimeAtPrevAct, route.getDriver(), route.getVehicle()) - activityCosts.getActivityDuration(activity,latestArrTimeAtPrevAct,route.getDriver(),route.getVehicle());
+        double latestArrivalTime = Math.min(theoreticalLatestStart, potentialLatestArrivalTimeAtCurrAct);
 
-        states.putInternalTypedActivityState(activity, InternalStates.LATEST_OPERATION_START_TIME, latestArrivalTime);
+        converged = states.getActivityDoubleState(activity, InternalStates.LATEST_OPERATION_START_TIME, Double.NaN) == latestArrivalTime;
+        states.putInternalActivityDoubleState(activity, InternalStates.LATEST_OPERATION_START_TIME, latestArrivalTime);
 
         latestArrTimeAtPrevAct = latestArrivalTime;
-        prevAct = activity;
+        prevLocation = location;
     }
 
     @Override
@@ -21,7 +21,7 @@ import com.graphhopper.jsprit.core.problem.cost.ForwardTransportCost;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
-import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ResumableActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.util.ActivityTimeTracker;
 
@@ -32,7 +32,7 @@ import com.graphhopper.jsprit.core.util.ActivityTimeTracker;
  * <p>Thus it modifies <code>stateManager.getRouteState(route, StateTypes.COSTS)</code> and <br>
  * <code>stateManager.getActivityState(activity, StateTypes.COSTS)</code>
  */
-public class UpdateVariableCosts implements ActivityVisitor, StateUpdater {
+public class UpdateVariableCosts implements ResumableActivityVisitor, StateUpdater {
 
     private VehicleRoutingActivityCosts activityCost;
 
@@ -83,6 +83,35 @@ public class UpdateVariableCosts implements ActivityVisitor, StateUpdater {
         startTimeAtPrevAct = timeTracker.getActEndTime();
     }
 
+    /**
+     * Resumes accumulating costs after prevAct, starting with the costs memorized at prevAct. If there are none, the
+     * costs up to prevAct are recalculated first.
+     * <p>
+     * <p>Since costs are cumulative, they change along the entire remainder of the route, i.e. this never converges.
+     */
+    @Override
+    public void begin(VehicleRoute route, TourActivity prevAct) {
+        double costsAtPrevAct = prevAct == route.getStart() ? 0. : states.getActivityDoubleState(prevAct, InternalStates.COSTS, Double.NaN);
+        if (Double.isNaN(costsAtPrevAct)) {
+            begin(route);
+            for (TourActivity act : route.getActivities()) {
+                visit(act);
+                if (act == prevAct) break;
+            }
+            return;
+        }
+        vehicleRoute = route;
+        timeTracker.begin(route, prevAct);
+        this.prevAct = prevAct;
+        startTimeAtPrevAct = prevAct.getEndTime();
+        totalOperationCost = costsAtPrevAct;
+    }
+
+    @Override
+    public boolean isConverged() {
+        return false;
+    }
+
     @Override
     public void visit(TourActivity act) {
         timeTracker.visit(act);
@@ -93,7 +122,7 @@ public class UpdateVariableCosts implements ActivityVisitor, StateUpdater {
         totalOperationCost += transportCost;
         totalOperationCost += actCost;
 
-        states.putInternalTypedActivityState(act, InternalStates.COSTS, totalOperationCost);
+        states.putInternalActivityDoubleState(act, InternalStates.COSTS, totalOperationCost);
 
         prevAct = act;
         startTimeAtPrevAct = timeTracker.getActEndTime();
@@ -21,18 +21,23 @@ package com.graphhopper.jsprit.core.algorithm.state;
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
-import com.graphhopper.jsprit.core.problem.solution.route.RouteVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ResumableReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivityArrays;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 
-public class UpdateVehicleDependentPracticalTimeWindows implements RouteVisitor, StateUpdater {
+public class UpdateVehicleDependentPracticalTimeWindows implements ResumableReverseActivityVisitor, StateUpdater {
 
-    @Override
+    /**
+     * Updates the latest operation start times of all activities of the specified route.
+     *
+     * @param route the route to be updated
+     */
     public void visit(VehicleRoute route) {
         begin(route);
         Iterator<TourActivity> revIterator = route.getTourActivities().reverseActivityIterator();
@@ -64,6 +69,12 @@ public class UpdateVehicleDependentPracticalTimeWindows implements RouteVisitor,
 
     private Collection<Vehicle> vehicles;
 
+    private TourActivityArrays activityArrays;
+
+    private int actIndex;
+
+    private boolean converged;
+
     public UpdateVehicleDependentPracticalTimeWindows(StateManager stateManager, VehicleRoutingTransportCosts tpCosts, VehicleRoutingActivityCosts activityCosts) {
         super();
         this.stateManager = stateManager;
@@ -78,9 +89,12 @@ public class UpdateVehicleDependentPracticalTimeWindows implements RouteVisitor,
     }
 
 
+    @Override
     public void begin(VehicleRoute route) {
         this.route = route;
         vehicles = vehiclesToUpdate.get(route);
+        activityArrays = route.getTourActivities().getActivityArrays();
+        actIndex = activityArrays.size() - 1;
         for (Vehicle vehicle : vehicles) {
             latest_arrTimes_at_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = vehicle.getLatestArrival();
             Location location = vehicle.getEndLocation();
@@ -91,24 +105,77 @@ public class UpdateVehicleDependentPracticalTimeWindows implements RouteVisitor,
         }
     }
 
+    /**
+     * Resumes updating in front of nextAct, starting with the latest operation start times memorized at nextAct. If
+     * these are missing for one of the vehicles to update, the part of the route behind nextAct is updated first.
+     */
+    @Override
+    public void begin(VehicleRoute route, TourActivity nextAct) {
+        if (nextAct == route.getEnd()) {
+            begin(route);
+            return;
+        }
+        this.route = route;
+        vehicles = vehiclesToUpdate.get(route);
+        for (Vehicle vehicle : vehicles) {
+            double latestArrTimeAtNextAct = stateManager.getActivityDoubleState(nextAct, vehicle, InternalStates.LATEST_OPERATION_START_TIME, Double.NaN);
+            if (Double.isNaN(latestArrTimeAtNextAct)) {
+                begin(route);
+                Iterator<TourActivity> revIterator = route.getTourActivities().reverseActivityIterator();
+                while (revIterator.hasNext()) {
+                    TourActivity act = revIterator.next();
+                    visit(act);
+                    if (act == nextAct) break;
+                }
+                return;
+            }
+            latest_arrTimes_at_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = latestArrTimeAtNextAct;
+            location_of_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = nextAct.getLocation();
+        }
+        activityArrays = route.getTourActivities().getActivityArrays();
+        actIndex = activityArrays.indexOf(nextAct) - 1;
+    }
+
+    @Override
+    public boolean isConverged() {
+        return converged;
+    }
 
+    @Override
     public void visit(TourActivity activity) {
+        converged = true;
+        Location location;
+        double theoreticalEarliestStart;
+        double theoreticalLatestStart;
+        if (activityArrays.isAt(actIndex, activity)) {
+            location = activityArrays.getLocation(actIndex);
+            theoreticalEarliestStart = activityArrays.getEarliestOperationStartTime(actIndex);
+            theoreticalLatestStart = activityArrays.getLatestOperationStartTime(actIndex);
+        } else {
+            location = activity.getLocation();
+            theoreticalEarliestStart = activity.getTheoreticalEarliestOperationStartTime();
+            theoreticalLatestStart = activity.getTheoreticalLatestOperationStartTime();
+        }
+        actIndex--;
         for (Vehicle vehicle : vehicles) {
             double latestArrTimeAtPrevAct = latest_arrTimes_at_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()];
             Location prevLocation = location_of_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()];
-            double potentialLatestArrivalTimeAtCurrAct = latestArrTimeAtPrevAct - transportCosts.getBackwardTransportTime(activity.getLocation(), prevLocation,
+            double potentialLatestArrivalTimeAtCurrAct = latestArrTimeAtPrevAct - transportCosts.getBackwardTransportTime(location, prevLocation,
                 latestArrTimeAtPrevAct, route.getDriver(), vehicle) - activityCosts.getActivityDuration(activity, latestArrTimeAtPrevAct, route.getDriver(), route.getVehicle());
-            double latestArrivalTime = Math.min(activity.getTheoreticalLatestOperationStartTime(), potentialLatestArrivalTimeAtCurrAct);
-            if (latestArrivalTime < activity.getTheoreticalEarliestOperationStartTime()) {
+            double latestArrivalTime = Math.min(theoreticalLatestStart, potentialLatestArrivalTimeAtCurrAct);
+            if (latestArrivalTime < theoreticalEarliestStart) {
                 stateManager.putTypedInternalRouteState(route, vehicle, InternalStates.SWITCH_NOT_FEASIBLE, true);
             }
-            stateManager.putInternalTypedActivityState(activity, vehicle, InternalStates.LATEST_OPERATION_START_TIME, latestArrivalTime);
+            if (stateManager.getActivityDoubleState(activity, vehicle, InternalStates.LATEST_OPERATION_START_TIME, Double.NaN) != latestArrivalTime) {
+                converged = false;
+            }
+            stateManager.putInternalActivityDoubleState(activity, vehicle, InternalStates.LATEST_OPERATION_START_TIME, latestArrivalTime);
             latest_arrTimes_at_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = latestArrivalTime;
-            location_of_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = activity.getLocation();
+            location_of_prevAct[vehicle.getVehicleTypeIdentifier().getIndex()] = location;
         }
     }
 
-
+    @Override
     public void finish() {
     }
 
@@ -100,7 +100,7 @@ public class VehicleDependentTraveledDistance implements StateUpdater, ActivityV
             State old = states.get(v.getVehicleTypeIdentifier());
             double distance = old.getDistance();
             distance += transportDistance.getDistance(old.getPrevLocation(), activity.getLocation(), 0, v);
-            stateManager.putActivityState(activity, v, traveledDistanceId, distance);
+            stateManager.putActivityDoubleState(activity, v, traveledDistanceId, distance);
             states.put(v.getVehicleTypeIdentifier(), new State(activity.getLocation(), distance));
         }
     }
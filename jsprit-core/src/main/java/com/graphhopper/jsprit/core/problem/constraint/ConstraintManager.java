@@ -17,6 +17,7 @@
  */
 package com.graphhopper.jsprit.core.problem.constraint;
 
+import com.graphhopper.jsprit.core.algorithm.metrics.AlgorithmMetrics;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
@@ -64,6 +65,8 @@ public class ConstraintManager implements HardActivityConstraint, HardRouteConst
 
     private final DependencyType[] dependencyTypes;
 
+    private AlgorithmMetrics metrics;
+
     public ConstraintManager(VehicleRoutingProblem vrp, RouteAndActivityStateGetter stateManager) {
         this.vrp = vrp;
         this.stateManager = stateManager;
@@ -77,6 +80,20 @@ public class ConstraintManager implements HardActivityConstraint, HardRouteConst
         resolveConstraints(constraints);
     }
 
+    /**
+     * Sets the metrics that count the insertion evaluations of the insertion calculators and the rejections per hard
+     * constraint. If it is null (default), nothing is counted.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(AlgorithmMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public AlgorithmMetrics getMetrics() {
+        return metrics;
+    }
+
     public boolean hasHardActivityConstraints() {
         return actLevelConstraintManager.hasHardActivityConstraints();
     }
@@ -18,6 +18,7 @@
 
 package com.graphhopper.jsprit.core.problem.constraint;
 
+import com.graphhopper.jsprit.core.algorithm.state.OpenDeliveries;
 import com.graphhopper.jsprit.core.algorithm.state.StateId;
 import com.graphhopper.jsprit.core.algorithm.state.StateManager;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
@@ -25,14 +26,13 @@ import com.graphhopper.jsprit.core.problem.cost.TransportTime;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.misc.ActivityContext;
 import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.DeliveryActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.End;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.PickupActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
-
-import java.util.Collections;
-import java.util.Map;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivityArrays;
 
 /**
  * Created by schroeder on 15/09/16.
@@ -103,7 +103,7 @@ public class MaxTimeInVehicleConstraint implements HardActivityConstraint {
 
         double minSlack = Double.MAX_VALUE;
         if (!(nextAct instanceof End)) {
-            minSlack = stateManager.getActivityState(nextAct, iFacts.getNewVehicle(), minSlackId, Double.class);
+            minSlack = stateManager.getActivityDoubleState(nextAct, iFacts.getNewVehicle(), minSlackId, Double.MAX_VALUE);
         }
         double directArrTimeNextAct = prevActDepTime + transportTime.getTransportTime(prevAct.getLocation(), nextAct.getLocation(), prevActDepTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
         double directNextActStart = Math.max(directArrTimeNextAct, nextAct.getTheoreticalEarliestOperationStartTime());
@@ -113,24 +113,22 @@ public class MaxTimeInVehicleConstraint implements HardActivityConstraint {
             else return ConstraintsStatus.NOT_FULFILLED;
         }
         if (newActIsDelivery) {
-            Map<Job, Double> openJobsAtNext;
-            if (nextAct instanceof End)
-                openJobsAtNext = stateManager.getRouteState(iFacts.getRoute(), iFacts.getNewVehicle(), openJobsId, Map.class);
-            else openJobsAtNext = stateManager.getActivityState(nextAct, iFacts.getNewVehicle(), openJobsId, Map.class);
-            if (openJobsAtNext == null) openJobsAtNext = Collections.emptyMap();
-            for (Job openJob : openJobsAtNext.keySet()) {
-                double slack = openJobsAtNext.get(openJob);
+            OpenDeliveries openDeliveries = stateManager.getRouteState(iFacts.getRoute(), iFacts.getNewVehicle(), openJobsId, OpenDeliveries.class);
+            if (openDeliveries == null) return ConstraintsStatus.FULFILLED;
+            int nextActPosition = positionOf(iFacts, nextAct);
+            for (int entry = 0; entry < openDeliveries.size(); entry++) {
+                if (!openDeliveries.isOpen(entry, nextActPosition)) continue;
+                Job openJob = openDeliveries.getJob(entry);
+                double slack = openDeliveries.getSlack(entry);
                 double additionalTimeOfNewJob = additionalTimeOfNewAct;
                 if (openJob instanceof Shipment) {
-                    Map<Job, Double> openJobsAtNextOfPickup = Collections.emptyMap();
-                    TourActivity nextAfterPickup;
+                    int nextAfterPickupPosition;
                     if (iFacts.getAssociatedActivities().size() == 1 && !iFacts.getRoute().isEmpty())
-                        nextAfterPickup = iFacts.getRoute().getActivities().get(0);
+                        nextAfterPickupPosition = 0;
                     else
-                        nextAfterPickup = iFacts.getRoute().getActivities().get(iFacts.getRelatedActivityContext().getInsertionIndex());
-                    if (nextAfterPickup != null)
-                        openJobsAtNextOfPickup = stateManager.getActivityState(nextAfterPickup, iFacts.getNewVehicle(), openJobsId, Map.class);
-                    if (openJobsAtNextOfPickup.containsKey(openJob)) {
+                        nextAfterPickupPosition = iFacts.getRelatedActivityContext().getInsertionIndex();
+                    if (nextAfterPickupPosition < iFacts.getRoute().getActivities().size() && openDeliveries.isOpen(entry, nextAfterPickupPosition)) {
+                        TourActivity nextAfterPickup = iFacts.getRoute().getActivities().get(nextAfterPickupPosition);
                         TourActivity pickupAct = iFacts.getAssociatedActivities().get(0);
                         double pickupActArrTime = iFacts.getRelatedActivityContext().getArrivalTime();
                         double pickupActEndTime = startOf(pickupAct, pickupActArrTime) + activityCosts.getActivityDuration(pickupAct, pickupActArrTime, iFacts.getNewDriver(), iFacts.getNewVehicle());
@@ -146,6 +144,22 @@ public class MaxTimeInVehicleConstraint implements HardActivityConstraint {
         return ConstraintsStatus.FULFILLED;
     }
 
+    /**
+     * Position of nextAct in the route, i.e. the insertion index of the new activity. Insertion calculators
+     * provide it with the activity context, otherwise it is looked up.
+     */
+    private int positionOf(JobInsertionContext iFacts, TourActivity nextAct) {
+        TourActivityArrays activityArrays = iFacts.getRoute().getTourActivities().getActivityArrays();
+        if (nextAct instanceof End) return activityArrays.size();
+        ActivityContext activityContext = iFacts.getActivityContext();
+        if (activityContext != null) {
+            int insertionIndex = activityContext.getInsertionIndex();
+            if (insertionIndex >= 0 && insertionIndex < activityArrays.size() && activityArrays.getActivity(insertionIndex) == nextAct)
+                return insertionIndex;
+        }
+        return activityArrays.indexOf(nextAct);
+    }
+
     private double startOf(TourActivity act, double arrTime) {
         return Math.max(arrTime, act.getTheoreticalEarliestOperationStartTime());
     }
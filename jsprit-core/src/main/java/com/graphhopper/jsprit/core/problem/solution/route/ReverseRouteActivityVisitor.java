@@ -17,17 +17,25 @@
  */
 package com.graphhopper.jsprit.core.problem.solution.route;
 
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ResumableReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ReverseActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 
 public class ReverseRouteActivityVisitor implements RouteVisitor {
 
-    private Collection<ReverseActivityVisitor> visitors = new ArrayList<ReverseActivityVisitor>();
+    private List<ReverseActivityVisitor> visitors = new ArrayList<ReverseActivityVisitor>();
+
+    private boolean[] resumable = new boolean[0];
+
+    private boolean[] active = new boolean[0];
+
+    private boolean hasNonResumableVisitors = false;
 
     @Override
     public void visit(VehicleRoute route) {
@@ -42,6 +50,56 @@ public class ReverseRouteActivityVisitor implements RouteVisitor {
         finish(route);
     }
 
+    /**
+     * Visits the specified route (starting from its end) after the activities from fromIndex to toIndex (both inclusive)
+     * have changed.
+     * <p>
+     * <p>Visitors that implement {@link ResumableReverseActivityVisitor} begin right before the activity at toIndex+1,
+     * i.e. they skip the unchanged part behind the segment, and stop as soon as they have converged in front of the
+     * segment. All other visitors visit the entire route as in {@link #visit(VehicleRoute)}. As in a full visit, each
+     * activity is visited by the visitors in the order they were added.
+     *
+     * @param route     the route to be visited
+     * @param fromIndex index of the first changed activity
+     * @param toIndex   index of the last changed activity
+     */
+    public void visit(VehicleRoute route, int fromIndex, int toIndex) {
+        if (visitors.isEmpty()) return;
+        if (route.isEmpty()) return;
+        List<TourActivity> activities = route.getTourActivities().getActivities();
+        TourActivity nextAct = toIndex == activities.size() - 1 ? route.getEnd() : activities.get(toIndex + 1);
+        int noActive = 0;
+        for (int i = 0; i < visitors.size(); i++) {
+            if (resumable[i]) {
+                ((ResumableReverseActivityVisitor) visitors.get(i)).begin(route, nextAct);
+                active[i] = true;
+                noActive++;
+            } else visitors.get(i).begin(route);
+        }
+        int start = hasNonResumableVisitors ? activities.size() - 1 : toIndex;
+        for (int actIndex = start; actIndex >= 0; actIndex--) {
+            TourActivity act = activities.get(actIndex);
+            // visitors visit each activity in the order they were added, thus they can read what preceding ones updated
+            for (int i = 0; i < visitors.size(); i++) {
+                if (!resumable[i]) {
+                    visitors.get(i).visit(act);
+                    continue;
+                }
+                if (actIndex > toIndex || !active[i]) continue;
+                ResumableReverseActivityVisitor visitor = (ResumableReverseActivityVisitor) visitors.get(i);
+                visitor.visit(act);
+                if (actIndex < fromIndex && visitor.isConverged()) {
+                    active[i] = false;
+                    noActive--;
+                }
+            }
+            if (noActive == 0 && !hasNonResumableVisitors) return;
+        }
+        for (int i = 0; i < visitors.size(); i++) {
+            if (!resumable[i] || active[i]) visitors.get(i).finish();
+        }
+    }
+
     private void finish(VehicleRoute route) {
         for (ReverseActivityVisitor visitor : visitors) {
             visitor.finish();
@@ -65,6 +123,10 @@ public class ReverseRouteActivityVisitor implements RouteVisitor {
     public void addActivityVisitor(ReverseActivityVisitor activityVisitor) {
         if (!visitors.contains(activityVisitor)) {
             visitors.add(activityVisitor);
+            resumable = Arrays.copyOf(resumable, visitors.size());
+            resumable[visitors.size() - 1] = activityVisitor instanceof ResumableReverseActivityVisitor;
+            active = new boolean[visitors.size()];
+            if (!resumable[visitors.size() - 1]) hasNonResumableVisitors = true;
         }
     }
 }
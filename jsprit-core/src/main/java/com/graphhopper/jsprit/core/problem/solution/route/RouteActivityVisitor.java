@@ -18,15 +18,23 @@
 package com.graphhopper.jsprit.core.problem.solution.route;
 
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ResumableActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.List;
 
 
 public class RouteActivityVisitor implements RouteVisitor {
 
-    private Collection<ActivityVisitor> visitors = new ArrayList<ActivityVisitor>();
+    private List<ActivityVisitor> visitors = new ArrayList<ActivityVisitor>();
+
+    private boolean[] resumable = new boolean[0];
+
+    private boolean[] active = new boolean[0];
+
+    private boolean hasNonResumableVisitors = false;
 
     @Override
     public void visit(VehicleRoute route) {
@@ -38,6 +46,54 @@ public class RouteActivityVisitor implements RouteVisitor {
         end(route);
     }
 
+    /**
+     * Visits the specified route after the activities from fromIndex to toIndex (both inclusive) have changed.
+     * <p>
+     * <p>Visitors that implement {@link ResumableActivityVisitor} begin right after the activity at fromIndex-1, i.e.
+     * they skip the unchanged part in front of the segment, and stop as soon as they have converged behind the segment.
+     * All other visitors visit the entire route as in {@link #visit(VehicleRoute)}. As in a full visit, each activity is
+     * visited by the visitors in the order they were added.
+     *
+     * @param route     the route to be visited
+     * @param fromIndex index of the first changed activity
+     * @param toIndex   index of the last changed activity
+     */
+    public void visit(VehicleRoute route, int fromIndex, int toIndex) {
+        if (visitors.isEmpty()) return;
+        List<TourActivity> activities = route.getTourActivities().getActivities();
+        TourActivity prevAct = fromIndex == 0 ? route.getStart() : activities.get(fromIndex - 1);
+        int noActive = 0;
+        for (int i = 0; i < visitors.size(); i++) {
+            if (resumable[i]) {
+                ((ResumableActivityVisitor) visitors.get(i)).begin(route, prevAct);
+                active[i] = true;
+                noActive++;
+            } else visitors.get(i).begin(route);
+        }
+        int start = hasNonResumableVisitors ? 0 : fromIndex;
+        for (int actIndex = start; actIndex < activities.size(); actIndex++) {
+            TourActivity act = activities.get(actIndex);
+            // visitors visit each activity in the order they were added, thus they can read what preceding ones updated
+            for (int i = 0; i < visitors.size(); i++) {
+                if (!resumable[i]) {
+                    visitors.get(i).visit(act);
+                    continue;
+                }
+                if (actIndex < fromIndex || !active[i]) continue;
+                ResumableActivityVisitor visitor = (ResumableActivityVisitor) visitors.get(i);
+                visitor.visit(act);
+                if (actIndex > toIndex && visitor.isConverged()) {
+                    active[i] = false;
+                    noActive--;
+                }
+            }
+            if (noActive == 0 && !hasNonResumableVisitors) return;
+        }
+        for (int i = 0; i < visitors.size(); i++) {
+            if (!resumable[i] || active[i]) visitors.get(i).finish();
+        }
+    }
+
     private void end(VehicleRoute route) {
         for (ActivityVisitor visitor : visitors) {
             visitor.finish();
@@ -61,6 +117,10 @@ public class RouteActivityVisitor implements RouteVisitor {
     public RouteActivityVisitor addActivityVisitor(ActivityVisitor activityVisitor) {
         if (!visitors.contains(activityVisitor)) {
             visitors.add(activityVisitor);
+            resumable = Arrays.copyOf(resumable, visitors.size());
+            resumable[visitors.size() - 1] = activityVisitor instanceof ResumableActivityVisitor;
+            active = new boolean[visitors.size()];
+            if (!resumable[visitors.size() - 1]) hasNonResumableVisitors = true;
         }
         return this;
     }
@@ -0,0 +1,51 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.problem.solution.route.activity;
+
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+
+/**
+ * Activity visitor that can resume a forward pass in the middle of a route.
+ * <p>
+ * <p>When a job has been inserted, the states up to the first inserted activity are still valid. Thus a resumable visitor
+ * starts right after the predecessor of the first changed activity and reads what it needs from the states stored at this
+ * predecessor. Once the states it computes behind the changed segment equal the ones it computed before, it reports to
+ * be converged and the remainder of the route is not visited anymore (nor is {@link #finish()} called).
+ *
+ * @see com.graphhopper.jsprit.core.problem.solution.route.RouteActivityVisitor#visit(VehicleRoute, int, int)
+ */
+public interface ResumableActivityVisitor extends ActivityVisitor {
+
+    /**
+     * Begins visiting the activities of the specified route that follow prevAct.
+     *
+     * @param route   the route to be visited
+     * @param prevAct the activity preceding the first activity to be visited, i.e. route.getStart() if the route is
+     *                visited from its beginning
+     */
+    public void begin(VehicleRoute route, TourActivity prevAct);
+
+    /**
+     * Returns true if the state of the last visited activity equals the state it had before, such that the states of all
+     * subsequent activities do not change either.
+     *
+     * @return true if converged
+     */
+    public boolean isConverged();
+
+}
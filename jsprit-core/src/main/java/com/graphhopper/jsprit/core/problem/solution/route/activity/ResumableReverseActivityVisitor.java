@@ -0,0 +1,49 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.problem.solution.route.activity;
+
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+
+/**
+ * Reverse activity visitor that can resume a backward pass in the middle of a route.
+ * <p>
+ * <p>It is the backward counterpart of {@link ResumableActivityVisitor}, i.e. it starts right before the successor of the
+ * last changed activity and stops once the states it computes in front of the changed segment do not change anymore.
+ *
+ * @see com.graphhopper.jsprit.core.problem.solution.route.ReverseRouteActivityVisitor#visit(VehicleRoute, int, int)
+ */
+public interface ResumableReverseActivityVisitor extends ReverseActivityVisitor {
+
+    /**
+     * Begins visiting the activities of the specified route that precede nextAct (in reverse order).
+     *
+     * @param route   the route to be visited
+     * @param nextAct the activity following the first activity to be visited, i.e. route.getEnd() if the route is
+     *                visited from its end
+     */
+    public void begin(VehicleRoute route, TourActivity nextAct);
+
+    /**
+     * Returns true if the state of the last visited activity equals the state it had before, such that the states of all
+     * preceding activities do not change either.
+     *
+     * @return true if converged
+     */
+    public boolean isConverged();
+
+}
@@ -72,9 +72,14 @@ public class TourActivities {
 
     private ReverseActivityIterator backward;
 
+    private int modificationCount = 0;
+
+    private final TourActivityArrays activityArrays = new TourActivityArrays();
+
     private TourActivities(TourActivities tour2copy) {
         for (TourActivity tourAct : tour2copy.getActivities()) {
             TourActivity newAct = tourAct.duplicate();
+            activityArrays.add(tourActivities.size(), newAct);
             this.tourActivities.add(newAct);
             addJob(newAct);
         }
@@ -87,11 +92,39 @@ public class TourActivities {
         return Collections.unmodifiableList(tourActivities);
     }
 
+    /**
+     * Returns the structure-of-arrays mirror of this activity sequence. It is read only, use
+     * {@link #setActivityTimes(int, double, double)} to update times.
+     *
+     * @return the activity arrays
+     */
+    public TourActivityArrays getActivityArrays() {
+        return activityArrays;
+    }
+
+    /**
+     * Sets arrival and end time of the activity at the specified index, and memorizes them together with the current
+     * location and time window of the activity in the activity arrays.
+     *
+     * @param index   index of the activity in the activity sequence
+     * @param arrTime arrival time at the activity
+     * @param endTime end time of the activity
+     */
+    public void setActivityTimes(int index, double arrTime, double endTime) {
+        TourActivity activity = tourActivities.get(index);
+        activity.setArrTime(arrTime);
+        activity.setEndTime(endTime);
+        activityArrays.update(index);
+        activityArrays.setTimes(index, arrTime, endTime);
+    }
+
     public Iterator<TourActivity> iterator() {
         final Iterator<TourActivity> iterator = tourActivities.iterator();
         return new Iterator<TourActivity>() {
             private TourActivity lastReturned = null;
 
+            private int lastReturnedIndex = -1;
+
             @Override
             public boolean hasNext() {
                 return iterator.hasNext();
@@ -99,6 +132,7 @@ public class TourActivities {
 
             @Override
             public TourActivity next() {
+                lastReturnedIndex++;
                 return lastReturned = iterator.next();
             }
 
@@ -109,6 +143,9 @@ public class TourActivities {
                         + "Use TourActivities.removeActivity(), or alternatively, consider TourActivities.removeJob()");
                 } else {
                     iterator.remove();
+                    activityArrays.remove(lastReturnedIndex);
+                    lastReturnedIndex--;
+                    modificationCount++;
                 }
             }
         };
@@ -151,18 +188,20 @@ public class TourActivities {
             jobRemoved = jobs.remove(job);
         }
         boolean activityRemoved = false;
-        Iterator<TourActivity> iterator = tourActivities.iterator();
-        while (iterator.hasNext()) {
-            TourActivity c = iterator.next();
+        for (int i = 0; i < tourActivities.size(); i++) {
+            TourActivity c = tourActivities.get(i);
             if (c instanceof JobActivity) {
                 Job underlyingJob = ((JobActivity) c).getJob();
                 if (job.equals(underlyingJob)) {
-                    iterator.remove();
+                    tourActivities.remove(i);
+                    activityArrays.remove(i);
+                    i--;
                     activityRemoved = true;
                 }
             }
         }
         assert jobRemoved == activityRemoved : "job removed, but belonging activity not.";
+        modificationCount++;
         return activityRemoved;
     }
 
@@ -178,15 +217,23 @@ public class TourActivities {
     public boolean removeActivity(TourActivity activity) {
         if (!(activity instanceof JobActivity)) {
             //assumes that an activity can be added only once to tourActivities
-            return tourActivities.remove(activity);
+            int index = tourActivities.indexOf(activity);
+            if (index < 0) return false;
+            tourActivities.remove(index);
+            activityArrays.remove(index);
+            modificationCount++;
+            return true;
         }
 
         Job job = ((JobActivity) activity).getJob();
         boolean jobIsAlsoAssociateToOtherActs = false;
         boolean actRemoved = false;
+        int index = 0;
         for (TourActivity act : new ArrayList<>(tourActivities)) {
             if (act == activity) {
-                tourActivities.remove(act);
+                tourActivities.remove(index);
+                activityArrays.remove(index);
+                modificationCount++;
                 if (jobIsAlsoAssociateToOtherActs) {
                     // other activities also refer to job --> do not remove job
                     // thus no need to iterate any further
@@ -202,6 +249,7 @@ public class TourActivities {
                     }
                     jobIsAlsoAssociateToOtherActs = true;
                 }
+                index++;
             }
         }
         if (actRemoved) {
@@ -234,10 +282,13 @@ public class TourActivities {
 		 */
         if (insertionIndex < tourActivities.size()) {
             tourActivities.add(insertionIndex, act);
+            activityArrays.add(insertionIndex, act);
         } else if (insertionIndex >= tourActivities.size()) {
+            activityArrays.add(tourActivities.size(), act);
             tourActivities.add(act);
         }
         addJob(act);
+        modificationCount++;
     }
 
     /**
@@ -250,8 +301,10 @@ public class TourActivities {
     public void addActivity(TourActivity act) {
         if (tourActivities.contains(act))
             throw new IllegalArgumentException("act " + act + " already in tour. cannot add act twice.");
+        activityArrays.add(tourActivities.size(), act);
         tourActivities.add(act);
         addJob(act);
+        modificationCount++;
     }
 
     private void addJob(TourActivity act) {
@@ -271,6 +324,16 @@ public class TourActivities {
         return jobs.size();
     }
 
+    /**
+     * Returns the number of structural modifications, i.e. activities added or removed, since this activity sequence
+     * has been created. Comparing it to an earlier value tells whether the sequence has been changed in between.
+     *
+     * @return no. of modifications
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
     public Iterator<TourActivity> reverseActivityIterator() {
         if (backward == null) backward = new ReverseActivityIterator(tourActivities);
         else backward.reset();
@@ -0,0 +1,208 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.problem.solution.route.activity;
+
+import com.graphhopper.jsprit.core.problem.Location;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays mirror of the activity sequence of {@link TourActivities}.
+ * <p>
+ * <p>It memorizes location, time window, arrival and end time of each activity in arrays that are aligned with the
+ * activity sequence, i.e. the value at index i belongs to the i-th activity. Thus insertion calculators and state
+ * updaters can walk a route by index and read these values sequentially instead of dereferencing each activity.
+ * <p>
+ * <p>It is kept in sync by {@link TourActivities} whenever activities are added or removed. Location and time window
+ * are taken over when an activity is added, and again whenever its times are updated with
+ * {@link TourActivities#setActivityTimes(int, double, double)}, as {@link com.graphhopper.jsprit.core.algorithm.state.UpdateActivityTimes}
+ * does. Thus the arrays are as up to date as the states of the route.
+ */
+public final class TourActivityArrays {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private TourActivity[] activities = new TourActivity[INITIAL_CAPACITY];
+
+    private Location[] locations = new Location[INITIAL_CAPACITY];
+
+    private double[] earliestOperationStartTimes = new double[INITIAL_CAPACITY];
+
+    private double[] latestOperationStartTimes = new double[INITIAL_CAPACITY];
+
+    private double[] arrTimes = new double[INITIAL_CAPACITY];
+
+    private double[] endTimes = new double[INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    TourActivityArrays() {
+    }
+
+    void add(int index, TourActivity activity) {
+        if (size == activities.length) grow();
+        if (index < size) {
+            int noMoved = size - index;
+            System.arraycopy(activities, index, activities, index + 1, noMoved);
+            System.arraycopy(locations, index, locations, index + 1, noMoved);
+            System.arraycopy(earliestOperationStartTimes, index, earliestOperationStartTimes, index + 1, noMoved);
+            System.arraycopy(latestOperationStartTimes, index, latestOperationStartTimes, index + 1, noMoved);
+            System.arraycopy(arrTimes, index, arrTimes, index + 1, noMoved);
+            System.arraycopy(endTimes, index, endTimes, index + 1, noMoved);
+        }
+        activities[index] = activity;
+        size++;
+        update(index);
+        if (activity != null) setTimes(index, activity.getArrTime(), activity.getEndTime());
+    }
+
+    void remove(int index) {
+        int noMoved = size - index - 1;
+        if (noMoved > 0) {
+            System.arraycopy(activities, index + 1, activities, index, noMoved);
+            System.arraycopy(locations, index + 1, locations, index, noMoved);
+            System.arraycopy(earliestOperationStartTimes, index + 1, earliestOperationStartTimes, index, noMoved);
+            System.arraycopy(latestOperationStartTimes, index + 1, latestOperationStartTimes, index, noMoved);
+            System.arraycopy(arrTimes, index + 1, arrTimes, index, noMoved);
+            System.arraycopy(endTimes, index + 1, endTimes, index, noMoved);
+        }
+        size--;
+        activities[size] = null;
+        locations[size] = null;
+    }
+
+    /**
+     * Takes over location and time window of the activity at the specified index.
+     */
+    void update(int index) {
+        TourActivity activity = activities[index];
+        if (activity == null) {
+            locations[index] = null;
+            earliestOperationStartTimes[index] = 0.;
+            latestOperationStartTimes[index] = Double.MAX_VALUE;
+            arrTimes[index] = 0.;
+            endTimes[index] = 0.;
+            return;
+        }
+        locations[index] = activity.getLocation();
+        earliestOperationStartTimes[index] = activity.getTheoreticalEarliestOperationStartTime();
+        latestOperationStartTimes[index] = activity.getTheoreticalLatestOperationStartTime();
+    }
+
+    void setTimes(int index, double arrTime, double endTime) {
+        arrTimes[index] = arrTime;
+        endTimes[index] = endTime;
+    }
+
+    private void grow() {
+        int capacity = 2 * activities.length;
+        activities = Arrays.copyOf(activities, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        earliestOperationStartTimes = Arrays.copyOf(earliestOperationStartTimes, capacity);
+        latestOperationStartTimes = Arrays.copyOf(latestOperationStartTimes, capacity);
+        arrTimes = Arrays.copyOf(arrTimes, capacity);
+        endTimes = Arrays.copyOf(endTimes, capacity);
+    }
+
+    /**
+     * Returns the number of activities.
+     *
+     * @return no. of activities
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the activity at the specified index.
+     *
+     * @param index index of the activity in the activity sequence
+     * @return the activity
+     */
+    public TourActivity getActivity(int index) {
+        assert index < size : "index " + index + " >= size " + size;
+        return activities[index];
+    }
+
+    /**
+     * Returns whether the specified activity is at the specified index, e.g. to check whether a visitor that counts
+     * the activities it visits can read the values of the visited activity by index.
+     *
+     * @param index    index in the activity sequence, might be out of range
+     * @param activity the activity
+     * @return true if the activity is at the index
+     */
+    public boolean isAt(int index, TourActivity activity) {
+        return index >= 0 && index < size && activities[index] == activity;
+    }
+
+    /**
+     * Returns the index of the specified activity, or -1 if it is not part of the activity sequence. Activities are
+     * compared by identity.
+     *
+     * @param activity the activity to look up
+     * @return index of the activity or -1
+     */
+    public int indexOf(TourActivity activity) {
+        for (int i = 0; i < size; i++) {
+            if (activities[i] == activity) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the location of the activity at the specified index.
+     */
+    public Location getLocation(int index) {
+        assert index < size : "index " + index + " >= size " + size;
+        return locations[index];
+    }
+
+    /**
+     * Returns the theoretical earliest operation start time of the activity at the specified index.
+     */
+    public double getEarliestOperationStartTime(int index) {
+        assert index < size : "index " + index + " >= size " + size;
+        return earliestOperationStartTimes[index];
+    }
+
+    /**
+     * Returns the theoretical latest operation start time of the activity at the specified index.
+     */
+    public double getLatestOperationStartTime(int index) {
+        assert index < size : "index " + index + " >= size " + size;
+        return latestOperationStartTimes[index];
+    }
+
+    /**
+     * Returns the arrival time at the activity at the specified index as of the last time update.
+     */
+    public double getArrTime(int index) {
+        assert index < size : "index " + index + " >= size " + size;
+        return arrTimes[index];
+    }
+
+    /**
+     * Returns the end time of the activity at the specified index as of the last time update.
+     */
+    public double getEndTime(int index) {
+        assert index < size : "index " + index + " >= size " + size;
+        return endTimes[index];
+    }
+
+}
@@ -33,4 +33,32 @@ public interface RouteAndActivityStateGetter {
 
     public <T> T getRouteState(VehicleRoute route, Vehicle vehicle, StateId stateId, Class<T> type);
 
+    /**
+     * Returns the double state of the activity or <code>defaultValue</code> if there is none. Implementations that
+     * memorize primitive states override this to avoid boxing.
+     */
+    default double getActivityDoubleState(TourActivity act, StateId stateId, double defaultValue) {
+        Double state = getActivityState(act, stateId, Double.class);
+        if (state == null) return defaultValue;
+        return state;
+    }
+
+    default double getActivityDoubleState(TourActivity act, Vehicle vehicle, StateId stateId, double defaultValue) {
+        Double state = getActivityState(act, vehicle, stateId, Double.class);
+        if (state == null) return defaultValue;
+        return state;
+    }
+
+    default int getActivityIntState(TourActivity act, StateId stateId, int defaultValue) {
+        Integer state = getActivityState(act, stateId, Integer.class);
+        if (state == null) return defaultValue;
+        return state;
+    }
+
+    default int getActivityIntState(TourActivity act, Vehicle vehicle, StateId stateId, int defaultValue) {
+        Integer state = getActivityState(act, vehicle, stateId, Integer.class);
+        if (state == null) return defaultValue;
+        return state;
+    }
+
 }
@@ -72,7 +72,17 @@ public class ActivityTimeTracker implements ActivityVisitor {
 
     @Override
     public void begin(VehicleRoute route) {
-        prevAct = route.getStart();
+        begin(route, route.getStart());
+    }
+
+    /**
+     * Begins tracking times right after prevAct, i.e. starting from the end time already memorized at prevAct.
+     *
+     * @param route   the route to be tracked
+     * @param prevAct the activity whose end time is the starting point
+     */
+    public void begin(VehicleRoute route, TourActivity prevAct) {
+        this.prevAct = prevAct;
         startAtPrevAct = prevAct.getEndTime();
         actEndTime = startAtPrevAct;
         this.route = route;
@@ -0,0 +1,166 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor service that runs its tasks on a shared executor, e.g. a global {@link java.util.concurrent.ForkJoinPool}
+ * or a virtual-thread executor, with at most maxConcurrency of its tasks running at the same time.
+ * <p>
+ * <p>It does not create threads. Tasks are queued and run by at most maxConcurrency workers submitted to the shared
+ * executor, a worker running queued tasks until the queue is empty. Thus many algorithms can share one executor with
+ * a concurrency limit each. Shutting it down does not shut down the shared executor.
+ * <p>
+ * <p>Note that callers block on the results of their tasks, thus algorithms should not run on a bounded pool that
+ * also runs their tasks.
+ */
+public class BoundedExecutorService extends AbstractExecutorService {
+
+    private final Executor executor;
+
+    private final int maxConcurrency;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger noWorkers = new AtomicInteger();
+
+    /**
+     * number of queued tasks no worker has taken yet, might be less than the queue size while a task is being queued
+     */
+    private final AtomicInteger noPendingTasks = new AtomicInteger();
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param executor       the shared executor running the tasks
+     * @param maxConcurrency max. number of tasks running at the same time
+     */
+    public BoundedExecutorService(Executor executor, int maxConcurrency) {
+        if (executor == null) throw new IllegalArgumentException("executor must not be null");
+        if (maxConcurrency < 1) throw new IllegalArgumentException("max. concurrency must be at least 1");
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) throw new NullPointerException();
+        if (shutdown) throw new RejectedExecutionException("executor service has been shut down");
+        tasks.add(command);
+        noPendingTasks.incrementAndGet();
+        startWorkers();
+    }
+
+    /**
+     * Starts workers until there is one per pending task or maxConcurrency workers, since a worker that has just been
+     * started has usually not taken a task yet.
+     */
+    private void startWorkers() {
+        while (true) {
+            int workers = noWorkers.get();
+            if (workers >= Math.min(maxConcurrency, noPendingTasks.get())) return;
+            if (!noWorkers.compareAndSet(workers, workers + 1)) continue;
+            try {
+                executor.execute(this::work);
+            } catch (RejectedExecutionException e) {
+                workerEnds();
+                throw e;
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                noPendingTasks.decrementAndGet();
+                task.run();
+            }
+        } finally {
+            workerEnds();
+            // a task might have been queued while this worker was about to end
+            if (noPendingTasks.get() > 0) startWorkers();
+        }
+    }
+
+    private void workerEnds() {
+        if (noWorkers.decrementAndGet() == 0 && shutdown) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> notExecuted = new ArrayList<>();
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            noPendingTasks.decrementAndGet();
+            notExecuted.add(task);
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+        return notExecuted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && tasks.isEmpty() && noWorkers.get() == 0;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+}
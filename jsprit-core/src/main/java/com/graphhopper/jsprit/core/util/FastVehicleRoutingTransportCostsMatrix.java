@@ -28,11 +28,41 @@ import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
  * CostMatrix that allows pre-compiled time and distance-matrices to be considered as {@link com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts}
  * in the {@link com.graphhopper.jsprit.core.problem.VehicleRoutingProblem}.
  * <p>Note that you can also use it with distance matrix only (or time matrix).
+ * <p>
+ * <p>By default, values are stored as double. For large matrices they can be stored as float or as int with a scale factor
+ * (see {@link Precision}) in flat arrays instead, which takes a half or a quarter of the memory and makes lookups more
+ * cache friendly at the expense of precision.
+ * <p>
+ * <p>Symmetric matrices only store the upper triangle (including the diagonal), packed row by row into a single flat array
+ * in which distance and time of a relation follow each other. This takes half of the memory of a full matrix.
  *
  * @author schroeder
  */
 public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts {
 
+    /**
+     * Precision the values are stored with.
+     */
+    public enum Precision {
+
+        /**
+         * Values are stored as they are.
+         */
+        DOUBLE,
+
+        /**
+         * Values are stored as float, i.e. with a relative error of at most 2^-24.
+         */
+        FLOAT,
+
+        /**
+         * Values are multiplied by a scale factor and stored as rounded int, i.e. with an absolute error of at most
+         * 0.5/scale. Values must not exceed Integer.MAX_VALUE/scale.
+         */
+        INT
+
+    }
+
     /**
      * Builder that builds the matrix.
      *
@@ -46,6 +76,16 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
 
         private final int noLocations;
 
+        private final Precision precision;
+
+        private final double scale;
+
+        private double[] doubleValues;
+
+        private float[] floatValues;
+
+        private int[] intValues;
+
         /**
          * Creates a new builder returning the matrix-builder.
          * <p>If you want to consider symmetric matrices, set isSymmetric to true.
@@ -54,13 +94,50 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
          * @return builder
          */
         public static Builder newInstance(int noLocations, boolean isSymmetric) {
-            return new Builder(noLocations, isSymmetric);
+            return new Builder(noLocations, isSymmetric, Precision.DOUBLE, 1.);
         }
 
-        private Builder(int noLocations, boolean isSymmetric) {
+        /**
+         * Creates a new builder of a matrix that stores values with the specified precision. Values stored as int are not
+         * scaled.
+         *
+         * @param noLocations no. of locations
+         * @param isSymmetric true if matrix is symmetric, false otherwise
+         * @param precision   precision of values
+         * @return builder
+         */
+        public static Builder newInstance(int noLocations, boolean isSymmetric, Precision precision) {
+            return new Builder(noLocations, isSymmetric, precision, 1.);
+        }
+
+        /**
+         * Creates a new builder of a matrix that stores values as int after multiplying them with the specified scale
+         * factor, e.g. a scale of 10 memorizes tenths.
+         *
+         * @param noLocations no. of locations
+         * @param isSymmetric true if matrix is symmetric, false otherwise
+         * @param scale       scale factor
+         * @return builder
+         */
+        public static Builder newIntInstance(int noLocations, boolean isSymmetric, double scale) {
+            return new Builder(noLocations, isSymmetric, Precision.INT, scale);
+        }
+
+        private Builder(int noLocations, boolean isSymmetric, Precision precision, double scale) {
+            if (!(scale > 0)) throw new IllegalArgumentException("scale must be positive");
             this.isSymmetric = isSymmetric;
-            matrix = new double[noLocations][noLocations][2];
             this.noLocations = noLocations;
+            this.precision = precision;
+            this.scale = scale;
+            if (precision == Precision.DOUBLE && !isSymmetric) {
+                matrix = new double[noLocations][noLocations][2];
+                return;
+            }
+            long noRelations = isSymmetric ? (long) noLocations * (noLocations + 1) / 2 : (long) noLocations * noLocations;
+            if (2 * noRelations > Integer.MAX_VALUE) throw new IllegalArgumentException("too many locations: " + noLocations);
+            if (precision == Precision.DOUBLE) doubleValues = new double[(int) (2 * noRelations)];
+            else if (precision == Precision.FLOAT) floatValues = new float[(int) (2 * noRelations)];
+            else intValues = new int[(int) (2 * noRelations)];
         }
 
         /**
@@ -77,10 +154,19 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
         }
 
         private void add(int fromIndex, int toIndex, int indicatorIndex, double value) {
-            if (isSymmetric) {
-                if (fromIndex < toIndex) matrix[fromIndex][toIndex][indicatorIndex] = value;
-                else matrix[toIndex][fromIndex][indicatorIndex] = value;
-            } else matrix[fromIndex][toIndex][indicatorIndex] = value;
+            if (matrix != null) {
+                matrix[fromIndex][toIndex][indicatorIndex] = value;
+                return;
+            }
+            int index = 2 * relationIndex(fromIndex, toIndex, noLocations, isSymmetric) + indicatorIndex;
+            if (doubleValues != null) doubleValues[index] = value;
+            else if (floatValues != null) floatValues[index] = (float) value;
+            else {
+                double scaled = Math.rint(value * scale);
+                if (Math.abs(scaled) > Integer.MAX_VALUE)
+                    throw new IllegalArgumentException("value " + value + " cannot be stored as int with scale " + scale);
+                intValues[index] = (int) scaled;
+            }
         }
 
         /**
@@ -119,19 +205,66 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
 
     private int noLocations;
 
+    private final Precision precision;
+
+    private final double inverseScale;
+
+    private final double[] doubleValues;
+
+    private final float[] floatValues;
+
+    private final int[] intValues;
+
     private FastVehicleRoutingTransportCostsMatrix(Builder builder) {
         this.isSymmetric = builder.isSymmetric;
         matrix = builder.matrix;
         noLocations = builder.noLocations;
+        precision = builder.precision;
+        inverseScale = 1. / builder.scale;
+        doubleValues = builder.doubleValues;
+        floatValues = builder.floatValues;
+        intValues = builder.intValues;
+    }
+
+    /**
+     * Returns the index of relation (from,to) in the flat arrays. Relations of asymmetric matrices are ordered by from and
+     * then by to. Symmetric matrices only contain relations with from &le; to, packed row by row, i.e. row i starts at
+     * i*n - i*(i-1)/2.
+     */
+    private static int relationIndex(int from, int to, int noLocations, boolean isSymmetric) {
+        if (!isSymmetric) return from * noLocations + to;
+        if (from > to) {
+            int tmp = from;
+            from = to;
+            to = tmp;
+        }
+        return (int) ((long) from * (2 * noLocations - from - 1) / 2) + to;
     }
 
     /**
      * First dim is from, second to and third indicates whether it is a distance value (index=0) or time value (index=1).
+     * <p>
+     * <p>Symmetric matrices are stored as packed triangle, thus for them this array is created on each call and only
+     * its upper triangle (from &le; to) is filled.
      *
      * @return
+     * @throws IllegalStateException if values are not stored as double
      */
     public double[][][] getMatrix() {
-        return matrix;
+        if (matrix != null) return matrix;
+        if (doubleValues == null) throw new IllegalStateException("values are stored with precision " + precision + ", not as double[][][]");
+        double[][][] unpacked = new double[noLocations][noLocations][2];
+        for (int from = 0; from < noLocations; from++) {
+            for (int to = from; to < noLocations; to++) {
+                unpacked[from][to][0] = get(from, to, 0);
+                unpacked[from][to][1] = get(from, to, 1);
+            }
+        }
+        return unpacked;
+    }
+
+    public Precision getPrecision() {
+        return precision;
     }
 
     @Override
@@ -143,14 +276,11 @@ public class FastVehicleRoutingTransportCostsMatrix extends AbstractForwardVehic
     }
 
     private double get(int from, int to, int indicatorIndex) {
-        double value;
-        if (isSymmetric) {
-            if (from < to) value = matrix[from][to][indicatorIndex];
-            else value = matrix[to][from][indicatorIndex];
-        } else {
-            value = matrix[from][to][indicatorIndex];
-        }
-        return value;
+        if (matrix != null) return matrix[from][to][indicatorIndex];
+        int index = 2 * relationIndex(from, to, noLocations, isSymmetric) + indicatorIndex;
+        if (doubleValues != null) return doubleValues[index];
+        if (floatValues != null) return floatValues[index];
+        return intValues[index] * inverseScale;
     }
 
     /**
@@ -0,0 +1,338 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Asymmetric time and distance matrix stored in flat, row-major buffers outside the java heap.
+ * <p>
+ * <p>In contrast to {@link FastVehicleRoutingTransportCostsMatrix}, which allocates one small array per relation,
+ * values are stored contiguously: for each relation (from,to) distance and time follow each other, and relations
+ * are ordered by from and then by to. Values can be stored as double or, to halve memory, as float.
+ * <p>
+ * <p>The matrix can be written to a binary file with {@link #writeTo(File)}, and be loaded with {@link #read(File)}
+ * or memory-mapped with {@link #map(File)}. A mapped matrix is paged in by the operating system on demand and
+ * shared between all JVMs on the same host that map the same file.
+ * <p>
+ * <p>Since a single buffer cannot exceed 2GB, large matrices are split into several buffers of whole rows.
+ */
+public class FlatVehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRoutingTransportCosts {
+
+    /**
+     * Precision the values are stored with.
+     */
+    public enum Precision {
+
+        DOUBLE(8), FLOAT(4);
+
+        private final int bytes;
+
+        Precision(int bytes) {
+            this.bytes = bytes;
+        }
+
+        int getBytes() {
+            return bytes;
+        }
+
+    }
+
+    /**
+     * Builder that builds the matrix in direct (off-heap) memory.
+     */
+    public static class Builder {
+
+        /**
+         * Creates a new builder of a matrix storing double values.
+         *
+         * @param noLocations no. of locations
+         * @return builder
+         */
+        public static Builder newInstance(int noLocations) {
+            return new Builder(noLocations, Precision.DOUBLE);
+        }
+
+        /**
+         * Creates a new builder of a matrix storing values with the specified precision.
+         *
+         * @param noLocations no. of locations
+         * @param precision   precision of values
+         * @return builder
+         */
+        public static Builder newInstance(int noLocations, Precision precision) {
+            return new Builder(noLocations, precision);
+        }
+
+        private final FlatVehicleRoutingTransportCostsMatrix matrix;
+
+        private Builder(int noLocations, Precision precision) {
+            if (noLocations < 1) throw new IllegalArgumentException("number of locations must be at least 1");
+            matrix = new FlatVehicleRoutingTransportCostsMatrix(noLocations, precision);
+            for (int i = 0; i < matrix.buffers.length; i++) {
+                matrix.buffers[i] = ByteBuffer.allocateDirect(matrix.getBufferSize(i));
+            }
+        }
+
+        /**
+         * Adds a transport-distance for a particular relation.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param distance  the distance to be added
+         * @return builder
+         */
+        public Builder addTransportDistance(int fromIndex, int toIndex, double distance) {
+            matrix.put(fromIndex, toIndex, DISTANCE, distance);
+            return this;
+        }
+
+        /**
+         * Adds transport-time for a particular relation.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param time      the time to be added
+         * @return builder
+         */
+        public Builder addTransportTime(int fromIndex, int toIndex, double time) {
+            matrix.put(fromIndex, toIndex, TIME, time);
+            return this;
+        }
+
+        public Builder addTransportTimeAndDistance(int fromIndex, int toIndex, double time, double distance) {
+            addTransportTime(fromIndex, toIndex, time);
+            addTransportDistance(fromIndex, toIndex, distance);
+            return this;
+        }
+
+        /**
+         * Builds the matrix.
+         *
+         * @return matrix
+         */
+        public FlatVehicleRoutingTransportCostsMatrix build() {
+            return matrix;
+        }
+
+    }
+
+    private static final int MAGIC = 0x4a53504d;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int DISTANCE = 0;
+
+    private static final int TIME = 1;
+
+    /**
+     * Reads a matrix written by {@link #writeTo(File)} into direct memory.
+     *
+     * @param file the matrix file
+     * @return matrix
+     * @throws IOException if the file cannot be read or is not a matrix file
+     */
+    public static FlatVehicleRoutingTransportCostsMatrix read(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            FlatVehicleRoutingTransportCostsMatrix matrix = readHeader(channel);
+            for (int i = 0; i < matrix.buffers.length; i++) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(matrix.getBufferSize(i));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) throw new IOException("unexpected end of matrix file " + file);
+                }
+                matrix.buffers[i] = buffer;
+            }
+            return matrix;
+        }
+    }
+
+    /**
+     * Maps a matrix written by {@link #writeTo(File)} read-only into memory.
+     *
+     * @param file the matrix file
+     * @return matrix
+     * @throws IOException if the file cannot be mapped or is not a matrix file
+     */
+    public static FlatVehicleRoutingTransportCostsMatrix map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            FlatVehicleRoutingTransportCostsMatrix matrix = readHeader(channel);
+            long position = HEADER_SIZE;
+            for (int i = 0; i < matrix.buffers.length; i++) {
+                int size = matrix.getBufferSize(i);
+                if (position + size > channel.size()) throw new IOException("unexpected end of matrix file " + file);
+                matrix.buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                position += size;
+            }
+            return matrix;
+        }
+    }
+
+    private static FlatVehicleRoutingTransportCostsMatrix readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) throw new IOException("matrix file too short");
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) throw new IOException("not a matrix file");
+        int version = header.getInt();
+        if (version != VERSION) throw new IOException("unsupported matrix file version " + version);
+        int noLocations = header.getInt();
+        int bytes = header.getInt();
+        Precision precision;
+        if (bytes == Precision.DOUBLE.getBytes()) precision = Precision.DOUBLE;
+        else if (bytes == Precision.FLOAT.getBytes()) precision = Precision.FLOAT;
+        else throw new IOException("unsupported value size " + bytes);
+        if (noLocations <= 0) throw new IOException("invalid number of locations " + noLocations);
+        if ((long) noLocations * 2 * bytes > Integer.MAX_VALUE) throw new IOException("too many locations " + noLocations);
+        long expectedSize = HEADER_SIZE + (long) noLocations * noLocations * 2 * bytes;
+        if (channel.size() != expectedSize)
+            throw new IOException("matrix file has " + channel.size() + " bytes, but " + expectedSize + " bytes are expected for " + noLocations + " locations");
+        return new FlatVehicleRoutingTransportCostsMatrix(noLocations, precision);
+    }
+
+    private final int noLocations;
+
+    private final Precision precision;
+
+    private final int rowsPerBuffer;
+
+    private final ByteBuffer[] buffers;
+
+    private FlatVehicleRoutingTransportCostsMatrix(int noLocations, Precision precision) {
+        this.noLocations = noLocations;
+        this.precision = precision;
+        long rowSize = (long) noLocations * 2 * precision.getBytes();
+        if (rowSize > Integer.MAX_VALUE) throw new IllegalArgumentException("too many locations: " + noLocations);
+        this.rowsPerBuffer = (int) Math.min(noLocations, Integer.MAX_VALUE / rowSize);
+        this.buffers = new ByteBuffer[(noLocations + rowsPerBuffer - 1) / rowsPerBuffer];
+    }
+
+    private int getBufferSize(int bufferIndex) {
+        int rows = Math.min(rowsPerBuffer, noLocations - bufferIndex * rowsPerBuffer);
+        return rows * noLocations * 2 * precision.getBytes();
+    }
+
+    private int offset(int from, int to, int indicatorIndex) {
+        return (((from % rowsPerBuffer) * noLocations + to) * 2 + indicatorIndex) * precision.getBytes();
+    }
+
+    private void put(int from, int to, int indicatorIndex, double value) {
+        ByteBuffer buffer = buffers[from / rowsPerBuffer];
+        if (precision == Precision.DOUBLE) buffer.putDouble(offset(from, to, indicatorIndex), value);
+        else buffer.putFloat(offset(from, to, indicatorIndex), (float) value);
+    }
+
+    private double get(int from, int to, int indicatorIndex) {
+        if (from < 0 || from >= noLocations || to < 0 || to >= noLocations)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " is not in [0," + noLocations + ")");
+        ByteBuffer buffer = buffers[from / rowsPerBuffer];
+        if (precision == Precision.DOUBLE) return buffer.getDouble(offset(from, to, indicatorIndex));
+        return buffer.getFloat(offset(from, to, indicatorIndex));
+    }
+
+    /**
+     * Writes the matrix to a binary file that can be loaded with {@link #read(File)} or {@link #map(File)}.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(noLocations).putInt(precision.getBytes());
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+            for (ByteBuffer buffer : buffers) {
+                ByteBuffer source = buffer.duplicate();
+                source.clear();
+                while (source.hasRemaining()) channel.write(source);
+            }
+        }
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        return getTransportTime(from.getIndex(), to.getIndex());
+    }
+
+    /**
+     * Returns the transport time from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the transport time
+     */
+    public double getTransportTime(int fromIndex, int toIndex) {
+        return get(fromIndex, toIndex, TIME);
+    }
+
+    /**
+     * Returns the distance from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the distance
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        return get(fromIndex, toIndex, DISTANCE);
+    }
+
+    @Override
+    public double getDistance(Location from, Location to, double departureTime, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        return getDistance(from.getIndex(), to.getIndex());
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+        if (vehicle == null) return getDistance(from.getIndex(), to.getIndex());
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * getDistance(from.getIndex(), to.getIndex()) + costParams.perTransportTimeUnit * getTransportTime(from.getIndex(), to.getIndex());
+    }
+
+    public int getNoLocations() {
+        return noLocations;
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
+import com.graphhopper.jsprit.core.problem.driver.Driver;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+
+
+/**
+ * Asymmetric matrix of time-dependent transport times (and time-independent distances).
+ * <p>
+ * <p>The planning horizon is divided into time slices of equal length. For each relation (from,to) and each slice k the
+ * matrix memorizes the transport time when departing at the beginning of slice k, i.e. at <code>k * timeSliceLength</code>.
+ * In between, transport times are interpolated linearly, before the first slice and after the last one they are constant.
+ * All transport times are stored in one flat array in which the slices of a relation are contiguous, thus a lookup costs
+ * two array reads.
+ * <p>
+ * <p>Transport times must satisfy the FIFO property, i.e. departing later must never result in arriving earlier. With
+ * linear interpolation this is the case if the transport time does not decrease by more than the slice length from one
+ * slice to the next, which is checked when building the matrix. Since arrival times are non-decreasing, the backward
+ * transport time for a given arrival time can be calculated by inverting the piecewise linear arrival function.
+ */
+public class TimeDependentVehicleRoutingTransportCostsMatrix implements VehicleRoutingTransportCosts {
+
+    /**
+     * Builder that builds the matrix.
+     */
+    public static class Builder {
+
+        /**
+         * Creates a new builder.
+         *
+         * @param noLocations     no. of locations
+         * @param noTimeSlices    no. of time slices
+         * @param timeSliceLength length of a time slice
+         * @return builder
+         */
+        public static Builder newInstance(int noLocations, int noTimeSlices, double timeSliceLength) {
+            return new Builder(noLocations, noTimeSlices, timeSliceLength);
+        }
+
+        private final TimeDependentVehicleRoutingTransportCostsMatrix matrix;
+
+        private Builder(int noLocations, int noTimeSlices, double timeSliceLength) {
+            if (noLocations < 1) throw new IllegalArgumentException("number of locations must be at least 1");
+            if (noTimeSlices < 1) throw new IllegalArgumentException("number of time slices must be at least 1");
+            if (!(timeSliceLength > 0)) throw new IllegalArgumentException("time slice length must be positive");
+            matrix = new TimeDependentVehicleRoutingTransportCostsMatrix(noLocations, noTimeSlices, timeSliceLength);
+        }
+
+        /**
+         * Adds a transport-distance for a particular relation.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param distance  the distance to be added
+         * @return builder
+         */
+        public Builder addTransportDistance(int fromIndex, int toIndex, double distance) {
+            matrix.distances[fromIndex * matrix.noLocations + toIndex] = distance;
+            return this;
+        }
+
+        /**
+         * Adds the transport-time for a particular relation when departing at the beginning of the specified time slice.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param timeSlice index of time slice
+         * @param time      the time to be added
+         * @return builder
+         */
+        public Builder addTransportTime(int fromIndex, int toIndex, int timeSlice, double time) {
+            if (timeSlice < 0 || timeSlice >= matrix.noTimeSlices)
+                throw new IllegalArgumentException("time slice " + timeSlice + " out of range [0," + matrix.noTimeSlices + ")");
+            matrix.times[matrix.base(fromIndex, toIndex) + timeSlice] = time;
+            return this;
+        }
+
+        /**
+         * Adds the transport-times of all time slices for a particular relation.
+         *
+         * @param fromIndex from location index
+         * @param toIndex   to location index
+         * @param times     the times to be added, one per time slice
+         * @return builder
+         */
+        public Builder addTransportTimes(int fromIndex, int toIndex, double... times) {
+            if (times.length != matrix.noTimeSlices)
+                throw new IllegalArgumentException("expected " + matrix.noTimeSlices + " times, but got " + times.length);
+            System.arraycopy(times, 0, matrix.times, matrix.base(fromIndex, toIndex), times.length);
+            return this;
+        }
+
+        /**
+         * Builds the matrix.
+         *
+         * @return matrix
+         * @throws IllegalArgumentException if transport times of a relation violate the FIFO property
+         */
+        public TimeDependentVehicleRoutingTransportCostsMatrix build() {
+            int noSlices = matrix.noTimeSlices;
+            double sliceLength = matrix.timeSliceLength;
+            for (int from = 0; from < matrix.noLocations; from++) {
+                for (int to = 0; to < matrix.noLocations; to++) {
+                    int base = matrix.base(from, to);
+                    for (int k = 0; k + 1 < noSlices; k++) {
+                        if (matrix.times[base + k + 1] - matrix.times[base + k] < -sliceLength) {
+                            throw new IllegalArgumentException("transport times from " + from + " to " + to + " violate FIFO: "
+                                + "departing at the beginning of time slice " + (k + 1) + " arrives earlier than departing at the beginning of time slice " + k);
+                        }
+                    }
+                }
+            }
+            return matrix;
+        }
+
+    }
+
+    private final int noLocations;
+
+    private final int noTimeSlices;
+
+    private final double timeSliceLength;
+
+    private final double[] times;
+
+    private final double[] distances;
+
+    private TimeDependentVehicleRoutingTransportCostsMatrix(int noLocations, int noTimeSlices, double timeSliceLength) {
+        long noTimes = (long) noLocations * noLocations * noTimeSlices;
+        if (noTimes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many locations and time slices: " + noLocations + " x " + noLocations + " x " + noTimeSlices);
+        this.noLocations = noLocations;
+        this.noTimeSlices = noTimeSlices;
+        this.timeSliceLength = timeSliceLength;
+        this.times = new double[(int) noTimes];
+        this.distances = new double[noLocations * noLocations];
+    }
+
+    private int base(int fromIndex, int toIndex) {
+        return (fromIndex * noLocations + toIndex) * noTimeSlices;
+    }
+
+    /**
+     * Returns the transport time from to to when departing at the specified time.
+     *
+     * @param fromIndex     from location index
+     * @param toIndex       to location index
+     * @param departureTime departure time at from
+     * @return the transport time
+     */
+    public double getTransportTime(int fromIndex, int toIndex, double departureTime) {
+        int base = base(fromIndex, toIndex);
+        double position = departureTime / timeSliceLength;
+        if (!(position > 0)) return times[base];
+        if (position >= noTimeSlices - 1) return times[base + noTimeSlices - 1];
+        int k = (int) position;
+        double timeAtK = times[base + k];
+        return timeAtK + (position - k) * (times[base + k + 1] - timeAtK);
+    }
+
+    /**
+     * Returns the transport time from to to when arriving at to at the specified time, i.e. the time t such that
+     * departing at <code>arrivalTime - t</code> arrives at arrivalTime.
+     *
+     * @param fromIndex   from location index
+     * @param toIndex     to location index
+     * @param arrivalTime arrival time at to
+     * @return the transport time
+     */
+    public double getBackwardTransportTime(int fromIndex, int toIndex, double arrivalTime) {
+        int base = base(fromIndex, toIndex);
+        if (arrivalTime <= times[base]) return times[base];
+        int last = noTimeSlices - 1;
+        if (arrivalTime >= last * timeSliceLength + times[base + last]) return times[base + last];
+        // arrival times at slice starts are non-decreasing (FIFO), find k with arrival(k) <= arrivalTime < arrival(k+1)
+        int lo = 0;
+        int hi = last;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (mid * timeSliceLength + times[base + mid] <= arrivalTime) lo = mid;
+            else hi = mid;
+        }
+        double departureAtLo = lo * timeSliceLength;
+        double arrivalAtLo = departureAtLo + times[base + lo];
+        double arrivalAtHi = departureAtLo + timeSliceLength + times[base + hi];
+        double departureTime = departureAtLo + (arrivalTime - arrivalAtLo) * timeSliceLength / (arrivalAtHi - arrivalAtLo);
+        return arrivalTime - departureTime;
+    }
+
+    /**
+     * Returns the distance from to to.
+     *
+     * @param fromIndex from location index
+     * @param toIndex   to location index
+     * @return the distance
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        return distances[fromIndex * noLocations + toIndex];
+    }
+
+    @Override
+    public double getTransportTime(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        checkIndices(from, to);
+        return getTransportTime(from.getIndex(), to.getIndex(), departureTime);
+    }
+
+    @Override
+    public double getBackwardTransportTime(Location from, Location to, double arrivalTime, Driver driver, Vehicle vehicle) {
+        checkIndices(from, to);
+        return getBackwardTransportTime(from.getIndex(), to.getIndex(), arrivalTime);
+    }
+
+    @Override
+    public double getTransportCost(Location from, Location to, double departureTime, Driver driver, Vehicle vehicle) {
+        checkIndices(from, to);
+        if (vehicle == null) return getDistance(from.getIndex(), to.getIndex());
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * getDistance(from.getIndex(), to.getIndex())
+            + costParams.perTransportTimeUnit * getTransportTime(from.getIndex(), to.getIndex(), departureTime);
+    }
+
+    @Override
+    public double getBackwardTransportCost(Location from, Location to, double arrivalTime, Driver driver, Vehicle vehicle) {
+        checkIndices(from, to);
+        if (vehicle == null) return getDistance(from.getIndex(), to.getIndex());
+        VehicleTypeImpl.VehicleCostParams costParams = vehicle.getType().getVehicleCostParams();
+        return costParams.perDistanceUnit * getDistance(from.getIndex(), to.getIndex())
+            + costParams.perTransportTimeUnit * getBackwardTransportTime(from.getIndex(), to.getIndex(), arrivalTime);
+    }
+
+    @Override
+    public double getDistance(Location from, Location to, double departureTime, Vehicle vehicle) {
+        return getDistance(from.getIndex(), to.getIndex());
+    }
+
+    private static void checkIndices(Location from, Location to) {
+        if (from.getIndex() < 0 || to.getIndex() < 0)
+            throw new IllegalArgumentException("index of from " + from + " to " + to + " < 0 ");
+    }
+
+    public int getNoLocations() {
+        return noLocations;
+    }
+
+    public int getNoTimeSlices() {
+        return noTimeSlices;
+    }
+
+    public double getTimeSliceLength() {
+        return timeSliceLength;
+    }
+
+}
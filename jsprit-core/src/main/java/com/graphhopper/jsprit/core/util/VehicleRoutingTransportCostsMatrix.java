@@ -25,6 +25,7 @@ import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl.VehicleCostPa
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -36,6 +37,9 @@ import java.util.Map;
  * you set a particular distance, this expects distance-entries for all relations. This counts also
  * for a particular time. If the method getTransportCosts(...) is then invoked for a relation, where no distance can be found, an
  * IllegalStateException will be thrown. Thus if you want to only use distances only, do not use addTransportTime(...).
+ * <p>When the matrix is built, location ids are mapped to dense indices and values are stored in primitive arrays,
+ * thus a lookup neither allocates relation keys nor unboxes values. Matrices with few values compared to the number of
+ * relations are stored in a hash table with primitive keys instead of a dense array.
  *
  * @author schroeder
  */
@@ -184,22 +188,157 @@ public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRo
 
     }
 
-    private Map<RelationKey, Double> distances = new HashMap<RelationKey, Double>();
+    /**
+     * Values of relations by location indices. Relations without value are NaN.
+     */
+    private interface Values {
+
+        double get(int from, int to);
+
+    }
+
+    /**
+     * Values stored row-major in a primitive array, i.e. the value of (from,to) is at from * noLocations + to.
+     */
+    private static final class DenseValues implements Values {
+
+        private final int noLocations;
+
+        private final double[] values;
+
+        DenseValues(int noLocations) {
+            this.noLocations = noLocations;
+            values = new double[noLocations * noLocations];
+            Arrays.fill(values, Double.NaN);
+        }
+
+        void put(int from, int to, double value) {
+            values[from * noLocations + to] = value;
+        }
+
+        @Override
+        public double get(int from, int to) {
+            return values[from * noLocations + to];
+        }
+
+    }
+
+    /**
+     * Values of the relations that are set only, stored in an open-addressing hash table with primitive keys
+     * from * noLocations + to.
+     */
+    private static final class SparseValues implements Values {
+
+        private static final long EMPTY = -1L;
+
+        private final long noLocations;
 
-    private Map<RelationKey, Double> times = new HashMap<RelationKey, Double>();
+        private final long[] keys;
 
-    private boolean isSymmetric;
+        private final double[] values;
 
-    private boolean timesSet;
+        private final int mask;
 
-    private boolean distancesSet;
+        SparseValues(int noLocations, int maxEntries) {
+            this.noLocations = noLocations;
+            int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            values = new double[capacity];
+            mask = capacity - 1;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash ^ (hash >>> 32)) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        void put(int from, int to, double value) {
+            long key = from * noLocations + to;
+            int slot = slot(key);
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        @Override
+        public double get(int from, int to) {
+            int slot = slot(from * noLocations + to);
+            if (keys[slot] == EMPTY) return Double.NaN;
+            return values[slot];
+        }
+
+    }
+
+    /**
+     * Max. number of locations of dense arrays, such that their size does not exceed the max. array size.
+     */
+    private static final int MAX_DENSE_LOCATIONS = 46340;
+
+    private final Map<String, Integer> indices = new HashMap<String, Integer>();
+
+    private final int noLocations;
+
+    private final Values distances;
+
+    private final Values times;
+
+    private final boolean timesSet;
+
+    private final boolean distancesSet;
 
     private VehicleRoutingTransportCostsMatrix(Builder builder) {
-        this.isSymmetric = builder.isSymmetric;
-        distances.putAll(builder.distances);
-        times.putAll(builder.times);
         timesSet = builder.timesSet;
         distancesSet = builder.distancesSet;
+        internLocationIds(builder.distances);
+        internLocationIds(builder.times);
+        noLocations = indices.size();
+        distances = distancesSet ? toValues(builder.distances, builder.isSymmetric) : null;
+        times = timesSet ? toValues(builder.times, builder.isSymmetric) : null;
+    }
+
+    private void internLocationIds(Map<RelationKey, Double> values) {
+        for (RelationKey key : values.keySet()) {
+            if (!indices.containsKey(key.from)) indices.put(key.from, indices.size());
+            if (!indices.containsKey(key.to)) indices.put(key.to, indices.size());
+        }
+    }
+
+    /**
+     * Stores values in a dense array if at least a quarter of all relations has a value, where a dense array needs
+     * less memory than a hash table, and in a {@link SparseValues} table otherwise. In a symmetric matrix, a relation
+     * without value takes the value of its reverse relation.
+     */
+    private Values toValues(Map<RelationKey, Double> values, boolean isSymmetric) {
+        long maxEntries = isSymmetric ? 2L * values.size() : values.size();
+        long noRelations = (long) noLocations * noLocations;
+        if (noLocations <= MAX_DENSE_LOCATIONS && maxEntries * 4 >= noRelations) {
+            DenseValues dense = new DenseValues(noLocations);
+            for (Map.Entry<RelationKey, Double> entry : values.entrySet()) {
+                dense.put(indices.get(entry.getKey().from), indices.get(entry.getKey().to), entry.getValue());
+            }
+            if (isSymmetric) {
+                for (Map.Entry<RelationKey, Double> entry : values.entrySet()) {
+                    int from = indices.get(entry.getKey().from);
+                    int to = indices.get(entry.getKey().to);
+                    if (Double.isNaN(dense.get(to, from))) dense.put(to, from, entry.getValue());
+                }
+            }
+            return dense;
+        }
+        SparseValues sparse = new SparseValues(noLocations, (int) Math.min(maxEntries, 1 << 29));
+        for (Map.Entry<RelationKey, Double> entry : values.entrySet()) {
+            sparse.put(indices.get(entry.getKey().from), indices.get(entry.getKey().to), entry.getValue());
+        }
+        if (isSymmetric) {
+            for (Map.Entry<RelationKey, Double> entry : values.entrySet()) {
+                int from = indices.get(entry.getKey().from);
+                int to = indices.get(entry.getKey().to);
+                if (Double.isNaN(sparse.get(to, from))) sparse.put(to, from, entry.getValue());
+            }
+        }
+        return sparse;
     }
 
 
@@ -212,20 +351,18 @@ public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRo
     private double getTime(String fromId, String toId) {
         if (fromId.equals(toId)) return 0.0;
         if (!timesSet) return 0.0;
-        RelationKey key = RelationKey.newKey(fromId, toId);
-        if (!isSymmetric) {
-            if (times.containsKey(key)) return times.get(key);
-            else
-                throw new IllegalStateException("time value for relation from " + fromId + " to " + toId + " does not exist");
-        } else {
-            Double time = times.get(key);
-            if (time == null) {
-                time = times.get(RelationKey.newKey(toId, fromId));
-            }
-            if (time != null) return time;
-            else
-                throw new IllegalStateException("time value for relation from " + fromId + " to " + toId + " does not exist");
-        }
+        double time = get(times, fromId, toId);
+        if (Double.isNaN(time))
+            throw new IllegalStateException("time value for relation from " + fromId + " to " + toId + " does not exist");
+        return time;
+    }
+
+    private double get(Values values, String fromId, String toId) {
+        Integer from = indices.get(fromId);
+        if (from == null) return Double.NaN;
+        Integer to = indices.get(toId);
+        if (to == null) return Double.NaN;
+        return values.get(from, to);
     }
 
     /**
@@ -239,20 +376,10 @@ public class VehicleRoutingTransportCostsMatrix extends AbstractForwardVehicleRo
     public double getDistance(String fromId, String toId) {
         if (fromId.equals(toId)) return 0.0;
         if (!distancesSet) return 0.0;
-        RelationKey key = RelationKey.newKey(fromId, toId);
-        if (!isSymmetric) {
-            if (distances.containsKey(key)) return distances.get(key);
-            else
-                throw new IllegalStateException("distance value for relation from " + fromId + " to " + toId + " does not exist");
-        } else {
-            Double time = distances.get(key);
-            if (time == null) {
-                time = distances.get(RelationKey.newKey(toId, fromId));
-            }
-            if (time != null) return time;
-            else
-                throw new IllegalStateException("distance value for relation from " + fromId + " to " + toId + " does not exist");
-        }
+        double distance = get(distances, fromId, toId);
+        if (Double.isNaN(distance))
+            throw new IllegalStateException("distance value for relation from " + fromId + " to " + toId + " does not exist");
+        return distance;
     }
 
     @Override
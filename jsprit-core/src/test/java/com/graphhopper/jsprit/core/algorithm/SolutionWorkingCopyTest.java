@@ -0,0 +1,171 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm;
+
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+public class SolutionWorkingCopyTest {
+
+    private Service s1;
+
+    private Service s2;
+
+    private Service s3;
+
+    private VehicleRoutingProblemSolution solution;
+
+    @Before
+    public void doBefore() {
+        s1 = Service.Builder.newInstance("s1").setLocation(Location.newInstance(10, 0)).build();
+        s2 = Service.Builder.newInstance("s2").setLocation(Location.newInstance(0, 10)).build();
+        s3 = Service.Builder.newInstance("s3").setLocation(Location.newInstance(10, 10)).build();
+        VehicleImpl v1 = VehicleImpl.Builder.newInstance("v1").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleImpl v2 = VehicleImpl.Builder.newInstance("v2").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoute r1 = VehicleRoute.Builder.newInstance(v1).addService(s1).build();
+        VehicleRoute r2 = VehicleRoute.Builder.newInstance(v2).addService(s2).build();
+        List<VehicleRoute> routes = new ArrayList<>(Arrays.asList(r1, r2));
+        solution = new VehicleRoutingProblemSolution(routes, new ArrayList<>(Arrays.asList(s3)), 100.);
+    }
+
+    private List<VehicleRoute> routes(VehicleRoutingProblemSolution solution) {
+        return new ArrayList<>(solution.getRoutes());
+    }
+
+    @Test
+    public void whenCheckingOut_itShouldReturnDeepCopy() {
+        SolutionWorkingCopy workingCopy = new SolutionWorkingCopy();
+        VehicleRoutingProblemSolution copy = workingCopy.checkout(solution);
+        assertNotSame(solution, copy);
+        assertEquals(100., copy.getCost(), 0.01);
+        assertEquals(2, copy.getRoutes().size());
+        assertEquals(1, copy.getUnassignedJobs().size());
+        for (int i = 0; i < 2; i++) {
+            assertNotSame(routes(solution).get(i), routes(copy).get(i));
+            assertNotSame(routes(solution).get(i).getActivities().get(0), routes(copy).get(i).getActivities().get(0));
+        }
+        routes(copy).get(0).getTourActivities().removeJob(s1);
+        copy.getUnassignedJobs().add(s1);
+        assertTrue(routes(solution).get(0).getTourActivities().servesJob(s1));
+        assertEquals(1, solution.getUnassignedJobs().size());
+    }
+
+    @Test
+    public void whenReleasedCopyIsReusable_onlyModifiedRoutesShouldBeCopiedAgain() {
+        SolutionWorkingCopy workingCopy = new SolutionWorkingCopy();
+        VehicleRoutingProblemSolution copy = workingCopy.checkout(solution);
+        VehicleRoute unchanged = routes(copy).get(1);
+        routes(copy).get(0).getTourActivities().removeJob(s1);
+        copy.getRoutes().remove(routes(copy).get(0));
+        copy.getUnassignedJobs().add(s1);
+        workingCopy.release(copy, true);
+
+        VehicleRoutingProblemSolution secondCopy = workingCopy.checkout(solution);
+        assertEquals(2, secondCopy.getRoutes().size());
+        assertTrue(routes(secondCopy).get(0).getTourActivities().servesJob(s1));
+        assertSame(unchanged, routes(secondCopy).get(1));
+        assertEquals(1, secondCopy.getUnassignedJobs().size());
+        assertEquals(3, workingCopy.getNoRouteCopies());
+        assertEquals(1, workingCopy.getNoReusedRoutes());
+    }
+
+    @Test
+    public void whenVehicleOfRouteIsSwitched_routeShouldBeCopiedAgain() {
+        SolutionWorkingCopy workingCopy = new SolutionWorkingCopy();
+        VehicleRoutingProblemSolution copy = workingCopy.checkout(solution);
+        VehicleRoute route = routes(copy).get(0);
+        route.setVehicleAndDepartureTime(routes(copy).get(1).getVehicle(), 0.);
+        workingCopy.release(copy, true);
+
+        VehicleRoutingProblemSolution secondCopy = workingCopy.checkout(solution);
+        assertNotSame(route, routes(secondCopy).get(0));
+        assertEquals("v1", routes(secondCopy).get(0).getVehicle().getId());
+    }
+
+    @Test
+    public void whenReleasedCopyIsNotReusable_allRoutesShouldBeCopiedAgain() {
+        SolutionWorkingCopy workingCopy = new SolutionWorkingCopy();
+        VehicleRoutingProblemSolution copy = workingCopy.checkout(solution);
+        workingCopy.release(copy, false);
+
+        VehicleRoutingProblemSolution secondCopy = workingCopy.checkout(solution);
+        for (int i = 0; i < 2; i++) {
+            assertNotSame(routes(copy).get(i), routes(secondCopy).get(i));
+        }
+        assertEquals(4, workingCopy.getNoRouteCopies());
+    }
+
+    @Test
+    public void whenSelectedSolutionChanges_allRoutesShouldBeCopiedAgain() {
+        SolutionWorkingCopy workingCopy = new SolutionWorkingCopy();
+        VehicleRoutingProblemSolution copy = workingCopy.checkout(solution);
+        workingCopy.release(copy, true);
+
+        VehicleRoutingProblemSolution otherSolution = VehicleRoutingProblemSolution.copyOf(solution);
+        workingCopy.checkout(otherSolution);
+        assertEquals(4, workingCopy.getNoRouteCopies());
+        assertEquals(0, workingCopy.getNoReusedRoutes());
+    }
+
+    @Test
+    public void whenRunningJspritWithCopyOnWrite_itShouldFindSameSolution() {
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 5).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 4; i++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v" + i).setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        Random random = new Random(4711);
+        for (int i = 0; i < 30; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1).setLocation(Location.newInstance(random.nextInt(100), random.nextInt(100))).build());
+        }
+        VehicleRoutingProblem vrp = vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE).build();
+
+        RandomNumberGeneration.reset();
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrp).buildAlgorithm();
+        vra.setMaxIterations(200);
+        VehicleRoutingProblemSolution expected = Solutions.bestOf(vra.searchSolutions());
+
+        RandomNumberGeneration.reset();
+        VehicleRoutingAlgorithm copyOnWrite = Jsprit.Builder.newInstance(vrp).setProperty(Jsprit.Parameter.COPY_ON_WRITE, "true").buildAlgorithm();
+        copyOnWrite.setMaxIterations(200);
+        VehicleRoutingProblemSolution actual = Solutions.bestOf(copyOnWrite.searchSolutions());
+
+        assertEquals(expected.getCost(), actual.getCost(), 0.);
+        assertEquals(expected.getRoutes().size(), actual.getRoutes().size());
+    }
+
+}
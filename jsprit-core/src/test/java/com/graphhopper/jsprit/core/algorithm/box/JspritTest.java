@@ -33,10 +33,13 @@ import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolutio
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
+import com.graphhopper.jsprit.core.util.Solutions;
 import junit.framework.Assert;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by schroeder on 06/03/15.
@@ -485,5 +488,81 @@ public class JspritTest {
         Assert.assertEquals(1, c);
     }
 
+    @Test
+    public void whenRunningWithSharedExecutor_itShouldSolveAndNotShutDownExecutor() throws Exception {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build());
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).setLocation(Location.newInstance(i, i % 5)).build());
+        }
+        final VehicleRoutingProblem vrp = vrpBuilder.build();
+        ForkJoinPool sharedExecutor = new ForkJoinPool(2);
+        ExecutorService solves = Executors.newFixedThreadPool(3);
+        List<Future<VehicleRoutingProblemSolution>> solutions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrp).setSharedExecutor(sharedExecutor, 2).buildAlgorithm();
+            vra.setMaxIterations(20);
+            solutions.add(solves.submit(new Callable<VehicleRoutingProblemSolution>() {
+
+                @Override
+                public VehicleRoutingProblemSolution call() {
+                    return Solutions.bestOf(vra.searchSolutions());
+                }
+
+            }));
+        }
+        for (Future<VehicleRoutingProblemSolution> solution : solutions) {
+            Assert.assertTrue(solution.get().getUnassignedJobs().isEmpty());
+        }
+        solves.shutdown();
+        Assert.assertFalse(sharedExecutor.isShutdown());
+        sharedExecutor.shutdown();
+    }
+
+    @Test
+    public void whenSharedExecutorIsForkJoinPool_itShouldNotInvokeTasksBypassingConcurrencyLimit() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build());
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).setLocation(Location.newInstance(i, i % 5)).build());
+        }
+        final AtomicInteger directInvocations = new AtomicInteger();
+        ForkJoinPool sharedExecutor = new ForkJoinPool(4) {
+
+            @Override
+            public <T> T invoke(ForkJoinTask<T> task) {
+                directInvocations.incrementAndGet();
+                return super.invoke(task);
+            }
+
+        };
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrpBuilder.build()).setSharedExecutor(sharedExecutor, 2).buildAlgorithm();
+        vra.setMaxIterations(5);
+        vra.searchSolutions();
+        Assert.assertEquals(0, directInvocations.get());
+        sharedExecutor.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenInsertionCacheIsUsedWithInsertionNoise_itShouldThrowException() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build());
+        vrpBuilder.addJob(Service.Builder.newInstance("s").setLocation(Location.newInstance(1, 1)).build());
+        Jsprit.Builder.newInstance(vrpBuilder.build()).setProperty(Jsprit.Parameter.INSERTION_CACHE, "1000").buildAlgorithm();
+    }
+
+    @Test
+    public void whenInsertionCacheIsUsedWithoutInsertionNoise_itShouldSolve() {
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build());
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).setLocation(Location.newInstance(i, i % 5)).build());
+        }
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrpBuilder.build()).setProperty(Jsprit.Parameter.INSERTION_CACHE, "1000")
+            .setProperty(Jsprit.Parameter.INSERTION_NOISE_PROB, "0").buildAlgorithm();
+        vra.setMaxIterations(20);
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(vra.searchSolutions());
+        Assert.assertTrue(solution.getUnassignedJobs().isEmpty());
+    }
 
 }
@@ -0,0 +1,164 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.box;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationStartsListener;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import com.graphhopper.jsprit.core.util.Solutions;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ParallelIslandSearchTest {
+
+    private VehicleRoutingProblem vrp;
+
+    @Before
+    public void doBefore() {
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 5).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 4; i++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v" + i).setType(type).setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        Random random = new Random(4711);
+        for (int i = 0; i < 20; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1).setLocation(Location.newInstance(random.nextInt(100), random.nextInt(100))).build());
+        }
+        vrp = vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE).build();
+    }
+
+    @Test
+    public void whenRunningIslands_itShouldReturnSolutionsOfAllIslands() {
+        final AtomicInteger createdAlgorithms = new AtomicInteger();
+        Collection<VehicleRoutingProblemSolution> solutions = ParallelIslandSearch.Builder.newInstance(vrp)
+            .setNoIslands(3).setMaxIterations(50).setMigrationInterval(10).setRandom(new Random(1))
+            .setAlgorithmFactory(new ParallelIslandSearch.IslandAlgorithmFactory() {
+
+                @Override
+                public VehicleRoutingAlgorithm createAlgorithm(VehicleRoutingProblem vrp, Random random) {
+                    createdAlgorithms.incrementAndGet();
+                    return Jsprit.Builder.newInstance(vrp).setRandom(random).buildAlgorithm();
+                }
+
+            }).build().searchSolutions();
+        assertEquals(3, createdAlgorithms.get());
+        assertTrue(solutions.size() >= 3);
+        VehicleRoutingProblemSolution best = Solutions.bestOf(solutions);
+        assertTrue(best.getUnassignedJobs().isEmpty());
+        int noJobs = 0;
+        for (VehicleRoute route : best.getRoutes()) {
+            noJobs += route.getTourActivities().getJobs().size();
+        }
+        assertEquals(20, noJobs);
+    }
+
+    @Test
+    public void whenMigrating_islandShouldReplaceItsWorstSolutionByBetterSolutionOfNeighbour() throws Exception {
+        final ParallelIslandSearch.Migration migration = new ParallelIslandSearch.Migration(2);
+        final Collection<VehicleRoutingProblemSolution> island0 = new ArrayList<>(Arrays.asList(solution(10), solution(20)));
+        final Collection<VehicleRoutingProblemSolution> island1 = new ArrayList<>(Arrays.asList(solution(30)));
+        Thread t = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                migration.migrate(1, 1, island1);
+            }
+
+        });
+        t.start();
+        migration.migrate(0, 1, island0);
+        t.join();
+        assertEquals(2, island0.size());
+        assertEquals(20., worstOf(island0), 0.01);
+        assertEquals(1, island1.size());
+        assertEquals(10., worstOf(island1), 0.01);
+    }
+
+    private static VehicleRoutingProblemSolution solution(double cost) {
+        return new VehicleRoutingProblemSolution(Collections.<VehicleRoute>emptyList(), cost);
+    }
+
+    private static double worstOf(Collection<VehicleRoutingProblemSolution> solutions) {
+        double worst = 0;
+        for (VehicleRoutingProblemSolution solution : solutions) worst = Math.max(worst, solution.getCost());
+        return worst;
+    }
+
+    @Test
+    public void whenRunningWithSameSeed_itShouldBeReproducible() {
+        double first = Solutions.bestOf(ParallelIslandSearch.Builder.newInstance(vrp)
+            .setNoIslands(2).setMaxIterations(40).setMigrationInterval(10).setRandom(new Random(3)).build().searchSolutions()).getCost();
+        double second = Solutions.bestOf(ParallelIslandSearch.Builder.newInstance(vrp)
+            .setNoIslands(2).setMaxIterations(40).setMigrationInterval(10).setRandom(new Random(3)).build().searchSolutions()).getCost();
+        assertEquals(first, second, 0.01);
+    }
+
+    @Test(timeout = 30000)
+    public void whenOneIslandFails_itShouldStopOtherIslandsAndRethrow() {
+        final AtomicInteger createdAlgorithms = new AtomicInteger();
+        ParallelIslandSearch search = ParallelIslandSearch.Builder.newInstance(vrp)
+            .setNoIslands(3).setMaxIterations(Integer.MAX_VALUE).setMigrationInterval(10).setRandom(new Random(1))
+            .setAlgorithmFactory(new ParallelIslandSearch.IslandAlgorithmFactory() {
+
+                @Override
+                public VehicleRoutingAlgorithm createAlgorithm(VehicleRoutingProblem vrp, Random random) {
+                    VehicleRoutingAlgorithm algorithm = Jsprit.Builder.newInstance(vrp).setRandom(random).buildAlgorithm();
+                    if (createdAlgorithms.incrementAndGet() == 2) {
+                        algorithm.addListener(new IterationStartsListener() {
+
+                            @Override
+                            public void informIterationStarts(int i, VehicleRoutingProblem problem, Collection<VehicleRoutingProblemSolution> solutions) {
+                                if (i == 25) throw new UnsupportedOperationException("island failed");
+                            }
+
+                        });
+                    }
+                    return algorithm;
+                }
+
+            }).build();
+        try {
+            search.searchSolutions();
+            fail("island failure should be rethrown");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenSettingZeroIslands_itShouldThrowException() {
+        ParallelIslandSearch.Builder.newInstance(vrp).setNoIslands(0);
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.metrics;
+
+import com.graphhopper.jsprit.core.algorithm.VehicleRoutingAlgorithm;
+import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.algorithm.metrics.AlgorithmMetrics.Category;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.HardRouteConstraint;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AlgorithmMetricsTest {
+
+    private static class RejectAll implements HardRouteConstraint {
+
+        @Override
+        public boolean fulfilled(JobInsertionContext insertionContext) {
+            return false;
+        }
+
+    }
+
+    @Test
+    public void durationsShouldBeRecordedInPowerOfTwoBuckets() {
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        NanoTimer timer = metrics.getTimer(Category.STRATEGY, "s");
+        timer.record(0);
+        timer.record(1);
+        timer.record(3);
+        timer.record(4);
+        timer.record(-5);
+        TimerSnapshot snapshot = metrics.snapshot().getTimer(Category.STRATEGY, "s");
+        assertEquals(5, snapshot.getCount());
+        assertEquals(8, snapshot.getTotalNanos());
+        assertEquals(4, snapshot.getMaxNanos());
+        long[] buckets = snapshot.getBucketCounts();
+        assertEquals(2, buckets[0]);
+        assertEquals(1, buckets[1]);
+        assertEquals(1, buckets[2]);
+        assertEquals(1, buckets[3]);
+        assertEquals(3, TimerSnapshot.getBucketUpperBoundNanos(2));
+    }
+
+    @Test
+    public void percentileShouldBeUpperBoundOfItsBucket() {
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        NanoTimer timer = metrics.getTimer(Category.RUIN, "r");
+        for (int i = 0; i < 99; i++) timer.record(100);
+        timer.record(5000);
+        TimerSnapshot snapshot = metrics.snapshot().getTimer(Category.RUIN, "r");
+        assertEquals(127, snapshot.getPercentileNanos(0.5));
+        assertEquals(127, snapshot.getPercentileNanos(0.99));
+        assertEquals(5000, snapshot.getPercentileNanos(1));
+        assertEquals(149., snapshot.getMeanNanos(), 0.01);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenPercentileIsGreaterThanOne_itShouldThrowException() {
+        new AlgorithmMetrics().getTimer(Category.RUIN, "r").snapshot().getPercentileNanos(1.5);
+    }
+
+    @Test
+    public void snapshotShouldNotChangeAfterwards() {
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        metrics.getTimer(Category.INSERTION, "i").record(10);
+        metrics.countInsertionEvaluation();
+        MetricsSnapshot snapshot = metrics.snapshot();
+        metrics.getTimer(Category.INSERTION, "i").record(10);
+        metrics.countInsertionEvaluation();
+        assertEquals(1, snapshot.getTimer(Category.INSERTION, "i").getCount());
+        assertEquals(1, snapshot.getInsertionEvaluations());
+        assertNull(snapshot.getTimer(Category.RUIN, "i"));
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().getTimer(Category.INSERTION, "i").getCount());
+        assertEquals(0, metrics.snapshot().getInsertionEvaluations());
+    }
+
+    @Test
+    public void rejectionsShouldBeCountedPerConstraintClass() {
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        metrics.countRejection(new RejectAll());
+        metrics.countRejection(new RejectAll());
+        assertEquals(Long.valueOf(2), metrics.snapshot().getConstraintRejections().get("RejectAll"));
+    }
+
+    @Test
+    public void sinksShouldReceiveSnapshotEveryNthIterationAndWhenAlgorithmEnds() {
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        metrics.setPublishInterval(2);
+        final List<MetricsSnapshot> published = new ArrayList<>();
+        metrics.addSink(published::add);
+        for (int i = 1; i <= 5; i++) metrics.informIterationEnds(i, null, null);
+        metrics.informAlgorithmEnds(null, null);
+        assertEquals(3, published.size());
+        assertEquals(2, published.get(0).getIterations());
+        assertEquals(4, published.get(1).getIterations());
+        assertEquals(5, published.get(2).getIterations());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenPublishIntervalIsNegative_itShouldThrowException() {
+        new AlgorithmMetrics().setPublishInterval(-1);
+    }
+
+    @Test
+    public void whenRunningJsprit_itShouldRecordAllMetrics() {
+        VehicleTypeImpl type = VehicleTypeImpl.Builder.newInstance("t").addCapacityDimension(0, 2).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v").setType(type).setStartLocation(Location.newInstance(0, 0)).build());
+        for (int i = 0; i < 6; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1).setLocation(Location.newInstance(i, 10 - i)).build());
+        }
+        VehicleRoutingProblem vrp = vrpBuilder.build();
+        AlgorithmMetrics metrics = new AlgorithmMetrics();
+        final List<MetricsSnapshot> published = new ArrayList<>();
+        metrics.addSink(published::add);
+        VehicleRoutingAlgorithm vra = Jsprit.Builder.newInstance(vrp).setMetrics(metrics).buildAlgorithm();
+        vra.setMaxIterations(50);
+        vra.searchSolutions();
+
+        assertEquals(1, published.size());
+        MetricsSnapshot snapshot = published.get(0);
+        assertEquals(50, snapshot.getIterations());
+        long strategyRuns = 0;
+        for (TimerSnapshot timer : snapshot.getTimers(Category.STRATEGY).values()) strategyRuns += timer.getCount();
+        assertEquals(50, strategyRuns);
+        long moduleRuns = 0;
+        for (TimerSnapshot timer : snapshot.getTimers(Category.MODULE).values()) moduleRuns += timer.getCount();
+        assertEquals(50, moduleRuns);
+        assertFalse(snapshot.getTimers(Category.RUIN).isEmpty());
+        assertFalse(snapshot.getTimers(Category.INSERTION).isEmpty());
+        assertTrue(snapshot.getTimer(Category.STATE_UPDATE, "jobInserted").getCount() > 0);
+        assertTrue(snapshot.getTimer(Category.STATE_UPDATE, "insertionStarts").getCount() > 0);
+        assertTrue(snapshot.getInsertionEvaluations() > 0);
+        assertTrue(snapshot.getActivityInsertionEvaluations() > 0);
+        assertTrue(snapshot.getConstraintRejections().containsKey("ServiceLoadRouteLevelConstraint"));
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.AlgorithmUtil;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.FiniteFleetManagerFactory;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BestInsertionParallelTest {
+
+    private VehicleRoutingProblem vrp;
+
+    private ForkJoinPool forkJoinPool;
+
+    @Before
+    public void doBefore() {
+        VehicleType small = VehicleTypeImpl.Builder.newInstance("small").addCapacityDimension(0, 8).setCostPerDistance(1.).build();
+        VehicleType large = VehicleTypeImpl.Builder.newInstance("large").addCapacityDimension(0, 15).setCostPerDistance(1.5).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        for (int i = 0; i < 6; i++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance("v" + i).setType(i % 2 == 0 ? small : large)
+                .setStartLocation(Location.newInstance(50, 50)).build());
+        }
+        Random random = new Random(4711);
+        for (int i = 0; i < 60; i++) {
+            vrpBuilder.addJob(Service.Builder.newInstance("s" + i).addSizeDimension(0, 1)
+                .setLocation(Location.newInstance(random.nextInt(100), random.nextInt(100))).build());
+        }
+        vrp = vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE).build();
+        forkJoinPool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void doAfter() {
+        forkJoinPool.shutdown();
+    }
+
+    @Test
+    public void whenInsertingJobs_itShouldInsertThemLikeBestInsertion() {
+        List<List<String>> expected = insert(null, 1);
+        for (int batchSize : new int[]{1, 3, 16}) {
+            List<List<String>> actual = insert(forkJoinPool, batchSize);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void whenInsertingIntoExistingRoutes_itShouldInsertThemLikeBestInsertion() {
+        List<List<String>> firstRoutes = insert(null, 1);
+        assertTrue(firstRoutes.size() > 1);
+        assertEquals(reinsert(null, 1), reinsert(forkJoinPool, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenBatchSizeIsZero_itShouldThrowException() {
+        new BestInsertionParallel(null, forkJoinPool, 0, vrp);
+    }
+
+    private List<List<String>> insert(ForkJoinPool pool, int batchSize) {
+        return run(pool, batchSize, new ArrayList<VehicleRoute>(), new ArrayList<>(vrp.getJobs().values()));
+    }
+
+    /**
+     * Builds routes with sequential best insertion, removes every third job and re-inserts them.
+     */
+    private List<List<String>> reinsert(ForkJoinPool pool, int batchSize) {
+        StateManager stateManager = new StateManager(vrp);
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        AlgorithmUtil.addCoreConstraints(constraintManager, stateManager, vrp);
+        VehicleFleetManager fleetManager = new FiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+        Collection<VehicleRoute> routes = new ArrayList<>();
+        createInsertion(null, 1, stateManager, constraintManager, fleetManager).insertJobs(routes, new ArrayList<>(vrp.getJobs().values()));
+        List<Job> removed = new ArrayList<>();
+        int i = 0;
+        for (VehicleRoute route : routes) {
+            for (Job job : new ArrayList<>(route.getTourActivities().getJobs())) {
+                if (i++ % 3 == 0) {
+                    route.getTourActivities().removeJob(job);
+                    removed.add(job);
+                }
+            }
+        }
+        return run(pool, batchSize, stateManager, constraintManager, fleetManager, routes, removed);
+    }
+
+    private List<List<String>> run(ForkJoinPool pool, int batchSize, Collection<VehicleRoute> routes, List<Job> jobs) {
+        StateManager stateManager = new StateManager(vrp);
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        AlgorithmUtil.addCoreConstraints(constraintManager, stateManager, vrp);
+        VehicleFleetManager fleetManager = new FiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+        return run(pool, batchSize, stateManager, constraintManager, fleetManager, routes, jobs);
+    }
+
+    private List<List<String>> run(ForkJoinPool pool, int batchSize, StateManager stateManager, ConstraintManager constraintManager,
+                                   VehicleFleetManager fleetManager, Collection<VehicleRoute> routes, List<Job> jobs) {
+        AbstractInsertionStrategy insertion = createInsertion(pool, batchSize, stateManager, constraintManager, fleetManager);
+        Collection<Job> unassigned = insertion.insertJobs(routes, jobs);
+        assertTrue(unassigned.isEmpty());
+        List<List<String>> result = new ArrayList<>();
+        for (VehicleRoute route : routes) {
+            List<String> activities = new ArrayList<>();
+            activities.add(route.getVehicle().getId());
+            for (TourActivity act : route.getActivities()) {
+                activities.add(((TourActivity.JobActivity) act).getJob().getId());
+            }
+            result.add(activities);
+        }
+        return result;
+    }
+
+    private AbstractInsertionStrategy createInsertion(ForkJoinPool pool, int batchSize, StateManager stateManager,
+                                                      ConstraintManager constraintManager, VehicleFleetManager fleetManager) {
+        InsertionStrategyBuilder builder = new InsertionStrategyBuilder(vrp, fleetManager, stateManager, constraintManager)
+            .setInsertionStrategy(InsertionStrategyBuilder.Strategy.BEST);
+        if (pool != null) builder.setConcurrentMode(pool, batchSize);
+        AbstractInsertionStrategy insertion = (AbstractInsertionStrategy) builder.build();
+        assertEquals(pool == null ? BestInsertion.class : BestInsertionParallel.class, insertion.getClass());
+        insertion.setRandom(new Random(1234));
+        insertion.addListener(stateManager);
+        insertion.addListener(new VehicleSwitched(fleetManager));
+        return insertion;
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.AlgorithmUtil;
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.vehicle.FiniteFleetManagerFactory;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleFleetManager;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GranularInsertionTest {
+
+    private VehicleRoutingProblem vrp;
+
+    private VehicleImpl nearVehicle;
+
+    private VehicleImpl farVehicle;
+
+    private Service first;
+
+    private Service second;
+
+    private ExecutorService executor;
+
+    private ForkJoinPool forkJoinPool;
+
+    @Before
+    public void doBefore() {
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("type").addCapacityDimension(0, 3).setCostPerDistance(1.).build();
+        nearVehicle = VehicleImpl.Builder.newInstance("near").setType(type).setStartLocation(Location.newInstance(0, 0)).build();
+        farVehicle = VehicleImpl.Builder.newInstance("far").setType(type).setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance();
+        vrpBuilder.addVehicle(nearVehicle).addVehicle(farVehicle);
+        for (int i = 0; i < 3; i++) {
+            vrpBuilder.addJob(service("n" + i, 0, 10 + i));
+        }
+        vrpBuilder.addJob(service("f", 100, 0));
+        first = service("j1", 1, 10);
+        second = service("j2", 1, 11);
+        vrpBuilder.addJob(first).addJob(second);
+        vrp = vrpBuilder.setFleetSize(VehicleRoutingProblem.FleetSize.FINITE).build();
+        executor = Executors.newFixedThreadPool(2);
+        forkJoinPool = new ForkJoinPool(2);
+    }
+
+    @After
+    public void doAfter() {
+        executor.shutdown();
+        forkJoinPool.shutdown();
+    }
+
+    private static Service service(String id, double x, double y) {
+        return Service.Builder.newInstance(id).addSizeDimension(0, 1).setLocation(Location.newInstance(x, y)).build();
+    }
+
+    @Test
+    public void whenRouteOfNeighborIsFull_bestInsertionShouldInsertIntoOtherRoute() {
+        assertInsertedIntoFarRoute(InsertionStrategyBuilder.Strategy.BEST, false, null, BestInsertion.class);
+    }
+
+    @Test
+    public void whenRouteOfNeighborIsFull_concurrentBestInsertionShouldInsertIntoOtherRoute() {
+        assertInsertedIntoFarRoute(InsertionStrategyBuilder.Strategy.BEST, false, executor, BestInsertionConcurrent.class);
+    }
+
+    @Test
+    public void whenRouteOfNeighborIsFull_parallelBestInsertionShouldInsertIntoOtherRoute() {
+        assertInsertedIntoFarRoute(InsertionStrategyBuilder.Strategy.BEST, false, forkJoinPool, BestInsertionParallel.class);
+    }
+
+    @Test
+    public void whenRouteOfNeighborIsFull_regretInsertionShouldInsertIntoOtherRoute() {
+        assertInsertedIntoFarRoute(InsertionStrategyBuilder.Strategy.REGRET, false, null, RegretInsertion.class);
+    }
+
+    @Test
+    public void whenRouteOfNeighborIsFull_concurrentRegretInsertionShouldInsertIntoOtherRoute() {
+        assertInsertedIntoFarRoute(InsertionStrategyBuilder.Strategy.REGRET, false, executor, RegretInsertionConcurrent.class);
+    }
+
+    @Test
+    public void whenRouteOfNeighborIsFull_fastRegretInsertionShouldInsertIntoOtherRoute() {
+        assertInsertedIntoFarRoute(InsertionStrategyBuilder.Strategy.REGRET, true, null, RegretInsertionFast.class);
+    }
+
+    @Test
+    public void whenRouteOfNeighborIsFull_concurrentFastRegretInsertionShouldInsertIntoOtherRoute() {
+        assertInsertedIntoFarRoute(InsertionStrategyBuilder.Strategy.REGRET, true, executor, RegretInsertionConcurrentFast.class);
+    }
+
+    /**
+     * The near route is full and serves all neighbors of both jobs, the far route has room for both of them and no
+     * new route can be opened.
+     */
+    private void assertInsertedIntoFarRoute(InsertionStrategyBuilder.Strategy strategy, boolean fastRegret, ExecutorService executorService,
+                                            Class<? extends InsertionStrategy> expectedClass) {
+        StateManager stateManager = new StateManager(vrp);
+        ConstraintManager constraintManager = new ConstraintManager(vrp, stateManager);
+        AlgorithmUtil.addCoreConstraints(constraintManager, stateManager, vrp);
+        VehicleFleetManager fleetManager = new FiniteFleetManagerFactory(vrp.getVehicles()).createFleetManager();
+        VehicleRoute nearRoute = VehicleRoute.Builder.newInstance(nearVehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(job("n0")).addService(job("n1")).addService(job("n2")).build();
+        VehicleRoute farRoute = VehicleRoute.Builder.newInstance(farVehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(job("f")).build();
+        fleetManager.lock(nearVehicle);
+        fleetManager.lock(farVehicle);
+        Collection<VehicleRoute> routes = new ArrayList<>(Arrays.asList(nearRoute, farRoute));
+
+        InsertionStrategyBuilder builder = new InsertionStrategyBuilder(vrp, fleetManager, stateManager, constraintManager)
+            .setInsertionStrategy(strategy).setFastRegret(fastRegret).setLocalLevel()
+            .setGranularInsertion(neighborhoods(), 2);
+        if (executorService != null) builder.setConcurrentMode(executorService, 2);
+        AbstractInsertionStrategy insertion = (AbstractInsertionStrategy) builder.build();
+        assertEquals(expectedClass, insertion.getClass());
+        insertion.setRandom(new Random(1234));
+        insertion.addListener(stateManager);
+        insertion.addListener(new VehicleSwitched(fleetManager));
+
+        Collection<Job> unassigned = insertion.insertJobs(routes, Arrays.<Job>asList(first, second));
+        assertTrue(unassigned.isEmpty());
+        assertEquals(2, routes.size());
+        assertEquals(3, nearRoute.getActivities().size());
+        assertTrue(farRoute.getTourActivities().servesJob(first));
+        assertTrue(farRoute.getTourActivities().servesJob(second));
+    }
+
+    private Service job(String id) {
+        return (Service) vrp.getJobs().get(id);
+    }
+
+    private JobNeighborhoods neighborhoods() {
+        final List<Job> nearJobs = Arrays.<Job>asList(job("n0"), job("n1"));
+        return new JobNeighborhoods() {
+
+            @Override
+            public Iterator<Job> getNearestNeighborsIterator(int nNeighbors, Job neighborTo) {
+                if (neighborTo == first || neighborTo == second) return nearJobs.iterator();
+                return Collections.emptyIterator();
+            }
+
+            @Override
+            public void initialise() {
+
+            }
+
+            @Override
+            public double getMaxDistance() {
+                return 0;
+            }
+
+        };
+    }
+
+}
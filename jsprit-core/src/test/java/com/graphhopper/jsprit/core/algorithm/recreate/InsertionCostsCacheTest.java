@@ -0,0 +1,194 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.driver.DriverImpl;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ServiceActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Mockito.*;
+
+public class InsertionCostsCacheTest {
+
+    private JobInsertionCostsCalculator calculator;
+
+    private Vehicle vehicle;
+
+    private Service s1;
+
+    private Service s2;
+
+    private Service s3;
+
+    private VehicleRoute route;
+
+    @Before
+    public void doBefore() {
+        vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        s1 = Service.Builder.newInstance("s1").setLocation(Location.newInstance(1, 0)).build();
+        s2 = Service.Builder.newInstance("s2").setLocation(Location.newInstance(2, 0)).build();
+        s3 = Service.Builder.newInstance("s3").setLocation(Location.newInstance(3, 0)).build();
+        VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle).addJob(s1).addJob(s2).addJob(s3).build();
+        route = VehicleRoute.Builder.newInstance(vehicle, DriverImpl.noDriver()).addService(s1).build();
+        calculator = mock(JobInsertionCostsCalculator.class);
+        when(calculator.getInsertionData(any(VehicleRoute.class), any(Job.class), any(Vehicle.class), anyDouble(), any(DriverImpl.class), anyDouble()))
+            .thenReturn(new InsertionData(10., -1, 0, vehicle, DriverImpl.noDriver()));
+    }
+
+    private InsertionData insert(InsertionCostsCache cache, Job job, double bestKnownCosts) {
+        return cache.getInsertionData(route, job, vehicle, 0., route.getDriver(), bestKnownCosts);
+    }
+
+    @Test
+    public void whenRouteIsNotModified_itShouldReuseInsertionData() {
+        InsertionCostsCache cache = new InsertionCostsCache(calculator, 100);
+        InsertionData first = insert(cache, s2, Double.MAX_VALUE);
+        InsertionData second = insert(cache, s2, Double.MAX_VALUE);
+        assertSame(first, second);
+        verify(calculator, times(1)).getInsertionData(any(VehicleRoute.class), any(Job.class), any(Vehicle.class), anyDouble(), any(DriverImpl.class), anyDouble());
+        assertEquals(1, cache.getNoHits());
+        assertEquals(1, cache.getNoMisses());
+    }
+
+    @Test
+    public void whenJobIsDifferent_itShouldCalculateInsertionData() {
+        InsertionCostsCache cache = new InsertionCostsCache(calculator, 100);
+        insert(cache, s2, Double.MAX_VALUE);
+        insert(cache, s3, Double.MAX_VALUE);
+        verify(calculator, times(2)).getInsertionData(any(VehicleRoute.class), any(Job.class), any(Vehicle.class), anyDouble(), any(DriverImpl.class), anyDouble());
+        assertEquals(2, cache.getNoEntries());
+    }
+
+    @Test
+    public void whenRouteIsModified_itShouldCalculateInsertionDataAgain() {
+        InsertionCostsCache cache = new InsertionCostsCache(calculator, 100);
+        insert(cache, s2, Double.MAX_VALUE);
+        route.getTourActivities().addActivity(ServiceActivity.newInstance(s3));
+        insert(cache, s2, Double.MAX_VALUE);
+        verify(calculator, times(2)).getInsertionData(any(VehicleRoute.class), any(Job.class), any(Vehicle.class), anyDouble(), any(DriverImpl.class), anyDouble());
+        assertEquals(1, cache.getNoEntries());
+    }
+
+    @Test
+    public void whenCachedCostsAreNotBetterThanBestKnownCosts_itShouldReturnNoInsertionFound() {
+        InsertionCostsCache cache = new InsertionCostsCache(calculator, 100);
+        insert(cache, s2, Double.MAX_VALUE);
+        assertTrue(insert(cache, s2, 10.) instanceof InsertionData.NoInsertionFound);
+        assertFalse(insert(cache, s2, 11.) instanceof InsertionData.NoInsertionFound);
+        verify(calculator, times(1)).getInsertionData(any(VehicleRoute.class), any(Job.class), any(Vehicle.class), anyDouble(), any(DriverImpl.class), anyDouble());
+    }
+
+    @Test
+    public void whenNoInsertionFoundWithLowerBestKnownCosts_itShouldCalculateInsertionDataAgain() {
+        when(calculator.getInsertionData(any(VehicleRoute.class), any(Job.class), any(Vehicle.class), anyDouble(), any(DriverImpl.class), anyDouble()))
+            .thenReturn(new InsertionData.NoInsertionFound());
+        InsertionCostsCache cache = new InsertionCostsCache(calculator, 100);
+        insert(cache, s2, 5.);
+        insert(cache, s2, 4.);
+        verify(calculator, times(1)).getInsertionData(any(VehicleRoute.class), any(Job.class), any(Vehicle.class), anyDouble(), any(DriverImpl.class), anyDouble());
+        insert(cache, s2, 6.);
+        verify(calculator, times(2)).getInsertionData(any(VehicleRoute.class), any(Job.class), any(Vehicle.class), anyDouble(), any(DriverImpl.class), anyDouble());
+    }
+
+    @Test
+    public void whenJobIsInsertedOrRemoved_itShouldDropDataOfRoute() {
+        InsertionCostsCache cache = new InsertionCostsCache(calculator, 100);
+        insert(cache, s2, Double.MAX_VALUE);
+        cache.informJobInserted(s3, route, null);
+        assertEquals(0, cache.getNoEntries());
+        insert(cache, s2, Double.MAX_VALUE);
+        cache.removed(s1, route);
+        assertEquals(0, cache.getNoEntries());
+    }
+
+    @Test
+    public void whenMaxEntriesIsReached_itShouldBeCleared() {
+        InsertionCostsCache cache = new InsertionCostsCache(calculator, 2);
+        insert(cache, s2, Double.MAX_VALUE);
+        insert(cache, s3, Double.MAX_VALUE);
+        assertEquals(2, cache.getNoEntries());
+        insert(cache, s1, Double.MAX_VALUE);
+        assertEquals(1, cache.getNoEntries());
+    }
+
+    @Test
+    public void whenNumberOfJobsToRecreateChanges_itShouldBeCleared() {
+        InsertionCostsCache cache = new InsertionCostsCache(calculator, 100);
+        cache.informInsertionStarts(Arrays.asList(route), Arrays.<Job>asList(s2, s3));
+        insert(cache, s2, Double.MAX_VALUE);
+        cache.informInsertionStarts(Arrays.asList(route), Arrays.<Job>asList(s3, s2));
+        assertEquals(1, cache.getNoEntries());
+        cache.informInsertionStarts(Arrays.asList(route), Arrays.<Job>asList(s2));
+        assertEquals(0, cache.getNoEntries());
+        insert(cache, s2, Double.MAX_VALUE);
+        verify(calculator, times(2)).getInsertionData(any(VehicleRoute.class), any(Job.class), any(Vehicle.class), anyDouble(), any(DriverImpl.class), anyDouble());
+    }
+
+    @Test
+    public void whenUsedConcurrently_itShouldKeepOneEntryPerJob() throws Exception {
+        final InsertionCostsCache cache = new InsertionCostsCache(calculator, 100);
+        final List<Job> jobs = Arrays.<Job>asList(s1, s2, s3);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(new Callable<Boolean>() {
+
+                @Override
+                public Boolean call() {
+                    for (int i = 0; i < 1000; i++) {
+                        InsertionData iData = insert(cache, jobs.get(i % jobs.size()), Double.MAX_VALUE);
+                        if (iData.getInsertionCost() != 10.) return false;
+                    }
+                    return true;
+                }
+
+            });
+        }
+        for (Future<Boolean> future : executor.invokeAll(tasks)) {
+            assertTrue(future.get());
+        }
+        executor.shutdown();
+        assertEquals(3, cache.getNoEntries());
+        assertEquals(8000, cache.getNoHits() + cache.getNoMisses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxEntriesIsZero_itShouldThrowException() {
+        new InsertionCostsCache(calculator, 0);
+    }
+
+}
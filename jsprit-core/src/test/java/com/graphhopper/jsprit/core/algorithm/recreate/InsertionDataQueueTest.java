@@ -0,0 +1,94 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class InsertionDataQueueTest {
+
+    private VehicleRoute route1 = VehicleRoute.emptyRoute();
+
+    private VehicleRoute route2 = VehicleRoute.emptyRoute();
+
+    @Test
+    public void whenAddingData_itShouldIterateCheapestFirstAndEqualCostsInOrderOfAdding() {
+        InsertionDataQueue queue = new InsertionDataQueue();
+        VersionedInsertionData d1 = data(20., route1, 0);
+        VersionedInsertionData d2 = data(10., route1, 0);
+        VersionedInsertionData d3 = data(20., route2, 0);
+        VersionedInsertionData d4 = data(10., route2, 0);
+        queue.add(d1);
+        queue.add(d2);
+        queue.add(d3);
+        queue.add(d4);
+        List<VersionedInsertionData> expected = new ArrayList<>();
+        expected.add(d2);
+        expected.add(d4);
+        expected.add(d1);
+        expected.add(d3);
+        assertEquals(expected, toList(queue));
+    }
+
+    @Test
+    public void whenRemovingRoute_itShouldOnlyRemoveDataOfThisRoute() {
+        InsertionDataQueue queue = new InsertionDataQueue();
+        queue.add(data(20., route1, 0));
+        queue.add(data(10., route1, 0));
+        VersionedInsertionData d3 = data(15., route2, 0);
+        queue.add(d3);
+        queue.removeRoute(route1);
+        assertEquals(1, queue.size());
+        assertSame(d3, queue.iterator().next());
+        VersionedInsertionData d4 = data(5., route1, 1);
+        queue.add(d4);
+        assertEquals(2, queue.size());
+        assertSame(d4, queue.iterator().next());
+    }
+
+    @Test
+    public void whenRemovingViaIterator_itShouldBeRemovedFromQueueAndRouteIndex() {
+        InsertionDataQueue queue = new InsertionDataQueue();
+        queue.add(data(10., route1, 0));
+        queue.add(data(20., route1, 0));
+        Iterator<VersionedInsertionData> iterator = queue.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(1, queue.size());
+        queue.removeRoute(route1);
+        assertEquals(0, queue.size());
+    }
+
+    private VersionedInsertionData data(double cost, VehicleRoute route, int version) {
+        return new VersionedInsertionData(new InsertionData(cost, -1, 0, null, null), version, route);
+    }
+
+    private List<VersionedInsertionData> toList(InsertionDataQueue queue) {
+        List<VersionedInsertionData> list = new ArrayList<>();
+        for (VersionedInsertionData data : queue) list.add(data);
+        return list;
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.algorithm.recreate;
+
+import com.graphhopper.jsprit.core.algorithm.state.StateManager;
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
+import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.job.Job;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
+import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class ShipmentInsertionCalculatorFastTest {
+
+    private VehicleRoutingProblem vrp;
+
+    private List<Shipment> shipments;
+
+    private List<VehicleRoute> routes;
+
+    private StateManager stateManager;
+
+    private ConstraintManager constraintManager;
+
+    @Before
+    public void doBefore() {
+        Random random = new Random(4711);
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE);
+        VehicleType small = VehicleTypeImpl.Builder.newInstance("small").addCapacityDimension(0, 2).setCostPerDistance(1).build();
+        VehicleType big = VehicleTypeImpl.Builder.newInstance("big").addCapacityDimension(0, 4).setCostPerDistance(1.5).build();
+        Vehicle v1 = VehicleImpl.Builder.newInstance("v1").setStartLocation(Location.newInstance(0, 0)).setType(small).setLatestArrival(10000).build();
+        Vehicle v2 = VehicleImpl.Builder.newInstance("v2").setStartLocation(Location.newInstance(50, 50)).setType(big).setReturnToDepot(false).setLatestArrival(10000).build();
+        vrpBuilder.addVehicle(v1).addVehicle(v2);
+        shipments = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            double earliest = random.nextInt(8000);
+            Shipment.Builder builder = Shipment.Builder.newInstance("s" + i).addSizeDimension(0, 1)
+                .setPickupLocation(Location.newInstance(random.nextInt(100), random.nextInt(100)))
+                .setDeliveryLocation(Location.newInstance(random.nextInt(100), random.nextInt(100)))
+                .setPickupServiceTime(5).setDeliveryServiceTime(5)
+                .setPickupTimeWindow(TimeWindow.newInstance(earliest, earliest + 200))
+                .addDeliveryTimeWindow(earliest + 30, earliest + 600);
+            if (i % 3 == 0) builder.addDeliveryTimeWindow(earliest + 900, earliest + 1000);
+            shipments.add(builder.build());
+        }
+        vrpBuilder.addAllJobs(shipments);
+        vrp = vrpBuilder.build();
+
+        stateManager = new StateManager(vrp);
+        stateManager.updateLoadStates();
+        stateManager.updateTimeWindowStates();
+        constraintManager = new ConstraintManager(vrp, stateManager);
+        constraintManager.addLoadConstraint();
+        constraintManager.addTimeWindowConstraint();
+
+        routes = new ArrayList<>();
+        routes.add(VehicleRoute.Builder.newInstance(v1).build());
+        routes.add(VehicleRoute.Builder.newInstance(v2).build());
+        stateManager.informInsertionStarts(routes, Collections.<Job>emptyList());
+        EventListeners eventListeners = new EventListeners();
+        JobInsertionCostsCalculator calculator = create(new ShipmentInsertionCalculatorFactory());
+        for (Shipment shipment : shipments.subList(0, 60)) {
+            InsertionData best = new InsertionData.NoInsertionFound();
+            VehicleRoute bestRoute = null;
+            for (VehicleRoute route : routes) {
+                InsertionData iData = calculator.getInsertionData(route, shipment, route.getVehicle(), route.getDepartureTime(), route.getDriver(), best.getInsertionCost());
+                if (!(iData instanceof InsertionData.NoInsertionFound)) {
+                    best = iData;
+                    bestRoute = route;
+                }
+            }
+            if (bestRoute == null) continue;
+            for (Event e : best.getEvents()) {
+                eventListeners.inform(e);
+            }
+            stateManager.informJobInserted(shipment, bestRoute, best);
+        }
+    }
+
+    private JobInsertionCostsCalculator create(JobInsertionCostsCalculatorFactory factory) {
+        return create(factory, new int[1]);
+    }
+
+    private JobInsertionCostsCalculator create(JobInsertionCostsCalculatorFactory factory, final int[] noEvaluations) {
+        final LocalActivityInsertionCostsCalculator activityInsertionCostsCalculator = new LocalActivityInsertionCostsCalculator(vrp.getTransportCosts(), vrp.getActivityCosts(), stateManager);
+        ActivityInsertionCostsCalculator countingCalculator = new ActivityInsertionCostsCalculator() {
+
+            @Override
+            public double getCosts(JobInsertionContext iContext, TourActivity prevAct, TourActivity nextAct, TourActivity newAct, double depTimeAtPrevAct) {
+                noEvaluations[0]++;
+                return activityInsertionCostsCalculator.getCosts(iContext, prevAct, nextAct, newAct, depTimeAtPrevAct);
+            }
+
+        };
+        return factory.create(vrp, countingCalculator, vrp.getJobActivityFactory(), constraintManager);
+    }
+
+    @Test
+    public void whenInsertingShipments_itShouldFindSameInsertionsAsShipmentInsertionCalculator() {
+        int[] noEvaluations = new int[1];
+        int[] noFastEvaluations = new int[1];
+        JobInsertionCostsCalculator calculator = create(new ShipmentInsertionCalculatorFactory(), noEvaluations);
+        JobInsertionCostsCalculator fastCalculator = create(new ShipmentInsertionCalculatorFastFactory(), noFastEvaluations);
+        int noInsertionsFound = 0;
+        List<VehicleRoute> routesToCheck = new ArrayList<>(routes);
+        routesToCheck.add(VehicleRoute.emptyRoute());
+        for (VehicleRoute route : routesToCheck) {
+            for (Shipment shipment : shipments.subList(60, shipments.size())) {
+                for (Vehicle vehicle : vrp.getVehicles()) {
+                    for (double bestKnownCosts : new double[]{Double.MAX_VALUE, 100.}) {
+                        InsertionData expected = calculator.getInsertionData(route, shipment, vehicle, vehicle.getEarliestDeparture(), route.getDriver(), bestKnownCosts);
+                        InsertionData actual = fastCalculator.getInsertionData(route, shipment, vehicle, vehicle.getEarliestDeparture(), route.getDriver(), bestKnownCosts);
+                        assertEquals(expected instanceof InsertionData.NoInsertionFound, actual instanceof InsertionData.NoInsertionFound);
+                        if (expected instanceof InsertionData.NoInsertionFound) continue;
+                        noInsertionsFound++;
+                        assertEquals(expected.getInsertionCost(), actual.getInsertionCost(), 0.);
+                        assertEquals(expected.getPickupInsertionIndex(), actual.getPickupInsertionIndex());
+                        assertEquals(expected.getDeliveryInsertionIndex(), actual.getDeliveryInsertionIndex());
+                    }
+                }
+            }
+        }
+        assertTrue(noInsertionsFound > 0);
+        assertTrue(noFastEvaluations[0] < noEvaluations[0]);
+    }
+
+}
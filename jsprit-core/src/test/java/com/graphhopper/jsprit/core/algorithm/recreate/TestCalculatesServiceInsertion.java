@@ -17,12 +17,14 @@
  */
 package com.graphhopper.jsprit.core.algorithm.recreate;
 
+import com.graphhopper.jsprit.core.algorithm.ruin.JobNeighborhoods;
 import com.graphhopper.jsprit.core.algorithm.state.StateManager;
 import com.graphhopper.jsprit.core.problem.AbstractActivity;
 import com.graphhopper.jsprit.core.problem.JobActivityFactory;
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.constraint.ConstraintManager;
+import com.graphhopper.jsprit.core.problem.constraint.HardActivityConstraint;
 import com.graphhopper.jsprit.core.problem.cost.AbstractForwardVehicleRoutingTransportCosts;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingActivityCosts;
 import com.graphhopper.jsprit.core.problem.cost.VehicleRoutingTransportCosts;
@@ -32,6 +34,7 @@ import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.Service;
 import com.graphhopper.jsprit.core.problem.misc.JobInsertionContext;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
@@ -45,8 +48,12 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 
@@ -165,6 +172,51 @@ public class TestCalculatesServiceInsertion {
         assertEquals(0, iData.getDeliveryInsertionIndex());
     }
 
+    @Test
+    public void whenInsertingTheSameJobTwice_itShouldCalculateSameCostsAndInsertDifferentActivities() {
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle, driver).setJobActivityFactory(vrp.getJobActivityFactory()).addService(first).build();
+        states.informInsertionStarts(Arrays.asList(route), null);
+
+        InsertionData iData1 = serviceInsertion.getInsertionData(route, third, vehicle, vehicle.getEarliestDeparture(), null, Double.MAX_VALUE);
+        InsertionData iData2 = serviceInsertion.getInsertionData(route, third, vehicle, vehicle.getEarliestDeparture(), null, Double.MAX_VALUE);
+        assertEquals(iData1.getInsertionCost(), iData2.getInsertionCost(), 0.);
+        assertEquals(iData1.getDeliveryInsertionIndex(), iData2.getDeliveryInsertionIndex());
+        TourActivity act1 = ((InsertActivity) iData1.getEvents().get(0)).getActivity();
+        TourActivity act2 = ((InsertActivity) iData2.getEvents().get(0)).getActivity();
+        assertNotSame(act1, act2);
+    }
+
+    @Test
+    public void whenEvaluatingConcurrently_itShouldCalculateSameCostsAsSequentially() throws Exception {
+        final VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle, driver).setJobActivityFactory(vrp.getJobActivityFactory()).addService(first).addService(second).build();
+        states.informInsertionStarts(Arrays.asList(route), null);
+        final InsertionData expected = serviceInsertion.getInsertionData(route, third, vehicle, vehicle.getEarliestDeparture(), null, Double.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+
+                    @Override
+                    public Boolean call() {
+                        for (int i = 0; i < 500; i++) {
+                            InsertionData iData = serviceInsertion.getInsertionData(route, third, vehicle, vehicle.getEarliestDeparture(), null, Double.MAX_VALUE);
+                            if (iData.getInsertionCost() != expected.getInsertionCost() || iData.getDeliveryInsertionIndex() != expected.getDeliveryInsertionIndex())
+                                return false;
+                        }
+                        return true;
+                    }
+
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void whenInsertingThirdJobWithVehicle_itCalculatesMarginalCostChanges() {
         VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle, driver).setJobActivityFactory(vrp.getJobActivityFactory()).addService(first).addService(third).build();
@@ -264,4 +316,99 @@ public class TestCalculatesServiceInsertion {
         JobInsertionContext iContex = new JobInsertionContext(route, job, newVehicle, mock(Driver.class), 0.0);
         assertEquals(8.0, accessEgressCalc.getCosts(iContex), 0.01);
     }
+
+    private GranularNeighborhood granularNeighborhood(final Map<Job, List<Job>> neighbors) {
+        JobNeighborhoods jobNeighborhoods = new JobNeighborhoods() {
+
+            @Override
+            public Iterator<Job> getNearestNeighborsIterator(int nNeighbors, Job neighborTo) {
+                if (!neighbors.containsKey(neighborTo)) return Collections.emptyIterator();
+                return neighbors.get(neighborTo).iterator();
+            }
+
+            @Override
+            public void initialise() {
+
+            }
+
+            @Override
+            public double getMaxDistance() {
+                return 0;
+            }
+
+        };
+        return new GranularNeighborhood(vrp, jobNeighborhoods, 1);
+    }
+
+    @Test
+    public void whenInsertingGranular_itShouldOnlyEvaluatePositionsAdjacentToNeighbors() {
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle, driver).setJobActivityFactory(vrp.getJobActivityFactory()).addService(second).addService(first).build();
+        states.informInsertionStarts(Arrays.asList(route), null);
+        InsertionData full = serviceInsertion.getInsertionData(route, third, vehicle, vehicle.getEarliestDeparture(), null, Double.MAX_VALUE);
+        assertEquals(0, full.getDeliveryInsertionIndex());
+
+        GranularNeighborhood granularNeighborhood = granularNeighborhood(Collections.singletonMap((Job) third, Arrays.asList((Job) first)));
+        granularNeighborhood.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        serviceInsertion.setGranularNeighborhood(granularNeighborhood);
+        InsertionData granular = serviceInsertion.getInsertionData(route, third, vehicle, vehicle.getEarliestDeparture(), null, Double.MAX_VALUE);
+        assertEquals(20.0, granular.getInsertionCost(), 0.2);
+        assertEquals(1, granular.getDeliveryInsertionIndex());
+    }
+
+    @Test
+    public void whenInsertingGranularAndRouteHasNoNeighbor_itShouldEvaluateAllPositions() {
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle, driver).setJobActivityFactory(vrp.getJobActivityFactory()).addService(second).build();
+        VehicleRoute otherRoute = VehicleRoute.Builder.newInstance(newVehicle, driver).setJobActivityFactory(vrp.getJobActivityFactory()).addService(first).build();
+        states.informInsertionStarts(Arrays.asList(route, otherRoute), null);
+        GranularNeighborhood granularNeighborhood = granularNeighborhood(Collections.singletonMap((Job) third, Arrays.asList((Job) first)));
+        granularNeighborhood.informInsertionStarts(Arrays.asList(route, otherRoute), Collections.<Job>emptyList());
+        serviceInsertion.setGranularNeighborhood(granularNeighborhood);
+
+        assertFalse(granularNeighborhood.isCandidate(third, route));
+        assertTrue(granularNeighborhood.isCandidate(third, otherRoute));
+        InsertionData iData = serviceInsertion.getInsertionData(route, third, vehicle, vehicle.getEarliestDeparture(), null, Double.MAX_VALUE);
+        assertEquals(0.0, iData.getInsertionCost(), 0.2);
+        assertEquals(0, iData.getDeliveryInsertionIndex());
+    }
+
+    @Test
+    public void whenInsertingGranularAndNoNeighborIsAssigned_itShouldEvaluateAllPositions() {
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle, driver).setJobActivityFactory(vrp.getJobActivityFactory()).addService(second).build();
+        states.informInsertionStarts(Arrays.asList(route), null);
+        GranularNeighborhood granularNeighborhood = granularNeighborhood(Collections.singletonMap((Job) third, Arrays.asList((Job) first)));
+        granularNeighborhood.informInsertionStarts(Arrays.asList(route), Arrays.asList((Job) first, third));
+        serviceInsertion.setGranularNeighborhood(granularNeighborhood);
+
+        InsertionData iData = serviceInsertion.getInsertionData(route, third, vehicle, vehicle.getEarliestDeparture(), null, Double.MAX_VALUE);
+        assertEquals(0.0, iData.getInsertionCost(), 0.2);
+        assertEquals(0, iData.getDeliveryInsertionIndex());
+    }
+
+    @Test
+    public void whenInsertingGranularAndNoPositionAdjacentToNeighborIsFeasible_itShouldEvaluateAllPositions() {
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle, driver).setJobActivityFactory(vrp.getJobActivityFactory()).addService(second).addService(first).build();
+        states.informInsertionStarts(Arrays.asList(route), null);
+        ConstraintManager constraintManager = new ConstraintManager(vrp, states);
+        constraintManager.addConstraint(new HardActivityConstraint() {
+
+            @Override
+            public ConstraintsStatus fulfilled(JobInsertionContext iFacts, TourActivity prevAct, TourActivity newAct, TourActivity nextAct, double prevActDepTime) {
+                if (isFirst(prevAct) || isFirst(nextAct)) return ConstraintsStatus.NOT_FULFILLED;
+                return ConstraintsStatus.FULFILLED;
+            }
+
+            private boolean isFirst(TourActivity act) {
+                return act instanceof TourActivity.JobActivity && ((TourActivity.JobActivity) act).getJob() == first;
+            }
+
+        }, ConstraintManager.Priority.HIGH);
+        ServiceInsertionCalculator calculator = new ServiceInsertionCalculator(costs, vrp.getActivityCosts(), new LocalActivityInsertionCostsCalculator(costs, vrp.getActivityCosts(), states), constraintManager, vrp.getJobActivityFactory());
+        GranularNeighborhood granularNeighborhood = granularNeighborhood(Collections.singletonMap((Job) third, Arrays.asList((Job) first)));
+        granularNeighborhood.informInsertionStarts(Arrays.asList(route), Collections.<Job>emptyList());
+        calculator.setGranularNeighborhood(granularNeighborhood);
+
+        InsertionData iData = calculator.getInsertionData(route, third, vehicle, vehicle.getEarliestDeparture(), null, Double.MAX_VALUE);
+        assertEquals(0.0, iData.getInsertionCost(), 0.2);
+        assertEquals(0, iData.getDeliveryInsertionIndex());
+    }
 }
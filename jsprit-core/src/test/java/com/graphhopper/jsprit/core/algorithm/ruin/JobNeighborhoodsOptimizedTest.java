@@ -30,8 +30,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -158,4 +161,53 @@ public class JobNeighborhoodsOptimizedTest {
         assertEquals(0, services.size());
     }
 
+    @Test
+    public void whenUsingHeapKDTreeAndPool_neighborsShouldEqualThoseOfFullSort() {
+        VehicleRoutingProblem.Builder builder = VehicleRoutingProblem.Builder.newInstance();
+        Random random = new Random(4711);
+        for (int i = 0; i < 200; i++) {
+            builder.addJob(Service.Builder.newInstance("s" + i).setLocation(Location.newInstance(random.nextInt(50), random.nextInt(50))).build());
+        }
+        VehicleRoutingProblem vrp = builder.build();
+        final JobDistance euclidean = new EuclideanServiceDistance();
+        JobDistance bruteForce = new JobDistance() {
+
+            @Override
+            public double getDistance(Job i, Job j) {
+                return euclidean.getDistance(i, j);
+            }
+
+        };
+        JobNeighborhoodsOptimized sequential = new JobNeighborhoodsOptimized(vrp, bruteForce, 15);
+        sequential.initialise();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        JobNeighborhoodsOptimized parallel = new JobNeighborhoodsOptimized(vrp, bruteForce, 15, pool);
+        parallel.initialise();
+        JobNeighborhoodsOptimized kdTree = new JobNeighborhoodsOptimized(vrp, euclidean, 15, pool);
+        kdTree.initialise();
+        pool.shutdown();
+
+        double maxDistance = 0.;
+        List<Job> all = new ArrayList<>(vrp.getJobsInclusiveInitialJobsInRoutes().values());
+        for (final Job job : all) {
+            List<Job> expected = new ArrayList<>(all);
+            expected.remove(job);
+            for (Job other : expected) maxDistance = Math.max(maxDistance, euclidean.getDistance(job, other));
+            expected.sort(Comparator.comparingDouble(other -> euclidean.getDistance(job, other)));
+            expected = expected.subList(0, 15);
+            assertEquals(expected, toList(sequential.getNearestNeighborsIterator(15, job)));
+            assertEquals(expected, toList(parallel.getNearestNeighborsIterator(15, job)));
+            assertEquals(expected, toList(kdTree.getNearestNeighborsIterator(15, job)));
+        }
+        assertEquals(maxDistance, sequential.getMaxDistance(), 0.);
+        assertEquals(maxDistance, parallel.getMaxDistance(), 0.);
+        assertEquals(maxDistance, kdTree.getMaxDistance(), 0.);
+    }
+
+    private List<Job> toList(Iterator<Job> iterator) {
+        List<Job> jobs = new ArrayList<>();
+        while (iterator.hasNext()) jobs.add(iterator.next());
+        return jobs;
+    }
+
 }
@@ -26,6 +26,7 @@ import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.util.RandomNumberGeneration;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -76,5 +77,79 @@ public class RuinTimeRelatedTest {
 
     }
 
+    @Test
+    public void itShouldRemoveTheMostTimeRelatedJobs() {
+        Service target = Service.Builder.newInstance("target").setLocation(Location.newInstance(0, 0)).build();
+        Service s1 = Service.Builder.newInstance("s1").setLocation(Location.newInstance(0, 1)).build();
+        Service s2 = Service.Builder.newInstance("s2").setLocation(Location.newInstance(0, 2)).build();
+        Service s3 = Service.Builder.newInstance("s3").setLocation(Location.newInstance(0, 3)).build();
+        Service s4 = Service.Builder.newInstance("s4").setLocation(Location.newInstance(0, 4)).build();
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addJob(target).addJob(s1).addJob(s2)
+            .addJob(s3).addJob(s4).addVehicle(v).build();
+
+        VehicleRoute route = VehicleRoute.Builder.newInstance(v).addService(target).addService(s3).addService(s1)
+            .addService(s4).addService(s2).setJobActivityFactory(vrp.getJobActivityFactory()).build();
+        setArrTimes(route, 0, 30, 10, 40, 20);
+
+        RuinTimeRelated ruin = new RuinTimeRelated(vrp);
+        ruin.setRandom(new FirstActivityRandom());
+        ruin.setRuinShareFactory(() -> 2);
+        Collection<Job> ruined = ruin.ruinRoutes(Arrays.asList(route));
+
+        Assert.assertEquals(2, ruined.size());
+        Assert.assertTrue(ruined.contains(s1));
+        Assert.assertTrue(ruined.contains(s2));
+    }
+
+    @Test
+    public void itShouldContinueWithLessRelatedJobsIfMostRelatedCannotBeRemoved() {
+        Service target = Service.Builder.newInstance("target").setLocation(Location.newInstance(0, 0)).build();
+        Service s1 = Service.Builder.newInstance("s1").setLocation(Location.newInstance(0, 1)).build();
+        Service s2 = Service.Builder.newInstance("s2").setLocation(Location.newInstance(0, 2)).build();
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0)).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addJob(target).addJob(s1).addJob(s2)
+            .addVehicle(v).build();
+
+        VehicleRoute.Builder routeBuilder = VehicleRoute.Builder.newInstance(v).addService(target);
+        for (int i = 0; i < 4; i++) {
+            //initial jobs, i.e. not part of the problem, cannot be removed
+            routeBuilder.addService(Service.Builder.newInstance("initial" + i).setLocation(Location.newInstance(0, 0)).build());
+        }
+        VehicleRoute route = routeBuilder.addService(s1).addService(s2).build();
+        setArrTimes(route, 0, 1, 2, 3, 4, 10, 11);
+
+        RuinTimeRelated ruin = new RuinTimeRelated(vrp);
+        ruin.setRandom(new FirstActivityRandom());
+        ruin.setRuinShareFactory(() -> 2);
+        Collection<Job> ruined = ruin.ruinRoutes(Arrays.asList(route));
+
+        Assert.assertEquals(2, ruined.size());
+        Assert.assertTrue(ruined.contains(s1));
+        Assert.assertTrue(ruined.contains(s2));
+        Assert.assertEquals(5, route.getActivities().size());
+    }
+
+    private static void setArrTimes(VehicleRoute route, double... arrTimes) {
+        for (int i = 0; i < arrTimes.length; i++) {
+            route.getActivities().get(i).setArrTime(arrTimes[i]);
+        }
+    }
+
+    /**
+     * Selects the first activity as target and relates by time only.
+     */
+    private static class FirstActivityRandom extends Random {
+
+        @Override
+        public int nextInt(int bound) {
+            return 0;
+        }
+
+        @Override
+        public double nextDouble() {
+            return 0;
+        }
+    }
 
 }
@@ -24,12 +24,12 @@ import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.Service;
 import com.graphhopper.jsprit.core.problem.job.Shipment;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.util.Coordinate;
 import org.junit.Test;
 
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.*;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -213,5 +213,85 @@ public class RuinWorstTest {
 
     }
 
+    @Test
+    public void itShouldRemoveTheSameJobsAsRecalculatingAllSavingsAfterEachRemoval() {
+        Random random = new Random(4711);
+        VehicleImpl v = VehicleImpl.Builder.newInstance("v")
+            .setStartLocation(Location.newInstance(50, 50)).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(v);
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Job job;
+            if (i % 3 == 0) {
+                job = Shipment.Builder.newInstance("shipment" + i)
+                    .setPickupLocation(Location.newInstance(random.nextDouble() * 100, random.nextDouble() * 100))
+                    .setDeliveryLocation(Location.newInstance(random.nextDouble() * 100, random.nextDouble() * 100)).build();
+            } else {
+                job = Service.Builder.newInstance("service" + i)
+                    .setLocation(Location.newInstance(random.nextDouble() * 100, random.nextDouble() * 100)).build();
+            }
+            jobs.add(job);
+            vrpBuilder.addJob(job);
+        }
+        VehicleRoutingProblem vrp = vrpBuilder.build();
+
+        List<VehicleRoute> routes = new ArrayList<>();
+        List<VehicleRoute> expectedRoutes = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            VehicleRoute.Builder builder = VehicleRoute.Builder.newInstance(v).setJobActivityFactory(vrp.getJobActivityFactory());
+            for (int i = r; i < jobs.size(); i += 3) {
+                Job job = jobs.get(i);
+                if (job instanceof Shipment) builder.addPickup((Shipment) job);
+                else builder.addService((Service) job);
+                if (i % 2 == 0 && job instanceof Shipment) builder.addDelivery((Shipment) job);
+            }
+            for (int i = r; i < jobs.size(); i += 3) {
+                Job job = jobs.get(i);
+                if (i % 2 != 0 && job instanceof Shipment) builder.addDelivery((Shipment) job);
+            }
+            VehicleRoute route = builder.build();
+            routes.add(route);
+            expectedRoutes.add(VehicleRoute.copyOf(route));
+        }
+
+        RuinWorst worst = new RuinWorst(vrp, 25);
+        Collection<Job> unassigned = worst.ruinRoutes(routes);
+
+        List<Job> expected = new ArrayList<>();
+        for (int k = 0; k < 25; k++) {
+            Job worstJob = null;
+            VehicleRoute worstRoute = null;
+            double bestSavings = 0;
+            for (VehicleRoute route : expectedRoutes) {
+                Map<Job, Double> savings = new HashMap<>();
+                List<TourActivity> acts = route.getActivities();
+                for (int i = 0; i < acts.size(); i++) {
+                    TourActivity prev = i == 0 ? route.getStart() : acts.get(i - 1);
+                    TourActivity next = i == acts.size() - 1 ? route.getEnd() : acts.get(i + 1);
+                    double s = Math.max(0, c(vrp, prev, acts.get(i)) + c(vrp, acts.get(i), next) - c(vrp, prev, next));
+                    Job job = ((TourActivity.JobActivity) acts.get(i)).getJob();
+                    savings.put(job, savings.containsKey(job) ? savings.get(job) + s : s);
+                }
+                for (Map.Entry<Job, Double> e : savings.entrySet()) {
+                    if (e.getValue() > bestSavings) {
+                        bestSavings = e.getValue();
+                        worstJob = e.getKey();
+                        worstRoute = route;
+                    }
+                }
+            }
+            worstRoute.getTourActivities().removeJob(worstJob);
+            expected.add(worstJob);
+        }
+
+        assertEquals(expected, new ArrayList<>(unassigned));
+        for (int r = 0; r < routes.size(); r++) {
+            assertEquals(expectedRoutes.get(r).getActivities().size(), routes.get(r).getActivities().size());
+        }
+    }
+
+    private static double c(VehicleRoutingProblem vrp, TourActivity from, TourActivity to) {
+        return vrp.getTransportCosts().getTransportCost(from.getLocation(), to.getLocation(), from.getEndTime(), null, null);
+    }
 
 }
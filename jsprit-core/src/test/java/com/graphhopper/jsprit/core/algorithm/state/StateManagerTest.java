@@ -20,9 +20,13 @@ package com.graphhopper.jsprit.core.algorithm.state;
 import com.graphhopper.jsprit.core.problem.*;
 import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.Service;
+import com.graphhopper.jsprit.core.problem.job.Shipment;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.ActivityVisitor;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.ServiceActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TimeWindow;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
+import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivityArrays;
 import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
@@ -32,6 +36,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -356,4 +361,402 @@ public class StateManagerTest {
         }
         stateManager.putTypedInternalRouteState(route,myState,1.);
     }
+
+    @Test
+    public void whenActivityDoubleStateIsSet_itMustBeSetCorrectly() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putActivityDoubleState(activity, id, 3.5);
+        assertEquals(3.5, stateManager.getActivityDoubleState(activity, id, 0.), 0.01);
+        assertEquals(3.5, stateManager.getActivityState(activity, id, Double.class), 0.01);
+    }
+
+    @Test
+    public void whenActivityDoubleStateIsNotSet_itShouldReturnDefault() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        assertEquals(-1., stateManager.getActivityDoubleState(activity, id, -1.), 0.01);
+        assertNull(stateManager.getActivityState(activity, id, Double.class));
+    }
+
+    @Test
+    public void whenActivityStateIsSetWithGenericMethod_doubleGetterMustReturnIt() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putActivityState(activity, id, 2.);
+        assertEquals(2., stateManager.getActivityDoubleState(activity, id, 0.), 0.01);
+    }
+
+    @Test
+    public void whenActivityIntStateIsSet_itMustBeSetCorrectly() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putActivityIntState(activity, id, 3);
+        assertEquals(3, stateManager.getActivityIntState(activity, id, 0));
+        assertEquals(3, (int) stateManager.getActivityState(activity, id, Integer.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenActivityIntStateIsReservedValue_itShouldThrowException() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putActivityIntState(activity, id, StateManager.NO_INT_STATE);
+    }
+
+    @Test
+    public void whenVehicleDependentActivityDoubleStatesAreSet_theyMustBeSetCorrectly() {
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(4.).build();
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleImpl vehicle2 = VehicleImpl.Builder.newInstance("v2").setStartLocation(Location.newInstance("loc")).setType(type).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle).addVehicle(vehicle2).build();
+
+        TourActivity act = mock(TourActivity.class);
+        when(act.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrp);
+        StateId id = stateManager.createStateId("vehicleParam");
+        stateManager.putActivityDoubleState(act, vehicle, id, 1.);
+        stateManager.putActivityDoubleState(act, vehicle2, id, 4.);
+
+        assertEquals(1., stateManager.getActivityDoubleState(act, vehicle, id, 0.), 0.01);
+        assertEquals(4., stateManager.getActivityDoubleState(act, vehicle2, id, 0.), 0.01);
+        assertTrue(stateManager.hasActivityState(act, vehicle2, id));
+        assertEquals(4., stateManager.getActivityState(act, vehicle2, id, Double.class), 0.01);
+    }
+
+    @Test
+    public void whenClearing_primitiveStatesShouldBeReset() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle).build();
+
+        TourActivity act = mock(TourActivity.class);
+        when(act.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrp);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putActivityDoubleState(act, id, 1.);
+        stateManager.putActivityIntState(act, vehicle, id, 2);
+
+        stateManager.clear();
+
+        assertEquals(-1., stateManager.getActivityDoubleState(act, id, -1.), 0.01);
+        assertEquals(-1, stateManager.getActivityIntState(act, vehicle, id, -1));
+        assertFalse(stateManager.hasActivityState(act, vehicle, id));
+    }
+
+    @Test
+    public void whenStateIdsAreCreatedAfterDoubleStateIsSet_stateMustBeKept() {
+        TourActivity activity = mock(TourActivity.class);
+        when(activity.getIndex()).thenReturn(1);
+        StateManager stateManager = new StateManager(vrpMock);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putActivityDoubleState(activity, id, 3.);
+        StateId last = null;
+        for (int i = 0; i < 20; i++) {
+            last = stateManager.createStateId("myState" + i);
+        }
+        stateManager.putActivityDoubleState(activity, last, 4.);
+        assertEquals(3., stateManager.getActivityDoubleState(activity, id, 0.), 0.01);
+        assertEquals(4., stateManager.getActivityDoubleState(activity, last, 0.), 0.01);
+    }
+
+    @Test
+    public void whenFleetIsFinite_routeStatesShouldBeIndexBased() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleImpl vehicle2 = VehicleImpl.Builder.newInstance("v2").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(vehicle).addVehicle(vehicle2).build();
+
+        VehicleRoute route = getRoute(vehicle);
+        VehicleRoute route2 = getRoute(vehicle2);
+        StateManager stateManager = new StateManager(vrp);
+        assertTrue(stateManager.isIndexed(route));
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putRouteState(route, id, 1.);
+        stateManager.putRouteState(route2, vehicle, id, 2.);
+
+        assertEquals(1., stateManager.getRouteState(route, id, Double.class), 0.01);
+        assertNull(stateManager.getRouteState(route2, id, Double.class));
+        assertEquals(2., stateManager.getRouteState(route2, vehicle, id, Double.class), 0.01);
+        assertTrue(stateManager.hasRouteState(route2, vehicle, id));
+        assertFalse(stateManager.hasRouteState(route, vehicle, id));
+    }
+
+    @Test
+    public void whenIndexBasedRouteStatesAreSwitchedOff_routeStatesShouldBeMemorizedInMaps() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(vehicle).build();
+
+        VehicleRoute route = getRoute(vehicle);
+        StateManager stateManager = new StateManager(vrp, false);
+        assertFalse(stateManager.isIndexed(route));
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putRouteState(route, id, 1.);
+        assertEquals(1., stateManager.getRouteState(route, id, Double.class), 0.01);
+        assertNull(stateManager.getRouteState(VehicleRoute.copyOf(route), id, Double.class));
+    }
+
+    @Test
+    public void whenFleetIsInfinite_routeStatesShouldBeMemorizedInMaps() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.INFINITE)
+            .addVehicle(vehicle).build();
+
+        VehicleRoute route = getRoute(vehicle);
+        VehicleRoute route2 = getRoute(vehicle);
+        StateManager stateManager = new StateManager(vrp);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putRouteState(route, id, 1.);
+        assertNull(stateManager.getRouteState(route2, id, Double.class));
+    }
+
+    @Test
+    public void whenRoutesHaveNoVehicle_theirStatesShouldBeSeparated() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(vehicle).build();
+
+        VehicleRoute emptyRoute = VehicleRoute.emptyRoute();
+        VehicleRoute emptyRoute2 = VehicleRoute.emptyRoute();
+        StateManager stateManager = new StateManager(vrp);
+        assertFalse(stateManager.isIndexed(emptyRoute));
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putRouteState(emptyRoute, id, 1.);
+        assertEquals(1., stateManager.getRouteState(emptyRoute, id, Double.class), 0.01);
+        assertNull(stateManager.getRouteState(emptyRoute2, id, Double.class));
+    }
+
+    @Test
+    public void whenRouteIsCopied_copyShouldShareIndexBasedStates() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(vehicle).build();
+
+        VehicleRoute route = getRoute(vehicle);
+        StateManager stateManager = new StateManager(vrp);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putRouteState(route, id, 1.);
+        assertEquals(1., stateManager.getRouteState(VehicleRoute.copyOf(route), id, Double.class), 0.01);
+    }
+
+    @Test
+    public void whenVehicleIsSwitched_routeShouldKeepItsStatesAndOldVehicleShouldBeFree() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleImpl vehicle2 = VehicleImpl.Builder.newInstance("v2").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(vehicle).addVehicle(vehicle2).build();
+
+        VehicleRoute route = getRoute(vehicle);
+        StateManager stateManager = new StateManager(vrp);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putRouteState(route, id, 1.);
+        stateManager.putRouteState(route, vehicle2, id, 2.);
+
+        stateManager.vehicleSwitched(route, vehicle, vehicle2);
+        route.setVehicleAndDepartureTime(vehicle2, 0.);
+
+        assertEquals(1., stateManager.getRouteState(route, id, Double.class), 0.01);
+        assertEquals(2., stateManager.getRouteState(route, vehicle2, id, Double.class), 0.01);
+        assertNull(stateManager.getRouteState(getRoute(vehicle), id, Double.class));
+    }
+
+    @Test
+    public void whenEmptyRouteGetsVehicle_itsStatesShouldBeMovedToIndexBasedStates() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance("loc")).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+            .addVehicle(vehicle).build();
+
+        VehicleRoute route = VehicleRoute.emptyRoute();
+        StateManager stateManager = new StateManager(vrp);
+        StateId id = stateManager.createStateId("myState");
+        stateManager.putRouteState(route, id, 1.);
+
+        stateManager.vehicleSwitched(route, route.getVehicle(), vehicle);
+        route.setVehicleAndDepartureTime(vehicle, 0.);
+
+        assertTrue(stateManager.isIndexed(route));
+        assertEquals(1., stateManager.getRouteState(route, id, Double.class), 0.01);
+    }
+
+    private Service service(String id, double x, double start, double end) {
+        return Service.Builder.newInstance(id).setLocation(Location.newInstance(x, 0)).setServiceTime(1.)
+            .setTimeWindow(TimeWindow.newInstance(start, end)).build();
+    }
+
+    private StateManager createTimeAndCostStateManager(VehicleRoutingProblem vrp) {
+        StateManager stateManager = new StateManager(vrp);
+        stateManager.addStateUpdater(new UpdateActivityTimes(vrp.getTransportCosts(), vrp.getActivityCosts()));
+        stateManager.addStateUpdater(new UpdateVariableCosts(vrp.getActivityCosts(), vrp.getTransportCosts(), stateManager));
+        stateManager.addStateUpdater(new UpdatePracticalTimeWindows(stateManager, vrp.getTransportCosts(), vrp.getActivityCosts()));
+        stateManager.addStateUpdater(new UpdateVehicleDependentPracticalTimeWindows(stateManager, vrp.getTransportCosts(), vrp.getActivityCosts()));
+        return stateManager;
+    }
+
+    private List<Double> timeAndCostStates(StateManager stateManager, VehicleRoute route) {
+        List<Double> states = new ArrayList<>();
+        for (TourActivity act : route.getActivities()) {
+            states.add(act.getArrTime());
+            states.add(act.getEndTime());
+            states.add(stateManager.getActivityState(act, InternalStates.COSTS, Double.class));
+            states.add(stateManager.getActivityState(act, InternalStates.LATEST_OPERATION_START_TIME, Double.class));
+            states.add(stateManager.getActivityState(act, route.getVehicle(), InternalStates.LATEST_OPERATION_START_TIME, Double.class));
+        }
+        states.add(route.getEnd().getArrTime());
+        states.add(stateManager.getRouteState(route, InternalStates.COSTS, Double.class));
+        return states;
+    }
+
+    private void assertIncrementalUpdateEqualsRecalculation(VehicleRoutingProblem vrp, VehicleRoute route, Job job, int... insertionIndices) {
+        StateManager stateManager = createTimeAndCostStateManager(vrp);
+        stateManager.informInsertionStarts(Collections.singletonList(route), Collections.<Job>emptyList());
+        List<AbstractActivity> acts = vrp.copyAndGetActivities(job);
+        for (int i = 0; i < acts.size(); i++) {
+            route.getTourActivities().addActivity(insertionIndices[i], acts.get(i));
+        }
+        stateManager.informJobInserted(job, route, null);
+        List<Double> incremental = timeAndCostStates(stateManager, route);
+        TourActivityArrays activityArrays = route.getTourActivities().getActivityArrays();
+        for (int i = 0; i < activityArrays.size(); i++) {
+            assertEquals(activityArrays.getActivity(i).getArrTime(), activityArrays.getArrTime(i), 0.);
+            assertEquals(activityArrays.getActivity(i).getEndTime(), activityArrays.getEndTime(i), 0.);
+        }
+
+        StateManager recalculated = createTimeAndCostStateManager(vrp);
+        recalculated.reCalculateStates(route);
+        assertEquals(timeAndCostStates(recalculated, route), incremental);
+    }
+
+    @Test
+    public void whenServiceIsInsertedInTheMiddle_incrementalUpdateShouldEqualRecalculation() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0))
+            .setLatestArrival(100.).build();
+        Service s1 = service("s1", 10, 0, 100);
+        Service s2 = service("s2", 20, 30, 40);
+        Service s3 = service("s3", 30, 0, 60);
+        Service s4 = service("s4", 40, 0, 100);
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .addJob(s1).addJob(s2).addJob(s3).addJob(s4).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(s1).addService(s3).addService(s4).build();
+
+        assertIncrementalUpdateEqualsRecalculation(vrp, route, s2, 1);
+    }
+
+    @Test
+    public void whenServiceIsInsertedAtTheEnds_incrementalUpdateShouldEqualRecalculation() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0))
+            .setLatestArrival(100.).build();
+        Service s1 = service("s1", 10, 0, 100);
+        Service s2 = service("s2", 20, 0, 100);
+        Service s3 = service("s3", 30, 0, 100);
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .addJob(s1).addJob(s2).addJob(s3).build();
+
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(s2).addService(s3).build();
+        assertIncrementalUpdateEqualsRecalculation(vrp, route, s1, 0);
+
+        route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(s1).addService(s2).build();
+        assertIncrementalUpdateEqualsRecalculation(vrp, route, s3, 2);
+    }
+
+    @Test
+    public void whenShipmentIsInserted_incrementalUpdateShouldEqualRecalculation() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0))
+            .setLatestArrival(200.).build();
+        Service s1 = service("s1", 10, 0, 200);
+        Service s2 = service("s2", 20, 50, 60);
+        Service s3 = service("s3", 30, 0, 200);
+        Shipment shipment = Shipment.Builder.newInstance("sh").setPickupLocation(Location.newInstance(5, 5))
+            .setDeliveryLocation(Location.newInstance(25, 5)).setDeliveryTimeWindow(TimeWindow.newInstance(0, 80)).build();
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .addJob(s1).addJob(s2).addJob(s3).addJob(shipment).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(s1).addService(s2).addService(s3).build();
+
+        assertIncrementalUpdateEqualsRecalculation(vrp, route, shipment, 1, 3);
+    }
+
+    @Test
+    public void whenRouteHasBeenChangedOtherwise_insertionShouldUpdateEntireRoute() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0))
+            .setLatestArrival(100.).build();
+        Service s1 = service("s1", 10, 0, 100);
+        Service s2 = service("s2", 20, 0, 100);
+        Service s3 = service("s3", 30, 0, 100);
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .addJob(s1).addJob(s2).addJob(s3).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(s1).addService(s2).build();
+
+        StateManager stateManager = createTimeAndCostStateManager(vrp);
+        stateManager.informInsertionStarts(Collections.singletonList(route), Collections.<Job>emptyList());
+        route.getTourActivities().removeJob(s1);
+        route.getTourActivities().addActivity(1, vrp.copyAndGetActivities(s3).get(0));
+        stateManager.informJobInserted(s3, route, null);
+        List<Double> incremental = timeAndCostStates(stateManager, route);
+
+        StateManager recalculated = createTimeAndCostStateManager(vrp);
+        recalculated.reCalculateStates(route);
+        assertEquals(timeAndCostStates(recalculated, route), incremental);
+    }
+
+    private static class TimeRecorder implements ActivityVisitor, StateUpdater {
+
+        private final List<Double> times = new ArrayList<>();
+
+        @Override
+        public void begin(VehicleRoute route) {
+            times.clear();
+        }
+
+        @Override
+        public void visit(TourActivity activity) {
+            times.add(activity.getArrTime());
+            times.add(activity.getEndTime());
+        }
+
+        @Override
+        public void finish() {
+
+        }
+
+    }
+
+    @Test
+    public void whenVisitorReadsTimesOnIncrementalUpdate_itShouldReadTheSameTimesAsOnRecalculation() {
+        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("v").setStartLocation(Location.newInstance(0, 0))
+            .setLatestArrival(100.).build();
+        Service s1 = service("s1", 10, 0, 100);
+        Service s2 = service("s2", 20, 0, 100);
+        Service s3 = service("s3", 30, 0, 100);
+        VehicleRoutingProblem vrp = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle)
+            .addJob(s1).addJob(s2).addJob(s3).build();
+        VehicleRoute route = VehicleRoute.Builder.newInstance(vehicle).setJobActivityFactory(vrp.getJobActivityFactory())
+            .addService(s1).addService(s3).build();
+
+        StateManager stateManager = createTimeAndCostStateManager(vrp);
+        TimeRecorder incremental = new TimeRecorder();
+        stateManager.addStateUpdater(incremental);
+        stateManager.informInsertionStarts(Collections.singletonList(route), Collections.<Job>emptyList());
+        route.getTourActivities().addActivity(1, vrp.copyAndGetActivities(s2).get(0));
+        stateManager.informJobInserted(s2, route, null);
+
+        StateManager recalculated = createTimeAndCostStateManager(vrp);
+        TimeRecorder full = new TimeRecorder();
+        recalculated.addStateUpdater(full);
+        recalculated.reCalculateStates(route);
+        assertEquals(6, full.times.size());
+        assertEquals(full.times, incremental.times);
+    }
 }
@@ -21,6 +21,7 @@ package com.graphhopper.jsprit.core.algorithm.state;
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.job.Delivery;
+import com.graphhopper.jsprit.core.problem.job.Job;
 import com.graphhopper.jsprit.core.problem.job.Pickup;
 import com.graphhopper.jsprit.core.problem.job.Shipment;
 import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
@@ -199,5 +200,42 @@ public class UpdateMaxTimeInVehicleTest {
         }
     }
 
+    @Test
+    public void openDeliveriesShouldBeMemorizedAsRangesOfActivityPositions() {
+        stateManager.informInsertionStarts(Arrays.asList(route2), null);
+        OpenDeliveries openDeliveries = stateManager.getRouteState(route2, v, openJobsId, OpenDeliveries.class);
+        Assert.assertEquals(3, openDeliveries.getNuActivities());
+        Assert.assertEquals(2, openDeliveries.size());
+
+        Job d1 = vrp.getJobs().get("d1");
+        Job shipment = vrp.getJobs().get("shipment");
+        Assert.assertTrue(openDeliveries.isOpen(d1, 0));
+        Assert.assertFalse(openDeliveries.isOpen(d1, 1));
+        Assert.assertFalse(openDeliveries.isOpen(shipment, 1));
+        Assert.assertTrue(openDeliveries.isOpen(shipment, 2));
+        Assert.assertFalse(openDeliveries.isOpen(shipment, 3));
+
+        for (int entry = 0; entry < openDeliveries.size(); entry++) {
+            if (openDeliveries.getJob(entry) == shipment) Assert.assertEquals(0, openDeliveries.getSlack(entry), 0.001);
+        }
+        Assert.assertEquals(Double.MAX_VALUE, openDeliveries.getMinSlack(1), 0.001);
+        Assert.assertEquals(0, openDeliveries.getMinSlack(2), 0.001);
+        Assert.assertEquals(Double.MAX_VALUE, openDeliveries.getMinSlack(3), 0.001);
+        Assert.assertEquals(Double.MAX_VALUE, stateManager.getRouteState(route2, v, minSlackId, Double.class), 0.001);
+    }
+
+    @Test
+    public void openPickupsShouldBeOpenUntilRouteEnd() {
+        stateManager.informInsertionStarts(Arrays.asList(route), null);
+        OpenDeliveries openDeliveries = stateManager.getRouteState(route, v, openJobsId, OpenDeliveries.class);
+        Assert.assertEquals(4, openDeliveries.size());
+        Job s = vrp.getJobs().get("s");
+        Job s4 = vrp.getJobs().get("s4");
+        Assert.assertFalse(openDeliveries.isOpen(s, 0));
+        Assert.assertTrue(openDeliveries.isOpen(s, 1));
+        Assert.assertTrue(openDeliveries.isOpen(s, 4));
+        Assert.assertFalse(openDeliveries.isOpen(s4, 3));
+        Assert.assertTrue(openDeliveries.isOpen(s4, 4));
+    }
 
 }
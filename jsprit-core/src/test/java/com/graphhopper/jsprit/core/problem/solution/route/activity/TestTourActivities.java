@@ -24,6 +24,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.Iterator;
+
 import static org.junit.Assert.*;
 
 
@@ -249,4 +251,119 @@ public class TestTourActivities {
         assertTrue(copiedTour.servesJob(s));
     }
 
+    @Test
+    public void whenAddingAndRemovingActivities_modificationCountShouldIncrease() {
+        assertEquals(0, tour.getModificationCount());
+        tour.addActivity(act);
+        assertEquals(1, tour.getModificationCount());
+        assertFalse(tour.removeJob(Service.Builder.newInstance("other").setLocation(Location.newInstance("loc")).build()));
+        assertEquals(1, tour.getModificationCount());
+        tour.removeJob(service);
+        assertEquals(2, tour.getModificationCount());
+        tour.addActivity(0, act);
+        tour.removeActivity(act);
+        assertEquals(4, tour.getModificationCount());
+        assertEquals(0, TourActivities.copyOf(tour).getModificationCount());
+    }
+
+    private void assertActivityArraysInSync(TourActivities tour) {
+        TourActivityArrays arrays = tour.getActivityArrays();
+        assertEquals(tour.getActivities().size(), arrays.size());
+        for (int i = 0; i < arrays.size(); i++) {
+            TourActivity act = tour.getActivities().get(i);
+            assertSame(act, arrays.getActivity(i));
+            assertSame(act.getLocation(), arrays.getLocation(i));
+            assertEquals(act.getTheoreticalEarliestOperationStartTime(), arrays.getEarliestOperationStartTime(i), 0.);
+            assertEquals(act.getTheoreticalLatestOperationStartTime(), arrays.getLatestOperationStartTime(i), 0.);
+            assertEquals(act.getArrTime(), arrays.getArrTime(i), 0.);
+            assertEquals(act.getEndTime(), arrays.getEndTime(i), 0.);
+        }
+    }
+
+    private ServiceActivity serviceAct(String id, int locationIndex, double twStart) {
+        Service s = Service.Builder.newInstance(id).setLocation(Location.newInstance(locationIndex)).setServiceTime(locationIndex)
+            .setTimeWindow(TimeWindow.newInstance(twStart, twStart + 10)).build();
+        return ServiceActivity.newInstance(s);
+    }
+
+    @Test
+    public void whenAddingAndRemovingActivities_activityArraysShouldBeInSync() {
+        ServiceActivity a1 = serviceAct("1", 1, 10);
+        ServiceActivity a2 = serviceAct("2", 2, 20);
+        ServiceActivity a3 = serviceAct("3", 3, 30);
+        ServiceActivity a4 = serviceAct("4", 4, 40);
+        tour.addActivity(a1);
+        tour.addActivity(a3);
+        tour.addActivity(1, a2);
+        tour.addActivity(0, a4);
+        assertActivityArraysInSync(tour);
+
+        tour.removeActivity(a2);
+        assertActivityArraysInSync(tour);
+        tour.removeJob(a4.getJob());
+        assertActivityArraysInSync(tour);
+        assertEquals(1, tour.getActivityArrays().indexOf(a3));
+        assertEquals(-1, tour.getActivityArrays().indexOf(a2));
+
+        for (int i = 0; i < 20; i++) {
+            tour.addActivity(tour.getActivities().size() / 2, serviceAct("n" + i, i, i));
+        }
+        assertActivityArraysInSync(tour);
+        assertActivityArraysInSync(TourActivities.copyOf(tour));
+    }
+
+    @Test
+    public void whenRemovingNonJobActivityViaIterator_activityArraysShouldBeInSync() {
+        ServiceActivity a1 = serviceAct("1", 1, 10);
+        ServiceActivity a2 = serviceAct("2", 2, 20);
+        Start start = new Start(Location.newInstance(5), 0., 100.);
+        tour.addActivity(a1);
+        tour.addActivity(start);
+        tour.addActivity(a2);
+        Iterator<TourActivity> iterator = tour.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == start) iterator.remove();
+        }
+        assertActivityArraysInSync(tour);
+        assertEquals(2, tour.getActivityArrays().size());
+    }
+
+    @Test
+    public void whenTimesAreSet_activityAndActivityArraysShouldMemorizeThem() {
+        ServiceActivity a1 = serviceAct("1", 1, 10);
+        ServiceActivity a2 = serviceAct("2", 2, 20);
+        tour.addActivity(a1);
+        tour.addActivity(a2);
+        tour.setActivityTimes(1, 15., 22.);
+        tour.addActivity(0, serviceAct("0", 0, 0));
+        assertEquals(15., a2.getArrTime(), 0.);
+        assertEquals(22., a2.getEndTime(), 0.);
+        assertEquals(15., tour.getActivityArrays().getArrTime(2), 0.);
+        assertEquals(22., tour.getActivityArrays().getEndTime(2), 0.);
+        assertActivityArraysInSync(tour);
+    }
+
+    @Test
+    public void whenTimeWindowIsChangedAfterAdding_settingTimesShouldUpdateActivityArrays() {
+        ServiceActivity a1 = serviceAct("1", 1, 10);
+        tour.addActivity(a1);
+        a1.setTheoreticalEarliestOperationStartTime(50.);
+        a1.setTheoreticalLatestOperationStartTime(60.);
+        tour.setActivityTimes(0, 40., 51.);
+        assertEquals(50., tour.getActivityArrays().getEarliestOperationStartTime(0), 0.);
+        assertEquals(60., tour.getActivityArrays().getLatestOperationStartTime(0), 0.);
+    }
+
+    @Test
+    public void isAtShouldCompareActivityAtIndex() {
+        ServiceActivity a1 = serviceAct("1", 1, 10);
+        ServiceActivity a2 = serviceAct("2", 2, 20);
+        tour.addActivity(a1);
+        tour.addActivity(a2);
+        assertTrue(tour.getActivityArrays().isAt(1, a2));
+        assertFalse(tour.getActivityArrays().isAt(0, a2));
+        assertFalse(tour.getActivityArrays().isAt(-1, a1));
+        assertFalse(tour.getActivityArrays().isAt(2, a1));
+    }
+
 }
@@ -0,0 +1,147 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BoundedExecutorServiceTest {
+
+    private ExecutorService sharedExecutor;
+
+    @Before
+    public void doBefore() {
+        sharedExecutor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void doAfter() {
+        sharedExecutor.shutdownNow();
+    }
+
+    @Test
+    public void whenRunningManyTasks_atMostMaxConcurrencyShouldRunAtTheSameTime() throws Exception {
+        BoundedExecutorService executorService = new BoundedExecutorService(sharedExecutor, 3);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+
+                @Override
+                public Integer call() throws Exception {
+                    int r = running.incrementAndGet();
+                    int max;
+                    do {
+                        max = maxRunning.get();
+                    } while (r > max && !maxRunning.compareAndSet(max, r));
+                    Thread.sleep(1);
+                    running.decrementAndGet();
+                    return value;
+                }
+
+            });
+        }
+        List<Future<Integer>> futures = executorService.invokeAll(tasks);
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, (int) futures.get(i).get());
+        }
+        assertTrue(maxRunning.get() <= 3);
+    }
+
+    @Test
+    public void whenShuttingDown_sharedExecutorShouldKeepRunning() throws Exception {
+        BoundedExecutorService executorService = new BoundedExecutorService(sharedExecutor, 2);
+        assertEquals(1, (int) executorService.submit(new Callable<Integer>() {
+
+            @Override
+            public Integer call() {
+                return 1;
+            }
+
+        }).get());
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(1, java.util.concurrent.TimeUnit.SECONDS));
+        assertTrue(executorService.isTerminated());
+        assertFalse(sharedExecutor.isShutdown());
+    }
+
+    @Test
+    public void whenSubmittingFewerTasksThanMaxConcurrency_itShouldStartOneWorkerPerTask() {
+        final List<Runnable> workers = new ArrayList<>();
+        Executor countingExecutor = new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                workers.add(command);
+            }
+
+        };
+        BoundedExecutorService executorService = new BoundedExecutorService(countingExecutor, 4);
+        final AtomicInteger noRuns = new AtomicInteger();
+        Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                noRuns.incrementAndGet();
+            }
+
+        };
+        executorService.execute(task);
+        assertEquals(1, workers.size());
+        executorService.execute(task);
+        assertEquals(2, workers.size());
+        for (int i = 0; i < 10; i++) executorService.execute(task);
+        assertEquals(4, workers.size());
+
+        for (Runnable worker : new ArrayList<>(workers)) worker.run();
+        assertEquals(12, noRuns.get());
+        assertEquals(4, workers.size());
+        executorService.execute(task);
+        assertEquals(5, workers.size());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void whenShutDown_itShouldRejectTasks() {
+        BoundedExecutorService executorService = new BoundedExecutorService(sharedExecutor, 2);
+        executorService.shutdown();
+        executorService.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+            }
+
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenMaxConcurrencyIsZero_itShouldThrowException() {
+        new BoundedExecutorService(sharedExecutor, 0);
+    }
+
+}
@@ -23,7 +23,10 @@ import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -109,5 +112,88 @@ public class FastVehicleRoutingTransportCostsMatrixTest {
         assertEquals(16., matrix.getTransportCost(loc(2), loc(1), 0.0, null, vehicle), 0.1);
     }
 
+    @Test
+    public void whenStoringValuesAsFloatOrInt_itShouldReturnCorrectValues() {
+        for (FastVehicleRoutingTransportCostsMatrix.Precision precision : FastVehicleRoutingTransportCostsMatrix.Precision.values()) {
+            for (boolean isSymmetric : new boolean[]{true, false}) {
+                FastVehicleRoutingTransportCostsMatrix matrix = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(3, isSymmetric, precision)
+                    .addTransportTimeAndDistance(1, 2, 2., 100.).addTransportTimeAndDistance(2, 0, 3., 50.).build();
+                assertEquals(precision, matrix.getPrecision());
+                assertEquals(2., matrix.getTransportTime(loc(1), loc(2), 0.0, null, null), 0.);
+                assertEquals(100., matrix.getDistance(1, 2), 0.);
+                assertEquals(50., matrix.getDistance(loc(2), loc(0), 0.0, null), 0.);
+                assertEquals(isSymmetric ? 3. : 0., matrix.getTransportTime(loc(0), loc(2), 0.0, null, null), 0.);
+                assertEquals(isSymmetric ? 100. : 0., matrix.getDistance(2, 1), 0.);
+            }
+        }
+    }
+
+    @Test
+    public void quantizationErrorShouldBeBounded() {
+        int noLocations = 50;
+        double scale = 10.;
+        Random random = new Random(4711);
+        double[][] distances = new double[noLocations][noLocations];
+        double[][] times = new double[noLocations][noLocations];
+        FastVehicleRoutingTransportCostsMatrix.Builder floatBuilder = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(noLocations, false, FastVehicleRoutingTransportCostsMatrix.Precision.FLOAT);
+        FastVehicleRoutingTransportCostsMatrix.Builder intBuilder = FastVehicleRoutingTransportCostsMatrix.Builder.newIntInstance(noLocations, false, scale);
+        for (int from = 0; from < noLocations; from++) {
+            for (int to = 0; to < noLocations; to++) {
+                distances[from][to] = random.nextDouble() * 1e6;
+                times[from][to] = random.nextDouble() * 1e5;
+                floatBuilder.addTransportTimeAndDistance(from, to, times[from][to], distances[from][to]);
+                intBuilder.addTransportTimeAndDistance(from, to, times[from][to], distances[from][to]);
+            }
+        }
+        FastVehicleRoutingTransportCostsMatrix floatMatrix = floatBuilder.build();
+        FastVehicleRoutingTransportCostsMatrix intMatrix = intBuilder.build();
+        double maxRelativeFloatError = 0.;
+        double maxAbsoluteIntError = 0.;
+        for (int from = 0; from < noLocations; from++) {
+            for (int to = 0; to < noLocations; to++) {
+                double time = times[from][to];
+                double distance = distances[from][to];
+                maxRelativeFloatError = Math.max(maxRelativeFloatError, Math.abs(floatMatrix.getDistance(from, to) - distance) / distance);
+                maxRelativeFloatError = Math.max(maxRelativeFloatError, Math.abs(floatMatrix.getTransportTime(loc(from), loc(to), 0., null, null) - time) / time);
+                maxAbsoluteIntError = Math.max(maxAbsoluteIntError, Math.abs(intMatrix.getDistance(from, to) - distance));
+                maxAbsoluteIntError = Math.max(maxAbsoluteIntError, Math.abs(intMatrix.getTransportTime(loc(from), loc(to), 0., null, null) - time));
+            }
+        }
+        assertTrue("relative float error " + maxRelativeFloatError, maxRelativeFloatError <= Math.pow(2, -24));
+        assertTrue("absolute int error " + maxAbsoluteIntError, maxAbsoluteIntError <= 0.5 / scale + 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenIntValueOverflows_itShouldThrowException() {
+        FastVehicleRoutingTransportCostsMatrix.Builder.newIntInstance(2, false, 1000.).addTransportDistance(0, 1, 1e7);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenValuesAreNotStoredAsDouble_getMatrixShouldThrowException() {
+        FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, false, FastVehicleRoutingTransportCostsMatrix.Precision.FLOAT).build().getMatrix();
+    }
+
+    @Test
+    public void whenSymmetricMatrixIsPacked_eachRelationShouldHaveItsOwnValues() {
+        int noLocations = 7;
+        FastVehicleRoutingTransportCostsMatrix.Builder builder = FastVehicleRoutingTransportCostsMatrix.Builder.newInstance(noLocations, true);
+        for (int from = 0; from < noLocations; from++) {
+            for (int to = from; to < noLocations; to++) {
+                builder.addTransportTimeAndDistance(to, from, 1000 + from * 10 + to, from * 10 + to);
+            }
+        }
+        FastVehicleRoutingTransportCostsMatrix matrix = builder.build();
+        double[][][] unpacked = matrix.getMatrix();
+        for (int from = 0; from < noLocations; from++) {
+            for (int to = 0; to < noLocations; to++) {
+                int lower = Math.min(from, to);
+                int upper = Math.max(from, to);
+                assertEquals(lower * 10 + upper, matrix.getDistance(from, to), 0.);
+                assertEquals(1000 + lower * 10 + upper, matrix.getTransportTime(loc(from), loc(to), 0., null, null), 0.);
+                assertEquals(lower * 10 + upper, unpacked[lower][upper][0], 0.);
+                assertEquals(1000 + lower * 10 + upper, unpacked[lower][upper][1], 0.);
+            }
+        }
+    }
 
 }
@@ -0,0 +1,170 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FlatVehicleRoutingTransportCostsMatrixTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void whenAddingTimeAndDistance_itShouldReturnCorrectValues() {
+        FlatVehicleRoutingTransportCostsMatrix matrix = FlatVehicleRoutingTransportCostsMatrix.Builder.newInstance(3)
+            .addTransportTimeAndDistance(1, 2, 2., 100.).addTransportTimeAndDistance(2, 1, 3., 50.).build();
+        assertEquals(2., matrix.getTransportTime(loc(1), loc(2), 0.0, null, null), 0.01);
+        assertEquals(3., matrix.getTransportTime(loc(2), loc(1), 0.0, null, null), 0.01);
+        assertEquals(100., matrix.getDistance(loc(1), loc(2), 0.0, null), 0.01);
+        assertEquals(50., matrix.getDistance(2, 1), 0.01);
+        assertEquals(100., matrix.getTransportCost(loc(1), loc(2), 0.0, null, null), 0.01);
+        assertEquals(0., matrix.getDistance(0, 1), 0.01);
+    }
+
+    @Test
+    public void whenVehicleIsSpecified_itShouldConsiderCostParams() {
+        FlatVehicleRoutingTransportCostsMatrix matrix = FlatVehicleRoutingTransportCostsMatrix.Builder.newInstance(3)
+            .addTransportTimeAndDistance(1, 2, 2., 100.).build();
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(2.).setCostPerTransportTime(10.).build();
+        Vehicle vehicle = mock(Vehicle.class);
+        when(vehicle.getType()).thenReturn(type);
+        assertEquals(220., matrix.getTransportCost(loc(1), loc(2), 0.0, null, vehicle), 0.01);
+    }
+
+    @Test
+    public void whenStoringFloats_itShouldReturnValuesWithFloatPrecision() {
+        FlatVehicleRoutingTransportCostsMatrix matrix = FlatVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, FlatVehicleRoutingTransportCostsMatrix.Precision.FLOAT)
+            .addTransportTimeAndDistance(0, 1, 1.1, 123456.789).build();
+        assertEquals(1.1, matrix.getTransportTime(0, 1), 1e-6);
+        assertEquals(123456.789, matrix.getDistance(0, 1), 0.01);
+    }
+
+    @Test
+    public void whenWritingAndReading_itShouldReturnSameValues() throws IOException {
+        FlatVehicleRoutingTransportCostsMatrix matrix = createMatrix(FlatVehicleRoutingTransportCostsMatrix.Precision.DOUBLE);
+        File file = folder.newFile("matrix.bin");
+        matrix.writeTo(file);
+        assertSameValues(matrix, FlatVehicleRoutingTransportCostsMatrix.read(file));
+    }
+
+    @Test
+    public void whenWritingAndMapping_itShouldReturnSameValues() throws IOException {
+        FlatVehicleRoutingTransportCostsMatrix matrix = createMatrix(FlatVehicleRoutingTransportCostsMatrix.Precision.FLOAT);
+        File file = folder.newFile("matrix.bin");
+        matrix.writeTo(file);
+        FlatVehicleRoutingTransportCostsMatrix mapped = FlatVehicleRoutingTransportCostsMatrix.map(file);
+        assertEquals(FlatVehicleRoutingTransportCostsMatrix.Precision.FLOAT, mapped.getPrecision());
+        assertSameValues(matrix, mapped);
+    }
+
+    @Test(expected = IOException.class)
+    public void whenReadingOtherFile_itShouldThrowException() throws IOException {
+        File file = folder.newFile("other.bin");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[32]);
+        }
+        FlatVehicleRoutingTransportCostsMatrix.map(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void whenReadingTruncatedFile_itShouldThrowException() throws IOException {
+        File file = folder.newFile("matrix.bin");
+        createMatrix(FlatVehicleRoutingTransportCostsMatrix.Precision.DOUBLE).writeTo(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 8);
+        }
+        FlatVehicleRoutingTransportCostsMatrix.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void whenNumberOfLocationsDoesNotMatchFileLength_itShouldThrowException() throws IOException {
+        File file = folder.newFile("matrix.bin");
+        createMatrix(FlatVehicleRoutingTransportCostsMatrix.Precision.DOUBLE).writeTo(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8);
+            raf.writeInt(11);
+        }
+        FlatVehicleRoutingTransportCostsMatrix.map(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void whenNumberOfLocationsIsNotPositive_itShouldThrowException() throws IOException {
+        File file = folder.newFile("matrix.bin");
+        createMatrix(FlatVehicleRoutingTransportCostsMatrix.Precision.DOUBLE).writeTo(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8);
+            raf.writeInt(-10);
+        }
+        FlatVehicleRoutingTransportCostsMatrix.read(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenRequestingDistanceToNegativeIndex_itShouldThrowException() {
+        createMatrix(FlatVehicleRoutingTransportCostsMatrix.Precision.DOUBLE).getDistance(loc(3), loc(-1), 0.0, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenRequestingDistanceByNegativeIndex_itShouldThrowException() {
+        createMatrix(FlatVehicleRoutingTransportCostsMatrix.Precision.DOUBLE).getDistance(3, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenRequestingTimeByIndexOutOfRange_itShouldThrowException() {
+        createMatrix(FlatVehicleRoutingTransportCostsMatrix.Precision.FLOAT).getTransportTime(3, 10);
+    }
+
+    private FlatVehicleRoutingTransportCostsMatrix createMatrix(FlatVehicleRoutingTransportCostsMatrix.Precision precision) {
+        FlatVehicleRoutingTransportCostsMatrix.Builder builder = FlatVehicleRoutingTransportCostsMatrix.Builder.newInstance(10, precision);
+        for (int from = 0; from < 10; from++) {
+            for (int to = 0; to < 10; to++) {
+                builder.addTransportTimeAndDistance(from, to, from * 10 + to, from + to * 10);
+            }
+        }
+        return builder.build();
+    }
+
+    private void assertSameValues(FlatVehicleRoutingTransportCostsMatrix expected, FlatVehicleRoutingTransportCostsMatrix actual) {
+        assertEquals(expected.getNoLocations(), actual.getNoLocations());
+        for (int from = 0; from < expected.getNoLocations(); from++) {
+            for (int to = 0; to < expected.getNoLocations(); to++) {
+                assertEquals(expected.getTransportTime(from, to), actual.getTransportTime(from, to), 0.);
+                assertEquals(expected.getDistance(from, to), actual.getDistance(from, to), 0.);
+            }
+        }
+    }
+
+    private Location loc(int index) {
+        return Location.Builder.newInstance().setIndex(index).build();
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to GraphHopper GmbH under one or more contributor
+ * license agreements. See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * GraphHopper GmbH licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.graphhopper.jsprit.core.util;
+
+import com.graphhopper.jsprit.core.problem.Location;
+import com.graphhopper.jsprit.core.problem.vehicle.Vehicle;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
+import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TimeDependentVehicleRoutingTransportCostsMatrixTest {
+
+    private Location loc(int index) {
+        return Location.Builder.newInstance().setIndex(index).build();
+    }
+
+    private TimeDependentVehicleRoutingTransportCostsMatrix rushHourMatrix() {
+        // slices start at 0, 60, 120, 180; rush hour at 60
+        return TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, 4, 60.)
+            .addTransportTimes(0, 1, 10., 40., 10., 10.)
+            .addTransportTime(1, 0, 0, 20.).addTransportTime(1, 0, 1, 20.).addTransportTime(1, 0, 2, 20.).addTransportTime(1, 0, 3, 20.)
+            .addTransportDistance(0, 1, 100.).build();
+    }
+
+    @Test
+    public void whenDepartingAtSliceStarts_itShouldReturnTheseTimes() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = rushHourMatrix();
+        assertEquals(10., matrix.getTransportTime(loc(0), loc(1), 0., null, null), 0.);
+        assertEquals(40., matrix.getTransportTime(loc(0), loc(1), 60., null, null), 0.);
+        assertEquals(10., matrix.getTransportTime(loc(0), loc(1), 120., null, null), 0.);
+        assertEquals(20., matrix.getTransportTime(loc(1), loc(0), 90., null, null), 0.);
+    }
+
+    @Test
+    public void whenDepartingInBetween_itShouldInterpolateLinearly() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = rushHourMatrix();
+        assertEquals(25., matrix.getTransportTime(0, 1, 30.), 1e-9);
+        assertEquals(32.5, matrix.getTransportTime(0, 1, 75.), 1e-9);
+    }
+
+    @Test
+    public void whenDepartingOutsideOfSlices_itShouldReturnTimeOfNearestSlice() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = rushHourMatrix();
+        assertEquals(10., matrix.getTransportTime(0, 1, -5.), 0.);
+        assertEquals(10., matrix.getTransportTime(0, 1, 1000.), 0.);
+    }
+
+    @Test
+    public void backwardTransportTimeShouldBeConsistentWithForwardTransportTime() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = rushHourMatrix();
+        for (double departure = -20.; departure < 300.; departure += 7.5) {
+            double time = matrix.getTransportTime(0, 1, departure);
+            assertEquals(time, matrix.getBackwardTransportTime(loc(0), loc(1), departure + time, null, null), 1e-9);
+        }
+    }
+
+    @Test
+    public void backwardTransportTimeShouldBeConsistentForRandomFifoTimes() {
+        Random random = new Random(42);
+        int noSlices = 12;
+        TimeDependentVehicleRoutingTransportCostsMatrix.Builder builder = TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(1, noSlices, 10.);
+        double time = 50.;
+        for (int k = 0; k < noSlices; k++) {
+            builder.addTransportTime(0, 0, k, time);
+            time = Math.max(1., time + random.nextDouble() * 30. - 10.);
+        }
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = builder.build();
+        double lastArrival = Double.NEGATIVE_INFINITY;
+        for (double departure = 0.; departure < 150.; departure += 0.5) {
+            double forward = matrix.getTransportTime(0, 0, departure);
+            assertTrue(departure + forward >= lastArrival);
+            lastArrival = departure + forward;
+            assertEquals(forward, matrix.getBackwardTransportTime(0, 0, departure + forward), 1e-9);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenTimesViolateFifo_itShouldThrowException() {
+        TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, 2, 10.).addTransportTimes(0, 1, 50., 30.).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenNumberOfTimesDoesNotMatchNumberOfSlices_itShouldThrowException() {
+        TimeDependentVehicleRoutingTransportCostsMatrix.Builder.newInstance(2, 3, 10.).addTransportTimes(0, 1, 50., 30.);
+    }
+
+    @Test
+    public void whenVehicleIsSpecified_costsShouldDependOnDepartureTime() {
+        TimeDependentVehicleRoutingTransportCostsMatrix matrix = rushHourMatrix();
+        VehicleType type = VehicleTypeImpl.Builder.newInstance("t").setCostPerDistance(2.).setCostPerTransportTime(10.).build();
+        Vehicle vehicle = mock(Vehicle.class);
+        when(vehicle.getType()).thenReturn(type);
+        assertEquals(300., matrix.getTransportCost(loc(0), loc(1), 0., null, vehicle), 1e-9);
+        assertEquals(600., matrix.getTransportCost(loc(0), loc(1), 60., null, vehicle), 1e-9);
+        assertEquals(600., matrix.getBackwardTransportCost(loc(0), loc(1), 100., null, vehicle), 1e-9);
+        assertEquals(100., matrix.getTransportCost(loc(0), loc(1), 60., null, null), 1e-9);
+        assertEquals(100., matrix.getDistance(loc(0), loc(1), 60., null), 0.);
+    }
+
+}
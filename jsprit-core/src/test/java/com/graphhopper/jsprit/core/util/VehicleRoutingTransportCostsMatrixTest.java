@@ -99,6 +99,24 @@ public class VehicleRoutingTransportCostsMatrixTest {
         matrix.getTransportCost(loc("2"), loc("1"), 0.0, null, null);
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void whenRequestingRelationOfUnknownLocation_itShouldThrowException() {
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(false);
+        matrixBuilder.addTransportDistance("1", "2", 2.);
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        matrix.getTransportCost(loc("1"), loc("3"), 0.0, null, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenRequestingDistanceOfRelationThatOnlyHasTime_itShouldThrowException() {
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(true);
+        matrixBuilder.addTransportDistance("1", "2", 2.);
+        matrixBuilder.addTransportTime("1", "3", 5.);
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        assertEquals(5., matrix.getTransportTime(loc("3"), loc("1"), 0.0, null, null), 0.1);
+        matrix.getDistance("3", "1");
+    }
+
     @Test
     public void whenAddingDistanceToAsymmetricMatrixUsingStringAsKey_itShouldReturnCorrectValues() {
         VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(false);
@@ -258,4 +276,42 @@ public class VehicleRoutingTransportCostsMatrixTest {
         assertEquals(1., matrix.getTransportCost(loc("to"), loc("from"), 0.0, null, vehicle), 0.1);
     }
 
+    @Test
+    public void whenBuildingLargeSparseSymmetricMatrix_itShouldReturnCorrectValues() {
+        int noLocations = 50000;
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(true);
+        for (int i = 0; i < noLocations - 1; i++) {
+            matrixBuilder.addTransportDistance("" + i, "" + (i + 1), i);
+            matrixBuilder.addTransportTime("" + i, "" + (i + 1), 2. * i);
+        }
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        assertEquals(0., matrix.getDistance("0", "1"), 0.01);
+        assertEquals(49998., matrix.getDistance("49998", "49999"), 0.01);
+        assertEquals(49998., matrix.getDistance("49999", "49998"), 0.01);
+        assertEquals(2. * 12345, matrix.getTransportTime(loc("12346"), loc("12345"), 0.0, null, null), 0.01);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void whenRequestingMissingRelationOfLargeSparseMatrix_itShouldThrowException() {
+        int noLocations = 50000;
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(false);
+        for (int i = 0; i < noLocations - 1; i++) {
+            matrixBuilder.addTransportDistance("" + i, "" + (i + 1), i);
+        }
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        assertEquals(1., matrix.getDistance("1", "2"), 0.01);
+        matrix.getDistance("2", "1");
+    }
+
+    @Test
+    public void whenOnlyDistancesAreSet_itShouldReturnZeroTimes() {
+        VehicleRoutingTransportCostsMatrix.Builder matrixBuilder = VehicleRoutingTransportCostsMatrix.Builder.newInstance(false);
+        for (int i = 0; i < 10; i++) {
+            matrixBuilder.addTransportDistance("hub", "" + i, i);
+        }
+        VehicleRoutingTransportCostsMatrix matrix = matrixBuilder.build();
+        assertEquals(5., matrix.getDistance("hub", "5"), 0.01);
+        assertEquals(0., matrix.getTransportTime(loc("hub"), loc("5"), 0.0, null, null), 0.01);
+    }
+
 }